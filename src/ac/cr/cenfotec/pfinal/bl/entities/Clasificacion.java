@@ -0,0 +1,79 @@
+package ac.cr.cenfotec.pfinal.bl.entities;
+
+/**
+ * Resultado de la clasificación automática de un ticket.
+ * <p>
+ * Contiene la categoría técnica y la emoción con más coincidencias en el
+ * asunto y la descripción del ticket, junto con su nivel de confianza
+ * (proporción de coincidencias que obtuvo la ganadora, entre 0 y 1).
+ * </p>
+ * <p>
+ * Es inmutable, de modo que puede publicarse en un ticket desde otro hilo
+ * sin que un lector vea valores a medio actualizar.
+ * </p>
+ */
+
+public final class Clasificacion {
+    /** Clasificación vacía para tickets sin coincidencias en los diccionarios. */
+    public static final Clasificacion SIN_COINCIDENCIAS = new Clasificacion(null, 0, null, 0);
+
+    private final int categoria; /** Código en {@link TablaSimbolos#CATEGORIAS} de la categoría técnica principal ({@link TablaSimbolos#NULO} si no hubo coincidencias). */
+    private final double confianzaCategoria; /** Confianza de la categoría técnica (0 a 1). */
+    private final int emocion; /** Código en {@link TablaSimbolos#CATEGORIAS} de la emoción principal ({@link TablaSimbolos#NULO} si no hubo coincidencias). */
+    private final double confianzaEmocion; /** Confianza de la emoción (0 a 1). */
+
+    /**
+     * Constructor principal.
+     *
+     * @param categoria          categoría técnica principal
+     * @param confianzaCategoria confianza de la categoría
+     * @param emocion            emoción principal
+     * @param confianzaEmocion   confianza de la emoción
+     */
+    public Clasificacion(String categoria, double confianzaCategoria, String emocion, double confianzaEmocion) {
+        this.categoria = TablaSimbolos.CATEGORIAS.codigo(categoria);
+        this.confianzaCategoria = confianzaCategoria;
+        this.emocion = TablaSimbolos.CATEGORIAS.codigo(emocion);
+        this.confianzaEmocion = confianzaEmocion;
+    }
+
+    /** @return categoría técnica principal o null */
+    public String getCategoria() {
+        return TablaSimbolos.CATEGORIAS.texto(categoria);
+    }
+    /** @return código de la categoría técnica en {@link TablaSimbolos#CATEGORIAS} */
+    public int getCodigoCategoria() {
+        return categoria;
+    }
+    /** @return confianza de la categoría técnica */
+    public double getConfianzaCategoria() {
+        return confianzaCategoria;
+    }
+    /** @return emoción principal o null */
+    public String getEmocion() {
+        return TablaSimbolos.CATEGORIAS.texto(emocion);
+    }
+    /** @return código de la emoción en {@link TablaSimbolos#CATEGORIAS} */
+    public int getCodigoEmocion() {
+        return emocion;
+    }
+    /** @return confianza de la emoción */
+    public double getConfianzaEmocion() {
+        return confianzaEmocion;
+    }
+
+    /**
+     * Representación textual de la clasificación.
+     *
+     * @return cadena con la categoría, la emoción y sus confianzas
+     */
+    @Override
+    public String toString() {
+        return "Clasificacion{" +
+                "categoria='" + getCategoria() + '\'' +
+                ", confianzaCategoria=" + confianzaCategoria +
+                ", emocion='" + getEmocion() + '\'' +
+                ", confianzaEmocion=" + confianzaEmocion +
+                '}';
+    }
+}
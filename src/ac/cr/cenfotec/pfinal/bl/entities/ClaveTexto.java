@@ -0,0 +1,63 @@
+package ac.cr.cenfotec.pfinal.bl.entities;
+
+/**
+ * Normalización de textos que se comparan sin distinguir mayúsculas
+ * (correos, nombres de departamento, palabras de los diccionarios).
+ * <p>
+ * Cada carácter se pasa a mayúscula y luego a minúscula con las reglas de
+ * {@link Character}, que no dependen del locale: "Á" y "á" dan la misma
+ * clave, y la "I" no se convierte en "ı" aunque la JVM corra en turco. Es
+ * la misma regla de {@link String#equalsIgnoreCase}, así que dos textos
+ * tienen la misma clave si y solo si {@code equalsIgnoreCase} los considera
+ * iguales.
+ * </p>
+ * <p>
+ * Si el texto ya está normalizado se devuelve la misma instancia, sin
+ * crear objetos.
+ * </p>
+ */
+
+public final class ClaveTexto {
+
+    private ClaveTexto() {
+    }
+
+    /**
+     * @param texto texto original
+     * @return clave normalizada, o null si el texto es null
+     */
+    public static String normalizar(String texto) {
+        if (texto == null) return null;
+        int n = texto.length();
+        int i = 0;
+        while (i < n) {
+            int c = texto.codePointAt(i);
+            if (plegar(c) != c) break;
+            i += Character.charCount(c);
+        }
+        if (i == n) return texto;
+        StringBuilder clave = new StringBuilder(n).append(texto, 0, i);
+        while (i < n) {
+            int c = texto.codePointAt(i);
+            clave.appendCodePoint(plegar(c));
+            i += Character.charCount(c);
+        }
+        return clave.toString();
+    }
+
+    /**
+     * Igual que {@link #normalizar(String)}, pero devuelve la cadena vacía en
+     * lugar de null, para usar el resultado en mapas concurrentes, que no
+     * aceptan claves null.
+     *
+     * @param texto texto original, o null
+     * @return clave normalizada, o "" si el texto es null
+     */
+    public static String clave(String texto) {
+        return texto == null ? "" : normalizar(texto);
+    }
+
+    private static int plegar(int c) {
+        return Character.toLowerCase(Character.toUpperCase(c));
+    }
+}
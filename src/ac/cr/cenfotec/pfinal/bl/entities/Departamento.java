@@ -14,6 +14,8 @@ package ac.cr.cenfotec.pfinal.bl.entities;
 public class Departamento {
     /** Nombre único del departamento. */
     private String nombre;
+    /** Nombre normalizado con {@link ClaveTexto}, para {@code equals()} y {@code hashCode()}. */
+    private String claveNombre;
     /** Descripción general de funciones o alcance del departamento. */
     private String descripcion;
     /** Información de contacto (correo o extensión telefónica). */
@@ -32,6 +34,7 @@ public class Departamento {
      */
     public Departamento(String nombre, String descripcion, String contacto) {
         this.nombre = nombre;
+        this.claveNombre = ClaveTexto.normalizar(nombre);
         this.descripcion = descripcion;
         this.contacto = contacto;
     }
@@ -41,7 +44,11 @@ public class Departamento {
     }  /** @return Nombre del departamento. */
     public void setNombre(String nombre) {
         this.nombre = nombre;
+        this.claveNombre = ClaveTexto.normalizar(nombre);
     } /** @param nombre Nuevo nombre del departamento. */
+    public String getClaveNombre() {
+        return claveNombre;
+    } /** @return Nombre normalizado con {@link ClaveTexto}, o null si no tiene nombre. */
     public String getDescripcion() {
         return descripcion;
     } /** @return Descripción del departamento. */
@@ -69,16 +76,17 @@ public class Departamento {
         if (getClass() != obj.getClass()) return false;
 
         Departamento otro = (Departamento) obj;
-        return nombre != null && nombre.equalsIgnoreCase(otro.nombre);
+        return claveNombre != null && claveNombre.equals(otro.claveNombre);
     }
 
     /**
-     * Genera un valor hash consistente con {@code equals()},
+     * Genera un valor hash consistente con {@code equals()}, a partir del
+     * nombre ya normalizado y sin crear objetos.
      * @return hash del nombre.
      */
     @Override
     public int hashCode() {
-        return nombre == null ? 0 : nombre.toLowerCase().hashCode();
+        return claveNombre == null ? 0 : claveNombre.hashCode();
     }
 
     /**
@@ -18,7 +18,8 @@ package ac.cr.cenfotec.pfinal.bl.entities;
 
 public class Diccionario {
     private String palabra;  /** Palabra clave asociada a una emoción o categoría técnica. */
-    private String categoria; /** Categoría asignada a la palabra (ejemplo: "frustración", "impresoras"). */
+    private String clave; /** Palabra normalizada con {@link ClaveTexto}, para {@code equals()} y {@code hashCode()}. */
+    private int categoria; /** Código en {@link TablaSimbolos#CATEGORIAS} de la categoría asignada (ejemplo: "frustración", "impresoras"). */
 
     /**
      * Constructor vacío requerido para frameworks y procesos de inicialización.
@@ -34,7 +35,8 @@ public class Diccionario {
 
     public  Diccionario(String palabra, String categoria) {
         this.palabra = palabra;
-        this.categoria = categoria;
+        this.clave = ClaveTexto.normalizar(palabra);
+        this.categoria = TablaSimbolos.CATEGORIAS.codigo(categoria);
     }
 
     /**
@@ -52,6 +54,16 @@ public class Diccionario {
      */
     public void setPalabra(String palabra) {
         this.palabra = palabra;
+        this.clave = ClaveTexto.normalizar(palabra);
+    }
+    /**
+     * Obtiene la palabra normalizada con {@link ClaveTexto}, que se usa para
+     * comparar entradas sin distinguir mayúsculas.
+     *
+     * @return palabra normalizada o null si no hay palabra
+     */
+    public String getClave() {
+        return clave;
     }
     /**
      * Obtiene la categoría asociada a la palabra.
@@ -59,6 +71,14 @@ public class Diccionario {
      * @return categoría asignada
      */
     public String getCategoria() {
+        return TablaSimbolos.CATEGORIAS.texto(categoria);
+    }
+    /**
+     * Obtiene el código de la categoría en {@link TablaSimbolos#CATEGORIAS}.
+     *
+     * @return código de la categoría
+     */
+    public int getCodigoCategoria() {
         return categoria;
     }
     /**
@@ -67,7 +87,7 @@ public class Diccionario {
      * @param categoria nueva categoría
      */
     public void setCategoria(String categoria) {
-        this.categoria = categoria;
+        this.categoria = TablaSimbolos.CATEGORIAS.codigo(categoria);
     }
 
     /**
@@ -86,17 +106,18 @@ public class Diccionario {
         if (getClass() != obj.getClass()) return false;
 
         Diccionario otro = (Diccionario) obj;
-        return palabra != null && palabra.equalsIgnoreCase(otro.palabra);
+        return clave != null && clave.equals(otro.clave);
     }
 
     /**
-     * Calcula el código hash basado únicamente en la palabra, en minúsculas.
+     * Calcula el código hash basado únicamente en la palabra normalizada,
+     * sin crear objetos.
      *
      * @return valor hash de la palabra o 0 si es nula
      */
     @Override
     public int hashCode() {
-        return palabra == null ? 0 : palabra.toLowerCase().hashCode();
+        return clave == null ? 0 : clave.hashCode();
     }
 
     /**
@@ -108,7 +129,7 @@ public class Diccionario {
     public String toString() {
         return "Diccionario{" +
                 "palabra='" + palabra + '\'' +
-                ", categoria='" + categoria + '\'' +
+                ", categoria='" + getCategoria() + '\'' +
                 '}';
     }
 }
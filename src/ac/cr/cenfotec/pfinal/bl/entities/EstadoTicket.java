@@ -0,0 +1,75 @@
+package ac.cr.cenfotec.pfinal.bl.entities;
+
+/**
+ * Estados del ciclo de vida de un ticket.
+ * <p>
+ * Las transiciones permitidas son:
+ * </p>
+ * <pre>
+ * Nuevo       → En Progreso, Resuelto
+ * En Progreso → Nuevo (se devuelve a la cola), Resuelto
+ * Resuelto    → En Progreso (se reabre)
+ * </pre>
+ * <p>
+ * Cada estado conserva el texto que se usaba antes como {@code String},
+ * que es el que se guarda en disco.
+ * </p>
+ */
+
+public enum EstadoTicket {
+    NUEVO("Nuevo"),
+    EN_PROGRESO("En Progreso"),
+    RESUELTO("Resuelto");
+
+    private final String texto; /** Texto visible y persistido del estado. */
+
+    EstadoTicket(String texto) {
+        this.texto = texto;
+    }
+
+    /** @return texto del estado, por ejemplo "En Progreso" */
+    public String getTexto() {
+        return texto;
+    }
+
+    /**
+     * Indica si un ticket puede pasar de este estado al indicado.
+     *
+     * @param destino estado nuevo
+     * @return true si la transición es válida
+     */
+    public boolean puedeCambiarA(EstadoTicket destino) {
+        switch (this) {
+            case NUEVO:
+                return destino == EN_PROGRESO || destino == RESUELTO;
+            case EN_PROGRESO:
+                return destino == NUEVO || destino == RESUELTO;
+            case RESUELTO:
+                return destino == EN_PROGRESO;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Obtiene el estado que corresponde a un texto, sin distinguir mayúsculas.
+     *
+     * @param texto texto del estado
+     * @return estado encontrado o null si el texto no corresponde a ninguno
+     */
+    public static EstadoTicket desdeTexto(String texto) {
+        if (texto == null) return null;
+        for (EstadoTicket e : values()) {
+            if (e.texto.equalsIgnoreCase(texto.trim())) return e;
+        }
+        return null;
+    }
+
+    /**
+     * @return texto del estado
+     */
+    @Override
+    public String toString() {
+        return texto;
+    }
+}
@@ -40,6 +40,23 @@ public class Funcionario extends Usuario{ //herencia
         super(nombre, correo, hash, sal, telefono, "funcionario");
         this.especialidad = especialidad;
     }
+    /**
+     * Crea un funcionario con el hash de su contraseña ya calculado en bytes.
+     *
+     * @param nombre       nombre del funcionario
+     * @param correo       correo institucional del funcionario
+     * @param hash         bytes del hash de la contraseña
+     * @param sal          bytes de la sal
+     * @param algoritmo    algoritmo con que se generó el hash
+     * @param costo        costo del algoritmo
+     * @param telefono     número telefónico del funcionario
+     * @param especialidad área de especialización del funcionario
+     */
+    public Funcionario(String nombre, String correo, byte[] hash, byte[] sal, String algoritmo, int costo,
+                       String telefono, String especialidad) {
+        super(nombre, correo, hash, sal, algoritmo, costo, telefono, "funcionario");
+        this.especialidad = especialidad;
+    }
 
     /**
      * Obtiene la especialidad o área del funcionario.
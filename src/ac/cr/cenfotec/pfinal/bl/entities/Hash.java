@@ -1,17 +1,26 @@
 package ac.cr.cenfotec.pfinal.bl.entities;
 
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+import java.security.GeneralSecurityException;
 import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.security.SecureRandom;
+import java.util.Arrays;
 import java.util.Base64;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Utilidad para la generación de contraseñas seguras mediante
  * el uso de sal (salt) y hashing con SHA-256.
  * <p>
- * Esta clase proporciona dos métodos estáticos:
+ * Esta clase proporciona métodos estáticos para:
  * <ul>
- *     <li>{@link #generarSal()} para generar valores aleatorios de sal.</li>
- *     <li>{@link #HashConSal(String, String)} para generar el hash seguro de una contraseña.</li>
+ *     <li>generar valores aleatorios de sal, en Base64 ({@link #generarSal()}), en bytes ({@link #generarSalBytes()})
+ *     o varias a la vez para registros masivos ({@link #generarSales(int)});</li>
+ *     <li>generar el hash de una contraseña con SHA-256 simple ({@link #HashConSal(String, String)},
+ *     {@link #hashConSal(String, byte[])}) o con un algoritmo y costo registrados ({@link #calcular});</li>
+ *     <li>verificar una contraseña contra un hash guardado, en tiempo constante ({@link #verificar}).</li>
  * </ul>
  * </p>
  *
@@ -21,9 +30,125 @@ import java.util.Base64;
  * hash = SHA-256( sal + contraseña )
  * </pre>
  * Todo codificado en Base64 para facilitar su almacenamiento.
+ * <p>
+ * Las variantes con {@code byte[]} evitan la conversión a Base64 y reutilizan
+ * un {@link MessageDigest} por hilo, ya que {@code getInstance} busca el
+ * proveedor en cada llamada.
+ * </p>
+ * <p>
+ * Además del SHA-256 simple, los hashes pueden calcularse con cualquier
+ * {@link Algoritmo} registrado, identificado por nombre y con un parámetro
+ * de costo (por ejemplo, iteraciones de {@value #PBKDF2}). Cada usuario
+ * guarda el algoritmo y el costo con los que se generó su hash, así que se
+ * puede subir el costo sin invalidar las contraseñas existentes.
+ * </p>
  */
 
 public class Hash {
+    /** Nombre del algoritmo original: una sola ronda de SHA-256. */
+    public static final String SHA256_SIMPLE = "SHA-256";
+    /** Nombre del algoritmo PBKDF2 con HMAC-SHA256. */
+    public static final String PBKDF2 = "PBKDF2WithHmacSHA256";
+    /** Iteraciones por defecto de PBKDF2. */
+    public static final int COSTO_POR_DEFECTO = 210_000;
+
+    /** Longitud en bytes de las sales generadas. */
+    public static final int LONGITUD_SAL = 16;
+
+    /**
+     * Generador aleatorio de cada hilo. Se siembra una sola vez al crearse;
+     * crear un {@link SecureRandom} por sal lo vuelve a sembrar en cada
+     * llamada y, bajo carga, puede esperar entropía del sistema.
+     */
+    private static final ThreadLocal<SecureRandom> ALEATORIO = ThreadLocal.withInitial(SecureRandom::new);
+    /** Instancia de SHA-256 reutilizada por cada hilo. */
+    private static final ThreadLocal<MessageDigest> SHA256 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException("Error al encriptar", e);
+        }
+    });
+    /** Fábrica de PBKDF2 reutilizada por cada hilo. */
+    private static final ThreadLocal<SecretKeyFactory> FABRICA_PBKDF2 = ThreadLocal.withInitial(() -> {
+        try {
+            return SecretKeyFactory.getInstance(PBKDF2);
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException("Error al encriptar", e);
+        }
+    });
+    /** Algoritmos disponibles, por nombre. */
+    private static final ConcurrentHashMap<String, Algoritmo> ALGORITMOS = new ConcurrentHashMap<>();
+
+    static {
+        registrarAlgoritmo(new Algoritmo() {
+            @Override
+            public String getNombre() {
+                return SHA256_SIMPLE;
+            }
+            @Override
+            public byte[] calcular(String contrasena, byte[] sal, int costo) {
+                return hashConSal(contrasena, sal);
+            }
+        });
+        registrarAlgoritmo(new Algoritmo() {
+            @Override
+            public String getNombre() {
+                return PBKDF2;
+            }
+            @Override
+            public byte[] calcular(String contrasena, byte[] sal, int costo) {
+                PBEKeySpec spec = new PBEKeySpec(contrasena.toCharArray(), sal, costo, 256);
+                try {
+                    return FABRICA_PBKDF2.get().generateSecret(spec).getEncoded();
+                } catch (GeneralSecurityException e) {
+                    throw new RuntimeException("Error al encriptar", e);
+                } finally {
+                    spec.clearPassword();
+                }
+            }
+        });
+    }
+
+    /**
+     * Función de hash de contraseñas con sal y costo configurable.
+     */
+    public interface Algoritmo {
+        /** @return nombre con el que se guarda junto al hash */
+        String getNombre();
+
+        /**
+         * Calcula el hash de una contraseña.
+         *
+         * @param contrasena contraseña en texto plano
+         * @param sal        bytes de la sal
+         * @param costo      parámetro de trabajo propio del algoritmo
+         * @return bytes del hash
+         */
+        byte[] calcular(String contrasena, byte[] sal, int costo);
+    }
+
+    /**
+     * Registra (o reemplaza) un algoritmo de hash.
+     *
+     * @param algoritmo algoritmo a registrar
+     */
+    public static void registrarAlgoritmo(Algoritmo algoritmo) {
+        ALGORITMOS.put(algoritmo.getNombre(), algoritmo);
+    }
+
+    /**
+     * Busca un algoritmo registrado.
+     *
+     * @param nombre nombre del algoritmo
+     * @return algoritmo encontrado
+     * @throws RuntimeException si el algoritmo no está registrado
+     */
+    public static Algoritmo algoritmo(String nombre) {
+        Algoritmo a = nombre == null ? null : ALGORITMOS.get(nombre);
+        if (a == null) throw new RuntimeException("Algoritmo de hash desconocido: " + nombre);
+        return a;
+    }
 
     /**
      * Genera una sal (salt) aleatoria de 16 bytes utilizando un
@@ -32,9 +157,37 @@ public class Hash {
      * @return una cadena Base64 que representa la sal generada
      */
     public static String generarSal (){
-        byte [] sal = new byte[16];
-        new SecureRandom().nextBytes(sal);
-        return Base64.getEncoder().encodeToString(sal);
+        return Base64.getEncoder().encodeToString(generarSalBytes());
+    }
+    /**
+     * Genera una sal aleatoria de 16 bytes sin codificar.
+     *
+     * @return bytes de la sal
+     */
+    public static byte[] generarSalBytes() {
+        byte [] sal = new byte[LONGITUD_SAL];
+        ALEATORIO.get().nextBytes(sal);
+        return sal;
+    }
+    /**
+     * Genera varias sales de una vez, con una sola lectura del generador
+     * aleatorio, para registros masivos.
+     *
+     * @param cantidad cantidad de sales
+     * @return sales de 16 bytes sin codificar
+     * @throws RuntimeException si la cantidad es negativa o sus bytes no caben en un arreglo
+     */
+    public static byte[][] generarSales(int cantidad) {
+        if (cantidad < 0 || cantidad > Integer.MAX_VALUE / LONGITUD_SAL) {
+            throw new RuntimeException("Cantidad de sales inválida: " + cantidad);
+        }
+        byte[] bloque = new byte[cantidad * LONGITUD_SAL];
+        ALEATORIO.get().nextBytes(bloque);
+        byte[][] sales = new byte[cantidad][];
+        for (int i = 0; i < cantidad; i++) {
+            sales[i] = Arrays.copyOfRange(bloque, i * LONGITUD_SAL, (i + 1) * LONGITUD_SAL);
+        }
+        return sales;
     }
     /**
      * Genera un hash seguro basado en la contraseña recibida y una sal.
@@ -55,12 +208,61 @@ public class Hash {
      */
     public static String HashConSal(String contrasena, String sal) {
         try {
-            MessageDigest md = MessageDigest.getInstance("SHA-256");
-            md.update(Base64.getDecoder().decode(sal));
-            byte[] hash = md.digest(contrasena.getBytes());
-            return Base64.getEncoder().encodeToString(hash);
+            return Base64.getEncoder().encodeToString(hashConSal(contrasena, Base64.getDecoder().decode(sal)));
         } catch (Exception e) {
             throw new RuntimeException("Error al encriptar",e);
         }
     }
+    /**
+     * Calcula SHA-256( sal + contraseña ) sin pasar por Base64.
+     *
+     * @param contrasena contraseña en texto plano
+     * @param sal        bytes de la sal
+     * @return bytes del hash
+     */
+    public static byte[] hashConSal(String contrasena, byte[] sal) {
+        MessageDigest md = SHA256.get();
+        md.reset();
+        md.update(sal);
+        return md.digest(contrasena.getBytes());
+    }
+    /**
+     * Verifica una contraseña contra un hash guardado. La comparación toma
+     * el mismo tiempo sin importar en qué byte difieran los hashes.
+     *
+     * @param contrasena contraseña ingresada
+     * @param sal        bytes de la sal del usuario
+     * @param esperado   bytes del hash guardado
+     * @return true si la contraseña es correcta
+     */
+    public static boolean verificar(String contrasena, byte[] sal, byte[] esperado) {
+        return verificar(SHA256_SIMPLE, 1, contrasena, sal, esperado);
+    }
+    /**
+     * Calcula el hash de una contraseña con el algoritmo indicado.
+     *
+     * @param algoritmo  nombre del algoritmo
+     * @param costo      parámetro de trabajo
+     * @param contrasena contraseña en texto plano
+     * @param sal        bytes de la sal
+     * @return bytes del hash
+     */
+    public static byte[] calcular(String algoritmo, int costo, String contrasena, byte[] sal) {
+        return algoritmo(algoritmo).calcular(contrasena, sal, costo);
+    }
+    /**
+     * Verifica una contraseña contra un hash generado con el algoritmo y el
+     * costo indicados, comparando en tiempo constante.
+     *
+     * @param algoritmo  nombre del algoritmo del hash guardado
+     * @param costo      costo del hash guardado
+     * @param contrasena contraseña ingresada
+     * @param sal        bytes de la sal del usuario
+     * @param esperado   bytes del hash guardado
+     * @return true si la contraseña es correcta
+     */
+    public static boolean verificar(String algoritmo, int costo, String contrasena, byte[] sal, byte[] esperado) {
+        if (contrasena == null || sal == null || esperado == null) return false;
+        return MessageDigest.isEqual(calcular(algoritmo, costo, contrasena, sal), esperado);
+    }
 }
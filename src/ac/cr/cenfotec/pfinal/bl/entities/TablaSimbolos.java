@@ -0,0 +1,101 @@
+package ac.cr.cenfotec.pfinal.bl.entities;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Tabla de símbolos para campos de texto con pocos valores distintos (rol de
+ * un usuario, categoría de una palabra o de una clasificación).
+ * <p>
+ * Cada texto distinto recibe un código entero pequeño y se guarda una sola
+ * vez en la tabla; las entidades guardan solo el código. Así, un millón de
+ * usuarios con rol "estudiante" leídos de disco o de un CSV no guardan un
+ * millón de copias del mismo texto, y los códigos sirven como índice de
+ * arreglos para agregados.
+ * </p>
+ * <p>
+ * Los códigos no cambian mientras corre el programa, pero no se persisten:
+ * en disco se sigue guardando el texto.
+ * </p>
+ * <p>
+ * Los textos nunca se liberan, así que cada tabla tiene un máximo de valores
+ * distintos. Las categorías y los roles llegan como texto libre (por
+ * ejemplo, en una palabra nueva del diccionario recibida por HTTP); sin el
+ * máximo, un cliente podría hacer crecer la tabla, y los agregados que la
+ * usan como índice, sin límite.
+ * </p>
+ */
+
+public final class TablaSimbolos {
+    /** Código de un texto nulo. */
+    public static final int NULO = 0;
+    /** Máximo de roles distintos. */
+    public static final int MAXIMO_ROLES = 1024;
+    /** Máximo de categorías distintas. */
+    public static final int MAXIMO_CATEGORIAS = 4096;
+    /** Roles de usuario. */
+    public static final TablaSimbolos ROLES = new TablaSimbolos("roles distintos", MAXIMO_ROLES);
+    /** Categorías técnicas y emocionales de los diccionarios y las clasificaciones. */
+    public static final TablaSimbolos CATEGORIAS = new TablaSimbolos("categorías distintas", MAXIMO_CATEGORIAS);
+
+    private final String nombre; /** Qué guarda la tabla, para los mensajes de error. */
+    private final int maximo; /** Máximo de textos distintos, sin contar {@link #NULO}. */
+    private final ConcurrentHashMap<String, Integer> codigos = new ConcurrentHashMap<>(); /** Texto → código. */
+    private volatile String[] textos = new String[]{null}; /** Código → texto; se reemplaza completo al crecer. */
+
+    private TablaSimbolos(String nombre, int maximo) {
+        this.nombre = nombre;
+        this.maximo = maximo;
+    }
+
+    /**
+     * Obtiene el código de un texto, asignándole uno nuevo si no lo tenía.
+     *
+     * @param texto texto a codificar (se distinguen mayúsculas)
+     * @return código del texto, o {@link #NULO} si es null
+     * @throws RuntimeException si el texto es nuevo y la tabla ya tiene el máximo de valores
+     */
+    public int codigo(String texto) {
+        if (texto == null) return NULO;
+        Integer c = codigos.get(texto);
+        if (c != null) return c;
+        synchronized (this) {
+            c = codigos.get(texto);
+            if (c != null) return c;
+            if (textos.length > maximo) {
+                throw new RuntimeException("No se admiten más de " + maximo + " " + nombre);
+            }
+            String[] nuevos = Arrays.copyOf(textos, textos.length + 1);
+            nuevos[textos.length] = texto;
+            textos = nuevos;
+            codigos.put(texto, textos.length - 1);
+            return textos.length - 1;
+        }
+    }
+
+    /**
+     * Obtiene el código de un texto sin asignarle uno nuevo, para consultas
+     * con textos que pueden no existir.
+     *
+     * @param texto texto buscado
+     * @return código del texto, o {@link #NULO} si es null o no tiene código
+     */
+    public int buscar(String texto) {
+        if (texto == null) return NULO;
+        Integer c = codigos.get(texto);
+        return c == null ? NULO : c;
+    }
+
+    /**
+     * @param codigo código obtenido con {@link #codigo(String)}
+     * @return texto del código, o null si es {@link #NULO}
+     */
+    public String texto(int codigo) {
+        return textos[codigo];
+    }
+
+    /** @return cantidad de códigos asignados, incluido {@link #NULO} */
+    public int getCantidad() {
+        return textos.length;
+    }
+}
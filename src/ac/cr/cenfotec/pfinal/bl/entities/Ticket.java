@@ -1,5 +1,8 @@
 package ac.cr.cenfotec.pfinal.bl.entities;
 
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+
 /**
  * Representa un ticket de soporte dentro del sistema.
  * <p>
@@ -10,18 +13,48 @@ package ac.cr.cenfotec.pfinal.bl.entities;
  *
  * <p>
  * El sistema asigna automáticamente un identificador único incremental mediante
- * un contador estático.
+ * un contador estático atómico, por lo que varios hilos pueden crear tickets
+ * a la vez sin repetir IDs.
+ * </p>
+ * <p>
+ * Un ticket registrado en un gestor tiene un {@link Observador}: cambiar su
+ * descripción con {@link #setDescripcion(String)} pasa por él, que registra
+ * el cambio y actualiza los índices y la clasificación.
  * </p>
  */
 
 public class Ticket {
-    private static int contador = 1;  /** Contador estático para generar IDs únicos. */
+    /**
+     * Recibe los cambios de descripción de los tickets que administra.
+     */
+    @FunctionalInterface
+    public interface Observador {
+        /**
+         * Aplica un cambio de descripción. Debe ejecutar {@code aplicar}
+         * exactamente una vez para que el ticket guarde la descripción nueva,
+         * o lanzar una excepción para rechazar el cambio.
+         *
+         * @param t           ticket a modificar
+         * @param descripcion descripción nueva
+         * @param aplicar     asigna la descripción nueva al ticket
+         */
+        void cambiarDescripcion(Ticket t, String descripcion, Runnable aplicar);
+    }
+
+    private static final AtomicInteger contador = new AtomicInteger(1);  /** Contador estático para generar IDs únicos. */
+    private static final AtomicReferenceFieldUpdater<Ticket, Clasificacion> CLASIFICACION =
+            AtomicReferenceFieldUpdater.newUpdater(Ticket.class, Clasificacion.class, "clasificacion"); /** Acceso atómico a {@link #clasificacion}. */
     private int id; /** ID único del ticket. */
     private String asunto;  /** Breve resumen del problema reportado. */
     private String descripcion;  /** Descripción detallada del problema. */
-    private String estado;  /** Estado del ticket (Nuevo, En Progreso, Resuelto). */
+    private volatile EstadoTicket estado;  /** Estado del ticket (Nuevo, En Progreso, Resuelto). */
+    private volatile String estadoLibre; /** Texto de estado que no corresponde a ningún {@link EstadoTicket}, tal como se asignó; null si {@link #estado} lo representa. */
     private Usuario usuario; /** Usuario asociado que creó el ticket. */
     private Departamento departamento; /** Departamento encargado de resolver el ticket. */
+    private volatile Clasificacion clasificacion; /** Clasificación automática; null mientras esté pendiente. */
+    private long fechaCreacion; /** Momento de creación, en milisegundos desde 1970 (0 si se desconoce). */
+    private volatile int posibleDuplicado; /** ID de otro ticket activo muy parecido del mismo departamento, o 0 si no se detectó ninguno. */
+    private volatile Observador observador; /** Recibe los cambios de descripción, o null si el ticket no está registrado. */
 
     /**
      * Constructor por defecto.
@@ -30,7 +63,8 @@ public class Ticket {
      * </p>
      */
     public Ticket(){
-        this.id = contador++;
+        this.id = contador.getAndIncrement();
+        this.fechaCreacion = System.currentTimeMillis();
     }
     /**
      * Constructor principal para crear un ticket con todos sus datos.
@@ -42,13 +76,49 @@ public class Ticket {
      * @param departamento departamento asignado
      */
     public Ticket(String asunto, String descripcion, String estado, Usuario usuario, Departamento departamento){
-        this.id = contador++;
+        this.id = contador.getAndIncrement();
+        this.fechaCreacion = System.currentTimeMillis();
         this.asunto = asunto;
         this.descripcion = descripcion;
-        this.estado = estado;
+        asignarEstado(estado);
         this.usuario = usuario;
         this.departamento = departamento;
     }
+    /**
+     * Constructor para reconstruir un ticket existente (por ejemplo, al
+     * recuperar datos persistidos). No consume un ID del contador.
+     *
+     * @param id           identificador original del ticket
+     * @param asunto       asunto del ticket
+     * @param descripcion  detalle del problema reportado
+     * @param estado       estado del ticket
+     * @param usuario      usuario que reportó el incidente
+     * @param departamento departamento asignado
+     */
+    public Ticket(int id, String asunto, String descripcion, String estado, Usuario usuario, Departamento departamento){
+        this(id, asunto, descripcion, estado, usuario, departamento, 0);
+    }
+    /**
+     * Constructor para reconstruir un ticket existente conservando su fecha de creación.
+     *
+     * @param id            identificador original del ticket
+     * @param asunto        asunto del ticket
+     * @param descripcion   detalle del problema reportado
+     * @param estado        estado del ticket
+     * @param usuario       usuario que reportó el incidente
+     * @param departamento  departamento asignado
+     * @param fechaCreacion momento de creación en milisegundos desde 1970
+     */
+    public Ticket(int id, String asunto, String descripcion, String estado, Usuario usuario, Departamento departamento,
+                  long fechaCreacion){
+        this.id = id;
+        this.asunto = asunto;
+        this.descripcion = descripcion;
+        asignarEstado(estado);
+        this.usuario = usuario;
+        this.departamento = departamento;
+        this.fechaCreacion = fechaCreacion;
+    }
     public String getAsunto() { /** @return asunto del ticket */
         return asunto;
     }
@@ -58,29 +128,67 @@ public class Ticket {
     public String getDescripcion() {
         return descripcion;
     }   /** @return descripción del ticket */
-    /** @param descripcion nueva descripción del ticket */
-    public void setDescripcion(String descripcion) {this.descripcion = descripcion;}
+    /**
+     * Cambia la descripción. Si el ticket tiene {@link Observador}, el cambio
+     * pasa por él (y puede rechazarse); si no, solo se asigna.
+     *
+     * @param descripcion nueva descripción del ticket
+     */
+    public void setDescripcion(String descripcion) {
+        Observador o = observador;
+        if (o == null) {
+            this.descripcion = descripcion;
+        } else {
+            o.cambiarDescripcion(this, descripcion, () -> this.descripcion = descripcion);
+        }
+    }
+    /** @param observador receptor de los cambios de descripción, o null para asignarlos sin más */
+    public void setObservador(Observador observador) {
+        this.observador = observador;
+    }
     /** @return contador global de tickets generados */
     public static int getContador() {
-        return contador;
+        return contador.get();
     }
     /**
      * Permite modificar el contador (no recomendado salvo en casos de carga de datos).
      * @param contador nuevo valor del contador
      */
     public static void setContador(int contador) {
-        Ticket.contador = contador;
+        Ticket.contador.set(contador);
     }
     public int getId() {
         return id;
     } /** @return id único del ticket */
     public void setId(int id) {this.id = id;}  /** @param id nuevo identificador del ticket */
     public String getEstado() {
-        return estado;
-    }  /** @return estado actual del ticket */
+        EstadoTicket e = estado;
+        return e == null ? estadoLibre : e.getTexto();
+    }  /** @return texto del estado actual del ticket */
+    /**
+     * Asigna el estado a partir de su texto, sin validar la transición.
+     * <p>
+     * Los textos de {@link EstadoTicket} se convierten al estado
+     * correspondiente. Cualquier otro texto se acepta como antes de existir
+     * el enum: {@link #getEstado()} lo devuelve tal cual y
+     * {@link #getEstadoTicket()} devuelve null, así que el ticket no cuenta
+     * en ningún estado ni entra a la cola de despacho.
+     * </p>
+     *
+     * @param estado texto del nuevo estado del ticket
+     */
     public void setEstado(String estado) {
+        asignarEstado(estado);
+    }
+    /** @return estado actual del ticket */
+    public EstadoTicket getEstadoTicket() {
+        return estado;
+    }
+    /** @param estado nuevo estado del ticket (sin validar la transición) */
+    public void setEstadoTicket(EstadoTicket estado) {
         this.estado = estado;
-    }  /** @param estado nuevo estado del ticket */
+        this.estadoLibre = null;
+    }
     public Usuario getUsuario() {
         return usuario;
     }  /** @return usuario que creó el ticket */
@@ -88,11 +196,57 @@ public class Ticket {
     public Departamento getDepartamento() {
         return departamento;
     }  /** @return departamento encargado */
+    /** @return nombre del departamento normalizado con {@link ClaveTexto}, o "" si no tiene */
+    public String getClaveDepartamento() {
+        Departamento d = departamento;
+        String clave = d == null ? null : d.getClaveNombre();
+        return clave == null ? "" : clave;
+    }
     /** @param departamento nuevo departamento asociado */
     public void setDepartamento(Departamento departamento) {
         this.departamento = departamento;
     }
 
+    /** @return momento de creación en milisegundos desde 1970, o 0 si se desconoce */
+    public long getFechaCreacion() {
+        return fechaCreacion;
+    }
+
+    /** @return clasificación automática del ticket o null si aún no se ha clasificado */
+    public Clasificacion getClasificacion() {
+        return clasificacion;
+    }
+    /** @param clasificacion resultado de la clasificación automática */
+    public void setClasificacion(Clasificacion clasificacion) {
+        this.clasificacion = clasificacion;
+    }
+    /**
+     * Reemplaza la clasificación solo si sigue siendo la esperada, de forma
+     * atómica. Sirve para reclasificar sin pisar una clasificación más nueva.
+     *
+     * @param esperada     clasificación que se leyó antes
+     * @param clasificacion clasificación nueva
+     * @return true si se reemplazó
+     */
+    public boolean reemplazarClasificacion(Clasificacion esperada, Clasificacion clasificacion) {
+        return CLASIFICACION.compareAndSet(this, esperada, clasificacion);
+    }
+
+    /** @return ID de otro ticket activo muy parecido a este, o 0 si no se detectó ninguno */
+    public int getPosibleDuplicado() {
+        return posibleDuplicado;
+    }
+    /** @param posibleDuplicado ID del ticket del que este parece duplicado, o 0 */
+    public void setPosibleDuplicado(int posibleDuplicado) {
+        this.posibleDuplicado = posibleDuplicado;
+    }
+
+    private void asignarEstado(String texto) {
+        EstadoTicket e = EstadoTicket.desdeTexto(texto);
+        this.estadoLibre = e == null ? texto : null;
+        this.estado = e;
+    }
+
     /**
      * Dos tickets se consideran iguales si comparten el mismo ID.
      *
@@ -129,9 +283,11 @@ public class Ticket {
                 "id=" + id +
                 ", asunto='" + asunto + '\'' +
                 ", descripcion='" + descripcion + '\'' +
-                ", estado='" + estado + '\'' +
+                ", estado='" + getEstado() + '\'' +
                 ", usuario=" + usuario.getCorreo() +
                 ", departamento=" + departamento +
+                ", clasificacion=" + clasificacion +
+                ", posibleDuplicado=" + posibleDuplicado +
                 '}';
     }
 }
@@ -7,16 +7,23 @@ package ac.cr.cenfotec.pfinal.bl.entities;
  * información básica necesaria para autenticación y administración,
  * incluyendo correo, contraseña con sal y datos de contacto.
  * </p>
+ * <p>
+ * El hash y la sal se guardan como bytes; los getters y setters de texto
+ * siguen usando Base64 para compatibilidad. Junto al hash se guarda el
+ * algoritmo y el costo con que se generó (ver {@link Hash.Algoritmo}); los
+ * cuatro valores se reemplazan juntos para que una verificación concurrente
+ * nunca mezcle la sal de un hash con otro.
+ * </p>
  */
-import java.util.Objects;
+import java.util.Base64;
 
 public class Usuario {
     private String nombre;  /** Nombre del usuario. */
     private String correo; /** Correo electrónico único del usuario (identificador principal). */
-    private String contrasenaHash;  /** Contraseña cifrada (hash). */
-    private String sal;  /** Sal utilizada para generar el hash de la contraseña. */
+    private String claveCorreo; /** Correo normalizado con {@link ClaveTexto}, para {@code equals} y {@code hashCode}. */
+    private volatile Credencial credencial = new Credencial(null, null, Hash.SHA256_SIMPLE, 1);  /** Hash, sal, algoritmo y costo de la contraseña. */
     private String telefono; /** Número de teléfono del usuario. */
-    private String rol;  /** Rol del usuario dentro del sistema (estudiante, funcionario, administrador). */
+    private int rol;  /** Código en {@link TablaSimbolos#ROLES} del rol del usuario (estudiante, funcionario, administrador). */
 
     /**
      * Constructor por defecto.
@@ -28,18 +35,47 @@ public class Usuario {
      *
      * @param nombre          nombre del usuario
      * @param correo          correo electrónico único
-     * @param contrasenaHash  contraseña cifrada
-     * @param sal             sal utilizada para hashing
+     * @param contrasenaHash  contraseña cifrada (Base64)
+     * @param sal             sal utilizada para hashing (Base64)
      * @param telefono        número de teléfono
      * @param rol             rol del usuario dentro del sistema
      */
     public Usuario(String nombre, String correo, String contrasenaHash, String sal, String telefono, String rol) {
+        this(nombre, correo, decodificar(contrasenaHash), decodificar(sal), telefono, rol);
+    }
+    /**
+     * Crea un usuario con el hash y la sal ya en bytes.
+     *
+     * @param nombre          nombre del usuario
+     * @param correo          correo electrónico único
+     * @param contrasenaHash  bytes del hash de la contraseña
+     * @param sal             bytes de la sal
+     * @param telefono        número de teléfono
+     * @param rol             rol del usuario dentro del sistema
+     */
+    public Usuario(String nombre, String correo, byte[] contrasenaHash, byte[] sal, String telefono, String rol) {
+        this(nombre, correo, contrasenaHash, sal, Hash.SHA256_SIMPLE, 1, telefono, rol);
+    }
+    /**
+     * Crea un usuario cuyo hash se generó con un algoritmo y costo específicos.
+     *
+     * @param nombre          nombre del usuario
+     * @param correo          correo electrónico único
+     * @param contrasenaHash  bytes del hash de la contraseña
+     * @param sal             bytes de la sal
+     * @param algoritmo       nombre del algoritmo de hash
+     * @param costo           costo usado por el algoritmo
+     * @param telefono        número de teléfono
+     * @param rol             rol del usuario dentro del sistema
+     */
+    public Usuario(String nombre, String correo, byte[] contrasenaHash, byte[] sal, String algoritmo, int costo,
+                   String telefono, String rol) {
         this.nombre = nombre;
         this.correo = correo;
-        this.contrasenaHash = contrasenaHash;
-        this.sal = sal;
+        this.claveCorreo = ClaveTexto.normalizar(correo);
+        this.credencial = new Credencial(contrasenaHash, sal, algoritmo, costo);
         this.telefono = telefono;
-        this.rol = rol;
+        this.rol = TablaSimbolos.ROLES.codigo(rol);
     }
 
     public String getNombre() {
@@ -56,22 +92,69 @@ public class Usuario {
     /** @param correo nuevo del usuario */
     public void setCorreo(String correo) {
         this.correo = correo;
+        this.claveCorreo = ClaveTexto.normalizar(correo);
+    }
+    /** @return correo normalizado con {@link ClaveTexto}, o null si no tiene correo */
+    public String getClaveCorreo() {
+        return claveCorreo;
     }
-    /** @return hash de la contraseña */
+    /** @return hash de la contraseña en Base64 */
     public String getContrasenaHash() {
-        return contrasenaHash;
+        return codificar(credencial.hash);
     }
-    /** @param  contrasenaHash nuevo hash de contraseña */
-    public void setContrasenaHash(String contrasenaHash) {
-        this.contrasenaHash = contrasenaHash;
+    /** @param  contrasenaHash nuevo hash de contraseña en Base64 */
+    public synchronized void setContrasenaHash(String contrasenaHash) {
+        Credencial c = credencial;
+        credencial = new Credencial(decodificar(contrasenaHash), c.sal, c.algoritmo, c.costo);
     }
-    /** @return sal de la contraseña */
+    /** @return sal de la contraseña en Base64 */
     public String getSal() {
-        return sal;
+        return codificar(credencial.sal);
+    }
+    /** @param sal nueva sal en Base64 */
+    public synchronized void setSal(String sal) {
+        Credencial c = credencial;
+        credencial = new Credencial(c.hash, decodificar(sal), c.algoritmo, c.costo);
     }
-    /** @param sal nueva sal */
-    public void setSal(String sal) {
-        this.sal = sal;
+    /** @return nombre del algoritmo con que se generó el hash */
+    public String getAlgoritmoHash() {
+        return credencial.algoritmo;
+    }
+    /** @return costo con que se generó el hash */
+    public int getCostoHash() {
+        return credencial.costo;
+    }
+    /**
+     * Reemplaza de una vez el hash, la sal, el algoritmo y el costo.
+     *
+     * @param contrasenaHash bytes del hash nuevo
+     * @param sal            bytes de la sal nueva
+     * @param algoritmo      nombre del algoritmo
+     * @param costo          costo del algoritmo
+     */
+    public synchronized void actualizarCredencial(byte[] contrasenaHash, byte[] sal, String algoritmo, int costo) {
+        credencial = new Credencial(contrasenaHash, sal, algoritmo, costo);
+    }
+    /**
+     * Indica si el hash guardado se generó con otro algoritmo o costo.
+     *
+     * @param algoritmo algoritmo vigente
+     * @param costo     costo vigente
+     * @return true si conviene recalcular el hash
+     */
+    public boolean necesitaRehash(String algoritmo, int costo) {
+        Credencial c = credencial;
+        return !c.algoritmo.equals(algoritmo) || c.costo != costo;
+    }
+    /**
+     * Verifica una contraseña contra el hash guardado, en tiempo constante.
+     *
+     * @param contrasena contraseña en texto plano
+     * @return true si la contraseña es correcta
+     */
+    public boolean verificarContrasena(String contrasena) {
+        Credencial c = credencial;
+        return Hash.verificar(c.algoritmo, c.costo, contrasena, c.sal, c.hash);
     }
     /** @return número de teléfono */
     public String getTelefono() {
@@ -84,11 +167,15 @@ public class Usuario {
 
     /** @return rol del usuario */
     public String getRol() {
-        return rol;
+        return TablaSimbolos.ROLES.texto(rol);
     }
     /** @param rol nuevo rol del usuario */
     public void setRol(String rol) {
-        this.rol = rol;
+        this.rol = TablaSimbolos.ROLES.codigo(rol);
+    }
+    /** @return código del rol en {@link TablaSimbolos#ROLES} */
+    public int getCodigoRol() {
+        return rol;
     }
 
     //Metodos sobreescritos
@@ -102,10 +189,10 @@ public class Usuario {
         return "Usuario{" +
                 "nombre='" + nombre + '\'' +
                 ", correo='" + correo + '\'' +
-                ", contrasenaHash='" + contrasenaHash + '\'' +
-                ", sal='" + sal + '\'' +
+                ", contrasenaHash='" + getContrasenaHash() + '\'' +
+                ", sal='" + getSal() + '\'' +
                 ", telefono='" + telefono + '\'' +
-                ", rol='" + rol + '\'' +
+                ", rol='" + getRol() + '\'' +
                 '}';
     }
 
@@ -120,15 +207,40 @@ public class Usuario {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         Usuario otro = (Usuario) o;
-        return correo != null && correo.equalsIgnoreCase(otro.correo);
+        return claveCorreo != null && claveCorreo.equals(otro.claveCorreo);
     }
     /**
      * Genera un código hash basado únicamente en el correo electrónico.
+     * Usa el correo ya normalizado (cuyo hash guarda {@link String}), así que
+     * no crea objetos.
      *
      * @return hash calculado a partir del correo
      */
     @Override
     public int hashCode() {
-        return correo ==  null ? 0 : correo.toLowerCase().hashCode();
+        return claveCorreo == null ? 0 : claveCorreo.hashCode();
+    }
+
+    private static byte[] decodificar(String base64) {
+        return base64 == null ? null : Base64.getDecoder().decode(base64);
+    }
+
+    private static String codificar(byte[] bytes) {
+        return bytes == null ? null : Base64.getEncoder().encodeToString(bytes);
+    }
+
+    /** Valores de la contraseña que siempre cambian juntos. */
+    private static final class Credencial {
+        private final byte[] hash;
+        private final byte[] sal;
+        private final String algoritmo;
+        private final int costo;
+
+        Credencial(byte[] hash, byte[] sal, String algoritmo, int costo) {
+            this.hash = hash;
+            this.sal = sal;
+            this.algoritmo = algoritmo;
+            this.costo = costo;
+        }
     }
 }
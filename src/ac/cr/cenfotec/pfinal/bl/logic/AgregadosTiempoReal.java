@@ -0,0 +1,301 @@
+package ac.cr.cenfotec.pfinal.bl.logic;
+
+import ac.cr.cenfotec.pfinal.bl.entities.Clasificacion;
+import ac.cr.cenfotec.pfinal.bl.entities.ClaveTexto;
+import ac.cr.cenfotec.pfinal.bl.entities.TablaSimbolos;
+import ac.cr.cenfotec.pfinal.bl.entities.Ticket;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+
+/**
+ * Conteos en tiempo real de tickets por departamento, categoría técnica y
+ * emoción, en ventanas de tiempo.
+ * <p>
+ * Cada departamento tiene un anillo de {@link #RANURAS} ranuras de
+ * {@link #RESOLUCION_MS} (24 horas de minuto en minuto). Cada ranura guarda
+ * un contador por código de {@link TablaSimbolos#CATEGORIAS}. Al clasificar
+ * un ticket se suma uno en la ranura del minuto de su creación; una ranura
+ * se vacía cuando el anillo vuelve a pasar por ella. Si el ticket se vuelve
+ * a clasificar, {@link #actualizar} mueve su conteo de la clasificación
+ * anterior a la nueva dentro de la misma ranura, sin contarlo dos veces.
+ * </p>
+ * <p>
+ * Además, un segundo anillo de {@link #HORAS} ranuras guarda los mismos
+ * conteos por hora. Una consulta suma las horas completas de la ventana en
+ * ese anillo y solo los minutos sueltos de los extremos en el de minutos:
+ * a lo sumo 24 horas y 118 minutos, sin importar el largo de la ventana, y
+ * sin recorrer ni volver a clasificar tickets. Así una {@link #serie} cuesta
+ * lo mismo por cada ventana. Las ventanas deslizantes terminan en el minuto
+ * actual; las fijas ({@link #serie}) están alineadas a múltiplos de su ancho.
+ * </p>
+ */
+
+public class AgregadosTiempoReal {
+    /** Duración de cada ranura, en milisegundos. */
+    public static final long RESOLUCION_MS = 60_000;
+    /** Ranuras de cada anillo. */
+    public static final int RANURAS = 24 * 60;
+    /** Minutos de cada ranura del anillo de horas. */
+    public static final int MINUTOS_POR_HORA = 60;
+    /**
+     * Ranuras del anillo de horas: las 24 horas del anillo de minutos más la
+     * que está en curso, ya que 24 horas deslizantes tocan 25 horas distintas.
+     */
+    public static final int HORAS = RANURAS / MINUTOS_POR_HORA + 1;
+
+    /** Dimensión de la clasificación que se cuenta. */
+    public enum Dimension {
+        /** Categoría técnica. */
+        CATEGORIA,
+        /** Emoción. */
+        EMOCION
+    }
+
+    private final ConcurrentHashMap<String, PorDepartamento> departamentos = new ConcurrentHashMap<>(); /** Nombre en minúsculas → anillo. */
+    private final LongSupplier reloj; /** Hora actual en milisegundos. */
+
+    /**
+     * Crea los agregados con el reloj del sistema.
+     */
+    public AgregadosTiempoReal() {
+        this(System::currentTimeMillis);
+    }
+
+    /**
+     * @param reloj fuente de la hora actual, en milisegundos desde 1970
+     */
+    public AgregadosTiempoReal(LongSupplier reloj) {
+        this.reloj = reloj;
+    }
+
+    /**
+     * Cuenta un ticket clasificado en el minuto de su creación. Los tickets
+     * creados hace más de 24 horas no se cuentan.
+     *
+     * @param t ticket con clasificación
+     */
+    public void registrar(Ticket t) {
+        registrar(t, t.getClasificacion());
+    }
+
+    /**
+     * Cuenta un ticket con una clasificación dada, que puede ya no ser la
+     * actual del ticket si otro hilo lo reclasificó entretanto.
+     *
+     * @param t ticket
+     * @param c clasificación que se le asignó
+     */
+    public void registrar(Ticket t, Clasificacion c) {
+        actualizar(t, null, c);
+    }
+
+    /**
+     * Mueve el conteo de un ticket ya contado de su clasificación anterior a
+     * la nueva, en la ranura del minuto de su creación. Si la ranura ya se
+     * reutilizó para un minuto posterior, no hace nada.
+     *
+     * @param t        ticket reclasificado
+     * @param anterior clasificación con que se contó, o null si no se había contado
+     * @param nueva    clasificación nueva
+     */
+    public void actualizar(Ticket t, Clasificacion anterior, Clasificacion nueva) {
+        if (nueva == null || t.getDepartamento() == null) return;
+        long actual = reloj.getAsLong() / RESOLUCION_MS;
+        long minuto = t.getFechaCreacion() == 0 ? actual : Math.min(t.getFechaCreacion() / RESOLUCION_MS, actual);
+        departamentos.computeIfAbsent(t.getClaveDepartamento(), d -> new PorDepartamento())
+                .ajustar(minuto, actual, anterior, nueva);
+    }
+
+    /**
+     * Cuenta los tickets con un valor en una ventana deslizante que termina ahora.
+     *
+     * @param departamento nombre del departamento, o null para todos
+     * @param dimension    categoría o emoción
+     * @param valor        categoría técnica o emoción a contar
+     * @param duracionMs   largo de la ventana (se redondea hacia arriba a minutos completos)
+     * @return tickets contados
+     */
+    public long contar(String departamento, Dimension dimension, String valor, long duracionMs) {
+        long actual = reloj.getAsLong() / RESOLUCION_MS;
+        return contar(departamento, dimension, TablaSimbolos.CATEGORIAS.buscar(valor),
+                actual - minutos(duracionMs) + 1, actual);
+    }
+
+    /**
+     * Compara la ventana deslizante actual con la anterior del mismo largo.
+     * Por ejemplo, {@code variacion("TI", EMOCION, "frustración", 1 hora)}
+     * devuelve 0,4 si hubo un 40 % más de tickets con frustración en la
+     * última hora que en la hora previa.
+     *
+     * @param departamento nombre del departamento, o null para todos
+     * @param dimension    categoría o emoción
+     * @param valor        categoría técnica o emoción
+     * @param duracionMs   largo de cada ventana (a lo sumo 12 horas)
+     * @return cambio relativo, o {@link Double#NaN} si la ventana anterior no tiene tickets
+     */
+    public double variacion(String departamento, Dimension dimension, String valor, long duracionMs) {
+        long actual = reloj.getAsLong() / RESOLUCION_MS;
+        int codigo = TablaSimbolos.CATEGORIAS.buscar(valor);
+        long m = minutos(duracionMs);
+        long ahora = contar(departamento, dimension, codigo, actual - m + 1, actual);
+        long antes = contar(departamento, dimension, codigo, actual - 2 * m + 1, actual - m);
+        return antes == 0 ? Double.NaN : (ahora - antes) / (double) antes;
+    }
+
+    /**
+     * Cuenta los tickets con un valor en ventanas fijas consecutivas,
+     * alineadas a múltiplos de su ancho (por ejemplo, horas en punto).
+     *
+     * @param departamento nombre del departamento, o null para todos
+     * @param dimension    categoría o emoción
+     * @param valor        categoría técnica o emoción
+     * @param anchoMs      ancho de cada ventana (se redondea hacia arriba a minutos completos)
+     * @param ventanas     cantidad de ventanas
+     * @return conteo de cada ventana, de la más antigua a la actual (que puede estar incompleta)
+     */
+    public long[] serie(String departamento, Dimension dimension, String valor, long anchoMs, int ventanas) {
+        long actual = reloj.getAsLong() / RESOLUCION_MS;
+        int codigo = TablaSimbolos.CATEGORIAS.buscar(valor);
+        long ancho = minutos(anchoMs);
+        long inicioActual = actual - Math.floorMod(actual, ancho);
+        long[] serie = new long[ventanas];
+        for (int i = 0; i < ventanas; i++) {
+            long desde = inicioActual - (ventanas - 1 - i) * ancho;
+            serie[i] = contar(departamento, dimension, codigo, desde, Math.min(desde + ancho - 1, actual));
+        }
+        return serie;
+    }
+
+    /**
+     * Cuenta todos los valores de una dimensión en una ventana deslizante.
+     *
+     * @param departamento nombre del departamento, o null para todos
+     * @param dimension    categoría o emoción
+     * @param duracionMs   largo de la ventana
+     * @return valor → tickets contados, sin los valores en cero
+     */
+    public Map<String, Long> resumen(String departamento, Dimension dimension, long duracionMs) {
+        long actual = reloj.getAsLong() / RESOLUCION_MS;
+        long[] total = new long[TablaSimbolos.CATEGORIAS.getCantidad()];
+        for (PorDepartamento d : seleccionar(departamento)) {
+            d.acumular(dimension.ordinal(), actual - minutos(duracionMs) + 1, actual, total);
+        }
+        Map<String, Long> resultado = new TreeMap<>();
+        for (int codigo = 1; codigo < total.length; codigo++) {
+            if (total[codigo] > 0) resultado.put(TablaSimbolos.CATEGORIAS.texto(codigo), total[codigo]);
+        }
+        return resultado;
+    }
+
+    private long contar(String departamento, Dimension dimension, int codigo, long desde, long hasta) {
+        if (codigo == TablaSimbolos.NULO) return 0;
+        long total = 0;
+        for (PorDepartamento d : seleccionar(departamento)) total += d.contar(dimension.ordinal(), codigo, desde, hasta);
+        return total;
+    }
+
+    private Iterable<PorDepartamento> seleccionar(String departamento) {
+        if (departamento == null) return departamentos.values();
+        PorDepartamento d = departamentos.get(ClaveTexto.clave(departamento));
+        return d == null ? List.of() : List.of(d);
+    }
+
+    private static long minutos(long ms) {
+        return Math.max(1, Math.min(RANURAS, (ms + RESOLUCION_MS - 1) / RESOLUCION_MS));
+    }
+
+    /** Anillos de ranuras de un departamento, por minuto y por hora. */
+    private static final class PorDepartamento {
+        private final long[] minutos = new long[RANURAS]; /** Minuto absoluto de cada ranura, o -1 si está vacía. */
+        private final int[][][] conteos = new int[Dimension.values().length][RANURAS][]; /** Dimensión → ranura → código → tickets. */
+        private final long[] horas = new long[HORAS]; /** Hora absoluta de cada ranura del anillo de horas, o -1 si está vacía. */
+        private final int[][][] conteosHora = new int[Dimension.values().length][HORAS][]; /** Dimensión → ranura de hora → código → tickets. */
+
+        PorDepartamento() {
+            Arrays.fill(minutos, -1);
+            Arrays.fill(horas, -1);
+        }
+
+        synchronized void ajustar(long minuto, long actual, Clasificacion anterior, Clasificacion nueva) {
+            if (minuto <= actual - RANURAS) return;
+            int r = (int) Math.floorMod(minuto, (long) RANURAS);
+            if (minutos[r] > minuto) return;
+            if (minutos[r] < minuto) {
+                minutos[r] = minuto;
+                for (int[][] d : conteos) {
+                    if (d[r] != null) Arrays.fill(d[r], 0);
+                }
+            }
+            long hora = Math.floorDiv(minuto, MINUTOS_POR_HORA);
+            int h = (int) Math.floorMod(hora, (long) HORAS);
+            if (horas[h] < hora) {
+                horas[h] = hora;
+                for (int[][] d : conteosHora) {
+                    if (d[h] != null) Arrays.fill(d[h], 0);
+                }
+            }
+            if (anterior != null) {
+                sumar(Dimension.CATEGORIA.ordinal(), r, h, anterior.getCodigoCategoria(), -1);
+                sumar(Dimension.EMOCION.ordinal(), r, h, anterior.getCodigoEmocion(), -1);
+            }
+            sumar(Dimension.CATEGORIA.ordinal(), r, h, nueva.getCodigoCategoria(), 1);
+            sumar(Dimension.EMOCION.ordinal(), r, h, nueva.getCodigoEmocion(), 1);
+        }
+
+        private void sumar(int dimension, int r, int h, int codigo, int delta) {
+            if (codigo == TablaSimbolos.NULO) return;
+            sumar(conteos[dimension], r, codigo, delta);
+            sumar(conteosHora[dimension], h, codigo, delta);
+        }
+
+        private static void sumar(int[][] ranuras, int r, int codigo, int delta) {
+            int[] c = ranuras[r];
+            if (c == null || c.length <= codigo) {
+                c = c == null ? new int[Math.max(8, codigo + 1)] : Arrays.copyOf(c, Math.max(c.length * 2, codigo + 1));
+                ranuras[r] = c;
+            }
+            c[codigo] += delta;
+        }
+
+        synchronized long contar(int dimension, int codigo, long desde, long hasta) {
+            long total = 0;
+            long m = Math.max(desde, hasta - RANURAS + 1);
+            while (m <= hasta) {
+                boolean horaCompleta = Math.floorMod(m, MINUTOS_POR_HORA) == 0 && m + MINUTOS_POR_HORA - 1 <= hasta;
+                int[] c = horaCompleta ? hora(dimension, Math.floorDiv(m, MINUTOS_POR_HORA)) : minuto(dimension, m);
+                if (c != null && codigo < c.length) total += c[codigo];
+                m += horaCompleta ? MINUTOS_POR_HORA : 1;
+            }
+            return total;
+        }
+
+        synchronized void acumular(int dimension, long desde, long hasta, long[] total) {
+            long m = Math.max(desde, hasta - RANURAS + 1);
+            while (m <= hasta) {
+                boolean horaCompleta = Math.floorMod(m, MINUTOS_POR_HORA) == 0 && m + MINUTOS_POR_HORA - 1 <= hasta;
+                int[] c = horaCompleta ? hora(dimension, Math.floorDiv(m, MINUTOS_POR_HORA)) : minuto(dimension, m);
+                if (c != null) {
+                    for (int codigo = 0; codigo < c.length && codigo < total.length; codigo++) total[codigo] += c[codigo];
+                }
+                m += horaCompleta ? MINUTOS_POR_HORA : 1;
+            }
+        }
+
+        /** @return conteos de un minuto, o null si su ranura está vacía o es de otro minuto */
+        private int[] minuto(int dimension, long m) {
+            int r = (int) Math.floorMod(m, (long) RANURAS);
+            return minutos[r] == m ? conteos[dimension][r] : null;
+        }
+
+        /** @return conteos de una hora, o null si su ranura está vacía o es de otra hora */
+        private int[] hora(int dimension, long hora) {
+            int h = (int) Math.floorMod(hora, (long) HORAS);
+            return horas[h] == hora ? conteosHora[dimension][h] : null;
+        }
+    }
+}
@@ -0,0 +1,225 @@
+package ac.cr.cenfotec.pfinal.bl.logic;
+
+import ac.cr.cenfotec.pfinal.bl.entities.Diccionario;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Autómata de Aho-Corasick compilado a partir de un diccionario técnico o emocional.
+ * <p>
+ * Permite encontrar todas las palabras (o frases de varias palabras, como
+ * "no funciona") de un diccionario en una sola pasada sobre el texto, con un
+ * costo proporcional al largo del texto y no a la cantidad de entradas.
+ * </p>
+ * <p>
+ * El texto y las palabras se normalizan con {@link Tokenizador#normalizar(char)},
+ * igual que en {@link BagOfWords}: minúsculas, solo letras, números y tildes,
+ * y palabras separadas por espacios.
+ * Las coincidencias son siempre de palabras completas.
+ * </p>
+ * <p>
+ * La instancia es inmutable; cuando el diccionario cambia se debe compilar
+ * un autómata nuevo con {@link #compilar(List)}.
+ * </p>
+ */
+
+public final class AutomataDiccionario {
+    /** Símbolos reconocidos después de normalizar: espacio, a-z, 0-9 y vocales con tilde. */
+    private static final int TAM_ALFABETO = 42;
+
+    /** Tabla de transiciones completa: {@code estado * TAM_ALFABETO + simbolo}. */
+    private final int[] transiciones;
+    /** Categorías (índices en {@link #categorias}) emitidas al llegar a cada estado. */
+    private final int[][] salidas;
+    /** Nombres de las categorías distintas del diccionario. */
+    private final String[] categorias;
+
+    private AutomataDiccionario(int[] transiciones, int[][] salidas, String[] categorias) {
+        this.transiciones = transiciones;
+        this.salidas = salidas;
+        this.categorias = categorias;
+    }
+
+    /**
+     * Compila el autómata para un diccionario.
+     *
+     * @param entradas palabras del diccionario con su categoría
+     * @return autómata listo para buscar
+     */
+    public static AutomataDiccionario compilar(List<Diccionario> entradas) {
+        ArrayList<int[]> hijos = new ArrayList<>();
+        ArrayList<ArrayList<Integer>> salidasTmp = new ArrayList<>();
+        LinkedHashMap<String, Integer> idsCategoria = new LinkedHashMap<>();
+        hijos.add(nuevoNodo());
+        salidasTmp.add(new ArrayList<>());
+
+        // 1. Trie con cada palabra rodeada de espacios para exigir palabras completas.
+        for (Diccionario e : entradas) {
+            String patron = normalizarPatron(e.getPalabra());
+            if (patron == null) continue;
+            int estado = 0;
+            for (int i = 0; i < patron.length(); i++) {
+                int s = simbolo(patron.charAt(i));
+                if (hijos.get(estado)[s] < 0) {
+                    hijos.get(estado)[s] = hijos.size();
+                    hijos.add(nuevoNodo());
+                    salidasTmp.add(new ArrayList<>());
+                }
+                estado = hijos.get(estado)[s];
+            }
+            String categoria = e.getCategoria() == null ? "" : e.getCategoria();
+            Integer id = idsCategoria.computeIfAbsent(categoria, k -> idsCategoria.size());
+            salidasTmp.get(estado).add(id);
+        }
+
+        // 2. Enlaces de falla en anchura, convirtiendo el trie en un autómata determinista.
+        int n = hijos.size();
+        int[] transiciones = new int[n * TAM_ALFABETO];
+        int[] falla = new int[n];
+        int[][] salidas = new int[n][];
+        ArrayDeque<Integer> cola = new ArrayDeque<>();
+        salidas[0] = new int[0];
+        for (int s = 0; s < TAM_ALFABETO; s++) {
+            int h = hijos.get(0)[s];
+            if (h < 0) {
+                transiciones[s] = 0;
+            } else {
+                transiciones[s] = h;
+                falla[h] = 0;
+                cola.add(h);
+            }
+        }
+        while (!cola.isEmpty()) {
+            int estado = cola.poll();
+            salidas[estado] = unir(salidasTmp.get(estado), salidas[falla[estado]]);
+            for (int s = 0; s < TAM_ALFABETO; s++) {
+                int h = hijos.get(estado)[s];
+                if (h < 0) {
+                    transiciones[estado * TAM_ALFABETO + s] = transiciones[falla[estado] * TAM_ALFABETO + s];
+                } else {
+                    transiciones[estado * TAM_ALFABETO + s] = h;
+                    falla[h] = transiciones[falla[estado] * TAM_ALFABETO + s];
+                    cola.add(h);
+                }
+            }
+        }
+        return new AutomataDiccionario(transiciones, salidas, idsCategoria.keySet().toArray(new String[0]));
+    }
+
+    /**
+     * Busca todas las coincidencias del diccionario en el texto en una sola pasada.
+     *
+     * @param texto texto a analizar (por ejemplo, la descripción de un ticket)
+     * @return mapa categoría → cantidad de coincidencias, en orden de registro
+     */
+    public Map<String, Integer> buscar(CharSequence texto) {
+        int[] conteo = contar(texto);
+        LinkedHashMap<String, Integer> resultado = new LinkedHashMap<>();
+        for (int i = 0; i < conteo.length; i++) {
+            if (conteo[i] > 0) {
+                resultado.put(categorias[i], conteo[i]);
+            }
+        }
+        return resultado;
+    }
+
+    /**
+     * Cuenta las coincidencias por categoría sin crear objetos intermedios.
+     *
+     * @param texto texto a analizar
+     * @return arreglo indexado igual que {@link #getCategorias()}
+     */
+    public int[] contar(CharSequence texto) {
+        int[] conteo = new int[categorias.length];
+        if (categorias.length == 0 || texto == null) return conteo;
+        // Se simula un espacio inicial y uno final, y los espacios repetidos se colapsan.
+        int estado = transiciones[0];
+        boolean ultimoEspacio = true;
+        for (int i = 0; i < texto.length(); i++) {
+            int s = simbolo(Tokenizador.normalizar(texto.charAt(i)));
+            if (s < 0) continue;
+            if (s == 0) {
+                if (ultimoEspacio) continue;
+                ultimoEspacio = true;
+            } else {
+                ultimoEspacio = false;
+            }
+            estado = transiciones[estado * TAM_ALFABETO + s];
+            for (int id : salidas[estado]) conteo[id]++;
+        }
+        if (!ultimoEspacio) {
+            estado = transiciones[estado * TAM_ALFABETO];
+            for (int id : salidas[estado]) conteo[id]++;
+        }
+        return conteo;
+    }
+
+    /**
+     * Obtiene las categorías distintas que puede reportar el autómata.
+     *
+     * @return copia de los nombres de categoría
+     */
+    public String[] getCategorias() {
+        return categorias.clone();
+    }
+
+    /**
+     * Normaliza una palabra del diccionario al formato que recorre el autómata.
+     *
+     * @param palabra palabra o frase original
+     * @return " palabra " normalizada, o null si queda vacía
+     */
+    private static String normalizarPatron(String palabra) {
+        if (palabra == null) return null;
+        StringBuilder sb = new StringBuilder(palabra.length() + 2).append(' ');
+        for (int i = 0; i < palabra.length(); i++) {
+            char c = Tokenizador.normalizar(palabra.charAt(i));
+            if (c == ' ') {
+                if (sb.charAt(sb.length() - 1) != ' ') sb.append(' ');
+            } else if (c != 0) {
+                sb.append(c);
+            }
+        }
+        if (sb.length() == 1) return null;
+        if (sb.charAt(sb.length() - 1) != ' ') sb.append(' ');
+        return sb.toString();
+    }
+
+    /**
+     * Traduce un carácter ya normalizado a su índice en el alfabeto.
+     *
+     * @param c carácter normalizado (0 si fue descartado)
+     * @return índice del símbolo o -1 si el carácter se descarta
+     */
+    private static int simbolo(char c) {
+        if (c == ' ') return 0;
+        if (c >= 'a' && c <= 'z') return 1 + (c - 'a');
+        if (c >= '0' && c <= '9') return 27 + (c - '0');
+        switch (c) {
+            case 'á': return 37;
+            case 'é': return 38;
+            case 'í': return 39;
+            case 'ó': return 40;
+            case 'ú': return 41;
+            default: return -1;
+        }
+    }
+
+    private static int[] nuevoNodo() {
+        int[] hijos = new int[TAM_ALFABETO];
+        Arrays.fill(hijos, -1);
+        return hijos;
+    }
+
+    private static int[] unir(List<Integer> propias, int[] heredadas) {
+        int[] r = new int[propias.size() + heredadas.length];
+        for (int i = 0; i < propias.size(); i++) r[i] = propias.get(i);
+        System.arraycopy(heredadas, 0, r, propias.size(), heredadas.length);
+        return r;
+    }
+}
@@ -10,10 +10,17 @@ import java.util.ArrayList;
  * es utilizada por el sistema para análisis técnico y emocional mediante
  * coincidencias con los diccionarios configurados por el usuario.
  * </p>
+ * <p>
+ * El procesamiento se hace con un {@link Tokenizador} de una sola pasada. Para
+ * importaciones masivas, {@link #recorrerPalabras(CharSequence, Tokenizador.ConsumidorToken)}
+ * entrega las palabras sin crear la lista ni un String por palabra.
+ * </p>
  */
 
 public class BagOfWords {
     private ArrayList<String> palabras;  /** Lista de palabras resultante del procesamiento del texto original. */
+    /** Tokenizador reutilizado por cada hilo para evitar crear arreglos en cada llamada. */
+    private static final ThreadLocal<Tokenizador> TOKENIZADOR = ThreadLocal.withInitial(Tokenizador::new);
 
     /**
      * Construye un modelo Bag of Words a partir del texto recibido.
@@ -37,17 +44,25 @@ public class BagOfWords {
      * @return lista de palabras limpias y normalizadas
      */
     private ArrayList<String> generarBow(String texto) {
-        texto = texto.toLowerCase().replaceAll("[^a-z0-9áéíóú ]", "");
-        String[] arr = texto.split(" ");
         ArrayList<String> bow = new ArrayList<>();
-
-        for (String p : arr) {
-            if (!p.trim().isEmpty()) {
-                bow.add(p);
-            }
-        }
+        recorrerPalabras(texto, (buffer, longitud, hash) -> bow.add(new String(buffer, 0, longitud)));
         return bow;
     }
+
+    /**
+     * Recorre las palabras normalizadas de un texto sin crear Strings intermedios.
+     * <p>
+     * Produce las mismas palabras que {@link #getPalabras()}, pero cada una se
+     * entrega como un trozo de un arreglo reutilizable. El consumidor no debe
+     * volver a llamar este método desde dentro de {@code aceptar}.
+     * </p>
+     *
+     * @param texto      texto a procesar
+     * @param consumidor receptor de cada palabra
+     */
+    public static void recorrerPalabras(CharSequence texto, Tokenizador.ConsumidorToken consumidor) {
+        TOKENIZADOR.get().tokenizar(texto, consumidor);
+    }
     /**
      * Obtiene la lista de palabras generada por el Bag of Words.
      *
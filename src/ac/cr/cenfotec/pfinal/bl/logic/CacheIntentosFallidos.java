@@ -0,0 +1,116 @@
+package ac.cr.cenfotec.pfinal.bl.logic;
+
+import ac.cr.cenfotec.pfinal.bl.entities.ClaveTexto;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Caché negativa, acotada y de vida corta, de inicios de sesión fallidos.
+ * <p>
+ * Cuenta los fallos de cada correo dentro de una ventana de tiempo. Cuando
+ * un correo acumula {@code maximoFallos} fallos, los intentos siguientes se
+ * rechazan sin calcular el hash hasta que la ventana vence, de modo que una
+ * ráfaga de intentos contra el mismo correo no consume CPU.
+ * </p>
+ * <p>
+ * El tamaño está acotado: si la caché se llena, primero se descartan las
+ * entradas vencidas y, si sigue llena, los correos nuevos no se registran
+ * (se sigue verificando normalmente).
+ * </p>
+ */
+
+public class CacheIntentosFallidos {
+    /** Fallos permitidos por ventana antes de rechazar sin verificar. */
+    public static final int MAXIMO_FALLOS_POR_DEFECTO = 5;
+    /** Duración de la ventana, en milisegundos. */
+    public static final long VENTANA_MS_POR_DEFECTO = 10_000;
+    /** Cantidad máxima de correos en la caché. */
+    public static final int CAPACIDAD_POR_DEFECTO = 10_000;
+
+    private final ConcurrentHashMap<String, Entrada> fallos = new ConcurrentHashMap<>(); /** Correo → fallos recientes. */
+    private final int maximoFallos; /** Fallos que activan el rechazo inmediato. */
+    private final long ventanaNanos; /** Vida de una entrada. */
+    private final int capacidad; /** Tamaño máximo del mapa. */
+
+    /**
+     * Crea una caché con los valores por defecto.
+     */
+    public CacheIntentosFallidos() {
+        this(MAXIMO_FALLOS_POR_DEFECTO, VENTANA_MS_POR_DEFECTO, CAPACIDAD_POR_DEFECTO);
+    }
+
+    /**
+     * @param maximoFallos fallos permitidos dentro de la ventana
+     * @param ventanaMs    duración de la ventana en milisegundos
+     * @param capacidad    cantidad máxima de correos registrados
+     */
+    public CacheIntentosFallidos(int maximoFallos, long ventanaMs, int capacidad) {
+        this.maximoFallos = maximoFallos;
+        this.ventanaNanos = TimeUnit.MILLISECONDS.toNanos(ventanaMs);
+        this.capacidad = capacidad;
+    }
+
+    /**
+     * Indica si los intentos para un correo deben rechazarse sin verificar.
+     *
+     * @param correo correo del intento
+     * @return true si el correo superó el máximo de fallos en la ventana actual
+     */
+    public boolean bloqueado(String correo) {
+        Entrada e = fallos.get(ClaveTexto.clave(correo));
+        if (e == null) return false;
+        if (e.vencida(System.nanoTime())) {
+            fallos.remove(ClaveTexto.clave(correo), e);
+            return false;
+        }
+        return e.cantidad >= maximoFallos;
+    }
+
+    /**
+     * Registra un intento fallido para el correo.
+     *
+     * @param correo correo del intento
+     */
+    public void registrarFallo(String correo) {
+        String k = ClaveTexto.clave(correo);
+        long ahora = System.nanoTime();
+        if (fallos.size() >= capacidad && !fallos.containsKey(k)) {
+            fallos.values().removeIf(e -> e.vencida(ahora));
+            if (fallos.size() >= capacidad) return;
+        }
+        fallos.compute(k, (c, e) -> {
+            if (e == null || e.vencida(ahora)) return new Entrada(ahora + ventanaNanos, 1);
+            return new Entrada(e.expira, e.cantidad + 1);
+        });
+    }
+
+    /**
+     * Olvida los fallos de un correo, por ejemplo tras un inicio de sesión correcto.
+     *
+     * @param correo correo del usuario
+     */
+    public void limpiar(String correo) {
+        if (!fallos.isEmpty()) fallos.remove(ClaveTexto.clave(correo));
+    }
+
+    /** @return cantidad de correos con fallos registrados */
+    public int getCantidad() {
+        return fallos.size();
+    }
+
+    /** Fallos de un correo y momento (nanoTime) en que vence la ventana. */
+    private static final class Entrada {
+        private final long expira;
+        private final int cantidad;
+
+        Entrada(long expira, int cantidad) {
+            this.expira = expira;
+            this.cantidad = cantidad;
+        }
+
+        boolean vencida(long ahora) {
+            return ahora - expira >= 0;
+        }
+    }
+}
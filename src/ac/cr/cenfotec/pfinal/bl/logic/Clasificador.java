@@ -0,0 +1,88 @@
+package ac.cr.cenfotec.pfinal.bl.logic;
+
+import ac.cr.cenfotec.pfinal.bl.entities.Clasificacion;
+import ac.cr.cenfotec.pfinal.bl.entities.Ticket;
+
+/**
+ * Clasifica tickets comparando su asunto y descripción contra los
+ * diccionarios técnico y emocional.
+ * <p>
+ * Cada diccionario está compilado en un {@link AutomataDiccionario}, por lo
+ * que el texto se recorre una sola vez por diccionario. La categoría y la
+ * emoción ganadoras son las de más coincidencias; la confianza es la
+ * proporción de coincidencias que obtuvieron sobre el total.
+ * </p>
+ * <p>
+ * La instancia es inmutable: cuando un diccionario cambia, el {@link Gestor}
+ * crea un clasificador nuevo con los autómatas recompilados.
+ * </p>
+ */
+
+public final class Clasificador {
+    private final AutomataDiccionario automataTecnico; /** Autómata del diccionario técnico. */
+    private final AutomataDiccionario automataEmocional; /** Autómata del diccionario emocional. */
+
+    /**
+     * Constructor principal.
+     *
+     * @param automataTecnico   autómata compilado del diccionario técnico
+     * @param automataEmocional autómata compilado del diccionario emocional
+     */
+    public Clasificador(AutomataDiccionario automataTecnico, AutomataDiccionario automataEmocional) {
+        this.automataTecnico = automataTecnico;
+        this.automataEmocional = automataEmocional;
+    }
+
+    /**
+     * Calcula la clasificación de un ticket a partir de su asunto y descripción.
+     *
+     * @param t ticket a clasificar
+     * @return clasificación resultante (nunca null)
+     */
+    public Clasificacion clasificar(Ticket t) {
+        int[] tecnico = sumar(automataTecnico.contar(t.getAsunto()), automataTecnico.contar(t.getDescripcion()));
+        int[] emocional = sumar(automataEmocional.contar(t.getAsunto()), automataEmocional.contar(t.getDescripcion()));
+
+        int mejorCategoria = mejor(tecnico);
+        int mejorEmocion = mejor(emocional);
+        if (mejorCategoria < 0 && mejorEmocion < 0) {
+            return Clasificacion.SIN_COINCIDENCIAS;
+        }
+        String categoria = mejorCategoria < 0 ? null : automataTecnico.getCategorias()[mejorCategoria];
+        String emocion = mejorEmocion < 0 ? null : automataEmocional.getCategorias()[mejorEmocion];
+        return new Clasificacion(categoria, confianza(tecnico, mejorCategoria),
+                emocion, confianza(emocional, mejorEmocion));
+    }
+
+    /** @return autómata del diccionario técnico */
+    public AutomataDiccionario getAutomataTecnico() {
+        return automataTecnico;
+    }
+    /** @return autómata del diccionario emocional */
+    public AutomataDiccionario getAutomataEmocional() {
+        return automataEmocional;
+    }
+
+    private static int[] sumar(int[] a, int[] b) {
+        for (int i = 0; i < a.length; i++) a[i] += b[i];
+        return a;
+    }
+
+    /**
+     * @return índice con más coincidencias (el primero en caso de empate) o -1 si no hubo
+     */
+    private static int mejor(int[] conteo) {
+        int mejor = -1;
+        for (int i = 0; i < conteo.length; i++) {
+            if (conteo[i] > 0 && (mejor < 0 || conteo[i] > conteo[mejor])) mejor = i;
+        }
+        return mejor;
+    }
+
+    private static double confianza(int[] conteo, int indice) {
+        if (indice < 0) return 0;
+        int total = 0;
+        for (int c : conteo) total += c;
+        return (double) conteo[indice] / total;
+    }
+}
@@ -0,0 +1,181 @@
+package ac.cr.cenfotec.pfinal.bl.logic;
+
+import ac.cr.cenfotec.pfinal.bl.entities.Clasificacion;
+import ac.cr.cenfotec.pfinal.bl.entities.ClaveTexto;
+import ac.cr.cenfotec.pfinal.bl.entities.Ticket;
+
+import java.util.Comparator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+/**
+ * Colas de despacho de tickets abiertos, una por departamento.
+ * <p>
+ * Cada ticket se ordena por un vencimiento virtual:
+ * </p>
+ * <pre>
+ * vencimiento = fechaCreacion + SLA(departamento) - prioridad * CREDITO_POR_PUNTO_MS
+ * </pre>
+ * <p>
+ * donde la prioridad sale de la emoción detectada (peso de la emoción por
+ * su confianza). Así, un ticket con emoción fuerte se adelanta, pero un
+ * ticket viejo siempre termina delante de los nuevos: el envejecimiento
+ * queda implícito y la clave de orden no cambia con el tiempo.
+ * </p>
+ * <p>
+ * Las colas son conjuntos de saltos concurrentes, así que muchos
+ * funcionarios pueden tomar el siguiente ticket a la vez sin candados, en
+ * O(log n) y sin recorrer la lista de tickets.
+ * </p>
+ * <p>
+ * Cada ticket tiene a lo sumo una entrada: encolarlo de nuevo (por ejemplo,
+ * al reabrirlo) reemplaza la anterior, una reclasificación recalcula su
+ * vencimiento con {@link #reencolar(Ticket)}, y al cambiar de estado o
+ * archivarse se saca con {@link #quitar(Ticket)}. Los cambios sobre un
+ * mismo ticket se serializan en el mapa de entradas, así que un ticket
+ * tomado por un funcionario no puede quedar también en la cola.
+ * </p>
+ */
+
+public class Despachador {
+    /** SLA por defecto de un departamento, en milisegundos. */
+    public static final long SLA_POR_DEFECTO_MS = TimeUnit.HOURS.toMillis(24);
+    /** Milisegundos que adelanta cada punto de prioridad. */
+    public static final long CREDITO_POR_PUNTO_MS = TimeUnit.MINUTES.toMillis(1);
+    /** Peso de una emoción sin peso configurado. */
+    public static final int PESO_EMOCION_POR_DEFECTO = 60;
+
+    /** Orden de las colas: vencimiento y, a igual vencimiento, ID. */
+    private static final Comparator<Pendiente> ORDEN =
+            Comparator.comparingLong((Pendiente p) -> p.vencimiento).thenComparingInt(p -> p.ticket.getId());
+
+    private final ConcurrentHashMap<String, ConcurrentSkipListSet<Pendiente>> colas = new ConcurrentHashMap<>(); /** Departamento → tickets pendientes. */
+    private final ConcurrentHashMap<Integer, Pendiente> entradas = new ConcurrentHashMap<>(); /** ID de ticket → su entrada vigente en cola. */
+    private final ConcurrentHashMap<String, Long> slas = new ConcurrentHashMap<>(); /** Departamento → SLA en milisegundos. */
+    private final ConcurrentHashMap<String, Integer> pesosEmocion = new ConcurrentHashMap<>(); /** Emoción → peso. */
+
+    /**
+     * Agrega un ticket a la cola de su departamento. Si ya estaba en cola,
+     * su entrada se reemplaza.
+     *
+     * @param t ticket abierto y, de preferencia, ya clasificado
+     */
+    public void encolar(Ticket t) {
+        entradas.compute(t.getId(), (id, anterior) -> reemplazar(anterior, t));
+    }
+
+    /**
+     * Recalcula el vencimiento de un ticket en cola, por ejemplo después de
+     * reclasificarlo. Si el ticket no está en cola no hace nada.
+     *
+     * @param t ticket reclasificado
+     */
+    public void reencolar(Ticket t) {
+        entradas.computeIfPresent(t.getId(), (id, anterior) -> reemplazar(anterior, t));
+    }
+
+    /**
+     * Saca un ticket de la cola, por ejemplo porque cambió de estado o se archivó.
+     *
+     * @param t ticket que ya no debe despacharse
+     */
+    public void quitar(Ticket t) {
+        Pendiente p = entradas.remove(t.getId());
+        if (p != null) sacar(p);
+    }
+
+    /**
+     * Toma el ticket con vencimiento más próximo de un departamento. Cada
+     * ticket sacado de la cola se pasa a {@code reclamar}; si ya no está
+     * disponible (por ejemplo, porque se resolvió por otra vía) se descarta
+     * y se sigue con el siguiente.
+     *
+     * @param departamento nombre del departamento
+     * @param reclamar     intenta asignar el ticket y devuelve false si ya no está disponible
+     * @return ticket tomado o null si la cola está vacía
+     */
+    public Ticket tomar(String departamento, Predicate<Ticket> reclamar) {
+        ConcurrentSkipListSet<Pendiente> cola = colas.get(ClaveTexto.clave(departamento));
+        if (cola == null) return null;
+        Pendiente p;
+        while ((p = cola.pollFirst()) != null) {
+            // Si la entrada ya fue reemplazada, la vigente sigue en la cola.
+            if (entradas.remove(p.ticket.getId(), p) && reclamar.test(p.ticket)) return p.ticket;
+        }
+        return null;
+    }
+
+    /**
+     * Configura el SLA de un departamento para los tickets que se encolen desde ahora.
+     *
+     * @param departamento nombre del departamento
+     * @param milisegundos tiempo objetivo de atención
+     */
+    public void configurarSla(String departamento, long milisegundos) {
+        slas.put(ClaveTexto.clave(departamento), milisegundos);
+    }
+
+    /**
+     * Configura el peso de una emoción en la prioridad.
+     *
+     * @param emocion categoría emocional del diccionario
+     * @param peso    puntos de prioridad con confianza 1
+     */
+    public void configurarPesoEmocion(String emocion, int peso) {
+        pesosEmocion.put(ClaveTexto.clave(emocion), peso);
+    }
+
+    /**
+     * Cantidad de tickets en la cola de un departamento. Recorre la cola.
+     *
+     * @param departamento nombre del departamento
+     * @return tickets en cola
+     */
+    public int getPendientes(String departamento) {
+        ConcurrentSkipListSet<Pendiente> cola = colas.get(ClaveTexto.clave(departamento));
+        return cola == null ? 0 : cola.size();
+    }
+
+    /**
+     * Saca la entrada anterior de un ticket de su cola y encola una nueva con
+     * el departamento y la clasificación actuales. Corre dentro de
+     * {@link ConcurrentHashMap#compute} sobre el ID del ticket.
+     *
+     * @return entrada nueva, o null si el ticket no tiene departamento
+     */
+    private Pendiente reemplazar(Pendiente anterior, Ticket t) {
+        if (anterior != null) sacar(anterior);
+        if (t.getDepartamento() == null) return null;
+        String departamento = t.getClaveDepartamento();
+        long vencimiento = t.getFechaCreacion() + slas.getOrDefault(departamento, SLA_POR_DEFECTO_MS)
+                - Math.round(prioridad(t.getClasificacion()) * CREDITO_POR_PUNTO_MS);
+        Pendiente p = new Pendiente(t, departamento, vencimiento);
+        colas.computeIfAbsent(departamento, d -> new ConcurrentSkipListSet<>(ORDEN)).add(p);
+        return p;
+    }
+
+    private void sacar(Pendiente p) {
+        ConcurrentSkipListSet<Pendiente> cola = colas.get(p.departamento);
+        if (cola != null) cola.remove(p);
+    }
+
+    private double prioridad(Clasificacion c) {
+        if (c == null || c.getEmocion() == null) return 0;
+        return pesosEmocion.getOrDefault(ClaveTexto.clave(c.getEmocion()), PESO_EMOCION_POR_DEFECTO) * c.getConfianzaEmocion();
+    }
+
+    /** Ticket en cola con su vencimiento virtual. */
+    private static final class Pendiente {
+        private final Ticket ticket;
+        private final String departamento; /** Clave de la cola en la que está. */
+        private final long vencimiento;
+
+        Pendiente(Ticket ticket, String departamento, long vencimiento) {
+            this.ticket = ticket;
+            this.departamento = departamento;
+            this.vencimiento = vencimiento;
+        }
+    }
+}
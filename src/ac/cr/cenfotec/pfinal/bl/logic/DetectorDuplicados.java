@@ -0,0 +1,233 @@
+package ac.cr.cenfotec.pfinal.bl.logic;
+
+import ac.cr.cenfotec.pfinal.bl.entities.ClaveTexto;
+import ac.cr.cenfotec.pfinal.bl.entities.Ticket;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Detector de tickets casi duplicados con MinHash y LSH (locality-sensitive hashing).
+ * <p>
+ * La descripción de cada ticket se reduce a su conjunto de pares de palabras
+ * consecutivas del {@link BagOfWords} (o a su única palabra). De ese
+ * conjunto se calcula una firma de {@link #FUNCIONES} mínimos de funciones
+ * hash distintas: la fracción de posiciones en que coinciden dos firmas
+ * estima la similitud de Jaccard entre los dos conjuntos.
+ * </p>
+ * <p>
+ * La firma se corta en {@link #BANDAS} bandas de {@link #FILAS} valores y
+ * cada banda se guarda en una cubeta. Dos tickets solo se comparan si
+ * comparten al menos una cubeta, lo que pasa casi siempre con similitud
+ * mayor a 0,6 y casi nunca con similitud menor a 0,3. Registrar un ticket
+ * cuesta lo mismo sin importar cuántos tickets haya, porque cada cubeta
+ * guarda a lo sumo {@link #MAXIMO_POR_CUBETA} IDs (los más recientes).
+ * </p>
+ * <p>
+ * Solo se comparan tickets del mismo departamento, cada uno con su propio
+ * umbral de similitud y su propio candado.
+ * </p>
+ */
+
+public class DetectorDuplicados {
+    /** Cantidad de funciones hash de cada firma. */
+    public static final int FUNCIONES = 64;
+    /** Bandas en que se corta la firma. */
+    public static final int BANDAS = 16;
+    /** Valores de la firma por banda. */
+    public static final int FILAS = FUNCIONES / BANDAS;
+    /** IDs que conserva cada cubeta. */
+    public static final int MAXIMO_POR_CUBETA = 64;
+    /** Similitud estimada mínima para considerar duplicado un ticket. */
+    public static final double UMBRAL_POR_DEFECTO = 0.6;
+
+    /** Semillas fijas de las funciones hash, iguales en todas las ejecuciones. */
+    private static final long[] SEMILLAS = new SplittableRandom(0x5EED_D0B1EL).longs(FUNCIONES).toArray();
+
+    private final ConcurrentHashMap<String, PorDepartamento> departamentos = new ConcurrentHashMap<>(); /** Nombre en minúsculas → cubetas del departamento. */
+    private final ConcurrentHashMap<String, Double> umbrales = new ConcurrentHashMap<>(); /** Nombre en minúsculas → umbral. */
+
+    /**
+     * Agrega un ticket al detector y busca el ticket ya registrado más
+     * parecido de su departamento.
+     *
+     * @param t ticket nuevo
+     * @return ID del ticket más parecido con similitud mayor o igual al umbral, o 0 si no hay
+     */
+    public int registrar(Ticket t) {
+        int[] firma = firma(t.getDescripcion());
+        if (firma == null) return 0;
+        String departamento = t.getClaveDepartamento();
+        return departamentos.computeIfAbsent(departamento, d -> new PorDepartamento())
+                .registrar(t.getId(), firma, umbrales.getOrDefault(departamento, UMBRAL_POR_DEFECTO));
+    }
+
+    /**
+     * Quita un ticket del detector (por ejemplo, al archivarlo).
+     *
+     * @param t ticket a quitar
+     */
+    public void quitar(Ticket t) {
+        PorDepartamento d = departamentos.get(t.getClaveDepartamento());
+        if (d != null) d.quitar(t.getId());
+    }
+
+    /**
+     * Configura la similitud mínima de un departamento. Por debajo de 0,3
+     * casi ningún par llega a compararse, así que los valores útiles van de
+     * 0,4 a 1.
+     *
+     * @param departamento nombre del departamento
+     * @param umbral       similitud de Jaccard estimada, entre 0 y 1
+     * @throws RuntimeException si el umbral está fuera de rango
+     */
+    public void configurarUmbral(String departamento, double umbral) {
+        if (umbral < 0 || umbral > 1) throw new RuntimeException("El umbral debe estar entre 0 y 1");
+        umbrales.put(ClaveTexto.clave(departamento), umbral);
+    }
+
+    /**
+     * Estima la similitud de Jaccard entre dos textos con sus firmas.
+     *
+     * @param a primer texto
+     * @param b segundo texto
+     * @return similitud estimada entre 0 y 1
+     */
+    public static double similitud(String a, String b) {
+        int[] fa = firma(a);
+        int[] fb = firma(b);
+        return fa == null || fb == null ? 0 : similitud(fa, fb);
+    }
+
+    /**
+     * Calcula la firma MinHash de un texto.
+     *
+     * @return firma o null si el texto no tiene palabras
+     */
+    static int[] firma(String texto) {
+        if (texto == null) return null;
+        int[] firma = new int[FUNCIONES];
+        Arrays.fill(firma, Integer.MAX_VALUE);
+        long[] anterior = {0};
+        int[] palabras = {0};
+        BagOfWords.recorrerPalabras(texto, (buffer, longitud, hash) -> {
+            if (palabras[0]++ > 0) acumular(firma, anterior[0] * 0x9E3779B97F4A7C15L + hash);
+            anterior[0] = hash;
+        });
+        if (palabras[0] == 0) return null;
+        if (palabras[0] == 1) acumular(firma, anterior[0]);
+        return firma;
+    }
+
+    private static void acumular(int[] firma, long teja) {
+        for (int i = 0; i < FUNCIONES; i++) {
+            int h = (int) (mezclar(teja ^ SEMILLAS[i]) >>> 33);
+            if (h < firma[i]) firma[i] = h;
+        }
+    }
+
+    /** Mezcla final de SplitMix64. */
+    private static long mezclar(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    private static double similitud(int[] a, int[] b) {
+        int iguales = 0;
+        for (int i = 0; i < FUNCIONES; i++) {
+            if (a[i] == b[i]) iguales++;
+        }
+        return iguales / (double) FUNCIONES;
+    }
+
+    private static long cubeta(int[] firma, int banda) {
+        int h = banda;
+        for (int i = banda * FILAS; i < (banda + 1) * FILAS; i++) h = 31 * h + firma[i];
+        return ((long) banda << 32) | (h & 0xFFFFFFFFL);
+    }
+
+    /** Firmas y cubetas de un departamento. */
+    private static final class PorDepartamento {
+        private final HashMap<Integer, int[]> firmas = new HashMap<>();
+        private final HashMap<Long, int[]> cubetas = new HashMap<>();
+
+        synchronized int registrar(int id, int[] firma, double umbral) {
+            quitar(id);
+            int mejor = 0;
+            double mejorSimilitud = umbral;
+            for (int b = 0; b < BANDAS; b++) {
+                long c = cubeta(firma, b);
+                int[] ids = cubetas.get(c);
+                if (ids != null) {
+                    for (int i = 1; i <= ids[0]; i++) {
+                        int otro = ids[i];
+                        if (otro == mejor) continue;
+                        double s = similitud(firma, firmas.get(otro));
+                        if (s > mejorSimilitud || (s == mejorSimilitud && (mejor == 0 || otro < mejor))) {
+                            mejor = otro;
+                            mejorSimilitud = s;
+                        }
+                    }
+                }
+                agregar(c, id);
+            }
+            firmas.put(id, firma);
+            return mejor;
+        }
+
+        synchronized void quitar(int id) {
+            int[] firma = firmas.remove(id);
+            if (firma == null) return;
+            for (int b = 0; b < BANDAS; b++) {
+                long c = cubeta(firma, b);
+                int[] ids = cubetas.get(c);
+                if (ids == null) continue;
+                for (int i = 1; i <= ids[0]; i++) {
+                    if (ids[i] == id) {
+                        System.arraycopy(ids, i + 1, ids, i, ids[0] - i);
+                        ids[0]--;
+                        break;
+                    }
+                }
+                if (ids[0] == 0) cubetas.remove(c);
+            }
+        }
+
+        /**
+         * Agrega un ID a una cubeta. La posición 0 guarda la cantidad; si la
+         * cubeta está llena se descarta el ID más antiguo.
+         */
+        private void agregar(long c, int id) {
+            int[] ids = cubetas.get(c);
+            if (ids == null) {
+                ids = new int[5];
+                cubetas.put(c, ids);
+            } else if (ids[0] == MAXIMO_POR_CUBETA) {
+                int descartado = ids[1];
+                System.arraycopy(ids, 2, ids, 1, MAXIMO_POR_CUBETA - 1);
+                ids[0]--;
+                if (!enAlgunaCubeta(descartado)) firmas.remove(descartado);
+            } else if (ids[0] + 1 == ids.length) {
+                ids = Arrays.copyOf(ids, Math.min(ids.length * 2, MAXIMO_POR_CUBETA + 1));
+                cubetas.put(c, ids);
+            }
+            ids[++ids[0]] = id;
+        }
+
+        private boolean enAlgunaCubeta(int id) {
+            int[] firma = firmas.get(id);
+            if (firma == null) return false;
+            for (int b = 0; b < BANDAS; b++) {
+                int[] ids = cubetas.get(cubeta(firma, b));
+                if (ids == null) continue;
+                for (int i = 1; i <= ids[0]; i++) {
+                    if (ids[i] == id) return true;
+                }
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package ac.cr.cenfotec.pfinal.bl.logic;
+
+import ac.cr.cenfotec.pfinal.bl.entities.EstadoTicket;
+import ac.cr.cenfotec.pfinal.bl.entities.Ticket;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Criterios para consultar tickets con {@link Gestor#consultarTickets(FiltroTickets)}
+ * y {@link Gestor#listarTickets(FiltroTickets, int, int)}.
+ * <p>
+ * Los criterios que no se configuran aceptan cualquier valor. Los métodos
+ * devuelven el mismo filtro para poder encadenarlos:
+ * </p>
+ * <pre>
+ * new FiltroTickets().departamento("TI").estados(EstadoTicket.NUEVO, EstadoTicket.EN_PROGRESO)
+ * </pre>
+ */
+
+public class FiltroTickets {
+    private String departamento; /** Nombre del departamento, o null para todos. */
+    private EnumSet<EstadoTicket> estados; /** Estados aceptados, o null para todos. */
+    private String correoUsuario; /** Correo del usuario creador, o null para todos. */
+    private long desde = Long.MIN_VALUE; /** Fecha de creación mínima (inclusive), en milisegundos. */
+    private long hasta = Long.MAX_VALUE; /** Fecha de creación máxima (exclusiva), en milisegundos. */
+
+    /**
+     * @param departamento nombre del departamento (sin distinguir mayúsculas)
+     * @return este filtro
+     */
+    public FiltroTickets departamento(String departamento) {
+        this.departamento = departamento;
+        return this;
+    }
+    /**
+     * @param primero estado aceptado
+     * @param otros   otros estados aceptados
+     * @return este filtro
+     */
+    public FiltroTickets estados(EstadoTicket primero, EstadoTicket... otros) {
+        this.estados = EnumSet.of(primero, otros);
+        return this;
+    }
+    /**
+     * @param correoUsuario correo del usuario creador (sin distinguir mayúsculas)
+     * @return este filtro
+     */
+    public FiltroTickets usuario(String correoUsuario) {
+        this.correoUsuario = correoUsuario;
+        return this;
+    }
+    /**
+     * @param desde fecha de creación mínima, inclusive, en milisegundos desde 1970
+     * @param hasta fecha de creación máxima, exclusiva, en milisegundos desde 1970
+     * @return este filtro
+     */
+    public FiltroTickets creados(long desde, long hasta) {
+        this.desde = desde;
+        this.hasta = hasta;
+        return this;
+    }
+
+    /** @return departamento filtrado o null */
+    public String getDepartamento() {
+        return departamento;
+    }
+    /** @return correo del usuario filtrado o null */
+    public String getCorreoUsuario() {
+        return correoUsuario;
+    }
+    /** @return copia de los estados aceptados, o null si se aceptan todos */
+    public Set<EstadoTicket> getEstados() {
+        return estados == null ? null : EnumSet.copyOf(estados);
+    }
+
+    /**
+     * @param t ticket a evaluar
+     * @return true si el ticket cumple todos los criterios
+     */
+    public boolean acepta(Ticket t) {
+        if (departamento != null && (t.getDepartamento() == null
+                || !departamento.equalsIgnoreCase(t.getDepartamento().getNombre()))) return false;
+        if (estados != null && !estados.contains(t.getEstadoTicket())) return false;
+        if (correoUsuario != null && (t.getUsuario() == null
+                || !correoUsuario.equalsIgnoreCase(t.getUsuario().getCorreo()))) return false;
+        return t.getFechaCreacion() >= desde && t.getFechaCreacion() < hasta;
+    }
+}
@@ -3,7 +3,28 @@ package ac.cr.cenfotec.pfinal.bl.logic;
 import ac.cr.cenfotec.pfinal.bl.entities.*;
 import ac.cr.cenfotec.pfinal.dl.*;
 
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.IntPredicate;
+import java.util.function.IntUnaryOperator;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
 
 /**
  * Clase que actúa como capa de lógica del negocio para el sistema de HelpDesk.
@@ -17,13 +38,137 @@ import java.util.ArrayList;
  *     <li>Control de diccionarios técnicos y emocionales</li>
  * </ul>
  * <p>
- * Esta clase utiliza la capa Data como almacenamiento temporal.
+ * Esta clase utiliza la capa Data como almacenamiento temporal. Si se crea
+ * con una carpeta de persistencia, las mutaciones también se guardan en disco
+ * mediante {@link Persistencia} y se recuperan al volver a iniciar.
+ * </p>
+ * <p>
+ * Todas las operaciones pueden invocarse desde varios hilos a la vez.
  * </p>
  */
 
 public class Gestor {
     /** Capa de acceso a datos que mantiene la información en memoria. */
     private Data data = new Data();
+    /**
+     * Clasificador con los autómatas compilados de ambos diccionarios.
+     * Se reemplaza completo cuando un diccionario cambia.
+     */
+    private volatile Clasificador clasificador = new Clasificador(
+            AutomataDiccionario.compilar(data.getDiccionarioTecnico()),
+            AutomataDiccionario.compilar(data.getDiccionarioEmocional()));
+    /** Candado que serializa la recompilación de los diccionarios. */
+    private final Object bloqueoDiccionarios = new Object();
+    /** Versiones de los diccionarios compiladas en {@link #clasificador}; protegidas por {@link #bloqueoDiccionarios}. */
+    private long versionTecnica = -1;
+    private long versionEmocional = -1;
+    /** Colas de tickets abiertos por departamento, para los funcionarios. */
+    private final Despachador despachador = new Despachador();
+    /** Conteos por departamento, categoría y emoción en ventanas de tiempo. */
+    private final AgregadosTiempoReal agregados = new AgregadosTiempoReal();
+    /** Etapa asíncrona que clasifica los tickets registrados y los pasa al despachador. */
+    private PipelineClasificacion pipeline = new PipelineClasificacion(() -> clasificador,
+            PipelineClasificacion.CAPACIDAD_POR_DEFECTO, this::alClasificar);
+    /** Índice de texto completo sobre las descripciones de los tickets. */
+    private final IndiceInvertido indice = new IndiceInvertido();
+    /** Índice de los asuntos, para encontrar los tickets que afecta una palabra nueva. */
+    private final IndiceInvertido indiceAsuntos = new IndiceInvertido();
+    /** Hilos que reclasifican los tickets afectados por palabras nuevas. */
+    private final Reclasificador reclasificador = new Reclasificador();
+    /** Trabajos de reclasificación iniciados que quizá no terminaron. */
+    private final Set<Reclasificador.Tarea> reclasificaciones = ConcurrentHashMap.newKeySet();
+    /** Latencia objetivo de {@link #registrarTicket}; por encima, la reclasificación se pausa. */
+    private volatile long sloRegistroTicket = TimeUnit.MILLISECONDS.toNanos(10);
+    /**
+     * Promedio móvil exponencial de la latencia de {@link #registrarTicket},
+     * en nanosegundos, y momento del último registro. Las actualizaciones
+     * concurrentes pueden perder alguna muestra; solo se usa para frenar la
+     * reclasificación.
+     */
+    private volatile long latenciaRegistroReciente;
+    private volatile long ultimoRegistroTicket;
+    /** Recibe los cambios de descripción hechos con {@link Ticket#setDescripcion(String)}. */
+    private final Ticket.Observador observadorTickets = this::alCambiarDescripcion;
+    /** Firmas MinHash de los tickets activos, para detectar duplicados. */
+    private final DetectorDuplicados duplicados = new DetectorDuplicados();
+    /** Tickets activos por departamento y estado. */
+    private final IndiceEstados estados = new IndiceEstados();
+    /** Punto de paso de todas las mutaciones de {@link #data}. */
+    private final Persistencia persistencia;
+    /** Correos con demasiados inicios de sesión fallidos recientes. */
+    private final CacheIntentosFallidos intentosFallidos = new CacheIntentosFallidos();
+    /** Hilos dedicados al cálculo de hashes de contraseñas. */
+    private final VerificadorCredenciales verificador = new VerificadorCredenciales();
+    /** Algoritmo con que se generan los hashes nuevos. */
+    private volatile String algoritmoHash = Hash.PBKDF2;
+    /** Costo con que se generan los hashes nuevos. */
+    private volatile int costoHash = Hash.COSTO_POR_DEFECTO;
+    /** Sal de la credencial ficticia contra la que se verifican los correos desconocidos. */
+    private final byte[] salFicticia = Hash.generarSalBytes();
+    /** Hash de la credencial ficticia; ninguna contraseña lo produce. */
+    private final byte[] hashFicticio = new byte[32];
+
+    /** Contadores, latencias y medidores de las operaciones del gestor. */
+    private final Metricas metricas = new Metricas();
+    private final Metricas.Histograma latenciaRegistroTicket = metricas.histograma("gestor_registrar_ticket_segundos");
+    private final Metricas.Histograma latenciaRegistroUsuario = metricas.histograma("gestor_registrar_usuario_segundos");
+    private final Metricas.Histograma latenciaRegistroPalabra = metricas.histograma("gestor_registrar_palabra_segundos");
+    private final Metricas.Histograma latenciaLogin = metricas.histograma("gestor_validar_credenciales_segundos");
+    private final Metricas.Histograma latenciaCambioEstado = metricas.histograma("gestor_cambiar_estado_segundos");
+    private final Metricas.Histograma latenciaBusqueda = metricas.histograma("gestor_buscar_tickets_segundos");
+    private final Metricas.Contador loginsExitosos = metricas.contador("gestor_logins_exitosos_total");
+    private final Metricas.Contador loginsFallidos = metricas.contador("gestor_logins_fallidos_total");
+    private final Metricas.Contador loginsBloqueados = metricas.contador("gestor_logins_bloqueados_total");
+    private final Metricas.Contador ticketsDuplicados = metricas.contador("gestor_tickets_duplicados_total");
+    private final Metricas.Contador ticketsReclasificados = metricas.contador("gestor_tickets_reclasificados_total");
+
+    /**
+     * Crea un gestor cuyos datos solo viven en memoria.
+     */
+    public Gestor() {
+        persistencia = Persistencia.enMemoria(data);
+        registrarMedidores();
+    }
+
+    /**
+     * Crea un gestor con persistencia en disco, recuperando los datos guardados
+     * previamente en la carpeta indicada. Cada operación que modifica datos
+     * vuelve cuando el cambio está en disco.
+     *
+     * @param directorio carpeta donde se guardan la instantánea y el registro de escritura
+     * @throws RuntimeException si no se pueden recuperar los datos
+     */
+    public Gestor(Path directorio) {
+        this(directorio, Persistencia.Durabilidad.LOTE);
+    }
+
+    /**
+     * Crea un gestor con persistencia en disco indicando cuándo se confirma
+     * cada cambio (ver {@link Persistencia.Durabilidad}).
+     *
+     * @param directorio  carpeta donde se guardan la instantánea y el registro de escritura
+     * @param durabilidad {@code DIFERIDA} para no esperar al disco, a riesgo de perder los últimos cambios
+     * @throws RuntimeException si no se pueden recuperar los datos
+     */
+    public Gestor(Path directorio, Persistencia.Durabilidad durabilidad) {
+        try {
+            persistencia = Persistencia.abrir(directorio, data, durabilidad);
+        } catch (IOException e) {
+            throw new RuntimeException("Error al recuperar los datos", e);
+        }
+        recompilarTecnico();
+        recompilarEmocional();
+        for (Ticket t : data.getTickets()) {
+            t.setObservador(observadorTickets);
+            indice.indexar(t.getId(), t.getDescripcion());
+            indiceAsuntos.indexar(t.getId(), t.getAsunto());
+            t.setPosibleDuplicado(duplicados.registrar(t));
+            estados.poner(t, t.getEstadoTicket());
+            pipeline.encolar(t);
+        }
+        registrarMedidores();
+    }
+
     /**
      * Registra un nuevo usuario aplicando hash y sal a su contraseña.
      *
@@ -34,19 +179,73 @@ public class Gestor {
      * @param rol rol del usuario (estudiante, funcionario o administrador)
      */
     public void registrarUsuario(String nombre, String correo, String pass, String tel, String rol) {
-        String sal = Hash.generarSal();
-        String hash = Hash.HashConSal(pass, sal);
-        Usuario u = new Usuario(nombre, correo, hash, sal, tel, rol);
-        data.getUsuarios().add(u);
+        long inicio = System.nanoTime();
+        try {
+            String algoritmo = algoritmoHash;
+            int costo = costoHash;
+            byte[] sal = Hash.generarSalBytes();
+            byte[] hash = Hash.calcular(algoritmo, costo, pass, sal);
+            Usuario u = new Usuario(nombre, correo, hash, sal, algoritmo, costo, tel, rol);
+            persistencia.agregarUsuario(u);
+        } finally {
+            latenciaRegistroUsuario.registrar(System.nanoTime() - inicio);
+        }
+    }
+    /**
+     * Registra un funcionario, cuya especialidad es el nombre del
+     * departamento del que atiende tickets.
+     *
+     * @param nombre nombre completo del funcionario
+     * @param correo correo electrónico único
+     * @param pass contraseña en texto plano (será encriptada)
+     * @param tel teléfono de contacto
+     * @param especialidad departamento que atiende
+     */
+    public void registrarFuncionario(String nombre, String correo, String pass, String tel, String especialidad) {
+        long inicio = System.nanoTime();
+        try {
+            String algoritmo = algoritmoHash;
+            int costo = costoHash;
+            byte[] sal = Hash.generarSalBytes();
+            byte[] hash = Hash.calcular(algoritmo, costo, pass, sal);
+            persistencia.agregarUsuario(new Funcionario(nombre, correo, hash, sal, algoritmo, costo, tel, especialidad));
+        } finally {
+            latenciaRegistroUsuario.registrar(System.nanoTime() - inicio);
+        }
     }
     /**
      * Obtiene la lista de todos los usuarios registrados.
      *
      * @return lista de usuarios
      */
-    public ArrayList<Usuario> obtenerUsuarios() {
+    public List<Usuario> obtenerUsuarios() {
         return data.getUsuarios();
     }
+    /**
+     * Obtiene una página de usuarios en orden de registro. El cursor es la
+     * posición en ese orden, así que eliminar usuarios entre dos páginas
+     * puede correr los resultados.
+     *
+     * @param cursor 0 para la primera página, o {@link Pagina#getSiguienteCursor()} de la anterior
+     * @param tamano cantidad máxima de usuarios por página
+     * @return página de usuarios
+     * @throws RuntimeException si el tamaño no es positivo
+     */
+    public Pagina<Usuario> listarUsuarios(int cursor, int tamano) {
+        if (tamano <= 0) throw new RuntimeException("El tamaño de página debe ser positivo");
+        List<Usuario> pagina = data.getUsuarios(cursor, tamano + 1);
+        if (pagina.size() <= tamano) return new Pagina<>(pagina, -1);
+        return new Pagina<>(pagina.subList(0, tamano), cursor + tamano);
+    }
+    /**
+     * Consulta los usuarios registrados (uno por correo, en orden no
+     * especificado) sin copiar la colección. Se puede consumir en paralelo.
+     *
+     * @return flujo de usuarios
+     */
+    public Stream<Usuario> consultarUsuarios() {
+        return data.streamUsuarios();
+    }
 
     /**
      * Registra un nuevo departamento en el sistema.
@@ -57,63 +256,478 @@ public class Gestor {
      */
     public void registrarDepartamento(String nombre, String desc, String contacto) {
         Departamento d = new Departamento(nombre, desc, contacto);
-        data.getDepartamentos().add(d);
+        persistencia.agregarDepartamento(d);
     }
     /**
      * Devuelve la lista de departamentos registrados.
      *
      * @return lista de departamentos
      */
-    public ArrayList<Departamento> obtenerDepartamentos() {
+    public List<Departamento> obtenerDepartamentos() {
         return data.getDepartamentos();
     }
 
     /**
-     * Agrega una palabra al diccionario emocional.
+     * Agrega una palabra al diccionario emocional sin mensaje de validación.
      *
      * @param e entrada del diccionario emocional
      */
     public void agregarPalabraEmocional(Diccionario e) {
-        data.getDiccionarioEmocional().add(e);
+        long inicio = System.nanoTime();
+        try {
+            if (persistencia.agregarPalabraEmocional(e)) {
+                recompilarEmocional();
+                reclasificar(List.of(e));
+            }
+        } finally {
+            latenciaRegistroPalabra.registrar(System.nanoTime() - inicio);
+        }
     }
 
     /**
-     * Agrega una palabra al diccionario técnico sin validación.
+     * Agrega una palabra al diccionario técnico sin mensaje de validación.
      *
      * @param e entrada del diccionario técnico
      */
 
     public void agregarPalabraTecnica(Diccionario e) {
-        data.getDiccionarioTecnico().add(e);
+        long inicio = System.nanoTime();
+        try {
+            if (persistencia.agregarPalabraTecnica(e)) {
+                recompilarTecnico();
+                reclasificar(List.of(e));
+            }
+        } finally {
+            latenciaRegistroPalabra.registrar(System.nanoTime() - inicio);
+        }
     }
 
     /**
      * Registra un ticket asociándolo a un usuario y un departamento.
+     * <p>
+     * La clasificación automática (categoría técnica y emoción) se hace en
+     * segundo plano; el ticket queda con {@code getClasificacion() == null}
+     * hasta que el pipeline lo procese, y recién entonces entra a la cola de
+     * despacho de su departamento.
+     * </p>
      *
      * @param asunto asunto del ticket
      * @param descripcion descripción del problema
      * @param correo correo del usuario creador
      * @param dep nombre del departamento asociado
+     * @return ID del ticket registrado
      * @throws RuntimeException si usuario o departamento no existen
      */
-    public void registrarTicket(String asunto, String descripcion, String correo, String dep) {
+    public int registrarTicket(String asunto, String descripcion, String correo, String dep) {
+        long inicio = System.nanoTime();
+        try {
+            Usuario u = data.buscarUsuarioPorCorreo(correo);
+            if (u == null) throw new RuntimeException("Usuario no existe");
+
+            Departamento d = data.buscarDepartamentoPorNombre(dep);
+            if (d == null) throw new RuntimeException("Departamento no existe");
+
+            Ticket t = new Ticket(asunto, descripcion, EstadoTicket.NUEVO.getTexto(), u, d);
+            t.setObservador(observadorTickets);
+            persistencia.agregarTicket(t);
+            indice.indexar(t.getId(), descripcion);
+            indiceAsuntos.indexar(t.getId(), asunto);
+            marcarDuplicado(t);
+            estados.poner(t, EstadoTicket.NUEVO);
+            pipeline.encolar(t);
+            return t.getId();
+        } finally {
+            long fin = System.nanoTime();
+            latenciaRegistroTicket.registrar(fin - inicio);
+            long promedio = latenciaRegistroReciente;
+            latenciaRegistroReciente = promedio + (fin - inicio - promedio) / 8;
+            ultimoRegistroTicket = fin;
+        }
+    }
+
+    /**
+     * Cambia el estado de un ticket (por ejemplo, de "Nuevo" a "En Progreso").
+     *
+     * @param id identificador del ticket
+     * @param estado texto del nuevo estado
+     * @throws RuntimeException si el ticket no existe, el estado no se reconoce o la transición no es válida
+     */
+    public void cambiarEstadoTicket(int id, String estado) {
+        EstadoTicket e = EstadoTicket.desdeTexto(estado);
+        if (e == null) throw new RuntimeException("Estado de ticket desconocido: " + estado);
+        cambiarEstadoTicket(id, e);
+    }
+    /**
+     * Cambia el estado de un ticket validando la transición (ver
+     * {@link EstadoTicket}). El cambio se registra en disco y en el índice de
+     * estados de forma atómica respecto de otros cambios del mismo ticket.
+     * Si el ticket vuelve a "Nuevo", regresa a la cola de despacho; con
+     * cualquier otro estado sale de ella.
+     *
+     * @param id identificador del ticket
+     * @param estado nuevo estado
+     * @throws RuntimeException si el ticket no existe o la transición no es válida
+     */
+    public void cambiarEstadoTicket(int id, EstadoTicket estado) {
+        long inicio = System.nanoTime();
+        try {
+            Ticket t = data.buscarTicketPorId(id);
+            if (t == null) throw new RuntimeException("Ticket no existe");
+            synchronized (t) {
+                EstadoTicket actual = t.getEstadoTicket();
+                if (actual == estado) return;
+                if (actual != null && !actual.puedeCambiarA(estado)) {
+                    throw new RuntimeException("No se puede pasar un ticket de \"" + actual + "\" a \"" + estado + "\"");
+                }
+                persistencia.cambiarEstado(t, estado.getTexto());
+                estados.poner(t, estado);
+                if (estado == EstadoTicket.NUEVO) despachar(t);
+                else despachador.quitar(t);
+            }
+        } finally {
+            latenciaCambioEstado.registrar(System.nanoTime() - inicio);
+        }
+    }
+    /**
+     * Cuenta los tickets activos de un departamento en un estado.
+     *
+     * @param dep nombre del departamento
+     * @param estado estado a contar
+     * @return cantidad de tickets
+     */
+    public int contarTickets(String dep, EstadoTicket estado) {
+        return estados.contar(dep, estado);
+    }
+    /**
+     * Cuenta los tickets activos en un estado, en todos los departamentos.
+     *
+     * @param estado estado a contar
+     * @return cantidad de tickets
+     */
+    public int contarTickets(EstadoTicket estado) {
+        return estados.contar(estado);
+    }
+    /**
+     * Lista los tickets activos de un departamento en un estado, ordenados por ID.
+     *
+     * @param dep nombre del departamento
+     * @param estado estado buscado
+     * @return tickets encontrados
+     */
+    public List<Ticket> listarTickets(String dep, EstadoTicket estado) {
+        int[] ids = estados.ids(dep, estado);
+        List<Ticket> resultado = new ArrayList<>(ids.length);
+        for (int id : ids) {
+            Ticket t = data.buscarTicketPorId(id);
+            if (t != null) resultado.add(t);
+        }
+        return resultado;
+    }
+    /**
+     * Consulta los tickets activos que cumplen un filtro, en orden de ID.
+     * <p>
+     * El flujo es perezoso: no copia la colección de tickets y solo evalúa
+     * los que se consumen (por ejemplo, con {@code limit}). Se puede
+     * consumir en paralelo con {@code parallel()}.
+     * </p>
+     *
+     * @param filtro criterios de la consulta
+     * @return flujo de tickets
+     */
+    public Stream<Ticket> consultarTickets(FiltroTickets filtro) {
+        return data.streamTickets(0).filter(filtro::acepta);
+    }
+    /**
+     * Obtiene una página de tickets activos que cumplen un filtro, en orden de ID.
+     * <p>
+     * Si el filtro indica usuario, los candidatos salen del índice por
+     * usuario de {@link Data} y la página cuesta a lo sumo los tickets de ese
+     * usuario. Si indica departamento y estados, salen del índice de estados
+     * y cuesta lo que mide la página, sin importar cuántos tickets haya. Si
+     * no, se recorren los tickets desde el cursor. En todos los casos se busca
+     * un ticket más que la página, de modo que la última página devuelve -1
+     * como cursor.
+     * </p>
+     *
+     * @param filtro criterios de la consulta
+     * @param cursor 0 para la primera página, o {@link Pagina#getSiguienteCursor()} de la anterior
+     * @param tamano cantidad máxima de tickets por página
+     * @return página de tickets
+     * @throws RuntimeException si el tamaño no es positivo
+     */
+    public Pagina<Ticket> listarTickets(FiltroTickets filtro, int cursor, int tamano) {
+        if (tamano <= 0) throw new RuntimeException("El tamaño de página debe ser positivo");
+        List<Ticket> pagina = new ArrayList<>(tamano);
+        Set<EstadoTicket> aceptados = filtro.getEstados();
+        IntUnaryOperator siguiente = null; // siguiente ID candidato mayor al dado, o -1
+        if (filtro.getCorreoUsuario() != null) {
+            siguiente = id -> data.siguienteTicketDeUsuario(filtro.getCorreoUsuario(), id);
+        } else if (filtro.getDepartamento() != null && aceptados != null) {
+            siguiente = id -> {
+                int menor = -1;
+                for (EstadoTicket e : aceptados) {
+                    int s = estados.siguiente(filtro.getDepartamento(), e, id + 1);
+                    if (s >= 0 && (menor < 0 || s < menor)) menor = s;
+                }
+                return menor;
+            };
+        }
+        if (siguiente != null) {
+            for (int id = siguiente.applyAsInt(cursor); id >= 0; id = siguiente.applyAsInt(id)) {
+                Ticket t = data.buscarTicketPorId(id);
+                if (t == null || data.estaArchivado(id) || !filtro.acepta(t)) continue;
+                if (pagina.size() == tamano) return new Pagina<>(pagina, pagina.get(tamano - 1).getId());
+                pagina.add(t);
+            }
+            return new Pagina<>(pagina, -1);
+        }
+        Iterator<Ticket> it = data.streamTickets(cursor).filter(filtro::acepta).iterator();
+        while (pagina.size() < tamano && it.hasNext()) pagina.add(it.next());
+        return new Pagina<>(pagina, it.hasNext() ? pagina.get(pagina.size() - 1).getId() : -1);
+    }
 
+    /**
+     * Obtiene una página de los tickets activos de un usuario, del más
+     * reciente al más antiguo. Se arma con el índice por usuario de
+     * {@link Data}: cuesta lo que mide la página, aunque el usuario tenga
+     * miles de tickets.
+     *
+     * @param correo correo del usuario
+     * @param cursor 0 para la primera página, o {@link Pagina#getSiguienteCursor()} de la anterior
+     * @param tamano cantidad máxima de tickets por página
+     * @return página de tickets
+     * @throws RuntimeException si el tamaño no es positivo
+     */
+    public Pagina<Ticket> listarTicketsDeUsuario(String correo, int cursor, int tamano) {
+        if (tamano <= 0) throw new RuntimeException("El tamaño de página debe ser positivo");
+        int[] ids = data.getIdsTicketsDeUsuario(correo, cursor, tamano + 1);
+        List<Ticket> pagina = new ArrayList<>(Math.min(ids.length, tamano));
+        for (int i = 0; i < ids.length && i < tamano; i++) {
+            Ticket t = data.buscarTicketPorId(ids[i]);
+            if (t != null) pagina.add(t);
+        }
+        return new Pagina<>(pagina, ids.length > tamano ? ids[tamano - 1] : -1);
+    }
+    /**
+     * Cuenta los tickets activos de un usuario que no están resueltos. Es O(1).
+     *
+     * @param correo correo del usuario
+     * @return cantidad de tickets abiertos
+     */
+    public int contarTicketsAbiertos(String correo) {
+        return data.contarTicketsAbiertos(correo);
+    }
+    /**
+     * Cuenta los tickets activos de un usuario. Es O(1).
+     *
+     * @param correo correo del usuario
+     * @return cantidad de tickets
+     */
+    public int contarTicketsDeUsuario(String correo) {
+        return data.contarTicketsDeUsuario(correo);
+    }
+    /**
+     * Pasa un ticket activo a otro usuario.
+     *
+     * @param id     identificador del ticket
+     * @param correo correo del nuevo usuario
+     * @throws RuntimeException si el ticket o el usuario no existen, o el ticket está archivado
+     */
+    public void reasignarTicket(int id, String correo) {
         Usuario u = data.buscarUsuarioPorCorreo(correo);
         if (u == null) throw new RuntimeException("Usuario no existe");
+        Ticket t = data.buscarTicketPorId(id);
+        if (t == null) throw new RuntimeException("Ticket no existe");
+        persistencia.reasignarTicket(t, u);
+    }
 
-        Departamento d = data.buscarDepartamentoPorNombre(dep);
-        if (d == null) throw new RuntimeException("Departamento no existe");
+    /**
+     * Entrega a un funcionario el siguiente ticket nuevo de su departamento
+     * (el de vencimiento más próximo según SLA, emoción y antigüedad) y lo
+     * pasa a "En Progreso".
+     *
+     * @param correoFuncionario correo del funcionario que pide trabajo
+     * @return ticket asignado o null si no hay tickets pendientes
+     * @throws RuntimeException si el usuario no existe o no es funcionario
+     */
+    public Ticket tomarSiguienteTicket(String correoFuncionario) {
+        Usuario u = data.buscarUsuarioPorCorreo(correoFuncionario);
+        if (u == null) throw new RuntimeException("Usuario no existe");
+        if (!(u instanceof Funcionario)) throw new RuntimeException("El usuario no es un funcionario");
+        return despachador.tomar(((Funcionario) u).getEspecialidad(), this::reclamar);
+    }
+    /**
+     * Configura el SLA de un departamento. Aplica a los tickets que se
+     * encolen desde ahora.
+     *
+     * @param dep nombre del departamento
+     * @param milisegundos tiempo objetivo de atención
+     */
+    public void configurarSlaDepartamento(String dep, long milisegundos) {
+        despachador.configurarSla(dep, milisegundos);
+    }
+    /**
+     * Configura cuánto adelanta una emoción a un ticket en las colas de despacho.
+     *
+     * @param emocion categoría emocional
+     * @param peso puntos de prioridad (minutos de adelanto) con confianza 1
+     */
+    public void configurarPesoEmocion(String emocion, int peso) {
+        despachador.configurarPesoEmocion(emocion, peso);
+    }
 
-        Ticket t = new Ticket(asunto, descripcion, "Nuevo", u, d);
-        data.getTickets().add(t);
+    /**
+     * Configura la similitud mínima (Jaccard estimada, entre 0 y 1) para
+     * marcar un ticket nuevo de un departamento como posible duplicado de
+     * otro ticket activo (ver {@link DetectorDuplicados}).
+     *
+     * @param dep nombre del departamento
+     * @param umbral similitud mínima
+     * @throws RuntimeException si el umbral está fuera de rango
+     */
+    public void configurarUmbralDuplicados(String dep, double umbral) {
+        duplicados.configurarUmbral(dep, umbral);
+    }
+    /**
+     * Configura la latencia objetivo de {@link #registrarTicket}. Mientras el
+     * promedio reciente la supere, los trabajos de reclasificación se pausan.
+     *
+     * @param milisegundos latencia objetivo
+     * @throws RuntimeException si no es positiva
+     */
+    public void configurarSloRegistroTicket(long milisegundos) {
+        if (milisegundos <= 0) throw new RuntimeException("La latencia objetivo debe ser positiva");
+        sloRegistroTicket = TimeUnit.MILLISECONDS.toNanos(milisegundos);
+    }
+    /**
+     * Obtiene los trabajos de reclasificación que siguen en curso. Cada
+     * palabra nueva (o cada importación de palabras) inicia uno.
+     *
+     * @return trabajos en curso, para consultar su progreso o cancelarlos
+     */
+    public List<Reclasificador.Tarea> getReclasificaciones() {
+        reclasificaciones.removeIf(Reclasificador.Tarea::estaTerminada);
+        return new ArrayList<>(reclasificaciones);
+    }
+    /**
+     * Cancela los trabajos de reclasificación en curso. Los tickets ya
+     * reclasificados conservan su clasificación nueva.
+     */
+    public void cancelarReclasificaciones() {
+        for (Reclasificador.Tarea t : reclasificaciones) t.cancelar();
+    }
+
+    /**
+     * Cambia la descripción de un ticket. Es lo mismo que
+     * {@link Ticket#setDescripcion(String)} sobre un ticket activo: el cambio
+     * se registra, se actualizan el índice de búsqueda y la detección de
+     * duplicados, y el ticket se vuelve a clasificar.
+     *
+     * @param id identificador del ticket
+     * @param descripcion nueva descripción
+     * @throws RuntimeException si el ticket no existe
+     * @throws IllegalStateException si el ticket está archivado
+     */
+    public void actualizarDescripcionTicket(int id, String descripcion) {
+        Ticket t = data.buscarTicketPorId(id);
+        if (t == null) throw new RuntimeException("Ticket no existe");
+        if (data.estaArchivado(id)) {
+            throw new IllegalStateException("El ticket " + id + " está archivado y no se puede modificar");
+        }
+        t.setDescripcion(descripcion);
+    }
+
+    /**
+     * Busca tickets por el contenido de su descripción.
+     *
+     * @param consulta palabras a buscar
+     * @param todas true para exigir todas las palabras (AND), false para aceptar cualquiera (OR)
+     * @return tickets encontrados, ordenados por ID
+     */
+    public List<Ticket> buscarTickets(String consulta, boolean todas) {
+        long inicio = System.nanoTime();
+        try {
+            int[] ids = todas ? indice.buscarTodas(consulta) : indice.buscarAlguna(consulta);
+            List<Ticket> resultado = new ArrayList<>(ids.length);
+            for (int id : ids) {
+                Ticket t = data.buscarTicketPorId(id);
+                if (t != null) resultado.add(t);
+            }
+            return resultado;
+        } finally {
+            latenciaBusqueda.registrar(System.nanoTime() - inicio);
+        }
+    }
+
+    /**
+     * Obtiene los tickets más relevantes para una consulta según BM25.
+     *
+     * @param consulta palabras a buscar
+     * @param k cantidad máxima de resultados
+     * @return tickets de mayor a menor relevancia
+     */
+    public List<Ticket> buscarTicketsRelevantes(String consulta, int k) {
+        return buscarTicketsRelevantes(consulta, k, null);
+    }
+
+    /**
+     * Obtiene los tickets más relevantes para una consulta entre los que
+     * acepta el filtro. El filtro se aplica durante el ranking, así que el
+     * resultado tiene hasta {@code k} tickets aceptados aunque los más
+     * relevantes en general no lo sean.
+     *
+     * @param consulta palabras a buscar
+     * @param k cantidad máxima de resultados
+     * @param filtro tickets aceptados, o null para aceptarlos todos
+     * @return tickets de mayor a menor relevancia
+     */
+    public List<Ticket> buscarTicketsRelevantes(String consulta, int k, Predicate<Ticket> filtro) {
+        long inicio = System.nanoTime();
+        try {
+            List<Ticket> resultado = new ArrayList<>(k);
+            IntPredicate admitir = filtro == null ? null : id -> {
+                Ticket t = data.buscarTicketPorId(id);
+                return t != null && filtro.test(t);
+            };
+            for (IndiceInvertido.Resultado r : indice.buscarRelevantes(consulta, k, admitir)) {
+                Ticket t = data.buscarTicketPorId(r.getId());
+                if (t != null) resultado.add(t);
+            }
+            return resultado;
+        } finally {
+            latenciaBusqueda.registrar(System.nanoTime() - inicio);
+        }
+    }
+
+    /**
+     * Mueve los tickets resueltos al archivo en disco para liberar memoria.
+     * Siguen disponibles por ID, pero ya no aparecen en {@link #listarTickets()}.
+     * Sin persistencia en disco no hace nada.
+     *
+     * @return cantidad de tickets archivados
+     * @throws RuntimeException si falla la escritura del archivo
+     */
+    public int archivarTicketsResueltos() {
+        try {
+            return persistencia.archivarResueltos(t -> {
+                estados.quitar(t);
+                duplicados.quitar(t);
+                despachador.quitar(t);
+                // Al recuperar, los archivados no se indexan: se quitan ya para que la búsqueda no cambie al reiniciar.
+                indice.eliminar(t.getId(), t.getDescripcion());
+                indiceAsuntos.eliminar(t.getId(), t.getAsunto());
+            });
+        } catch (IOException e) {
+            throw new RuntimeException("Error al archivar los tickets", e);
+        }
     }
 
     /**
-     * Devuelve la lista de tickets registrados.
+     * Devuelve la lista de tickets activos (no archivados).
      *
      * @return lista de tickets
      */
-    public ArrayList<Ticket> listarTickets() {
+    public List<Ticket> listarTickets() {
         return data.getTickets();
     }
     /**
@@ -124,13 +738,19 @@ public class Gestor {
      * @return mensaje de retroalimentación
      */
     public String registrarPalabraEmocional(String palabra, String categoria) {
-        Diccionario nueva = new Diccionario(palabra, categoria);
+        long inicio = System.nanoTime();
+        try {
+            Diccionario nueva = new Diccionario(palabra, categoria);
 
-        if (data.getDiccionarioEmocional().contains(nueva)) {
-            return "La palabra ya existe en el diccionario emocional.";
+            if (!persistencia.agregarPalabraEmocional(nueva)) {
+                return "La palabra ya existe en el diccionario emocional.";
+            }
+            recompilarEmocional();
+            reclasificar(List.of(nueva));
+            return "Palabra agregada al diccionario emocional.";
+        } finally {
+            latenciaRegistroPalabra.registrar(System.nanoTime() - inicio);
         }
-        data.getDiccionarioEmocional().add(nueva);
-        return "Palabra agregada al diccionario emocional.";
     }
 
     /**
@@ -138,7 +758,7 @@ public class Gestor {
      *
      * @return lista de palabras emocionales
      */
-    public ArrayList<Diccionario> obtenerDiccionarioEmocional() {
+    public List<Diccionario> obtenerDiccionarioEmocional() {
         return data.getDiccionarioEmocional();
     }
 
@@ -150,13 +770,19 @@ public class Gestor {
      * @return mensaje de retroalimentación
      */
     public String registrarPalabraTecnica(String palabra, String categoria) {
-        Diccionario nueva = new Diccionario(palabra, categoria);
+        long inicio = System.nanoTime();
+        try {
+            Diccionario nueva = new Diccionario(palabra, categoria);
 
-        if (data.getDiccionarioTecnico().contains(nueva)) {
-            return "La palabra ya existe en el diccionario técnico.";
+            if (!persistencia.agregarPalabraTecnica(nueva)) {
+                return "La palabra ya existe en el diccionario técnico.";
+            }
+            recompilarTecnico();
+            reclasificar(List.of(nueva));
+            return "Palabra agregada al diccionario técnico.";
+        } finally {
+            latenciaRegistroPalabra.registrar(System.nanoTime() - inicio);
         }
-        data.getDiccionarioTecnico().add(nueva);
-        return "Palabra agregada al diccionario técnico.";
     }
 
     /**
@@ -164,23 +790,512 @@ public class Gestor {
      *
      * @return lista de palabras técnicas
      */
-    public ArrayList<Diccionario> obtenerDiccionarioTecnico() {
+    public List<Diccionario> obtenerDiccionarioTecnico() {
         return data.getDiccionarioTecnico();
     }
+    /**
+     * Lista las palabras de una categoría técnica, usando el índice inverso
+     * del diccionario.
+     *
+     * @param categoria categoría técnica
+     * @return palabras de la categoría en orden de registro
+     */
+    public List<String> obtenerPalabrasTecnicas(String categoria) {
+        return data.getInstantaneaTecnica().getPalabras(categoria);
+    }
+    /**
+     * Lista las palabras de una emoción, usando el índice inverso del diccionario.
+     *
+     * @param emocion categoría emocional
+     * @return palabras de la emoción en orden de registro
+     */
+    public List<String> obtenerPalabrasEmocionales(String emocion) {
+        return data.getInstantaneaEmocional().getPalabras(emocion);
+    }
+    /**
+     * Detecta las categorías técnicas presentes en un texto usando el diccionario técnico.
+     *
+     * @param texto texto a analizar, por ejemplo la descripción de un ticket
+     * @return mapa categoría → cantidad de coincidencias
+     */
+    public Map<String, Integer> detectarCategorias(String texto) {
+        return clasificador.getAutomataTecnico().buscar(texto);
+    }
+
+    /**
+     * Detecta las emociones presentes en un texto usando el diccionario emocional.
+     *
+     * @param texto texto a analizar, por ejemplo la descripción de un ticket
+     * @return mapa emoción → cantidad de coincidencias
+     */
+    public Map<String, Integer> detectarEmociones(String texto) {
+        return clasificador.getAutomataEmocional().buscar(texto);
+    }
     /**
      * Valida las credenciales de un usuario comparando el hash almacenado
      * con el hash generado a partir de la contraseña ingresada.
+     * <p>
+     * Tras varios fallos seguidos para el mismo correo, los intentos se
+     * rechazan sin calcular el hash durante unos segundos
+     * (ver {@link CacheIntentosFallidos}).
+     * </p>
+     * <p>
+     * El hash se calcula en un {@link VerificadorCredenciales} con hilos y
+     * cola propios. Si la contraseña es correcta pero su hash se generó con
+     * otro algoritmo o costo, se recalcula con la configuración vigente. Un
+     * correo desconocido también paga el cálculo de un hash, para que no se
+     * distinga por el tiempo de respuesta.
+     * </p>
      *
      * @param correo correo ingresado por el usuario
      * @param pass contraseña ingresada en texto plano
      * @return true si las credenciales son correctas, false de lo contrario
+     * @throws java.util.concurrent.RejectedExecutionException si hay demasiados inicios de sesión en espera
      */
     public boolean validarCredenciales (String correo, String pass) {
+        long inicio = System.nanoTime();
+        try {
+            if (intentosFallidos.bloqueado(correo)) {
+                loginsBloqueados.incrementar();
+                return false;
+            }
+            Usuario u = data.buscarUsuarioPorCorreo(correo);
+            boolean valido = u != null
+                    ? verificador.verificar(() -> verificarYActualizar(u, pass))
+                    : verificador.verificar(() -> verificarFicticio(pass));
+            if (valido) {
+                intentosFallidos.limpiar(correo);
+                loginsExitosos.incrementar();
+                return true;
+            }
+            intentosFallidos.registrarFallo(correo);
+            loginsFallidos.incrementar();
+            return false;
+        } finally {
+            latenciaLogin.registrar(System.nanoTime() - inicio);
+        }
+    }
+    /**
+     * Obtiene el rol de un usuario, por ejemplo para autorizar las operaciones
+     * de una sesión ya validada con {@link #validarCredenciales(String, String)}.
+     *
+     * @param correo correo del usuario, sin distinguir mayúsculas
+     * @return rol del usuario, o null si no existe
+     */
+    public String obtenerRolUsuario(String correo) {
         Usuario u = data.buscarUsuarioPorCorreo(correo);
-        if (u == null) return false;
+        return u == null ? null : u.getRol();
+    }
+    /**
+     * Importa usuarios desde un archivo CSV con el encabezado
+     * {@code nombre,correo,contrasena,telefono,rol[,especialidad]}. Las filas
+     * con rol "funcionario" y especialidad se registran como
+     * {@link Funcionario}.
+     * <p>
+     * La sal y el hash de cada contraseña se calculan en paralelo con el
+     * algoritmo y el costo vigentes (ver {@link #configurarHash(String, int)}),
+     * que son los que determinan la velocidad de la importación. Los
+     * usuarios válidos se agregan en lotes de {@link ImportadorMasivo#TAMANO_LOTE}.
+     * </p>
+     *
+     * @param archivo ruta del archivo CSV en UTF-8
+     * @return filas leídas, importadas y errores por fila
+     * @throws RuntimeException si no se puede leer el archivo
+     */
+    public ResultadoImportacion importarUsuarios(Path archivo) {
+        String algoritmo = algoritmoHash;
+        int costo = costoHash;
+        return importar(archivo, 5, f -> {
+            String nombre = obligatorio(f, 0, "nombre");
+            String correo = obligatorio(f, 1, "correo");
+            String pass = obligatorio(f, 2, "contrasena");
+            String rol = obligatorio(f, 4, "rol");
+            if (correo.indexOf('@') < 1) throw new RuntimeException("Correo inválido: " + correo);
+            if (data.buscarUsuarioPorCorreo(correo) != null) throw new RuntimeException("El correo ya está registrado: " + correo);
+            String especialidad = f.length > 5 && !f[5].isBlank() ? f[5] : null;
+            byte[] sal = Hash.generarSalBytes();
+            byte[] hash = Hash.calcular(algoritmo, costo, pass, sal);
+            return especialidad != null && rol.equalsIgnoreCase("funcionario")
+                    ? new Funcionario(nombre, correo, hash, sal, algoritmo, costo, f[3], especialidad)
+                    : new Usuario(nombre, correo, hash, sal, algoritmo, costo, f[3], rol);
+        }, Usuario::getClaveCorreo, persistencia::agregarUsuarios);
+    }
+    /**
+     * Importa departamentos desde un archivo CSV con el encabezado
+     * {@code nombre,descripcion,contacto}.
+     *
+     * @param archivo ruta del archivo CSV en UTF-8
+     * @return filas leídas, importadas y errores por fila
+     * @throws RuntimeException si no se puede leer el archivo
+     */
+    public ResultadoImportacion importarDepartamentos(Path archivo) {
+        return importar(archivo, 3, f -> {
+            String nombre = obligatorio(f, 0, "nombre");
+            if (data.buscarDepartamentoPorNombre(nombre) != null) throw new RuntimeException("El departamento ya existe: " + nombre);
+            return new Departamento(nombre, f[1], f[2]);
+        }, Departamento::getClaveNombre, lote -> {
+            for (Departamento d : lote) persistencia.agregarDepartamento(d);
+        });
+    }
+    /**
+     * Importa tickets desde un archivo CSV con el encabezado
+     * {@code asunto,descripcion,correo,departamento[,estado]}. El usuario y el
+     * departamento deben existir; si no se indica estado, el ticket queda
+     * "Nuevo". Los tickets importados se indexan y pasan por el pipeline de
+     * clasificación igual que los registrados uno a uno.
+     *
+     * @param archivo ruta del archivo CSV en UTF-8
+     * @return filas leídas, importadas y errores por fila
+     * @throws RuntimeException si no se puede leer el archivo
+     */
+    public ResultadoImportacion importarTickets(Path archivo) {
+        return importar(archivo, 4, f -> {
+            String asunto = obligatorio(f, 0, "asunto");
+            String descripcion = obligatorio(f, 1, "descripcion");
+            Usuario u = data.buscarUsuarioPorCorreo(f[2]);
+            if (u == null) throw new RuntimeException("Usuario no existe: " + f[2]);
+            Departamento d = data.buscarDepartamentoPorNombre(f[3]);
+            if (d == null) throw new RuntimeException("Departamento no existe: " + f[3]);
+            EstadoTicket estado = f.length > 4 && !f[4].isBlank() ? EstadoTicket.desdeTexto(f[4]) : EstadoTicket.NUEVO;
+            if (estado == null) throw new RuntimeException("Estado de ticket desconocido: " + f[4]);
+            // el ticket se crea al aplicar el lote, para que los IDs sigan el orden del archivo
+            Supplier<Ticket> ticket = () -> new Ticket(asunto, descripcion, estado.getTexto(), u, d);
+            return ticket;
+        }, null, lote -> {
+            List<Ticket> tickets = new ArrayList<>(lote.size());
+            for (Supplier<Ticket> s : lote) {
+                Ticket t = s.get();
+                t.setObservador(observadorTickets);
+                tickets.add(t);
+            }
+            persistencia.agregarTickets(tickets);
+            for (Ticket t : tickets) {
+                indice.indexar(t.getId(), t.getDescripcion());
+                indiceAsuntos.indexar(t.getId(), t.getAsunto());
+                marcarDuplicado(t);
+                estados.poner(t, t.getEstadoTicket());
+                pipeline.encolar(t);
+            }
+        });
+    }
+    /**
+     * Importa palabras al diccionario técnico desde un archivo CSV con el
+     * encabezado {@code palabra,categoria}. El autómata se recompila una sola
+     * vez, al terminar.
+     *
+     * @param archivo ruta del archivo CSV en UTF-8
+     * @return filas leídas, importadas y errores por fila
+     * @throws RuntimeException si no se puede leer el archivo
+     */
+    public ResultadoImportacion importarPalabrasTecnicas(Path archivo) {
+        InstantaneaDiccionario existentes = data.getInstantaneaTecnica();
+        List<Diccionario> agregadas = new ArrayList<>();
+        ResultadoImportacion r = importar(archivo, 2, f -> palabra(f, existentes, "técnico"),
+                Diccionario::getClave, lote -> agregadas.addAll(persistencia.agregarPalabrasTecnicas(lote)));
+        if (r.getImportadas() > 0) {
+            recompilarTecnico();
+            reclasificar(agregadas);
+        }
+        return r;
+    }
+    /**
+     * Importa palabras al diccionario emocional desde un archivo CSV con el
+     * encabezado {@code palabra,categoria}. El autómata se recompila una sola
+     * vez, al terminar.
+     *
+     * @param archivo ruta del archivo CSV en UTF-8
+     * @return filas leídas, importadas y errores por fila
+     * @throws RuntimeException si no se puede leer el archivo
+     */
+    public ResultadoImportacion importarPalabrasEmocionales(Path archivo) {
+        InstantaneaDiccionario existentes = data.getInstantaneaEmocional();
+        List<Diccionario> agregadas = new ArrayList<>();
+        ResultadoImportacion r = importar(archivo, 2, f -> palabra(f, existentes, "emocional"),
+                Diccionario::getClave, lote -> agregadas.addAll(persistencia.agregarPalabrasEmocionales(lote)));
+        if (r.getImportadas() > 0) {
+            recompilarEmocional();
+            reclasificar(agregadas);
+        }
+        return r;
+    }
 
-        String hashCalculado = Hash.HashConSal(pass, u.getSal());
-        return hashCalculado.equals(u.getContrasenaHash());
+    /**
+     * Cambia el algoritmo y el costo de los hashes nuevos. Los usuarios
+     * existentes se actualizan en su siguiente inicio de sesión correcto.
+     *
+     * @param algoritmo nombre de un {@link Hash.Algoritmo} registrado
+     * @param costo     costo del algoritmo (por ejemplo, iteraciones)
+     * @throws RuntimeException si el algoritmo no está registrado o el costo no es positivo
+     */
+    public void configurarHash(String algoritmo, int costo) {
+        Hash.algoritmo(algoritmo);
+        if (costo <= 0) throw new RuntimeException("El costo del hash debe ser positivo");
+        this.algoritmoHash = algoritmo;
+        this.costoHash = costo;
+    }
+    /**
+     * Obtiene las métricas del gestor: latencias de las operaciones,
+     * resultados de inicio de sesión y tamaños de las colecciones. Se pueden
+     * exportar con {@link Metricas#exportarPrometheus()} o
+     * {@link Metricas#registrarJmx(String)}.
+     *
+     * @return registro de métricas
+     */
+    public Metricas getMetricas() {
+        return metricas;
+    }
+    /**
+     * Obtiene los conteos en tiempo real de tickets por departamento,
+     * categoría y emoción, por ejemplo para un tablero de supervisores.
+     *
+     * @return agregados por ventana de tiempo
+     */
+    public AgregadosTiempoReal getAgregados() {
+        return agregados;
+    }
+    /**
+     * Obtiene el verificador de credenciales, para consultar sus métricas.
+     *
+     * @return verificador de credenciales
+     */
+    public VerificadorCredenciales getVerificador() {
+        return verificador;
+    }
+
+    /**
+     * Detiene los procesos de fondo del gestor, clasificando antes los tickets
+     * pendientes y bajando a disco las mutaciones que falten.
+     *
+     * @throws RuntimeException si falla el cierre de la persistencia
+     */
+    public void cerrar() {
+        reclasificador.detener();
+        verificador.detener();
+        pipeline.detener();
+        try {
+            persistencia.cerrar();
+        } catch (IOException e) {
+            throw new RuntimeException("Error al cerrar la persistencia", e);
+        }
+    }
+
+    /**
+     * Registra los medidores de tamaño; todos se leen en O(1).
+     */
+    private void registrarMedidores() {
+        metricas.medidor("data_usuarios", data::getCantidadUsuarios);
+        metricas.medidor("data_departamentos", data::getCantidadDepartamentos);
+        metricas.medidor("data_tickets_activos", data::getCantidadTickets);
+        metricas.medidor("data_tickets_archivados",
+                () -> data.getArchivo() == null ? 0 : data.getArchivo().getCantidad());
+        metricas.medidor("diccionario_tecnico_palabras", () -> data.getInstantaneaTecnica().getCantidad());
+        metricas.medidor("diccionario_emocional_palabras", () -> data.getInstantaneaEmocional().getCantidad());
+        metricas.medidor("diccionario_tecnico_version", () -> data.getInstantaneaTecnica().getVersion());
+        metricas.medidor("diccionario_emocional_version", () -> data.getInstantaneaEmocional().getVersion());
+        for (EstadoTicket e : EstadoTicket.values()) {
+            metricas.medidor("tickets_" + e.name().toLowerCase(Locale.ROOT), () -> estados.contar(e));
+        }
+        metricas.medidor("pipeline_clasificacion_pendientes", pipeline::getPendientes);
+        metricas.medidor("verificador_credenciales_en_cola", verificador::getEnCola);
+        metricas.medidor("verificador_credenciales_rechazadas", verificador::getRechazadas);
+        metricas.medidor("persistencia_instantanea_fallida", () -> persistencia.getErrorInstantanea() == null ? 0 : 1);
     }
-}
 
+    /**
+     * Abre un archivo CSV y lo pasa por un {@link ImportadorMasivo} con hilos propios.
+     */
+    private <T> ResultadoImportacion importar(Path archivo, int columnas, Function<String[], T> convertir,
+                                              Function<T, String> clave, Consumer<List<T>> aplicar) {
+        ImportadorMasivo importador = new ImportadorMasivo();
+        try (Reader entrada = Files.newBufferedReader(archivo, StandardCharsets.UTF_8)) {
+            return importador.importar(entrada, columnas, convertir, clave, aplicar);
+        } catch (IOException e) {
+            throw new RuntimeException("Error al leer el archivo de importación", e);
+        } finally {
+            importador.detener();
+        }
+    }
+
+    /**
+     * Devuelve un campo obligatorio de una fila importada.
+     */
+    private static String obligatorio(String[] fila, int i, String nombre) {
+        if (fila[i].isBlank()) throw new RuntimeException("El campo " + nombre + " es obligatorio");
+        return fila[i];
+    }
+
+    /**
+     * Convierte una fila importada en una entrada de diccionario.
+     */
+    private static Diccionario palabra(String[] fila, InstantaneaDiccionario existentes, String diccionario) {
+        Diccionario e = new Diccionario(obligatorio(fila, 0, "palabra"), obligatorio(fila, 1, "categoria"));
+        if (existentes.contiene(e.getPalabra())) {
+            throw new RuntimeException("La palabra ya existe en el diccionario " + diccionario + ": " + e.getPalabra());
+        }
+        return e;
+    }
+
+    /**
+     * Busca un ticket activo muy parecido del mismo departamento y lo enlaza
+     * como posible duplicado.
+     */
+    private void marcarDuplicado(Ticket t) {
+        int duplicado = duplicados.registrar(t);
+        t.setPosibleDuplicado(duplicado);
+        if (duplicado != 0) ticketsDuplicados.incrementar();
+    }
+
+    /**
+     * Inicia un trabajo que reclasifica los tickets activos que contienen
+     * alguna de las palabras agregadas, en el asunto o en la descripción.
+     * Debe llamarse después de recompilar el diccionario.
+     */
+    private void reclasificar(Collection<Diccionario> agregadas) {
+        BitSet afectados = new BitSet();
+        for (Diccionario e : agregadas) {
+            for (int id : indice.buscarTodas(e.getPalabra())) afectados.set(id);
+            for (int id : indiceAsuntos.buscarTodas(e.getPalabra())) afectados.set(id);
+        }
+        if (afectados.isEmpty()) return;
+        reclasificaciones.removeIf(Reclasificador.Tarea::estaTerminada);
+        reclasificaciones.add(reclasificador.iniciar(afectados.stream().toArray(), data::buscarTicketActivo,
+                () -> clasificador, this::alReclasificar, this::sobrecargado));
+    }
+
+    /**
+     * Aplica un cambio de descripción de un ticket activo: lo registra y
+     * actualiza el índice, la detección de duplicados y la clasificación.
+     */
+    private void alCambiarDescripcion(Ticket t, String descripcion, Runnable aplicar) {
+        synchronized (t) {
+            String anterior = t.getDescripcion();
+            persistencia.cambiarDescripcion(t, descripcion, aplicar);
+            indice.actualizar(t.getId(), anterior, descripcion);
+            marcarDuplicado(t);
+            reclasificar(t);
+        }
+    }
+
+    /**
+     * Vuelve a clasificar un ticket con el clasificador vigente. Si aún no
+     * tiene clasificación, el pipeline lo clasificará con el texto actual.
+     */
+    private void reclasificar(Ticket t) {
+        Clasificacion anterior = t.getClasificacion();
+        if (anterior == null) return;
+        Clasificacion nueva = clasificador.clasificar(t);
+        if (!Reclasificador.iguales(anterior, nueva) && t.reemplazarClasificacion(anterior, nueva)) {
+            alReclasificar(t, anterior, nueva);
+        }
+    }
+
+    /**
+     * Mueve en los agregados el conteo de un ticket reclasificado y, si está
+     * en cola, recalcula su prioridad con la emoción nueva.
+     */
+    private void alReclasificar(Ticket t, Clasificacion anterior, Clasificacion nueva) {
+        agregados.actualizar(t, anterior, nueva);
+        despachador.reencolar(t);
+        ticketsReclasificados.incrementar();
+    }
+
+    /**
+     * Indica si la latencia reciente de registro de tickets supera el
+     * objetivo. Sin registros en el último segundo no hay sobrecarga.
+     */
+    private boolean sobrecargado() {
+        return latenciaRegistroReciente > sloRegistroTicket
+                && System.nanoTime() - ultimoRegistroTicket < TimeUnit.SECONDS.toNanos(1);
+    }
+
+    /**
+     * Cuenta en los agregados un ticket recién clasificado y lo despacha.
+     * Se cuenta la clasificación que asignó el pipeline aunque el
+     * reclasificador ya la haya reemplazado: ese reemplazo descuenta la misma.
+     */
+    private void alClasificar(Ticket t, Clasificacion c) {
+        agregados.registrar(t, c);
+        despachar(t);
+    }
+
+    /**
+     * Encola en el despachador un ticket si sigue nuevo. Toma el candado del
+     * ticket para que un cambio de estado simultáneo no lo deje en la cola.
+     */
+    private void despachar(Ticket t) {
+        synchronized (t) {
+            if (t.getEstadoTicket() == EstadoTicket.NUEVO) despachador.encolar(t);
+        }
+    }
+
+    /**
+     * Pasa un ticket de "Nuevo" a "En Progreso" si nadie lo tomó antes.
+     */
+    private boolean reclamar(Ticket t) {
+        synchronized (t) {
+            if (t.getEstadoTicket() != EstadoTicket.NUEVO || data.estaArchivado(t.getId())) return false;
+            persistencia.cambiarEstado(t, EstadoTicket.EN_PROGRESO.getTexto());
+            estados.poner(t, EstadoTicket.EN_PROGRESO);
+            return true;
+        }
+    }
+
+    /**
+     * Calcula el hash de la contraseña contra una credencial ficticia, con el
+     * algoritmo y el costo vigentes. Así un correo desconocido tarda lo mismo
+     * que uno registrado con la contraseña incorrecta, y el tiempo de
+     * respuesta no revela qué cuentas existen.
+     *
+     * @param pass contraseña recibida
+     * @return siempre false
+     */
+    private boolean verificarFicticio(String pass) {
+        Hash.verificar(algoritmoHash, costoHash, pass, salFicticia, hashFicticio);
+        return false;
+    }
+
+    /**
+     * Verifica la contraseña y, si es correcta y su hash está desactualizado,
+     * lo recalcula con el algoritmo y el costo vigentes. Corre en los hilos
+     * del verificador.
+     */
+    private boolean verificarYActualizar(Usuario u, String pass) {
+        if (!u.verificarContrasena(pass)) return false;
+        String algoritmo = algoritmoHash;
+        int costo = costoHash;
+        if (u.necesitaRehash(algoritmo, costo)) {
+            byte[] sal = Hash.generarSalBytes();
+            persistencia.cambiarCredencial(u, Hash.calcular(algoritmo, costo, pass, sal), sal, algoritmo, costo);
+        }
+        return true;
+    }
+
+    /**
+     * Vuelve a compilar el autómata del diccionario técnico y publica un clasificador nuevo.
+     */
+    private void recompilarTecnico() {
+        synchronized (bloqueoDiccionarios) {
+            InstantaneaDiccionario d = data.getInstantaneaTecnica();
+            // Otro hilo pudo compilar ya esta versión mientras se esperaba el candado.
+            if (d.getVersion() == versionTecnica) return;
+            clasificador = new Clasificador(
+                    AutomataDiccionario.compilar(d.getEntradas()),
+                    clasificador.getAutomataEmocional());
+            versionTecnica = d.getVersion();
+        }
+    }
+
+    /**
+     * Vuelve a compilar el autómata del diccionario emocional y publica un clasificador nuevo.
+     */
+    private void recompilarEmocional() {
+        synchronized (bloqueoDiccionarios) {
+            InstantaneaDiccionario d = data.getInstantaneaEmocional();
+            if (d.getVersion() == versionEmocional) return;
+            clasificador = new Clasificador(
+                    clasificador.getAutomataTecnico(),
+                    AutomataDiccionario.compilar(d.getEntradas()));
+            versionEmocional = d.getVersion();
+        }
+    }
+}
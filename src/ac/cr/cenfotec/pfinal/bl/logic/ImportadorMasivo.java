@@ -0,0 +1,136 @@
+package ac.cr.cenfotec.pfinal.bl.logic;
+
+import ac.cr.cenfotec.pfinal.dl.LectorCsv;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.IntStream;
+
+/**
+ * Motor de las importaciones masivas desde archivos CSV.
+ * <p>
+ * El archivo se lee en flujo, en lotes de {@link #TAMANO_LOTE} filas. Cada
+ * lote pasa por dos etapas:
+ * </p>
+ * <ol>
+ *     <li>Conversión en paralelo, en un {@link ForkJoinPool} propio: se
+ *     validan los campos y se hace el trabajo caro de cada fila (por
+ *     ejemplo, generar la sal y el hash de la contraseña). Si la conversión
+ *     lanza una {@link RuntimeException}, su mensaje queda como error de la
+ *     fila.</li>
+ *     <li>Aplicación en el hilo que importa, en orden de lectura: se descartan
+ *     las filas con clave repetida dentro del archivo y el resto se entrega
+ *     como un solo lote.</li>
+ * </ol>
+ * <p>
+ * La primera fila del archivo es el encabezado y no se importa.
+ * </p>
+ */
+
+public class ImportadorMasivo {
+    /** Filas que se convierten y aplican juntas. */
+    public static final int TAMANO_LOTE = 4096;
+
+    private final ForkJoinPool pool; /** Hilos de la etapa de conversión. */
+
+    /**
+     * Crea un importador con un hilo de conversión por núcleo.
+     */
+    public ImportadorMasivo() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param paralelismo hilos de la etapa de conversión
+     */
+    public ImportadorMasivo(int paralelismo) {
+        this.pool = new ForkJoinPool(paralelismo);
+    }
+
+    /**
+     * Importa un archivo CSV.
+     *
+     * @param entrada   texto CSV con encabezado
+     * @param columnas  cantidad mínima de columnas de cada fila
+     * @param convertir valida una fila y la convierte; corre en paralelo, así que solo debe leer estado compartido
+     * @param clave     clave única de un registro convertido, o null si no hay que detectar repetidos
+     * @param aplicar   agrega un lote de registros válidos, en orden de lectura
+     * @param <T>       tipo de los registros convertidos
+     * @return filas leídas, importadas y errores por fila
+     * @throws IOException si falla la lectura del archivo
+     */
+    public <T> ResultadoImportacion importar(Reader entrada, int columnas, Function<String[], T> convertir,
+                                             Function<T, String> clave, Consumer<List<T>> aplicar) throws IOException {
+        long inicio = System.nanoTime();
+        ResultadoImportacion resultado = new ResultadoImportacion();
+        Set<String> claves = new HashSet<>();
+        LectorCsv lector = new LectorCsv(entrada);
+        if (lector.siguiente() == null) return resultado;
+
+        String[][] filas = new String[TAMANO_LOTE][];
+        int[] lineas = new int[TAMANO_LOTE];
+        while (true) {
+            int n = 0;
+            String[] campos;
+            while (n < TAMANO_LOTE && (campos = lector.siguiente()) != null) {
+                filas[n] = campos;
+                lineas[n++] = lector.getLineaRegistro();
+            }
+            if (n == 0) break;
+            resultado.sumarLeidas(n);
+            procesarLote(filas, lineas, n, columnas, convertir, clave, aplicar, claves, resultado);
+            if (n < TAMANO_LOTE) break;
+        }
+        resultado.setDuracionNanos(System.nanoTime() - inicio);
+        return resultado;
+    }
+
+    /**
+     * Libera los hilos del importador.
+     */
+    public void detener() {
+        pool.shutdown();
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> void procesarLote(String[][] filas, int[] lineas, int n, int columnas,
+                                  Function<String[], T> convertir, Function<T, String> clave,
+                                  Consumer<List<T>> aplicar, Set<String> claves, ResultadoImportacion resultado) {
+        Object[] convertidos = new Object[n];
+        String[] errores = new String[n];
+        pool.submit(() -> IntStream.range(0, n).parallel().forEach(i -> {
+            if (filas[i].length < columnas) {
+                errores[i] = "Se esperaban " + columnas + " columnas y hay " + filas[i].length;
+                return;
+            }
+            try {
+                convertidos[i] = convertir.apply(filas[i]);
+            } catch (RuntimeException e) {
+                errores[i] = e.getMessage() == null ? e.toString() : e.getMessage();
+            }
+        })).join();
+
+        List<T> lote = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            if (errores[i] != null) {
+                resultado.agregarError(lineas[i], errores[i]);
+                continue;
+            }
+            T registro = (T) convertidos[i];
+            if (clave != null && !claves.add(clave.apply(registro))) {
+                resultado.agregarError(lineas[i], "Registro repetido en el archivo: " + clave.apply(registro));
+                continue;
+            }
+            lote.add(registro);
+        }
+        if (!lote.isEmpty()) aplicar.accept(lote);
+        resultado.sumarImportadas(lote.size());
+    }
+}
@@ -0,0 +1,136 @@
+package ac.cr.cenfotec.pfinal.bl.logic;
+
+import ac.cr.cenfotec.pfinal.bl.entities.ClaveTexto;
+import ac.cr.cenfotec.pfinal.bl.entities.EstadoTicket;
+import ac.cr.cenfotec.pfinal.bl.entities.Ticket;
+
+import java.util.BitSet;
+import java.util.EnumMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Índice de tickets activos por departamento y estado.
+ * <p>
+ * Para cada departamento se guarda un {@link BitSet} por estado, indexado
+ * por ID de ticket, y un contador por estado. Contar tickets de un estado es
+ * O(1) y listarlos cuesta lo que mide el resultado (más un recorrido de
+ * palabras de 64 bits), sin comparar textos de estado ticket por ticket.
+ * </p>
+ * <p>
+ * Cada departamento tiene su propio candado: mover un ticket de un estado a
+ * otro es atómico para los lectores de ese departamento y no bloquea a los
+ * demás.
+ * </p>
+ */
+
+public class IndiceEstados {
+    private final ConcurrentHashMap<String, PorDepartamento> departamentos = new ConcurrentHashMap<>(); /** Nombre en minúsculas → índice del departamento. */
+
+    /**
+     * Registra un ticket en el estado indicado, quitándolo del estado en que
+     * estuviera antes.
+     *
+     * @param t      ticket activo
+     * @param estado estado actual del ticket
+     */
+    public void poner(Ticket t, EstadoTicket estado) {
+        if (estado == null) return;
+        departamentos.computeIfAbsent(t.getClaveDepartamento(), d -> new PorDepartamento()).poner(t.getId(), estado);
+    }
+
+    /**
+     * Quita un ticket del índice (por ejemplo, al archivarlo).
+     *
+     * @param t ticket a quitar
+     */
+    public void quitar(Ticket t) {
+        PorDepartamento d = departamentos.get(t.getClaveDepartamento());
+        if (d != null) d.quitar(t.getId());
+    }
+
+    /**
+     * @param departamento nombre del departamento
+     * @param estado       estado a contar
+     * @return cantidad de tickets del departamento en ese estado
+     */
+    public int contar(String departamento, EstadoTicket estado) {
+        PorDepartamento d = departamentos.get(ClaveTexto.clave(departamento));
+        return d == null ? 0 : d.contar(estado);
+    }
+
+    /**
+     * @param estado estado a contar
+     * @return cantidad de tickets en ese estado en todos los departamentos
+     */
+    public int contar(EstadoTicket estado) {
+        int total = 0;
+        for (PorDepartamento d : departamentos.values()) total += d.contar(estado);
+        return total;
+    }
+
+    /**
+     * @param departamento nombre del departamento
+     * @param estado       estado buscado
+     * @return IDs de los tickets del departamento en ese estado, en orden ascendente
+     */
+    public int[] ids(String departamento, EstadoTicket estado) {
+        PorDepartamento d = departamentos.get(ClaveTexto.clave(departamento));
+        return d == null ? new int[0] : d.ids(estado);
+    }
+
+    /**
+     * Busca el siguiente ID de un departamento en un estado, sin recorrer los
+     * anteriores. Sirve para paginar: cuesta lo que se avanza en el conjunto.
+     *
+     * @param departamento nombre del departamento
+     * @param estado       estado buscado
+     * @param desde        ID desde el que buscar, inclusive
+     * @return siguiente ID mayor o igual a {@code desde}, o -1 si no hay
+     */
+    public int siguiente(String departamento, EstadoTicket estado, int desde) {
+        PorDepartamento d = departamentos.get(ClaveTexto.clave(departamento));
+        return d == null ? -1 : d.siguiente(estado, desde);
+    }
+
+    /** Conjuntos de IDs por estado de un departamento. */
+    private static final class PorDepartamento {
+        private final EnumMap<EstadoTicket, BitSet> porEstado = new EnumMap<>(EstadoTicket.class);
+        private final int[] conteos = new int[EstadoTicket.values().length];
+
+        PorDepartamento() {
+            for (EstadoTicket e : EstadoTicket.values()) porEstado.put(e, new BitSet());
+        }
+
+        synchronized void poner(int id, EstadoTicket estado) {
+            quitar(id);
+            porEstado.get(estado).set(id);
+            conteos[estado.ordinal()]++;
+        }
+
+        synchronized void quitar(int id) {
+            for (EstadoTicket e : EstadoTicket.values()) {
+                BitSet b = porEstado.get(e);
+                if (b.get(id)) {
+                    b.clear(id);
+                    conteos[e.ordinal()]--;
+                }
+            }
+        }
+
+        synchronized int contar(EstadoTicket estado) {
+            return conteos[estado.ordinal()];
+        }
+
+        synchronized int siguiente(EstadoTicket estado, int desde) {
+            return porEstado.get(estado).nextSetBit(Math.max(desde, 0));
+        }
+
+        synchronized int[] ids(EstadoTicket estado) {
+            BitSet b = porEstado.get(estado);
+            int[] r = new int[conteos[estado.ordinal()]];
+            int n = 0;
+            for (int id = b.nextSetBit(0); id >= 0; id = b.nextSetBit(id + 1)) r[n++] = id;
+            return r;
+        }
+    }
+}
@@ -0,0 +1,804 @@
+package ac.cr.cenfotec.pfinal.bl.logic;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntPredicate;
+
+/**
+ * Índice invertido de texto completo sobre las descripciones de los tickets.
+ * <p>
+ * Para cada palabra (normalizada igual que en {@link BagOfWords}) guarda la
+ * lista de tickets que la contienen. Cada lista está comprimida: los IDs se
+ * guardan como diferencias con el anterior en formato varint, seguidos de la
+ * frecuencia de la palabra en ese ticket.
+ * </p>
+ * <p>
+ * El índice se actualiza de forma incremental: los tickets nuevos solo
+ * anexan al final de las listas (sus IDs son crecientes). Un cambio sobre un
+ * ticket ya presente (otra frecuencia, o quitarlo) no reescribe la lista: se
+ * anota en un mapa de cambios de la palabra, en O(log n), y los recorridos
+ * lo combinan con la lista comprimida. Cuando los cambios superan un cuarto
+ * de la lista, se compactan en una lista nueva; ese costo se reparte entre
+ * los cambios que la provocaron. Soporta consultas con todas las palabras
+ * (AND), con alguna (OR) y las {@code k} mejores según BM25.
+ * </p>
+ * <p>
+ * Es seguro para hilos sin un candado global: cada palabra tiene su propio
+ * candado, que los cambios toman solo para su lista, así que registrar
+ * tickets con palabras distintas no se bloquea. Las consultas copian el
+ * estado de cada lista (sin copiar los datos, que nunca se modifican en su
+ * lugar) y la recorren sin candados. Un ticket que cambia durante una
+ * consulta puede verse con algunas palabras nuevas y otras viejas.
+ * </p>
+ * <p>
+ * Las palabras se buscan en el mapa con un trozo del arreglo del
+ * {@link Tokenizador}: indexar o consultar no crea un String por palabra,
+ * solo una clave la primera vez que aparece una palabra.
+ * </p>
+ */
+
+public class IndiceInvertido {
+    /** Parámetro k1 de BM25 (saturación de la frecuencia). */
+    private static final double K1 = 1.2;
+    /** Parámetro b de BM25 (normalización por largo). */
+    private static final double B = 0.75;
+    /** Longitudes por página de {@link #longitudes}. */
+    private static final int PAGINA = 4096;
+    /** Palabras y frecuencias de hasta dos textos por hilo (el anterior y el nuevo de un cambio). */
+    private static final ThreadLocal<Frecuencias[]> FRECUENCIAS =
+            ThreadLocal.withInitial(() -> new Frecuencias[]{new Frecuencias(), new Frecuencias()});
+
+    private final ConcurrentHashMap<Termino, Postings> terminos = new ConcurrentHashMap<>(); /** Palabra → lista de tickets. */
+    private volatile AtomicIntegerArray[] longitudes = new AtomicIntegerArray[0]; /** Cantidad de palabras de cada ticket, por páginas de IDs. */
+    private final Object bloqueoLongitudes = new Object(); /** Solo para agregar páginas a {@link #longitudes}. */
+    private final AtomicInteger documentos = new AtomicInteger(); /** Tickets indexados. */
+    private final AtomicLong totalPalabras = new AtomicLong(); /** Suma de las longitudes, para el promedio de BM25. */
+
+    /**
+     * Resultado de una búsqueda por relevancia.
+     */
+    public static final class Resultado {
+        private final int id; /** ID del ticket. */
+        private final double puntaje; /** Puntaje BM25. */
+
+        Resultado(int id, double puntaje) {
+            this.id = id;
+            this.puntaje = puntaje;
+        }
+
+        /** @return ID del ticket */
+        public int getId() {
+            return id;
+        }
+        /** @return puntaje BM25 del ticket para la consulta */
+        public double getPuntaje() {
+            return puntaje;
+        }
+    }
+
+    /**
+     * Agrega un ticket al índice.
+     *
+     * @param id    ID del ticket
+     * @param texto descripción del ticket
+     */
+    public void indexar(int id, String texto) {
+        Frecuencias f = FRECUENCIAS.get()[0].llenar(texto);
+        for (int i = 0; i < f.cantidad; i++) poner(f, i, id);
+        fijarLongitud(id, f.total);
+    }
+
+    /**
+     * Quita un ticket del índice.
+     *
+     * @param id    ID del ticket
+     * @param texto descripción con la que fue indexado
+     */
+    public void eliminar(int id, String texto) {
+        actualizar(id, texto, null);
+    }
+
+    /**
+     * Reindexa un ticket cuya descripción cambió, tocando solo las palabras
+     * que se agregaron, se quitaron o cambiaron de frecuencia.
+     *
+     * @param id       ID del ticket
+     * @param anterior descripción con la que fue indexado
+     * @param nuevo    descripción nueva, o null para quitarlo del índice
+     */
+    public void actualizar(int id, String anterior, String nuevo) {
+        Frecuencias[] f = FRECUENCIAS.get();
+        Frecuencias viejas = f[0].llenar(anterior);
+        Frecuencias nuevas = f[1].llenar(nuevo);
+        for (int i = 0; i < viejas.cantidad; i++) {
+            if (nuevas.buscar(viejas, i) < 0) quitar(viejas, i, id);
+        }
+        for (int i = 0; i < nuevas.cantidad; i++) {
+            int j = viejas.buscar(nuevas, i);
+            if (j < 0 || viejas.frecuencia[j] != nuevas.frecuencia[i]) poner(nuevas, i, id);
+        }
+        fijarLongitud(id, nuevas.total);
+    }
+
+    /**
+     * Busca los tickets que contienen todas las palabras de la consulta.
+     *
+     * @param consulta palabras a buscar
+     * @return IDs ordenados de forma ascendente
+     */
+    public int[] buscarTodas(String consulta) {
+        List<Cursor> cursores = new ArrayList<>();
+        Frecuencias f = FRECUENCIAS.get()[0].llenar(consulta);
+        for (int i = 0; i < f.cantidad; i++) {
+            Postings p = terminos.get(f.sonda(i));
+            if (p == null) return new int[0];
+            cursores.add(new Cursor(p));
+        }
+        if (cursores.isEmpty()) return new int[0];
+        cursores.sort(Comparator.comparingInt(c -> c.cantidad));
+        int[] resultado = cursores.get(0).ids();
+        for (int i = 1; i < cursores.size() && resultado.length > 0; i++) {
+            resultado = intersectar(resultado, cursores.get(i));
+        }
+        return resultado;
+    }
+
+    /**
+     * Busca los tickets que contienen alguna de las palabras de la consulta.
+     *
+     * @param consulta palabras a buscar
+     * @return IDs ordenados de forma ascendente
+     */
+    public int[] buscarAlguna(String consulta) {
+        List<Cursor> cursores = cursores(consulta);
+        int[] resultado = new int[16];
+        int n = 0;
+        while (true) {
+            int minimo = minimo(cursores);
+            if (minimo == Integer.MAX_VALUE) break;
+            if (n == resultado.length) resultado = Arrays.copyOf(resultado, n * 2);
+            resultado[n++] = minimo;
+            for (Cursor c : cursores) {
+                if (c.id == minimo) c.avanzar();
+            }
+        }
+        return Arrays.copyOf(resultado, n);
+    }
+
+    /**
+     * Obtiene los {@code k} tickets más relevantes para la consulta según BM25.
+     * Las listas se recorren en paralelo, documento por documento, conservando
+     * solo un montículo de tamaño {@code k}.
+     *
+     * @param consulta palabras a buscar
+     * @param k        cantidad máxima de resultados
+     * @return resultados de mayor a menor puntaje
+     */
+    public List<Resultado> buscarRelevantes(String consulta, int k) {
+        return buscarRelevantes(consulta, k, null);
+    }
+
+    /**
+     * Igual que {@link #buscarRelevantes(String, int)}, pero solo considera los
+     * tickets que acepta el filtro. Los rechazados no ocupan lugar en el
+     * montículo, así que se devuelven hasta {@code k} tickets aceptados.
+     *
+     * @param consulta palabras a buscar
+     * @param k        cantidad máxima de resultados
+     * @param admitir  filtro sobre el ID del ticket, o null para aceptarlos todos
+     * @return resultados de mayor a menor puntaje
+     */
+    public List<Resultado> buscarRelevantes(String consulta, int k, IntPredicate admitir) {
+        List<Cursor> cursores = cursores(consulta);
+        int n = cursores.size();
+        int docs = documentos.get();
+        double promedio = docs == 0 ? 1 : Math.max(1, (double) totalPalabras.get() / docs);
+        // MaxScore: las listas se ordenan por su aporte máximo posible (idf * (k1 + 1)).
+        for (Cursor c : cursores) {
+            int df = c.cantidad;
+            c.idf = Math.log(1 + Math.max(0, docs - df + 0.5) / (df + 0.5));
+            c.maximo = c.idf * (K1 + 1);
+        }
+        cursores.sort(Comparator.comparingDouble(c -> c.maximo));
+        double[] acumulado = new double[n + 1];
+        for (int i = 0; i < n; i++) acumulado[i + 1] = acumulado[i] + cursores.get(i).maximo;
+
+        PriorityQueue<Resultado> mejores = new PriorityQueue<>(Comparator.comparingDouble(r -> r.puntaje));
+        double umbral = -1;
+        int noEsenciales = 0;
+        while (k > 0) {
+            // Solo las listas "esenciales" proponen candidatos; las demás no alcanzan el umbral por sí solas.
+            int candidato = Integer.MAX_VALUE;
+            for (int i = noEsenciales; i < n; i++) candidato = Math.min(candidato, cursores.get(i).id);
+            if (candidato == Integer.MAX_VALUE) break;
+            if (admitir != null && !admitir.test(candidato)) {
+                for (int i = noEsenciales; i < n; i++) {
+                    Cursor c = cursores.get(i);
+                    if (c.id == candidato) c.avanzar();
+                }
+                continue;
+            }
+
+            double norma = K1 * (1 - B + B * longitud(candidato) / promedio);
+            double puntaje = 0;
+            for (int i = noEsenciales; i < n; i++) {
+                Cursor c = cursores.get(i);
+                if (c.id == candidato) {
+                    puntaje += c.aporte(norma);
+                    c.avanzar();
+                }
+            }
+            for (int i = noEsenciales - 1; i >= 0 && puntaje + acumulado[i + 1] > umbral; i--) {
+                Cursor c = cursores.get(i);
+                c.avanzarHasta(candidato);
+                if (c.id == candidato) puntaje += c.aporte(norma);
+            }
+
+            if (mejores.size() < k) {
+                mejores.add(new Resultado(candidato, puntaje));
+            } else if (puntaje > mejores.peek().puntaje) {
+                mejores.poll();
+                mejores.add(new Resultado(candidato, puntaje));
+            }
+            if (mejores.size() == k) {
+                umbral = mejores.peek().puntaje;
+                while (noEsenciales < n && acumulado[noEsenciales + 1] <= umbral) noEsenciales++;
+            }
+        }
+        List<Resultado> resultado = new ArrayList<>(mejores);
+        resultado.sort(Comparator.comparingDouble((Resultado r) -> r.puntaje).reversed());
+        return resultado;
+    }
+
+    /** @return cantidad de palabras distintas indexadas */
+    public int getCantidadTerminos() {
+        return terminos.size();
+    }
+
+    /**
+     * Pone la frecuencia de la palabra {@code i} en la lista de un ticket,
+     * creando la lista si no existe. Si otro hilo retira la lista vacía en
+     * el medio, se vuelve a buscar.
+     */
+    private void poner(Frecuencias f, int i, int id) {
+        while (true) {
+            Postings p = terminos.get(f.sonda(i));
+            if (p == null) {
+                Postings nueva = new Postings(f.copia(i));
+                p = terminos.putIfAbsent(nueva.termino, nueva);
+                if (p == null) p = nueva;
+            }
+            synchronized (p) {
+                if (!p.retirada) {
+                    p.poner(id, f.frecuencia[i]);
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Quita un ticket de la lista de la palabra {@code i}; si la lista queda
+     * vacía, la retira del mapa.
+     */
+    private void quitar(Frecuencias f, int i, int id) {
+        Postings p = terminos.get(f.sonda(i));
+        if (p == null) return;
+        synchronized (p) {
+            if (p.quitar(id) && p.cantidad == 0) {
+                p.retirada = true;
+                terminos.remove(p.termino, p);
+            }
+        }
+    }
+
+    private List<Cursor> cursores(String consulta) {
+        List<Cursor> cursores = new ArrayList<>();
+        Frecuencias f = FRECUENCIAS.get()[0].llenar(consulta);
+        for (int i = 0; i < f.cantidad; i++) {
+            Postings p = terminos.get(f.sonda(i));
+            if (p != null) cursores.add(new Cursor(p));
+        }
+        return cursores;
+    }
+
+    private int longitud(int id) {
+        AtomicIntegerArray pagina = pagina(id, false);
+        return pagina == null ? 0 : pagina.get(id % PAGINA);
+    }
+
+    private void fijarLongitud(int id, int longitud) {
+        AtomicIntegerArray pagina = pagina(id, longitud > 0);
+        if (pagina == null) return;
+        int anterior = pagina.getAndSet(id % PAGINA, longitud);
+        if (anterior == 0 && longitud > 0) documentos.incrementAndGet();
+        if (anterior > 0 && longitud == 0) documentos.decrementAndGet();
+        totalPalabras.addAndGet(longitud - anterior);
+    }
+
+    /**
+     * Obtiene la página de longitudes de un ID, creándola si se pide.
+     */
+    private AtomicIntegerArray pagina(int id, boolean crear) {
+        int n = id / PAGINA;
+        AtomicIntegerArray[] paginas = longitudes;
+        if (n < paginas.length && paginas[n] != null) return paginas[n];
+        if (!crear) return null;
+        synchronized (bloqueoLongitudes) {
+            paginas = longitudes;
+            if (n >= paginas.length) paginas = Arrays.copyOf(paginas, Math.max(n + 1, paginas.length * 2));
+            if (paginas[n] == null) paginas[n] = new AtomicIntegerArray(PAGINA);
+            longitudes = paginas;
+            return paginas[n];
+        }
+    }
+
+    private static int minimo(List<Cursor> cursores) {
+        int minimo = Integer.MAX_VALUE;
+        for (Cursor c : cursores) minimo = Math.min(minimo, c.id);
+        return minimo;
+    }
+
+    private static int[] intersectar(int[] ids, Cursor c) {
+        int[] r = new int[ids.length];
+        int n = 0;
+        int i = 0;
+        while (i < ids.length && c.id != Integer.MAX_VALUE) {
+            if (ids[i] == c.id) {
+                r[n++] = ids[i++];
+                c.avanzar();
+            } else if (ids[i] < c.id) {
+                i++;
+            } else {
+                c.avanzarHasta(ids[i]);
+            }
+        }
+        return Arrays.copyOf(r, n);
+    }
+
+    /**
+     * Clave del mapa de palabras: un trozo de un arreglo de caracteres con su
+     * hash (igual a {@code String.hashCode()} del texto). Las claves guardadas
+     * tienen su propio arreglo; para buscar se usa una sonda que apunta al
+     * arreglo de {@link Frecuencias}, sin copiarlo.
+     */
+    private static final class Termino {
+        private char[] letras;
+        private int desde;
+        private int largo;
+        private int hash;
+
+        Termino apuntar(char[] letras, int desde, int largo, int hash) {
+            this.letras = letras;
+            this.desde = desde;
+            this.largo = largo;
+            this.hash = hash;
+            return this;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) return true;
+            if (!(obj instanceof Termino)) return false;
+            Termino otro = (Termino) obj;
+            return hash == otro.hash && largo == otro.largo
+                    && Arrays.equals(letras, desde, desde + largo, otro.letras, otro.desde, otro.desde + otro.largo);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public String toString() {
+            return new String(letras, desde, largo);
+        }
+    }
+
+    /**
+     * Palabras distintas de un texto con su frecuencia. Las palabras se
+     * copian a un arreglo reutilizable y se agrupan con una tabla hash de
+     * direccionamiento abierto, así que llenarla no crea objetos una vez que
+     * los arreglos alcanzan su tamaño. Cada hilo tiene las suyas.
+     */
+    private static final class Frecuencias implements Tokenizador.ConsumidorToken {
+        private char[] letras = new char[256]; /** Letras de todas las palabras, una tras otra. */
+        private int usado; /** Posiciones ocupadas de {@link #letras}. */
+        private int[] inicio = new int[32];
+        private int[] largo = new int[32];
+        private int[] hash = new int[32];
+        private int[] frecuencia = new int[32];
+        private int cantidad; /** Palabras distintas. */
+        private int total; /** Palabras, contando repeticiones. */
+        private int[] tabla = new int[64]; /** Posición + 1 de cada palabra, o 0 si la celda está libre. */
+        private final Termino sonda = new Termino(); /** Clave reutilizable para buscar en el mapa. */
+
+        /**
+         * @param texto texto a procesar, o null para dejarla vacía
+         * @return esta misma instancia
+         */
+        Frecuencias llenar(String texto) {
+            if (cantidad > 0) Arrays.fill(tabla, 0);
+            usado = 0;
+            cantidad = 0;
+            total = 0;
+            if (texto != null) BagOfWords.recorrerPalabras(texto, this);
+            return this;
+        }
+
+        @Override
+        public void aceptar(char[] buffer, int n, int h) {
+            total++;
+            int mascara = tabla.length - 1;
+            for (int s = mezclar(h) & mascara; ; s = (s + 1) & mascara) {
+                int i = tabla[s] - 1;
+                if (i < 0) {
+                    agregar(buffer, n, h);
+                    tabla[s] = cantidad;
+                    if (cantidad * 2 > tabla.length) crecer();
+                    return;
+                }
+                if (hash[i] == h && largo[i] == n && Arrays.equals(letras, inicio[i], inicio[i] + n, buffer, 0, n)) {
+                    frecuencia[i]++;
+                    return;
+                }
+            }
+        }
+
+        /**
+         * @return posición en esta instancia de la palabra {@code j} de otra, o -1
+         */
+        int buscar(Frecuencias otra, int j) {
+            if (cantidad == 0) return -1;
+            int h = otra.hash[j];
+            int n = otra.largo[j];
+            int mascara = tabla.length - 1;
+            for (int s = mezclar(h) & mascara; ; s = (s + 1) & mascara) {
+                int i = tabla[s] - 1;
+                if (i < 0) return -1;
+                if (hash[i] == h && largo[i] == n
+                        && Arrays.equals(letras, inicio[i], inicio[i] + n, otra.letras, otra.inicio[j], otra.inicio[j] + n)) {
+                    return i;
+                }
+            }
+        }
+
+        /** @return sonda que apunta a la palabra {@code i}; solo sirve para buscar */
+        Termino sonda(int i) {
+            return sonda.apuntar(letras, inicio[i], largo[i], hash[i]);
+        }
+
+        /** @return clave nueva con una copia de la palabra {@code i} */
+        Termino copia(int i) {
+            return new Termino().apuntar(Arrays.copyOfRange(letras, inicio[i], inicio[i] + largo[i]), 0, largo[i], hash[i]);
+        }
+
+        private void agregar(char[] buffer, int n, int h) {
+            if (usado + n > letras.length) letras = Arrays.copyOf(letras, Math.max(letras.length * 2, usado + n));
+            if (cantidad == inicio.length) {
+                int mayor = cantidad * 2;
+                inicio = Arrays.copyOf(inicio, mayor);
+                largo = Arrays.copyOf(largo, mayor);
+                hash = Arrays.copyOf(hash, mayor);
+                frecuencia = Arrays.copyOf(frecuencia, mayor);
+            }
+            System.arraycopy(buffer, 0, letras, usado, n);
+            inicio[cantidad] = usado;
+            largo[cantidad] = n;
+            hash[cantidad] = h;
+            frecuencia[cantidad] = 1;
+            usado += n;
+            cantidad++;
+        }
+
+        private void crecer() {
+            tabla = new int[tabla.length * 2];
+            int mascara = tabla.length - 1;
+            for (int i = 0; i < cantidad; i++) {
+                int s = mezclar(hash[i]) & mascara;
+                while (tabla[s] != 0) s = (s + 1) & mascara;
+                tabla[s] = i + 1;
+            }
+        }
+
+        private static int mezclar(int h) {
+            return h ^ (h >>> 16);
+        }
+    }
+
+    /**
+     * Lista de tickets de una palabra.
+     * <p>
+     * La base está comprimida como pares varint (diferencia de ID,
+     * frecuencia) en orden ascendente de ID, y solo crece al final. Cada
+     * {@link #BLOQUE} entradas se guarda un punto de salto (último ID del
+     * bloque y posición en bytes) para poder avanzar hasta un ID sin
+     * decodificar toda la lista. Los cambios sobre IDs ya presentes en la
+     * base se anotan en {@link #cambios}: la frecuencia nueva, o 0 si el
+     * ticket se quitó.
+     * </p>
+     * <p>
+     * Los arreglos nunca se modifican por debajo de lo publicado: anexar
+     * escribe después de {@link #largo} (o en una copia más grande) y
+     * compactar crea arreglos nuevos. Por eso un {@link Cursor} puede
+     * recorrerlos sin candado. Los cambios se guardan bajo el candado de la
+     * lista (su monitor).
+     * </p>
+     */
+    private static final class Postings {
+        /** Entradas entre puntos de salto. */
+        private static final int BLOQUE = 64;
+
+        private final Termino termino; /** Palabra de la lista. */
+        private boolean retirada; /** Indica si la lista vacía ya se quitó del mapa. */
+        private byte[] datos = new byte[8];
+        private int largo; /** Bytes usados en {@link #datos}. */
+        private int entradas; /** Entradas de la base, incluidas las que tapan los cambios. */
+        private int ultimoId; /** Último ID de la base, para anexar sin decodificar. */
+        private int[] saltosId = new int[4]; /** Último ID de cada bloque completo. */
+        private int[] saltosPosicion = new int[4]; /** Posición en bytes al final de cada bloque. */
+        private int saltos; /** Puntos de salto usados. */
+        private ConcurrentSkipListMap<Integer, Integer> cambios; /** ID → frecuencia nueva (0 si se quitó), o null si no hay. */
+        private int cantidadCambios; /** Entradas de {@link #cambios}. */
+        private int cantidad; /** Tickets en la lista, descontando los quitados. */
+
+        Postings(Termino termino) {
+            this.termino = termino;
+        }
+
+        /** Agrega o reemplaza la frecuencia de un ticket. */
+        void poner(int id, int frecuencia) {
+            if (entradas == 0 || id > ultimoId) {
+                agregarAlFinal(id, frecuencia);
+                cantidad++;
+                return;
+            }
+            int actual = frecuencia(id);
+            if (actual == frecuencia) return;
+            cambiar(id, frecuencia);
+            if (actual == 0) cantidad++;
+        }
+
+        /** @return true si el ticket estaba en la lista */
+        boolean quitar(int id) {
+            if (entradas == 0 || id > ultimoId || frecuencia(id) == 0) return false;
+            cambiar(id, 0);
+            cantidad--;
+            return true;
+        }
+
+        /** @return frecuencia vigente de un ticket, o 0 si no está */
+        private int frecuencia(int id) {
+            if (cambios != null) {
+                Integer c = cambios.get(id);
+                if (c != null) return c;
+            }
+            int k = Arrays.binarySearch(saltosId, 0, saltos, id);
+            if (k < 0) k = -k - 1;
+            int posicion = k == 0 ? 0 : saltosPosicion[k - 1];
+            int actual = k == 0 ? 0 : saltosId[k - 1];
+            while (posicion < largo) {
+                int delta = 0;
+                int desplazamiento = 0;
+                byte b;
+                do {
+                    b = datos[posicion++];
+                    delta |= (b & 0x7F) << desplazamiento;
+                    desplazamiento += 7;
+                } while (b < 0);
+                int f = 0;
+                desplazamiento = 0;
+                do {
+                    b = datos[posicion++];
+                    f |= (b & 0x7F) << desplazamiento;
+                    desplazamiento += 7;
+                } while (b < 0);
+                actual += delta;
+                if (actual >= id) return actual == id ? f : 0;
+            }
+            return 0;
+        }
+
+        private void cambiar(int id, int frecuencia) {
+            if (cambios == null) cambios = new ConcurrentSkipListMap<>();
+            if (cambios.put(id, frecuencia) == null) cantidadCambios++;
+            if (cantidadCambios > Math.max(BLOQUE, entradas / 4)) compactar();
+        }
+
+        /**
+         * Vuelve a codificar la lista con los cambios aplicados, en arreglos
+         * nuevos para no alterar los que estén recorriendo las consultas.
+         */
+        private void compactar() {
+            Cursor c = new Cursor(this);
+            datos = new byte[Math.max(8, largo)];
+            largo = 0;
+            entradas = 0;
+            ultimoId = 0;
+            saltosId = new int[Math.max(4, saltos)];
+            saltosPosicion = new int[saltosId.length];
+            saltos = 0;
+            cambios = null;
+            cantidadCambios = 0;
+            for (; c.id != Integer.MAX_VALUE; c.avanzar()) agregarAlFinal(c.id, c.frecuencia);
+            cantidad = entradas;
+        }
+
+        private void agregarAlFinal(int id, int frecuencia) {
+            if (largo + 10 > datos.length) datos = Arrays.copyOf(datos, datos.length * 2);
+            largo = escribirVarint(datos, largo, id - ultimoId);
+            largo = escribirVarint(datos, largo, frecuencia);
+            ultimoId = id;
+            entradas++;
+            if (entradas % BLOQUE == 0) {
+                if (saltos == saltosId.length) {
+                    saltosId = Arrays.copyOf(saltosId, saltos * 2);
+                    saltosPosicion = Arrays.copyOf(saltosPosicion, saltos * 2);
+                }
+                saltosId[saltos] = id;
+                saltosPosicion[saltos] = largo;
+                saltos++;
+            }
+        }
+
+        private static int escribirVarint(byte[] b, int pos, int valor) {
+            while ((valor & ~0x7F) != 0) {
+                b[pos++] = (byte) ((valor & 0x7F) | 0x80);
+                valor >>>= 7;
+            }
+            b[pos++] = (byte) valor;
+            return pos;
+        }
+    }
+
+    /**
+     * Recorre una lista de tickets combinando la base comprimida con sus
+     * cambios. Al crearse copia el estado de la lista bajo su candado y
+     * después avanza sin candados. {@code id} vale {@code Integer.MAX_VALUE}
+     * cuando la lista se terminó.
+     */
+    private static final class Cursor {
+        private final byte[] datos;
+        private final int largo;
+        private final int[] saltosId;
+        private final int[] saltosPosicion;
+        private final int saltos;
+        private final ConcurrentSkipListMap<Integer, Integer> cambios;
+        private final int cantidad; /** Tickets en la lista al crear el cursor. */
+
+        private int id; /** Entrada actual. */
+        private int frecuencia;
+        private int posicion; /** Próximo byte a leer de la base. */
+        private int anteriorBase; /** Último ID decodificado de la base. */
+        private int idBase = 0; /** Siguiente entrada de la base. */
+        private int frecuenciaBase;
+        private int idCambio; /** Siguiente cambio. */
+        private int frecuenciaCambio;
+        private int salto; /** Próximo punto de salto a considerar. */
+        private double idf; /** IDF de la palabra, usado por BM25. */
+        private double maximo; /** Aporte máximo de la palabra a un puntaje BM25. */
+
+        Cursor(Postings p) {
+            synchronized (p) {
+                datos = p.datos;
+                largo = p.largo;
+                saltosId = p.saltosId;
+                saltosPosicion = p.saltosPosicion;
+                saltos = p.saltos;
+                cambios = p.cambios;
+                cantidad = p.cantidad;
+            }
+            siguienteBase();
+            irACambio(0);
+            avanzar();
+        }
+
+        /** Pasa a la siguiente entrada vigente, saltando los tickets quitados. */
+        void avanzar() {
+            while (true) {
+                if (idCambio < idBase) {
+                    // Cambio sobre un ticket anexado después de copiar la base.
+                    id = idCambio;
+                    frecuencia = frecuenciaCambio;
+                    irACambio(idCambio + 1);
+                } else if (idCambio == idBase) {
+                    if (idBase == Integer.MAX_VALUE) {
+                        id = Integer.MAX_VALUE;
+                        return;
+                    }
+                    id = idCambio;
+                    frecuencia = frecuenciaCambio;
+                    siguienteBase();
+                    irACambio(idCambio + 1);
+                } else {
+                    id = idBase;
+                    frecuencia = frecuenciaBase;
+                    siguienteBase();
+                    return;
+                }
+                if (frecuencia > 0) return;
+            }
+        }
+
+        /**
+         * Avanza hasta la primera entrada con ID mayor o igual al objetivo,
+         * saltando los bloques completos de la base que quedan antes de él.
+         */
+        void avanzarHasta(int objetivo) {
+            if (id >= objetivo) return;
+            if (idBase < objetivo) {
+                boolean salto = false;
+                while (this.salto < saltos && saltosId[this.salto] < objetivo) {
+                    if (saltosId[this.salto] >= idBase) {
+                        posicion = saltosPosicion[this.salto];
+                        anteriorBase = saltosId[this.salto];
+                        salto = true;
+                    }
+                    this.salto++;
+                }
+                if (salto) siguienteBase();
+                while (idBase < objetivo) siguienteBase();
+            }
+            if (idCambio < objetivo) irACambio(objetivo);
+            avanzar();
+        }
+
+        /** @return IDs restantes de la lista */
+        int[] ids() {
+            int[] r = new int[Math.max(cantidad, 4)];
+            int n = 0;
+            for (; id != Integer.MAX_VALUE; avanzar()) {
+                if (n == r.length) r = Arrays.copyOf(r, n * 2);
+                r[n++] = id;
+            }
+            return n == r.length ? r : Arrays.copyOf(r, n);
+        }
+
+        /** @return aporte BM25 de la entrada actual */
+        double aporte(double norma) {
+            return idf * frecuencia * (K1 + 1) / (frecuencia + norma);
+        }
+
+        private void siguienteBase() {
+            if (posicion >= largo) {
+                idBase = Integer.MAX_VALUE;
+                return;
+            }
+            anteriorBase += leerVarint();
+            idBase = anteriorBase;
+            frecuenciaBase = leerVarint();
+        }
+
+        private void irACambio(int desde) {
+            Map.Entry<Integer, Integer> e = cambios == null || desde == Integer.MAX_VALUE ? null : cambios.ceilingEntry(desde);
+            if (e == null) {
+                idCambio = Integer.MAX_VALUE;
+                return;
+            }
+            idCambio = e.getKey();
+            frecuenciaCambio = e.getValue();
+        }
+
+        private int leerVarint() {
+            int valor = 0;
+            int desplazamiento = 0;
+            byte b;
+            do {
+                b = datos[posicion++];
+                valor |= (b & 0x7F) << desplazamiento;
+                desplazamiento += 7;
+            } while ((b & 0x80) != 0);
+            return valor;
+        }
+    }
+}
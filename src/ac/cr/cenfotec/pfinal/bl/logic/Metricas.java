@@ -0,0 +1,323 @@
+package ac.cr.cenfotec.pfinal.bl.logic;
+
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.JMException;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Registro de métricas en proceso: contadores, histogramas de latencia y
+ * medidores (gauges).
+ * <p>
+ * Registrar un valor no toma candados: los contadores son {@link LongAdder}
+ * y los histogramas incrementan una celda de un {@link AtomicLongArray}. Los
+ * medidores se evalúan solo al leerlos, así que deben ser O(1).
+ * </p>
+ * <p>
+ * Las métricas se leen con los getters, se exportan en el formato de texto
+ * de Prometheus con {@link #exportarPrometheus()} o se publican como MBean
+ * con {@link #registrarJmx(String)}.
+ * </p>
+ */
+
+public class Metricas {
+    private final Map<String, Contador> contadores = new ConcurrentSkipListMap<>(); /** Nombre → contador. */
+    private final Map<String, Histograma> histogramas = new ConcurrentSkipListMap<>(); /** Nombre → histograma. */
+    private final Map<String, LongSupplier> medidores = new ConcurrentSkipListMap<>(); /** Nombre → medidor. */
+
+    /**
+     * Obtiene (o crea) un contador.
+     *
+     * @param nombre nombre de la métrica, en formato Prometheus
+     * @return contador
+     */
+    public Contador contador(String nombre) {
+        return contadores.computeIfAbsent(nombre, n -> new Contador());
+    }
+
+    /**
+     * Obtiene (o crea) un histograma de duraciones en nanosegundos.
+     *
+     * @param nombre nombre de la métrica, en formato Prometheus
+     * @return histograma
+     */
+    public Histograma histograma(String nombre) {
+        return histogramas.computeIfAbsent(nombre, n -> new Histograma());
+    }
+
+    /**
+     * Registra un medidor que se evalúa al leer las métricas.
+     *
+     * @param nombre nombre de la métrica
+     * @param valor  función O(1) que devuelve el valor actual
+     */
+    public void medidor(String nombre, LongSupplier valor) {
+        medidores.put(nombre, valor);
+    }
+
+    /** @return contadores por nombre (solo lectura) */
+    public Map<String, Contador> getContadores() {
+        return Collections.unmodifiableMap(contadores);
+    }
+    /** @return histogramas por nombre (solo lectura) */
+    public Map<String, Histograma> getHistogramas() {
+        return Collections.unmodifiableMap(histogramas);
+    }
+    /**
+     * Lee un medidor.
+     *
+     * @param nombre nombre del medidor
+     * @return valor actual
+     * @throws RuntimeException si el medidor no existe
+     */
+    public long leerMedidor(String nombre) {
+        LongSupplier m = medidores.get(nombre);
+        if (m == null) throw new RuntimeException("Medidor no existe: " + nombre);
+        return m.getAsLong();
+    }
+
+    /**
+     * Genera una instantánea de todas las métricas en el formato de texto de
+     * Prometheus. Los histogramas se exportan en segundos, con un límite por
+     * cada potencia de dos entre 1 µs y unos 68 s.
+     *
+     * @return texto listo para servir en {@code /metrics}
+     */
+    public String exportarPrometheus() {
+        StringBuilder sb = new StringBuilder(4096);
+        for (Map.Entry<String, Contador> e : contadores.entrySet()) {
+            sb.append("# TYPE ").append(e.getKey()).append(" counter\n");
+            sb.append(e.getKey()).append(' ').append(e.getValue().getValor()).append('\n');
+        }
+        for (Map.Entry<String, LongSupplier> e : medidores.entrySet()) {
+            sb.append("# TYPE ").append(e.getKey()).append(" gauge\n");
+            sb.append(e.getKey()).append(' ').append(e.getValue().getAsLong()).append('\n');
+        }
+        for (Map.Entry<String, Histograma> e : histogramas.entrySet()) {
+            String n = e.getKey();
+            Histograma h = e.getValue();
+            long[] celdas = h.copiarCeldas();
+            sb.append("# TYPE ").append(n).append(" histogram\n");
+            long acumulado = 0;
+            int celda = 0;
+            for (int exp = Histograma.EXPONENTE_MINIMO_EXPORTADO; exp <= Histograma.EXPONENTE_MAXIMO_EXPORTADO; exp++) {
+                long limite = 1L << exp;
+                for (; celda < celdas.length && Histograma.limiteInferior(celda) < limite; celda++) {
+                    acumulado += celdas[celda];
+                }
+                sb.append(n).append("_bucket{le=\"").append(segundos(limite)).append("\"} ").append(acumulado).append('\n');
+            }
+            long total = 0;
+            for (long c : celdas) total += c;
+            sb.append(n).append("_bucket{le=\"+Inf\"} ").append(total).append('\n');
+            sb.append(n).append("_sum ").append(segundos(h.getSuma())).append('\n');
+            sb.append(n).append("_count ").append(total).append('\n');
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Publica las métricas en el servidor de MBeans de la plataforma, bajo
+     * {@code ac.cr.cenfotec.pfinal:type=Metricas,name=<nombre>}.
+     *
+     * @param nombre nombre de la instancia
+     * @throws RuntimeException si el MBean no se puede registrar
+     */
+    public void registrarJmx(String nombre) {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(new MBean(),
+                    new ObjectName("ac.cr.cenfotec.pfinal:type=Metricas,name=" + ObjectName.quote(nombre)));
+        } catch (JMException e) {
+            throw new RuntimeException("Error al registrar las métricas en JMX", e);
+        }
+    }
+
+    private static String segundos(long nanos) {
+        return String.format(Locale.ROOT, "%.9f", nanos / 1e9);
+    }
+
+    /**
+     * Contador monótono.
+     */
+    public static final class Contador {
+        private final LongAdder valor = new LongAdder();
+
+        /** Suma uno al contador. */
+        public void incrementar() {
+            valor.increment();
+        }
+        /** @param n cantidad a sumar */
+        public void sumar(long n) {
+            valor.add(n);
+        }
+        /** @return valor actual */
+        public long getValor() {
+            return valor.sum();
+        }
+    }
+
+    /**
+     * Histograma de duraciones en nanosegundos con celdas logarítmicas-lineales
+     * (al estilo HdrHistogram): cada potencia de dos se divide en 8 celdas,
+     * así que cualquier percentil tiene un error relativo menor a 12,5 %.
+     */
+    public static final class Histograma {
+        /** Bits de subdivisión por potencia de dos. */
+        private static final int BITS_SUB = 3;
+        private static final int SUB = 1 << BITS_SUB;
+        /** Celdas suficientes para cualquier long positivo. */
+        private static final int CELDAS = (64 - BITS_SUB) * SUB;
+        /** Límites exportados a Prometheus: 2^10 ns (~1 µs) a 2^36 ns (~68 s). */
+        private static final int EXPONENTE_MINIMO_EXPORTADO = 10;
+        private static final int EXPONENTE_MAXIMO_EXPORTADO = 36;
+
+        private final AtomicLongArray celdas = new AtomicLongArray(CELDAS);
+        private final LongAdder suma = new LongAdder();
+
+        /**
+         * Registra una duración.
+         *
+         * @param nanos duración en nanosegundos (los negativos cuentan como 0)
+         */
+        public void registrar(long nanos) {
+            long v = Math.max(0, nanos);
+            celdas.incrementAndGet(celda(v));
+            suma.add(v);
+        }
+
+        /** @return cantidad de valores registrados */
+        public long getCantidad() {
+            long total = 0;
+            for (int i = 0; i < CELDAS; i++) total += celdas.get(i);
+            return total;
+        }
+        /** @return suma de los valores registrados, en nanosegundos */
+        public long getSuma() {
+            return suma.sum();
+        }
+        /**
+         * Estima un percentil.
+         *
+         * @param p percentil entre 0 y 100
+         * @return límite superior de la celda que contiene el percentil, en nanosegundos (0 si está vacío)
+         */
+        public long percentil(double p) {
+            long[] c = copiarCeldas();
+            long total = 0;
+            for (long x : c) total += x;
+            if (total == 0) return 0;
+            long objetivo = Math.max(1, (long) Math.ceil(total * p / 100.0));
+            long acumulado = 0;
+            for (int i = 0; i < c.length; i++) {
+                acumulado += c[i];
+                if (acumulado >= objetivo) return i + 1 < CELDAS ? limiteInferior(i + 1) - 1 : Long.MAX_VALUE;
+            }
+            return Long.MAX_VALUE;
+        }
+
+        long[] copiarCeldas() {
+            long[] c = new long[CELDAS];
+            for (int i = 0; i < CELDAS; i++) c[i] = celdas.get(i);
+            return c;
+        }
+
+        static int celda(long v) {
+            if (v < SUB) return (int) v;
+            int exp = 63 - Long.numberOfLeadingZeros(v);
+            return (exp - BITS_SUB + 1) * SUB + (int) ((v >>> (exp - BITS_SUB)) & (SUB - 1));
+        }
+
+        static long limiteInferior(int celda) {
+            if (celda < SUB) return celda;
+            int exp = celda / SUB + BITS_SUB - 1;
+            return (long) (SUB + celda % SUB) << (exp - BITS_SUB);
+        }
+    }
+
+    /**
+     * MBean dinámico con un atributo por contador y medidor, y la cantidad,
+     * p50, p99 y p999 de cada histograma.
+     */
+    private final class MBean implements DynamicMBean {
+        @Override
+        public Object getAttribute(String atributo) throws AttributeNotFoundException {
+            Contador c = contadores.get(atributo);
+            if (c != null) return c.getValor();
+            LongSupplier m = medidores.get(atributo);
+            if (m != null) return m.getAsLong();
+            int punto = atributo.lastIndexOf('.');
+            Histograma h = punto < 0 ? null : histogramas.get(atributo.substring(0, punto));
+            if (h != null) {
+                switch (atributo.substring(punto + 1)) {
+                    case "cantidad": return h.getCantidad();
+                    case "p50": return h.percentil(50);
+                    case "p99": return h.percentil(99);
+                    case "p999": return h.percentil(99.9);
+                    default: break;
+                }
+            }
+            throw new AttributeNotFoundException(atributo);
+        }
+
+        @Override
+        public void setAttribute(Attribute attribute) {
+            throw new UnsupportedOperationException("Las métricas son de solo lectura");
+        }
+
+        @Override
+        public AttributeList getAttributes(String[] atributos) {
+            AttributeList lista = new AttributeList();
+            for (String a : atributos) {
+                try {
+                    lista.add(new Attribute(a, getAttribute(a)));
+                } catch (AttributeNotFoundException e) {
+                    // se omiten los atributos desconocidos
+                }
+            }
+            return lista;
+        }
+
+        @Override
+        public AttributeList setAttributes(AttributeList attributes) {
+            return new AttributeList();
+        }
+
+        @Override
+        public Object invoke(String accion, Object[] parametros, String[] firma) {
+            throw new UnsupportedOperationException("Las métricas no tienen operaciones");
+        }
+
+        @Override
+        public MBeanInfo getMBeanInfo() {
+            List<MBeanAttributeInfo> info = new ArrayList<>();
+            for (String n : contadores.keySet()) info.add(atributo(n, "Contador"));
+            for (String n : medidores.keySet()) info.add(atributo(n, "Medidor"));
+            for (String n : histogramas.keySet()) {
+                info.add(atributo(n + ".cantidad", "Cantidad de valores registrados"));
+                info.add(atributo(n + ".p50", "Percentil 50 en nanosegundos"));
+                info.add(atributo(n + ".p99", "Percentil 99 en nanosegundos"));
+                info.add(atributo(n + ".p999", "Percentil 99,9 en nanosegundos"));
+            }
+            return new MBeanInfo(Metricas.class.getName(), "Métricas del sistema de HelpDesk",
+                    info.toArray(new MBeanAttributeInfo[0]), null, null, null);
+        }
+
+        private MBeanAttributeInfo atributo(String nombre, String descripcion) {
+            return new MBeanAttributeInfo(nombre, "long", descripcion, true, false, false);
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package ac.cr.cenfotec.pfinal.bl.logic;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Página de resultados de una consulta paginada por cursor.
+ * <p>
+ * El cursor indica dónde continuar: se pasa {@code 0} para pedir la primera
+ * página y {@link #getSiguienteCursor()} para pedir la siguiente. A
+ * diferencia de un desplazamiento numérico, el cursor no se corre si entre
+ * dos páginas se agregan o eliminan elementos anteriores.
+ * </p>
+ *
+ * @param <T> tipo de los elementos
+ */
+
+public final class Pagina<T> {
+    private final List<T> elementos; /** Elementos de la página. */
+    private final int siguienteCursor; /** Cursor de la página siguiente, o -1 si no hay más. */
+
+    /**
+     * @param elementos       elementos de la página
+     * @param siguienteCursor cursor de la página siguiente, o -1 si no hay más
+     */
+    public Pagina(List<T> elementos, int siguienteCursor) {
+        this.elementos = Collections.unmodifiableList(elementos);
+        this.siguienteCursor = siguienteCursor;
+    }
+
+    /** @return elementos de la página (solo lectura) */
+    public List<T> getElementos() {
+        return elementos;
+    }
+    /** @return cursor para pedir la página siguiente, o -1 si esta es la última */
+    public int getSiguienteCursor() {
+        return siguienteCursor;
+    }
+    /** @return true si hay una página siguiente */
+    public boolean hayMas() {
+        return siguienteCursor >= 0;
+    }
+}
@@ -0,0 +1,151 @@
+package ac.cr.cenfotec.pfinal.bl.logic;
+
+import ac.cr.cenfotec.pfinal.bl.entities.Clasificacion;
+import ac.cr.cenfotec.pfinal.bl.entities.Ticket;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Etapa asíncrona que clasifica los tickets recién registrados.
+ * <p>
+ * El registro de un ticket solo lo agrega a una cola acotada, sin esperar
+ * a que se clasifique; un hilo de fondo toma los tickets de la cola y les
+ * asigna su {@link ac.cr.cenfotec.pfinal.bl.entities.Clasificacion}.
+ * </p>
+ * <p>
+ * Si la cola está llena, el ticket se clasifica en el mismo hilo que lo
+ * registró. Como el clasificador recorre el texto una sola vez, ese costo es
+ * acotado y se evita perder clasificaciones o bloquear el registro esperando
+ * espacio en la cola.
+ * </p>
+ */
+
+public class PipelineClasificacion {
+    /** Capacidad por defecto de la cola de tickets pendientes. */
+    public static final int CAPACIDAD_POR_DEFECTO = 10_000;
+
+    private final BlockingQueue<Ticket> pendientes; /** Tickets en espera de clasificación. */
+    private final Supplier<Clasificador> clasificador; /** Fuente del clasificador vigente. */
+    private final BiConsumer<Ticket, Clasificacion> alClasificar; /** Recibe cada ticket ya clasificado y la clasificación que se le asignó. */
+    private final Thread trabajador; /** Hilo de fondo que clasifica los tickets. */
+    private volatile boolean activo = true; /** Indica si el pipeline sigue aceptando trabajo. */
+
+    private final AtomicLong clasificados = new AtomicLong(); /** Tickets clasificados por el hilo de fondo. */
+    private final AtomicLong clasificadosEnLinea = new AtomicLong(); /** Tickets clasificados en el hilo de registro. */
+
+    /**
+     * Crea el pipeline e inicia su hilo de fondo.
+     *
+     * @param clasificador proveedor del clasificador vigente (cambia cuando cambian los diccionarios)
+     * @param capacidad    tamaño máximo de la cola de pendientes
+     */
+    public PipelineClasificacion(Supplier<Clasificador> clasificador, int capacidad) {
+        this(clasificador, capacidad, t -> { });
+    }
+
+    /**
+     * Crea el pipeline con una acción que se ejecuta después de clasificar
+     * cada ticket, en el hilo que lo clasificó.
+     *
+     * @param clasificador proveedor del clasificador vigente
+     * @param capacidad    tamaño máximo de la cola de pendientes
+     * @param alClasificar acción a ejecutar con cada ticket clasificado
+     */
+    public PipelineClasificacion(Supplier<Clasificador> clasificador, int capacidad, Consumer<Ticket> alClasificar) {
+        this(clasificador, capacidad, (t, c) -> alClasificar.accept(t));
+    }
+
+    /**
+     * Crea el pipeline con una acción que recibe cada ticket junto con la
+     * clasificación que le asignó el pipeline. Si otro hilo la reemplaza
+     * entretanto (ver {@link Reclasificador}), la acción sigue recibiendo la
+     * que asignó el pipeline.
+     *
+     * @param clasificador proveedor del clasificador vigente
+     * @param capacidad    tamaño máximo de la cola de pendientes
+     * @param alClasificar acción a ejecutar con cada ticket y su clasificación
+     */
+    public PipelineClasificacion(Supplier<Clasificador> clasificador, int capacidad,
+                                 BiConsumer<Ticket, Clasificacion> alClasificar) {
+        this.clasificador = clasificador;
+        this.alClasificar = alClasificar;
+        this.pendientes = new ArrayBlockingQueue<>(capacidad);
+        this.trabajador = new Thread(this::procesar, "clasificador-tickets");
+        this.trabajador.setDaemon(true);
+        this.trabajador.start();
+    }
+
+    /**
+     * Encola un ticket para clasificarlo sin bloquear al llamador.
+     * Si la cola está llena o el pipeline se detuvo, se clasifica en línea.
+     *
+     * @param t ticket recién registrado
+     */
+    public void encolar(Ticket t) {
+        if (!activo || !pendientes.offer(t)) {
+            clasificar(t);
+            clasificadosEnLinea.incrementAndGet();
+        }
+    }
+
+    /**
+     * Detiene el hilo de fondo después de clasificar los tickets pendientes.
+     */
+    public void detener() {
+        activo = false;
+        trabajador.interrupt();
+        try {
+            trabajador.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /** @return cantidad de tickets en espera de clasificación */
+    public int getPendientes() {
+        return pendientes.size();
+    }
+    /** @return tickets clasificados por el hilo de fondo */
+    public long getClasificados() {
+        return clasificados.get();
+    }
+    /** @return tickets clasificados en línea porque la cola estaba llena */
+    public long getClasificadosEnLinea() {
+        return clasificadosEnLinea.get();
+    }
+
+    /**
+     * Ciclo del hilo de fondo: toma tickets de la cola hasta que se detenga
+     * el pipeline y luego vacía lo que quede pendiente.
+     */
+    private void procesar() {
+        while (activo) {
+            try {
+                Ticket t = pendientes.poll(1, TimeUnit.SECONDS);
+                if (t != null) {
+                    clasificar(t);
+                    clasificados.incrementAndGet();
+                }
+            } catch (InterruptedException e) {
+                // detener() interrumpe el hilo; se sale para vaciar la cola.
+            }
+        }
+        Ticket t;
+        while ((t = pendientes.poll()) != null) {
+            clasificar(t);
+            clasificados.incrementAndGet();
+        }
+    }
+
+    private void clasificar(Ticket t) {
+        Clasificacion c = clasificador.get().clasificar(t);
+        t.setClasificacion(c);
+        alClasificar.accept(t, c);
+    }
+}
@@ -0,0 +1,196 @@
+package ac.cr.cenfotec.pfinal.bl.logic;
+
+import ac.cr.cenfotec.pfinal.bl.entities.Clasificacion;
+import ac.cr.cenfotec.pfinal.bl.entities.Ticket;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+
+/**
+ * Vuelve a clasificar en segundo plano los tickets afectados por un cambio
+ * en los diccionarios.
+ * <p>
+ * Cada trabajo recibe los IDs de los tickets que contienen alguna de las
+ * palabras nuevas (el {@link Gestor} los obtiene del índice invertido), los
+ * corta en lotes de {@link #TAMANO_LOTE} y los reparte en un
+ * {@link ForkJoinPool} propio, con la mitad de los núcleos por defecto para
+ * dejar el resto al registro de tickets.
+ * </p>
+ * <p>
+ * La clasificación nueva se publica con
+ * {@link Ticket#reemplazarClasificacion(Clasificacion, Clasificacion)}: si
+ * otro hilo cambió la clasificación mientras se calculaba, el ticket se deja
+ * como está. Los tickets todavía sin clasificar se omiten, porque el
+ * {@link PipelineClasificacion} los clasifica con el clasificador vigente.
+ * </p>
+ * <p>
+ * Antes de cada lote se consulta una condición de sobrecarga; mientras se
+ * cumpla, el lote espera {@link #PAUSA_MS} y vuelve a consultar. Cada
+ * trabajo se puede seguir y cancelar con su {@link Tarea}.
+ * </p>
+ */
+
+public class Reclasificador {
+    /** Tickets que se procesan por lote. */
+    public static final int TAMANO_LOTE = 256;
+    /** Espera entre consultas mientras hay sobrecarga, en milisegundos. */
+    public static final long PAUSA_MS = 5;
+
+    /** Recibe cada ticket cuya clasificación cambió. */
+    @FunctionalInterface
+    public interface ConsumidorCambio {
+        /**
+         * @param t        ticket reclasificado
+         * @param anterior clasificación reemplazada
+         * @param nueva    clasificación publicada
+         */
+        void aceptar(Ticket t, Clasificacion anterior, Clasificacion nueva);
+    }
+
+    private final ForkJoinPool pool; /** Hilos de los trabajos de reclasificación. */
+
+    /**
+     * Crea un reclasificador con la mitad de los núcleos (al menos uno).
+     */
+    public Reclasificador() {
+        this(Math.max(1, Runtime.getRuntime().availableProcessors() / 2));
+    }
+
+    /**
+     * @param paralelismo hilos de reclasificación
+     */
+    public Reclasificador(int paralelismo) {
+        this.pool = new ForkJoinPool(paralelismo);
+    }
+
+    /**
+     * Inicia un trabajo de reclasificación sin esperar a que termine.
+     *
+     * @param ids          IDs de los tickets a revisar
+     * @param buscar       obtiene un ticket activo por ID, o null si ya no está
+     * @param clasificador proveedor del clasificador vigente
+     * @param alCambiar    recibe cada ticket cuya clasificación cambió, en el hilo que lo procesó
+     * @param sobrecarga   true mientras haya que pausar el trabajo
+     * @return tarea para seguir el progreso o cancelar
+     */
+    public Tarea iniciar(int[] ids, IntFunction<Ticket> buscar, Supplier<Clasificador> clasificador,
+                         ConsumidorCambio alCambiar, BooleanSupplier sobrecarga) {
+        Tarea tarea = new Tarea(ids.length);
+        int lotes = (ids.length + TAMANO_LOTE - 1) / TAMANO_LOTE;
+        tarea.ejecucion = pool.submit(() -> IntStream.range(0, lotes).parallel().forEach(l -> {
+            if (!esperar(tarea, sobrecarga)) return;
+            Clasificador c = clasificador.get();
+            int fin = Math.min(ids.length, (l + 1) * TAMANO_LOTE);
+            for (int i = l * TAMANO_LOTE; i < fin && !tarea.cancelada; i++) {
+                Ticket t = buscar.apply(ids[i]);
+                Clasificacion anterior = t == null ? null : t.getClasificacion();
+                if (anterior != null) {
+                    Clasificacion nueva = c.clasificar(t);
+                    if (!iguales(anterior, nueva) && t.reemplazarClasificacion(anterior, nueva)) {
+                        alCambiar.aceptar(t, anterior, nueva);
+                        tarea.cambiados.incrementAndGet();
+                    }
+                }
+                tarea.procesados.incrementAndGet();
+            }
+        }));
+        return tarea;
+    }
+
+    /**
+     * Cancela los trabajos en curso y libera los hilos.
+     */
+    public void detener() {
+        pool.shutdownNow();
+    }
+
+    /**
+     * Espera mientras haya sobrecarga.
+     *
+     * @return false si la tarea se canceló
+     */
+    private static boolean esperar(Tarea tarea, BooleanSupplier sobrecarga) {
+        while (!tarea.cancelada && sobrecarga.getAsBoolean()) {
+            tarea.pausas.incrementAndGet();
+            try {
+                TimeUnit.MILLISECONDS.sleep(PAUSA_MS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+        return !tarea.cancelada;
+    }
+
+    /** @return true si ambas clasificaciones asignan lo mismo con la misma confianza */
+    static boolean iguales(Clasificacion a, Clasificacion b) {
+        return a.getCodigoCategoria() == b.getCodigoCategoria() && a.getCodigoEmocion() == b.getCodigoEmocion()
+                && a.getConfianzaCategoria() == b.getConfianzaCategoria()
+                && a.getConfianzaEmocion() == b.getConfianzaEmocion();
+    }
+
+    /**
+     * Progreso y control de un trabajo de reclasificación.
+     */
+    public static final class Tarea {
+        private final int total; /** Tickets a revisar. */
+        private final AtomicInteger procesados = new AtomicInteger(); /** Tickets revisados. */
+        private final AtomicInteger cambiados = new AtomicInteger(); /** Tickets cuya clasificación cambió. */
+        private final AtomicLong pausas = new AtomicLong(); /** Esperas por sobrecarga. */
+        private volatile boolean cancelada; /** Indica si se pidió cancelar. */
+        private volatile ForkJoinTask<?> ejecucion; /** Trabajo en el pool. */
+
+        private Tarea(int total) {
+            this.total = total;
+        }
+
+        /** @return tickets a revisar */
+        public int getTotal() {
+            return total;
+        }
+        /** @return tickets revisados hasta ahora */
+        public int getProcesados() {
+            return procesados.get();
+        }
+        /** @return tickets cuya clasificación cambió */
+        public int getCambiados() {
+            return cambiados.get();
+        }
+        /** @return cantidad de esperas de {@link #PAUSA_MS} por sobrecarga */
+        public long getPausas() {
+            return pausas.get();
+        }
+        /** @return fracción revisada, entre 0 y 1 */
+        public double getProgreso() {
+            return total == 0 ? 1 : (double) procesados.get() / total;
+        }
+        /** @return true si el trabajo terminó, completo o cancelado */
+        public boolean estaTerminada() {
+            return ejecucion.isDone();
+        }
+        /** @return true si se pidió cancelar el trabajo */
+        public boolean estaCancelada() {
+            return cancelada;
+        }
+        /**
+         * Pide detener el trabajo. Los lotes en curso terminan el ticket que
+         * están procesando; las clasificaciones ya publicadas se conservan.
+         */
+        public void cancelar() {
+            cancelada = true;
+        }
+        /**
+         * Espera a que el trabajo termine.
+         */
+        public void esperar() {
+            ejecucion.join();
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package ac.cr.cenfotec.pfinal.bl.logic;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Resultado de una importación masiva: cuántas filas se leyeron, cuántas se
+ * importaron y el error de cada fila rechazada.
+ */
+
+public class ResultadoImportacion {
+    private int filasLeidas; /** Registros leídos del archivo, sin contar el encabezado. */
+    private int importadas; /** Registros que se agregaron al sistema. */
+    private final List<ErrorFila> errores = new ArrayList<>(); /** Filas rechazadas, en orden de lectura. */
+    private long duracionNanos; /** Duración total de la importación. */
+
+    /** @return registros leídos, sin contar el encabezado */
+    public int getFilasLeidas() {
+        return filasLeidas;
+    }
+    /** @return registros agregados al sistema */
+    public int getImportadas() {
+        return importadas;
+    }
+    /** @return errores por fila, en orden de lectura */
+    public List<ErrorFila> getErrores() {
+        return Collections.unmodifiableList(errores);
+    }
+    /** @return duración total de la importación, en nanosegundos */
+    public long getDuracionNanos() {
+        return duracionNanos;
+    }
+
+    void sumarLeidas(int n) {
+        filasLeidas += n;
+    }
+    void sumarImportadas(int n) {
+        importadas += n;
+    }
+    void agregarError(int linea, String mensaje) {
+        errores.add(new ErrorFila(linea, mensaje));
+    }
+    void setDuracionNanos(long duracionNanos) {
+        this.duracionNanos = duracionNanos;
+    }
+
+    /**
+     * @return resumen del resultado
+     */
+    @Override
+    public String toString() {
+        return "ResultadoImportacion{" +
+                "filasLeidas=" + filasLeidas +
+                ", importadas=" + importadas +
+                ", errores=" + errores.size() +
+                ", duracionMs=" + duracionNanos / 1_000_000 +
+                '}';
+    }
+
+    /**
+     * Error de validación de una fila del archivo.
+     */
+    public static final class ErrorFila {
+        private final int linea; /** Línea del archivo en que empieza la fila. */
+        private final String mensaje; /** Motivo del rechazo. */
+
+        ErrorFila(int linea, String mensaje) {
+            this.linea = linea;
+            this.mensaje = mensaje;
+        }
+
+        /** @return línea del archivo (desde 1) en que empieza la fila */
+        public int getLinea() {
+            return linea;
+        }
+        /** @return motivo del rechazo */
+        public String getMensaje() {
+            return mensaje;
+        }
+
+        /**
+         * @return línea y motivo
+         */
+        @Override
+        public String toString() {
+            return "Línea " + linea + ": " + mensaje;
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package ac.cr.cenfotec.pfinal.bl.logic;
+
+/**
+ * Tokenizador de una sola pasada que no crea Strings intermedios.
+ * <p>
+ * Aplica las mismas reglas que {@link BagOfWords}: pasa a minúsculas, conserva
+ * solo letras a-z, números y vocales con tilde, y separa las palabras por
+ * espacios. A diferencia de {@code generarBow}, no copia el texto ni usa
+ * expresiones regulares: cada palabra se entrega a un {@link ConsumidorToken}
+ * como un trozo de un arreglo reutilizable junto con su hash.
+ * </p>
+ * <p>
+ * Una instancia no es segura para hilos porque reutiliza su arreglo interno.
+ * </p>
+ */
+
+public final class Tokenizador {
+
+    /**
+     * Recibe cada palabra encontrada por el tokenizador.
+     */
+    @FunctionalInterface
+    public interface ConsumidorToken {
+        /**
+         * Procesa una palabra. El arreglo se reutiliza, por lo que su contenido
+         * solo es válido durante la llamada.
+         *
+         * @param buffer   arreglo que contiene la palabra desde la posición 0
+         * @param longitud cantidad de caracteres de la palabra
+         * @param hash     hash de la palabra, igual a {@code String.hashCode()} de su texto
+         */
+        void aceptar(char[] buffer, int longitud, int hash);
+    }
+
+    /** Arreglo reutilizable donde se arma cada palabra. */
+    private char[] buffer = new char[32];
+
+    /**
+     * Recorre el texto y entrega cada palabra normalizada al consumidor.
+     *
+     * @param texto      texto a procesar
+     * @param consumidor receptor de las palabras
+     */
+    public void tokenizar(CharSequence texto, ConsumidorToken consumidor) {
+        int largo = 0;
+        int hash = 0;
+        for (int i = 0; i < texto.length(); i++) {
+            char c = normalizar(texto.charAt(i));
+            if (c == 0) continue;
+            if (c == ' ') {
+                if (largo > 0) {
+                    consumidor.aceptar(buffer, largo, hash);
+                    largo = 0;
+                    hash = 0;
+                }
+                continue;
+            }
+            if (largo == buffer.length) {
+                char[] mayor = new char[buffer.length * 2];
+                System.arraycopy(buffer, 0, mayor, 0, largo);
+                buffer = mayor;
+            }
+            buffer[largo++] = c;
+            hash = 31 * hash + c;
+        }
+        if (largo > 0) {
+            consumidor.aceptar(buffer, largo, hash);
+        }
+    }
+
+    /**
+     * Normaliza un carácter según las reglas del Bag of Words.
+     *
+     * @param c carácter original
+     * @return el carácter en minúsculas, {@code ' '} para el separador,
+     *         o {@code 0} si el carácter se descarta
+     */
+    public static char normalizar(char c) {
+        if (c == ' ') return ' ';
+        if (c >= 'a' && c <= 'z') return c;
+        if (c >= '0' && c <= '9') return c;
+        if (c >= 'A' && c <= 'Z') return (char) (c + ('a' - 'A'));
+        if (c < 128) return 0;
+        char m = Character.toLowerCase(c);
+        switch (m) {
+            case 'á': case 'é': case 'í': case 'ó': case 'ú':
+                return m;
+            default:
+                // Casos como el signo Kelvin, que en minúscula se convierten en 'k'.
+                return m >= 'a' && m <= 'z' ? m : 0;
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package ac.cr.cenfotec.pfinal.bl.logic;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Grupo de hilos dedicado a verificar contraseñas.
+ * <p>
+ * Con un hash de costo alto (PBKDF2), cada verificación consume decenas de
+ * milisegundos de CPU a propósito. Si se hiciera en el hilo que atiende la
+ * solicitud, una ráfaga de inicios de sesión ocuparía todos los núcleos y
+ * frenaría el registro de tickets. Aquí las verificaciones corren en un
+ * número fijo de hilos con una cola acotada: cuando la cola se llena la
+ * solicitud se rechaza de inmediato (contrapresión) en lugar de acumularse.
+ * </p>
+ */
+
+public class VerificadorCredenciales {
+    /** Capacidad por defecto de la cola de verificaciones pendientes. */
+    public static final int CAPACIDAD_POR_DEFECTO = 256;
+
+    private final ThreadPoolExecutor hilos; /** Hilos que calculan los hashes. */
+
+    private final AtomicLong enviadas = new AtomicLong(); /** Verificaciones aceptadas. */
+    private final AtomicLong rechazadas = new AtomicLong(); /** Verificaciones rechazadas por cola llena. */
+    private final AtomicLong completadas = new AtomicLong(); /** Verificaciones terminadas. */
+    private final AtomicLong nanosEspera = new AtomicLong(); /** Tiempo total en cola. */
+    private final AtomicLong nanosCalculo = new AtomicLong(); /** Tiempo total calculando hashes. */
+
+    /**
+     * Crea un verificador que usa la mitad de los núcleos disponibles.
+     */
+    public VerificadorCredenciales() {
+        this(Math.max(1, Runtime.getRuntime().availableProcessors() / 2), CAPACIDAD_POR_DEFECTO);
+    }
+
+    /**
+     * @param hilos     cantidad de hilos de verificación
+     * @param capacidad tamaño máximo de la cola de pendientes
+     */
+    public VerificadorCredenciales(int hilos, int capacidad) {
+        AtomicInteger numero = new AtomicInteger();
+        this.hilos = new ThreadPoolExecutor(hilos, hilos, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(capacidad), r -> {
+                    Thread t = new Thread(r, "verificador-credenciales-" + numero.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                }, new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * Ejecuta una verificación en el grupo de hilos y espera su resultado.
+     *
+     * @param verificacion cálculo a ejecutar
+     * @return resultado de la verificación
+     * @throws RejectedExecutionException si hay demasiadas verificaciones en espera
+     * @throws RuntimeException           si la verificación falla o se interrumpe la espera
+     */
+    public boolean verificar(Callable<Boolean> verificacion) {
+        long encolada = System.nanoTime();
+        Future<Boolean> f;
+        try {
+            f = hilos.submit(() -> {
+                long inicio = System.nanoTime();
+                nanosEspera.addAndGet(inicio - encolada);
+                try {
+                    return verificacion.call();
+                } finally {
+                    nanosCalculo.addAndGet(System.nanoTime() - inicio);
+                    completadas.incrementAndGet();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            rechazadas.incrementAndGet();
+            throw new RejectedExecutionException("Demasiados inicios de sesión simultáneos, intente de nuevo", e);
+        }
+        enviadas.incrementAndGet();
+        try {
+            return f.get();
+        } catch (InterruptedException e) {
+            f.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Verificación de credenciales interrumpida", e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Error al verificar las credenciales", e.getCause());
+        }
+    }
+
+    /**
+     * Detiene los hilos después de terminar las verificaciones pendientes.
+     */
+    public void detener() {
+        hilos.shutdown();
+    }
+
+    /** @return verificaciones aceptadas */
+    public long getEnviadas() {
+        return enviadas.get();
+    }
+    /** @return verificaciones rechazadas por cola llena */
+    public long getRechazadas() {
+        return rechazadas.get();
+    }
+    /** @return verificaciones terminadas */
+    public long getCompletadas() {
+        return completadas.get();
+    }
+    /** @return verificaciones esperando en la cola */
+    public int getEnCola() {
+        return hilos.getQueue().size();
+    }
+    /** @return verificaciones ejecutándose en este momento */
+    public int getActivas() {
+        return hilos.getActiveCount();
+    }
+    /** @return tiempo promedio en cola, en microsegundos */
+    public long getEsperaPromedioMicros() {
+        long n = completadas.get();
+        return n == 0 ? 0 : TimeUnit.NANOSECONDS.toMicros(nanosEspera.get() / n);
+    }
+    /** @return tiempo promedio de cálculo del hash, en microsegundos */
+    public long getCalculoPromedioMicros() {
+        long n = completadas.get();
+        return n == 0 ? 0 : TimeUnit.NANOSECONDS.toMicros(nanosCalculo.get() / n);
+    }
+}
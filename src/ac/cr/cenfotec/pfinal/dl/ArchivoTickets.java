@@ -0,0 +1,264 @@
+package ac.cr.cenfotec.pfinal.dl;
+
+import ac.cr.cenfotec.pfinal.bl.entities.Ticket;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Archivo en disco, por columnas y mapeado en memoria, para tickets cerrados.
+ * <p>
+ * Los tickets resueltos ya no cambian, pero como objetos {@link Ticket}
+ * retienen sus textos y referencias en el heap para siempre. Este archivo
+ * los guarda por columnas en archivos mapeados:
+ * </p>
+ * <ul>
+ *     <li>{@code ids.col}: ID del ticket (int)</li>
+ *     <li>{@code estados.col}: código de estado (byte)</li>
+ *     <li>{@code departamentos.col}: ordinal del departamento (int)</li>
+ *     <li>{@code usuarios.col}: ordinal del usuario (int)</li>
+ *     <li>{@code textos.col}: posición del asunto y la descripción en {@code textos.bin} (long)</li>
+ *     <li>{@code fechas.col}: fecha de creación (long; 0 en filas archivadas antes de existir la columna)</li>
+ * </ul>
+ * <p>
+ * Los ordinales se traducen a correo, nombre de departamento y estado con
+ * tablas pequeñas. Un índice fuera del heap (ID → fila) permite encontrar un
+ * ticket archivado en O(1); el objeto {@link Ticket} se reconstruye en cada
+ * búsqueda.
+ * </p>
+ * <p>
+ * La cantidad de filas válidas se guarda en {@code meta.bin} y solo se
+ * actualiza en {@link #sincronizar()}, después de bajar las columnas a disco;
+ * si el proceso termina antes, las filas incompletas se ignoran al abrir.
+ * </p>
+ */
+
+public class ArchivoTickets {
+    private final Columna ids; /** Columna de IDs. */
+    private final Columna estados; /** Columna de códigos de estado. */
+    private final Columna departamentos; /** Columna de ordinales de departamento. */
+    private final Columna usuarios; /** Columna de ordinales de usuario. */
+    private final Columna posicionesTexto; /** Columna de posiciones en el archivo de textos. */
+    private final Columna fechas; /** Columna de fechas de creación. */
+    private final FileChannel textos; /** Asunto y descripción de cada ticket. */
+    private final Columna meta; /** [filas válidas, fin del archivo de textos]. */
+
+    private final TablaOrdinales tablaUsuarios; /** Ordinal → correo. */
+    private final TablaOrdinales tablaDepartamentos; /** Ordinal → nombre de departamento. */
+    private final TablaOrdinales tablaEstados; /** Código → texto del estado. */
+
+    private final IndiceEnteros indice; /** ID → fila, fuera del heap. */
+    private int filas; /** Filas escritas (incluye las aún no sincronizadas). */
+    private long finTextos; /** Próxima posición libre en el archivo de textos. */
+
+    private ArchivoTickets(Path directorio) throws IOException {
+        Files.createDirectories(directorio);
+        meta = new Columna(directorio.resolve("meta.bin"), 8);
+        meta.asegurar(2);
+        filas = (int) meta.buffer.getLong(0);
+        finTextos = meta.buffer.getLong(8);
+
+        ids = new Columna(directorio.resolve("ids.col"), 4);
+        estados = new Columna(directorio.resolve("estados.col"), 1);
+        departamentos = new Columna(directorio.resolve("departamentos.col"), 4);
+        usuarios = new Columna(directorio.resolve("usuarios.col"), 4);
+        posicionesTexto = new Columna(directorio.resolve("textos.col"), 8);
+        fechas = new Columna(directorio.resolve("fechas.col"), 8);
+        textos = FileChannel.open(directorio.resolve("textos.bin"), StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+        tablaUsuarios = new TablaOrdinales(directorio.resolve("usuarios.txt"));
+        tablaDepartamentos = new TablaOrdinales(directorio.resolve("departamentos.txt"));
+        tablaEstados = new TablaOrdinales(directorio.resolve("estados.txt"));
+
+        indice = new IndiceEnteros(filas);
+        for (int i = 0; i < filas; i++) {
+            indice.poner(ids.buffer.getInt(i * 4), i);
+        }
+    }
+
+    /**
+     * Abre (o crea) el archivo de tickets en la carpeta indicada.
+     *
+     * @param directorio carpeta del archivo
+     * @return archivo abierto
+     * @throws IOException si falla la apertura
+     */
+    public static ArchivoTickets abrir(Path directorio) throws IOException {
+        return new ArchivoTickets(directorio);
+    }
+
+    /**
+     * Agrega un ticket al archivo. No queda durable hasta {@link #sincronizar()}.
+     *
+     * @param t ticket a archivar
+     * @throws IOException si falla la escritura
+     */
+    public synchronized void archivar(Ticket t) throws IOException {
+        if (indice.obtener(t.getId()) >= 0) return;
+        int fila = filas;
+        ids.asegurar(fila + 1);
+        estados.asegurar(fila + 1);
+        departamentos.asegurar(fila + 1);
+        usuarios.asegurar(fila + 1);
+        posicionesTexto.asegurar(fila + 1);
+        fechas.asegurar(fila + 1);
+
+        ids.buffer.putInt(fila * 4, t.getId());
+        // Se guarda ordinal + 1 para que 0 represente un estado nulo.
+        estados.buffer.put(fila, (byte) (tablaEstados.ordinal(t.getEstado()) + 1));
+        departamentos.buffer.putInt(fila * 4, tablaDepartamentos.ordinal(
+                t.getDepartamento() == null ? null : t.getDepartamento().getNombre()));
+        usuarios.buffer.putInt(fila * 4, tablaUsuarios.ordinal(
+                t.getUsuario() == null ? null : t.getUsuario().getCorreo()));
+        posicionesTexto.buffer.putLong(fila * 8, finTextos);
+        fechas.buffer.putLong(fila * 8, t.getFechaCreacion());
+        finTextos = escribirTextos(finTextos, t.getAsunto(), t.getDescripcion());
+
+        indice.poner(t.getId(), fila);
+        filas++;
+    }
+
+    /**
+     * Baja a disco las columnas, los textos y las tablas, y luego marca las
+     * filas nuevas como válidas.
+     *
+     * @throws IOException si falla la sincronización
+     */
+    public synchronized void sincronizar() throws IOException {
+        ids.buffer.force();
+        estados.buffer.force();
+        departamentos.buffer.force();
+        usuarios.buffer.force();
+        posicionesTexto.buffer.force();
+        fechas.buffer.force();
+        textos.force(false);
+        tablaUsuarios.sincronizar();
+        tablaDepartamentos.sincronizar();
+        tablaEstados.sincronizar();
+        meta.buffer.putLong(0, filas);
+        meta.buffer.putLong(8, finTextos);
+        meta.buffer.force();
+    }
+
+    /**
+     * Indica si un ticket está en el archivo.
+     *
+     * @param id identificador del ticket
+     * @return true si el ticket fue archivado
+     */
+    public synchronized boolean contiene(int id) {
+        return indice.obtener(id) >= 0;
+    }
+
+    /**
+     * Reconstruye un ticket archivado, resolviendo usuario y departamento en {@code data}.
+     *
+     * @param id   identificador del ticket
+     * @param data datos en memoria con usuarios y departamentos
+     * @return ticket reconstruido o null si no está archivado
+     */
+    public synchronized Ticket buscar(int id, Data data) {
+        int fila = indice.obtener(id);
+        if (fila < 0) return null;
+        try {
+            String[] texto = leerTextos(posicionesTexto.buffer.getLong(fila * 8));
+            String estado = tablaEstados.texto((estados.buffer.get(fila) & 0xFF) - 1);
+            String correo = tablaUsuarios.texto(usuarios.buffer.getInt(fila * 4));
+            String departamento = tablaDepartamentos.texto(departamentos.buffer.getInt(fila * 4));
+            return new Ticket(id, texto[0], texto[1], estado,
+                    data.buscarUsuarioPorCorreo(correo), data.buscarDepartamentoPorNombre(departamento),
+                    fechas.buffer.getLong(fila * 8));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error al leer el archivo de tickets", e);
+        }
+    }
+
+    /** @return cantidad de tickets archivados */
+    public synchronized int getCantidad() {
+        return filas;
+    }
+
+    /**
+     * Sincroniza y cierra los archivos.
+     *
+     * @throws IOException si falla el cierre
+     */
+    public synchronized void cerrar() throws IOException {
+        sincronizar();
+        textos.close();
+        tablaUsuarios.cerrar();
+        tablaDepartamentos.cerrar();
+        tablaEstados.cerrar();
+        for (Columna c : new Columna[]{ids, estados, departamentos, usuarios, posicionesTexto, fechas, meta}) {
+            c.canal.close();
+        }
+    }
+
+    private long escribirTextos(long posicion, String asunto, String descripcion) throws IOException {
+        byte[] a = asunto == null ? null : asunto.getBytes(StandardCharsets.UTF_8);
+        byte[] d = descripcion == null ? null : descripcion.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer b = ByteBuffer.allocate(8 + (a == null ? 0 : a.length) + (d == null ? 0 : d.length));
+        b.putInt(a == null ? -1 : a.length);
+        if (a != null) b.put(a);
+        b.putInt(d == null ? -1 : d.length);
+        if (d != null) b.put(d);
+        b.flip();
+        long p = posicion;
+        while (b.hasRemaining()) p += textos.write(b, p);
+        return p;
+    }
+
+    private String[] leerTextos(long posicion) throws IOException {
+        String asunto = leerTexto(posicion);
+        long siguiente = posicion + 4 + Math.max(0, largoEn(posicion));
+        return new String[]{asunto, leerTexto(siguiente)};
+    }
+
+    private String leerTexto(long posicion) throws IOException {
+        int largo = largoEn(posicion);
+        if (largo < 0) return null;
+        ByteBuffer b = ByteBuffer.allocate(largo);
+        long p = posicion + 4;
+        while (b.hasRemaining()) p += textos.read(b, p);
+        return new String(b.array(), StandardCharsets.UTF_8);
+    }
+
+    private int largoEn(long posicion) throws IOException {
+        ByteBuffer b = ByteBuffer.allocate(4);
+        long p = posicion;
+        while (b.hasRemaining()) p += textos.read(b, p);
+        return b.getInt(0);
+    }
+
+    /**
+     * Archivo de valores de ancho fijo mapeado en memoria, que se vuelve a
+     * mapear con el doble de tamaño cuando se llena.
+     */
+    private static final class Columna {
+        private final FileChannel canal;
+        private final int ancho;
+        private MappedByteBuffer buffer;
+
+        Columna(Path archivo, int ancho) throws IOException {
+            this.canal = FileChannel.open(archivo, StandardOpenOption.CREATE,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE);
+            this.ancho = ancho;
+            this.buffer = canal.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(canal.size(), 1024L * ancho));
+        }
+
+        void asegurar(int elementos) throws IOException {
+            long requerido = (long) elementos * ancho;
+            if (requerido <= buffer.capacity()) return;
+            buffer.force();
+            buffer = canal.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(requerido, buffer.capacity() * 2L));
+        }
+    }
+}
@@ -2,6 +2,14 @@ package ac.cr.cenfotec.pfinal.dl;
 
 import ac.cr.cenfotec.pfinal.bl.entities.*;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
 
 /**
  * Clase que representa la capa de acceso a datos (Data Layer) del sistema.
@@ -13,63 +21,338 @@ import java.util.ArrayList;
  * <p>
  * Esta clase funciona como una "base de datos temporal"
  * </p>
+ * <p>
+ * Además de las listas, se mantienen índices hash (correo → usuario,
+ * nombre → departamento, id → ticket) para que las búsquedas sean O(1).
+ * Los tickets activos también se indexan por usuario (ver
+ * {@link #getIdsTicketsDeUsuario(String, int, int)}).
+ * Las claves de texto se comparan sin distinguir mayúsculas. Para que los
+ * índices no se desincronicen, toda modificación pasa por los métodos
+ * {@code agregar*}/{@code eliminar*}. Los usuarios y departamentos no se
+ * eliminan: el registro de escritura de {@link Persistencia} no tiene
+ * operaciones para hacerlo, así que una eliminación se perdería al reiniciar.
+ * </p>
+ * <p>
+ * La clase es segura para hilos: las búsquedas usan mapas concurrentes sin
+ * bloqueo, cada lista tiene su propio candado de lectura/escritura y los
+ * getters de listas devuelven copias (instantáneas) que no cambian después.
+ * Cada diccionario es una {@link InstantaneaDiccionario} inmutable que se
+ * reemplaza completa al agregar palabras, así que leerlo no toma candados.
+ * </p>
+ * <p>
+ * Si se configura un {@link ArchivoTickets}, los tickets archivados ya no
+ * están en la lista de tickets, pero {@link #buscarTicketPorId(int)} los
+ * sigue encontrando en el archivo.
+ * </p>
  */
 
 public class Data {
 
     /** Lista de usuarios registrados en el sistema. */
-    private ArrayList<Usuario> usuarios = new ArrayList<>();
+    private final ArrayList<Usuario> usuarios = new ArrayList<>();
+    /** Candado que protege la lista de usuarios. */
+    private final ReentrantReadWriteLock bloqueoUsuarios = new ReentrantReadWriteLock();
 
     /** Lista de departamentos disponibles. */
-    private ArrayList<Departamento> departamentos = new ArrayList<>();
+    private final ArrayList<Departamento> departamentos = new ArrayList<>();
+    /** Candado que protege la lista de departamentos. */
+    private final ReentrantReadWriteLock bloqueoDepartamentos = new ReentrantReadWriteLock();
+
+    /**
+     * Tickets creados, ordenados por ID. Un mapa de saltos permite inserciones
+     * concurrentes sin candado y recorrerlos en orden de creación.
+     */
+    private final ConcurrentSkipListMap<Integer, Ticket> tickets = new ConcurrentSkipListMap<>();
+    /** Cantidad de tickets activos ({@code size()} del mapa de saltos es O(n)). */
+    private final AtomicInteger cantidadTickets = new AtomicInteger();
 
-    /** Lista de tickets creados. */
-    private ArrayList<Ticket> tickets = new ArrayList<>();
+    /** Índice de usuarios por correo (en minúsculas). */
+    private final ConcurrentHashMap<String, Usuario> usuariosPorCorreo = new ConcurrentHashMap<>();
+    /** Índice de departamentos por nombre (en minúsculas). */
+    private final ConcurrentHashMap<String, Departamento> departamentosPorNombre = new ConcurrentHashMap<>();
+    /** IDs de los tickets activos de cada usuario, con su cantidad de abiertos. */
+    private final TicketsPorUsuario ticketsPorUsuario = new TicketsPorUsuario();
 
-    /** Diccionario de palabras emocionales. */
-    private ArrayList<Diccionario> diccionarioEmocional = new ArrayList<>();
-    /** Diccionario de palabras técnicas. */
-    private ArrayList<Diccionario> diccionarioTecnico = new ArrayList<>();
+    /** Archivo en disco de tickets cerrados, o null si no se usa. */
+    private volatile ArchivoTickets archivo;
+
+    /** Versión vigente del diccionario de palabras emocionales. */
+    private final AtomicReference<InstantaneaDiccionario> diccionarioEmocional = new AtomicReference<>(InstantaneaDiccionario.VACIO);
+    /** Versión vigente del diccionario de palabras técnicas. */
+    private final AtomicReference<InstantaneaDiccionario> diccionarioTecnico = new AtomicReference<>(InstantaneaDiccionario.VACIO);
+
+    /**
+     * Configura el archivo de tickets cerrados donde también se buscan tickets.
+     *
+     * @param archivo archivo de tickets
+     */
+    public void setArchivo(ArchivoTickets archivo) {
+        this.archivo = archivo;
+    }
+    /**
+     * Obtiene el archivo de tickets cerrados.
+     *
+     * @return archivo de tickets o null si no se usa
+     */
+    public ArchivoTickets getArchivo() {
+        return archivo;
+    }
 
     /**
      * Obtiene la lista de usuarios registrados.
      *
-     * @return lista de usuarios
+     * @return copia de la lista de usuarios
      */
-    public ArrayList<Usuario> getUsuarios() {
-        return usuarios;
+    public List<Usuario> getUsuarios() {
+        bloqueoUsuarios.readLock().lock();
+        try {
+            return List.copyOf(usuarios);
+        } finally {
+            bloqueoUsuarios.readLock().unlock();
+        }
+    }
+    /**
+     * Copia un tramo de la lista de usuarios, en orden de registro.
+     *
+     * @param desde    posición del primer usuario
+     * @param cantidad cantidad máxima de usuarios
+     * @return usuarios del tramo (solo lectura)
+     */
+    public List<Usuario> getUsuarios(int desde, int cantidad) {
+        bloqueoUsuarios.readLock().lock();
+        try {
+            int inicio = Math.min(Math.max(desde, 0), usuarios.size());
+            return List.copyOf(usuarios.subList(inicio, Math.min(usuarios.size(), inicio + Math.max(cantidad, 0))));
+        } finally {
+            bloqueoUsuarios.readLock().unlock();
+        }
+    }
+    /**
+     * Recorre de forma perezosa los usuarios del índice por correo (uno por
+     * correo, en orden no especificado), sin copiar la colección. Se puede
+     * consumir en paralelo.
+     *
+     * @return flujo de usuarios
+     */
+    public Stream<Usuario> streamUsuarios() {
+        return usuariosPorCorreo.values().stream();
     }
     /**
      * Obtiene la lista de departamentos existentes.
      *
-     * @return lista de departamentos
+     * @return copia de la lista de departamentos
+     */
+    public List<Departamento> getDepartamentos() {
+        bloqueoDepartamentos.readLock().lock();
+        try {
+            return List.copyOf(departamentos);
+        } finally {
+            bloqueoDepartamentos.readLock().unlock();
+        }
+    }
+    /**
+     * Obtiene la lista de tickets activos (no archivados), ordenados por ID.
+     *
+     * @return copia de la lista de tickets
      */
-    public ArrayList<Departamento> getDepartamentos() {
-        return departamentos;
+    public List<Ticket> getTickets() {
+        return List.copyOf(tickets.values());
     }
     /**
-     * Obtiene la lista de tickets registrados.
+     * Recorre de forma perezosa los tickets activos con ID mayor a uno dado,
+     * en orden de ID, sin copiar la colección. El recorrido es débilmente
+     * consistente (no falla si hay cambios concurrentes) y se puede
+     * consumir en paralelo.
      *
-     * @return lista de tickets
+     * @param despuesDe ID a partir del cual empezar, exclusivo (0 para empezar desde el inicio)
+     * @return flujo de tickets
      */
-    public ArrayList<Ticket> getTickets() {
-        return tickets;
+    public Stream<Ticket> streamTickets(int despuesDe) {
+        return tickets.tailMap(despuesDe, false).values().stream();
     }
     /**
      * Obtiene el diccionario emocional.
      *
-     * @return lista de entradas emocionales
+     * @return lista de entradas emocionales (solo lectura)
      */
-    public ArrayList<Diccionario> getDiccionarioEmocional() {
-        return diccionarioEmocional;
+    public List<Diccionario> getDiccionarioEmocional() {
+        return diccionarioEmocional.get().getEntradas();
     }
     /**
      * Obtiene el diccionario técnico.
      *
-     * @return lista de entradas técnicas
+     * @return lista de entradas técnicas (solo lectura)
      */
-    public ArrayList<Diccionario> getDiccionarioTecnico() {
-        return diccionarioTecnico;
+    public List<Diccionario> getDiccionarioTecnico() {
+        return diccionarioTecnico.get().getEntradas();
+    }
+    /**
+     * Obtiene la versión vigente del diccionario emocional, con sus índices.
+     *
+     * @return versión inmutable del diccionario
+     */
+    public InstantaneaDiccionario getInstantaneaEmocional() {
+        return diccionarioEmocional.get();
+    }
+    /**
+     * Obtiene la versión vigente del diccionario técnico, con sus índices.
+     *
+     * @return versión inmutable del diccionario
+     */
+    public InstantaneaDiccionario getInstantaneaTecnica() {
+        return diccionarioTecnico.get();
+    }
+
+    /** @return cantidad de usuarios registrados, sin copiar la lista */
+    public int getCantidadUsuarios() {
+        return usuariosPorCorreo.size();
+    }
+    /** @return cantidad de departamentos, sin copiar la lista */
+    public int getCantidadDepartamentos() {
+        return departamentosPorNombre.size();
+    }
+    /** @return cantidad de tickets activos, en O(1) */
+    public int getCantidadTickets() {
+        return cantidadTickets.get();
+    }
+
+    //metodos de registro
+    /**
+     * Agrega un usuario a la lista y al índice por correo.
+     * <p>
+     * Si ya existe un usuario con el mismo correo, el índice conserva el
+     * primero, igual que la búsqueda lineal anterior.
+     * </p>
+     *
+     * @param u usuario a agregar
+     */
+    public void agregarUsuario(Usuario u) {
+        bloqueoUsuarios.writeLock().lock();
+        try {
+            usuarios.add(u);
+            usuariosPorCorreo.putIfAbsent(ClaveTexto.clave(u.getCorreo()), u);
+        } finally {
+            bloqueoUsuarios.writeLock().unlock();
+        }
+    }
+    /**
+     * Agrega varios usuarios tomando el candado de escritura una sola vez.
+     *
+     * @param lote usuarios a agregar
+     */
+    public void agregarUsuarios(List<Usuario> lote) {
+        bloqueoUsuarios.writeLock().lock();
+        try {
+            usuarios.ensureCapacity(usuarios.size() + lote.size());
+            for (Usuario u : lote) {
+                usuarios.add(u);
+                usuariosPorCorreo.putIfAbsent(ClaveTexto.clave(u.getCorreo()), u);
+            }
+        } finally {
+            bloqueoUsuarios.writeLock().unlock();
+        }
+    }
+    /**
+     * Agrega un departamento a la lista y al índice por nombre.
+     *
+     * @param d departamento a agregar
+     */
+    public void agregarDepartamento(Departamento d) {
+        bloqueoDepartamentos.writeLock().lock();
+        try {
+            departamentos.add(d);
+            departamentosPorNombre.putIfAbsent(ClaveTexto.clave(d.getNombre()), d);
+        } finally {
+            bloqueoDepartamentos.writeLock().unlock();
+        }
+    }
+    /**
+     * Agrega un ticket al almacenamiento indexado por ID.
+     *
+     * @param t ticket a agregar
+     */
+    public void agregarTicket(Ticket t) {
+        if (tickets.putIfAbsent(t.getId(), t) != null) return;
+        cantidadTickets.incrementAndGet();
+        ticketsPorUsuario.agregar(correo(t), t.getId(), abierto(t.getEstadoTicket()));
+    }
+    /**
+     * Elimina un ticket del almacenamiento.
+     *
+     * @param t ticket a eliminar
+     * @return true si el ticket existía
+     */
+    public boolean eliminarTicket(Ticket t) {
+        if (!tickets.remove(t.getId(), t)) return false;
+        cantidadTickets.decrementAndGet();
+        ticketsPorUsuario.quitar(correo(t), t.getId(), abierto(t.getEstadoTicket()));
+        return true;
+    }
+    /**
+     * Cambia el estado de un ticket manteniendo el conteo de tickets
+     * abiertos de su usuario. No valida la transición; quien llama debe
+     * tener el candado del ticket.
+     *
+     * @param t      ticket a modificar
+     * @param estado nuevo estado
+     */
+    public void cambiarEstadoTicket(Ticket t, EstadoTicket estado) {
+        boolean antes = abierto(t.getEstadoTicket());
+        t.setEstadoTicket(estado);
+        boolean despues = abierto(estado);
+        if (antes != despues && tickets.get(t.getId()) == t) {
+            ticketsPorUsuario.ajustarAbiertos(correo(t), t.getId(), despues ? 1 : -1);
+        }
+    }
+    /**
+     * Pasa un ticket a otro usuario, moviéndolo entre los índices de ambos.
+     * Quien llama debe tener el candado del ticket.
+     *
+     * @param t       ticket a modificar
+     * @param usuario nuevo usuario del ticket
+     */
+    public void reasignarTicket(Ticket t, Usuario usuario) {
+        boolean activo = tickets.get(t.getId()) == t;
+        boolean abierto = abierto(t.getEstadoTicket());
+        if (activo) ticketsPorUsuario.quitar(correo(t), t.getId(), abierto);
+        t.setUsuario(usuario);
+        if (activo) ticketsPorUsuario.agregar(correo(t), t.getId(), abierto);
+    }
+    /**
+     * Agrega una entrada al diccionario emocional si la palabra no existe.
+     *
+     * @param e entrada a agregar
+     * @return true si se agregó, false si la palabra ya estaba registrada
+     */
+    public boolean agregarPalabraEmocional(Diccionario e) {
+        return !publicar(diccionarioEmocional, List.of(e)).isEmpty();
+    }
+    /**
+     * Agrega una entrada al diccionario técnico si la palabra no existe.
+     *
+     * @param e entrada a agregar
+     * @return true si se agregó, false si la palabra ya estaba registrada
+     */
+    public boolean agregarPalabraTecnica(Diccionario e) {
+        return !publicar(diccionarioTecnico, List.of(e)).isEmpty();
+    }
+    /**
+     * Agrega varias entradas al diccionario emocional publicando una sola versión nueva.
+     *
+     * @param lote entradas a agregar
+     * @return entradas agregadas (las que no existían), en orden
+     */
+    public List<Diccionario> agregarPalabrasEmocionales(Collection<Diccionario> lote) {
+        return publicar(diccionarioEmocional, lote);
+    }
+    /**
+     * Agrega varias entradas al diccionario técnico publicando una sola versión nueva.
+     *
+     * @param lote entradas a agregar
+     * @return entradas agregadas (las que no existían), en orden
+     */
+    public List<Diccionario> agregarPalabrasTecnicas(Collection<Diccionario> lote) {
+        return publicar(diccionarioTecnico, lote);
     }
 
     //metodos de busqueda
@@ -80,12 +363,8 @@ public class Data {
      * @return el usuario encontrado o null si no existe
      */
     public Usuario buscarUsuarioPorCorreo(String correo) {
-        for (Usuario u : usuarios) {
-            if (u.getCorreo().equalsIgnoreCase(correo)) {
-                return u;
-            }
-        }
-        return null;
+        if (correo == null) return null;
+        return usuariosPorCorreo.get(ClaveTexto.clave(correo));
     }
     /**
      * Busca un departamento por su nombre.
@@ -94,26 +373,103 @@ public class Data {
      * @return el departamento encontrado o null si no existe
      */
     public Departamento buscarDepartamentoPorNombre(String nombre) {
-        for (Departamento d : departamentos) {
-            if (d.getNombre().equalsIgnoreCase(nombre)) {
-                return d;
-            }
-        }
-        return null;
+        if (nombre == null) return null;
+        return departamentosPorNombre.get(ClaveTexto.clave(nombre));
     }
     /**
-     * Busca un ticket por su ID único.
+     * Busca un ticket por su ID único, primero entre los tickets activos y
+     * luego en el archivo de tickets cerrados.
+     * <p>
+     * Un ticket archivado se reconstruye en cada búsqueda; modificarlo no
+     * cambia el archivo.
+     * </p>
      *
      * @param id identificador del ticket
      * @return ticket encontrado o null si no existe
      */
     public Ticket buscarTicketPorId(int id) {
-        for (Ticket t : tickets) {
-            if (t.getId() == id) {
-                return t;
-            }
+        Ticket t = tickets.get(id);
+        if (t == null && archivo != null) {
+            t = archivo.buscar(id, this);
+        }
+        return t;
+    }
+    /**
+     * Busca un ticket solo entre los activos, sin reconstruir los archivados.
+     *
+     * @param id identificador del ticket
+     * @return ticket activo o null si no existe o está archivado
+     */
+    public Ticket buscarTicketActivo(int id) {
+        return tickets.get(id);
+    }
+    /**
+     * Indica si un ticket fue movido al archivo de tickets cerrados.
+     *
+     * @param id identificador del ticket
+     * @return true si el ticket está archivado
+     */
+    public boolean estaArchivado(int id) {
+        return archivo != null && archivo.contiene(id);
+    }
+    /**
+     * Obtiene IDs de tickets activos de un usuario, del más reciente al más
+     * antiguo. Cuesta lo que mide el resultado más una búsqueda binaria, sin
+     * importar cuántos tickets tenga el usuario.
+     *
+     * @param correo   correo del usuario
+     * @param antesDe  solo IDs menores a este; 0 para empezar por el más reciente
+     * @param cantidad cantidad máxima de IDs
+     * @return IDs encontrados (vacío si el usuario no tiene tickets)
+     */
+    public int[] getIdsTicketsDeUsuario(String correo, int antesDe, int cantidad) {
+        return ticketsPorUsuario.recientes(correo, antesDe, cantidad);
+    }
+    /**
+     * Busca el siguiente ticket activo de un usuario en orden de ID, con una
+     * búsqueda binaria en su lista. Sirve para paginar en orden ascendente.
+     *
+     * @param correo    correo del usuario
+     * @param despuesDe ID a partir del cual buscar, exclusivo (0 para empezar desde el inicio)
+     * @return siguiente ID mayor a {@code despuesDe}, o -1 si no hay
+     */
+    public int siguienteTicketDeUsuario(String correo, int despuesDe) {
+        return ticketsPorUsuario.siguiente(correo, despuesDe);
+    }
+    /**
+     * @param correo correo del usuario
+     * @return cantidad de tickets activos del usuario
+     */
+    public int contarTicketsDeUsuario(String correo) {
+        return ticketsPorUsuario.contar(correo);
+    }
+    /**
+     * @param correo correo del usuario
+     * @return cantidad de tickets activos del usuario que no están resueltos
+     */
+    public int contarTicketsAbiertos(String correo) {
+        return ticketsPorUsuario.contarAbiertos(correo);
+    }
+
+    /**
+     * Publica una versión nueva de un diccionario con las entradas que no
+     * existían. Si otro hilo publicó antes, se vuelve a intentar sobre su versión.
+     */
+    private static List<Diccionario> publicar(AtomicReference<InstantaneaDiccionario> diccionario,
+                                              Collection<Diccionario> lote) {
+        while (true) {
+            InstantaneaDiccionario actual = diccionario.get();
+            List<Diccionario> agregadas = new ArrayList<>();
+            InstantaneaDiccionario nueva = actual.con(lote, agregadas);
+            if (nueva == actual || diccionario.compareAndSet(actual, nueva)) return agregadas;
         }
-        return null;
     }
-}
 
+    private static String correo(Ticket t) {
+        return t.getUsuario() == null ? null : t.getUsuario().getCorreo();
+    }
+
+    private static boolean abierto(EstadoTicket estado) {
+        return estado != null && estado != EstadoTicket.RESUELTO;
+    }
+}
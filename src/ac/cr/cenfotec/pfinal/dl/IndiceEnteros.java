@@ -0,0 +1,100 @@
+package ac.cr.cenfotec.pfinal.dl;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Tabla hash de enteros (clave → valor) almacenada fuera del heap.
+ * <p>
+ * Usa direccionamiento abierto con sondeo lineal sobre un
+ * {@link ByteBuffer#allocateDirect directo}, de modo que millones de
+ * entradas no generan objetos ni presión sobre el recolector de basura.
+ * No admite eliminar entradas. No es segura para hilos.
+ * </p>
+ */
+
+final class IndiceEnteros {
+    /** Valor que marca una celda vacía; las claves deben ser distintas de él. */
+    private static final int VACIO = Integer.MIN_VALUE;
+    /** Factor de carga máximo antes de duplicar la tabla. */
+    private static final double CARGA_MAXIMA = 0.6;
+
+    private ByteBuffer celdas; /** Pares [clave, valor] de 8 bytes cada uno. */
+    private int capacidad; /** Cantidad de celdas (potencia de dos). */
+    private int tamano; /** Entradas ocupadas. */
+
+    /**
+     * Crea un índice con la capacidad inicial indicada.
+     *
+     * @param capacidadInicial cantidad aproximada de entradas esperadas
+     */
+    IndiceEnteros(int capacidadInicial) {
+        int c = 16;
+        while (c * CARGA_MAXIMA < capacidadInicial) c <<= 1;
+        reservar(c);
+    }
+
+    /**
+     * Asocia un valor a una clave, reemplazando el anterior si existía.
+     *
+     * @param clave clave (distinta de {@code Integer.MIN_VALUE})
+     * @param valor valor asociado
+     */
+    void poner(int clave, int valor) {
+        if (tamano + 1 > capacidad * CARGA_MAXIMA) crecer();
+        int i = posicion(clave);
+        if (celdas.getInt(i * 8) == VACIO) tamano++;
+        celdas.putInt(i * 8, clave);
+        celdas.putInt(i * 8 + 4, valor);
+    }
+
+    /**
+     * Obtiene el valor asociado a una clave.
+     *
+     * @param clave clave a buscar
+     * @return valor asociado o -1 si la clave no existe
+     */
+    int obtener(int clave) {
+        int i = posicion(clave);
+        return celdas.getInt(i * 8) == VACIO ? -1 : celdas.getInt(i * 8 + 4);
+    }
+
+    /** @return cantidad de entradas */
+    int tamano() {
+        return tamano;
+    }
+
+    /**
+     * @return celda donde está la clave o la celda vacía donde debería ir
+     */
+    private int posicion(int clave) {
+        int mascara = capacidad - 1;
+        int i = mezclar(clave) & mascara;
+        while (true) {
+            int k = celdas.getInt(i * 8);
+            if (k == VACIO || k == clave) return i;
+            i = (i + 1) & mascara;
+        }
+    }
+
+    private void crecer() {
+        ByteBuffer anteriores = celdas;
+        int capacidadAnterior = capacidad;
+        reservar(capacidad * 2);
+        tamano = 0;
+        for (int i = 0; i < capacidadAnterior; i++) {
+            int k = anteriores.getInt(i * 8);
+            if (k != VACIO) poner(k, anteriores.getInt(i * 8 + 4));
+        }
+    }
+
+    private void reservar(int nuevaCapacidad) {
+        capacidad = nuevaCapacidad;
+        celdas = ByteBuffer.allocateDirect(nuevaCapacidad * 8);
+        for (int i = 0; i < nuevaCapacidad; i++) celdas.putInt(i * 8, VACIO);
+    }
+
+    private static int mezclar(int x) {
+        x *= 0x9E3779B9;
+        return x ^ (x >>> 16);
+    }
+}
@@ -0,0 +1,129 @@
+package ac.cr.cenfotec.pfinal.dl;
+
+import ac.cr.cenfotec.pfinal.bl.entities.ClaveTexto;
+import ac.cr.cenfotec.pfinal.bl.entities.Diccionario;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Versión inmutable de un diccionario (técnico o emocional).
+ * <p>
+ * Además de la lista de entradas en orden de registro, guarda un índice por
+ * palabra normalizada (ver {@link ClaveTexto}), para saber en O(1) si una palabra ya existe, y un
+ * índice inverso de categoría a palabras.
+ * </p>
+ * <p>
+ * Agregar palabras no modifica la instancia: {@link #con(Collection, List)}
+ * devuelve una versión nueva y {@link Data} la publica de forma atómica.
+ * Quien lee una versión (por ejemplo, para compilar el autómata del
+ * clasificador) la ve completa y sin cambios, sin tomar candados. Las
+ * entradas son copias propias de la versión y no deben modificarse.
+ * </p>
+ */
+
+public final class InstantaneaDiccionario {
+    /** Diccionario vacío, versión 0. */
+    public static final InstantaneaDiccionario VACIO =
+            new InstantaneaDiccionario(0, List.of(), Collections.emptyMap(), Collections.emptyMap());
+
+    private final long version; /** Número de versión; crece con cada publicación. */
+    private final List<Diccionario> entradas; /** Entradas en orden de registro. */
+    private final Map<String, Diccionario> porPalabra; /** Palabra normalizada → entrada. */
+    private final Map<String, List<String>> palabrasPorCategoria; /** Categoría → palabras, en orden de registro. */
+
+    private InstantaneaDiccionario(long version, List<Diccionario> entradas, Map<String, Diccionario> porPalabra,
+                                   Map<String, List<String>> palabrasPorCategoria) {
+        this.version = version;
+        this.entradas = entradas;
+        this.porPalabra = porPalabra;
+        this.palabrasPorCategoria = palabrasPorCategoria;
+    }
+
+    /**
+     * Crea la versión siguiente con las entradas cuya palabra no existía.
+     * Las entradas sin palabra se ignoran.
+     *
+     * @param nuevas    entradas a agregar
+     * @param agregadas recibe las entradas que sí se agregaron, en orden
+     * @return versión nueva, o esta misma si no se agregó ninguna entrada
+     */
+    public InstantaneaDiccionario con(Collection<Diccionario> nuevas, List<Diccionario> agregadas) {
+        Map<String, Diccionario> indice = null;
+        Map<String, List<String>> categorias = null;
+        for (Diccionario e : nuevas) {
+            if (e.getPalabra() == null) continue;
+            String k = e.getClave();
+            if (porPalabra.containsKey(k) || (indice != null && indice.containsKey(k))) continue;
+            if (indice == null) {
+                indice = new HashMap<>(porPalabra);
+                categorias = new HashMap<>(palabrasPorCategoria);
+            }
+            Diccionario copia = new Diccionario(e.getPalabra(), e.getCategoria());
+            indice.put(k, copia);
+            List<String> palabras = categorias.get(copia.getCategoria());
+            // La lista de la versión anterior se copia solo la primera vez que cambia.
+            if (palabras == null || palabras == palabrasPorCategoria.get(copia.getCategoria())) {
+                palabras = palabras == null ? new ArrayList<>() : new ArrayList<>(palabras);
+                categorias.put(copia.getCategoria(), palabras);
+            }
+            palabras.add(copia.getPalabra());
+            agregadas.add(copia);
+        }
+        if (indice == null) return this;
+
+        List<Diccionario> lista = new ArrayList<>(entradas.size() + agregadas.size());
+        lista.addAll(entradas);
+        lista.addAll(agregadas);
+        for (Map.Entry<String, List<String>> c : categorias.entrySet()) {
+            if (c.getValue() != palabrasPorCategoria.get(c.getKey())) {
+                c.setValue(Collections.unmodifiableList(c.getValue()));
+            }
+        }
+        return new InstantaneaDiccionario(version + 1, Collections.unmodifiableList(lista),
+                Collections.unmodifiableMap(indice), Collections.unmodifiableMap(categorias));
+    }
+
+    /** @return número de versión (0 para el diccionario vacío) */
+    public long getVersion() {
+        return version;
+    }
+    /** @return entradas en orden de registro (solo lectura) */
+    public List<Diccionario> getEntradas() {
+        return entradas;
+    }
+    /** @return cantidad de entradas */
+    public int getCantidad() {
+        return entradas.size();
+    }
+    /**
+     * @param palabra palabra buscada, sin distinguir mayúsculas
+     * @return true si la palabra está en el diccionario
+     */
+    public boolean contiene(String palabra) {
+        return palabra != null && porPalabra.containsKey(ClaveTexto.clave(palabra));
+    }
+    /**
+     * @param palabra palabra buscada, sin distinguir mayúsculas
+     * @return entrada de la palabra o null si no existe
+     */
+    public Diccionario buscar(String palabra) {
+        return palabra == null ? null : porPalabra.get(ClaveTexto.clave(palabra));
+    }
+    /**
+     * @param categoria categoría buscada
+     * @return palabras de la categoría en orden de registro (vacía si no tiene)
+     */
+    public List<String> getPalabras(String categoria) {
+        return palabrasPorCategoria.getOrDefault(categoria, List.of());
+    }
+    /** @return categorías con al menos una palabra */
+    public Set<String> getCategorias() {
+        return palabrasPorCategoria.keySet();
+    }
+}
@@ -0,0 +1,109 @@
+package ac.cr.cenfotec.pfinal.dl;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Lector de archivos CSV que entrega un registro a la vez.
+ * <p>
+ * Acepta campos entre comillas dobles (que pueden contener comas y saltos
+ * de línea) y comillas escapadas como {@code ""}. Los espacios alrededor de
+ * los campos sin comillas se eliminan. Como lee en flujo, un archivo de
+ * millones de filas no se carga completo en memoria.
+ * </p>
+ */
+
+public class LectorCsv implements Closeable {
+    private final BufferedReader entrada; /** Texto de origen. */
+    private final char separador; /** Carácter que separa los campos. */
+    private int linea = 1; /** Línea en la que está el cursor de lectura. */
+    private int lineaRegistro; /** Línea en la que empezó el último registro leído. */
+
+    /**
+     * @param entrada texto CSV
+     */
+    public LectorCsv(Reader entrada) {
+        this(entrada, ',');
+    }
+
+    /**
+     * @param entrada   texto CSV
+     * @param separador separador de campos
+     */
+    public LectorCsv(Reader entrada, char separador) {
+        this.entrada = entrada instanceof BufferedReader ? (BufferedReader) entrada : new BufferedReader(entrada, 1 << 16);
+        this.separador = separador;
+    }
+
+    /**
+     * Lee el siguiente registro. Las líneas vacías se omiten.
+     *
+     * @return campos del registro o null al final del archivo
+     * @throws IOException si falla la lectura o hay comillas sin cerrar
+     */
+    public String[] siguiente() throws IOException {
+        List<String> campos = new ArrayList<>();
+        StringBuilder campo = new StringBuilder();
+        boolean entreComillas = false;
+        boolean conComillas = false;
+        boolean leido = false;
+        lineaRegistro = linea;
+        int c;
+        while ((c = entrada.read()) >= 0) {
+            if (entreComillas) {
+                if (c == '"') {
+                    entrada.mark(1);
+                    if (entrada.read() == '"') {
+                        campo.append('"');
+                    } else {
+                        entrada.reset();
+                        entreComillas = false;
+                    }
+                } else {
+                    if (c == '\n') linea++;
+                    campo.append((char) c);
+                }
+                continue;
+            }
+            if (c == '\r') continue;
+            if (c == '\n') {
+                linea++;
+                if (!leido && campo.length() == 0 && campos.isEmpty()) {
+                    lineaRegistro = linea;
+                    continue;
+                }
+                break;
+            }
+            leido = true;
+            if (c == '"' && campo.toString().isBlank()) {
+                campo.setLength(0);
+                entreComillas = true;
+                conComillas = true;
+            } else if (c == separador) {
+                campos.add(conComillas ? campo.toString() : campo.toString().trim());
+                campo.setLength(0);
+                conComillas = false;
+            } else {
+                campo.append((char) c);
+            }
+        }
+        if (entreComillas) throw new IOException("Comillas sin cerrar en la línea " + lineaRegistro);
+        if (!leido && campos.isEmpty() && campo.length() == 0) return null;
+        campos.add(conComillas ? campo.toString() : campo.toString().trim());
+        return campos.toArray(new String[0]);
+    }
+
+    /** @return línea del archivo (desde 1) en que empieza el último registro leído */
+    public int getLineaRegistro() {
+        return lineaRegistro;
+    }
+
+    @Override
+    public void close() throws IOException {
+        entrada.close();
+    }
+}
@@ -0,0 +1,868 @@
+package ac.cr.cenfotec.pfinal.dl;
+
+import ac.cr.cenfotec.pfinal.bl.entities.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AccessDeniedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Subsistema de persistencia de la capa de datos.
+ * <p>
+ * Toda mutación de {@link Data} que deba sobrevivir a un reinicio pasa por
+ * esta clase, que la anexa a un {@link RegistroEscritura} antes (o junto)
+ * de aplicarla en memoria. Cada cierta cantidad de mutaciones se toma una
+ * instantánea compacta del estado completo, de modo que la recuperación solo
+ * lee la instantánea más la cola del registro posterior a ella.
+ * </p>
+ * <p>
+ * Creaciones de usuarios, departamentos y tickets se registran antes de
+ * hacerse visibles en {@link Data}; así un ticket nunca aparece en el
+ * registro antes que el usuario o departamento al que hace referencia.
+ * La reproducción es idempotente, porque una mutación concurrente con una
+ * instantánea puede quedar tanto en la instantánea como en el segmento nuevo.
+ * </p>
+ * <p>
+ * Por defecto ({@link Durabilidad#LOTE}) cada mutación vuelve recién cuando
+ * su registro está en disco: espera el fsync del lote que lo contiene, que
+ * comparte con las mutaciones concurrentes. Con {@link Durabilidad#DIFERIDA}
+ * vuelve apenas el registro está en memoria; es más rápido, pero una caída
+ * puede perder las mutaciones de los últimos milisegundos aunque ya se
+ * hayan confirmado.
+ * </p>
+ * <p>
+ * Si una instantánea automática falla, el error se guarda (ver
+ * {@link #getErrorInstantanea()}) y se reintenta con las mutaciones
+ * siguientes, a lo sumo una vez por {@link #ESPERA_REINTENTO_MS}. Si el
+ * registro llega a {@link #MUTACIONES_MAXIMAS_SIN_INSTANTANEA} mutaciones
+ * sin una instantánea correcta, las mutaciones se rechazan: de lo contrario
+ * el registro crecería sin límite y con él el tiempo de recuperación.
+ * </p>
+ * <p>
+ * Los tickets resueltos pueden moverse a un {@link ArchivoTickets} en la
+ * subcarpeta {@code archivo}; el archivo y las instantáneas se excluyen
+ * mutuamente para que un ticket nunca falte en ambos a la vez.
+ * </p>
+ * <p>
+ * Con {@link #enMemoria(Data)} se obtiene una instancia sin disco, que solo
+ * aplica las mutaciones, para usar la aplicación como "base de datos temporal".
+ * </p>
+ */
+
+public class Persistencia {
+    /** Mutaciones registradas entre instantáneas automáticas. */
+    public static final long MUTACIONES_POR_INSTANTANEA = 100_000;
+    /** Mutaciones a partir de las cuales se rechazan cambios si las instantáneas siguen fallando. */
+    public static final long MUTACIONES_MAXIMAS_SIN_INSTANTANEA = 10 * MUTACIONES_POR_INSTANTANEA;
+    /** Espera mínima entre reintentos de una instantánea fallida, en milisegundos. */
+    public static final long ESPERA_REINTENTO_MS = 1_000;
+    /** Nombre del archivo de instantánea dentro de la carpeta de persistencia. */
+    private static final String INSTANTANEA = "instantanea.bin";
+    /** Estado a partir del cual un ticket puede moverse al archivo. */
+    private static final EstadoTicket ESTADO_ARCHIVABLE = EstadoTicket.RESUELTO;
+
+    // Tipos de registro
+    /** Momento en que una mutación se da por confirmada. */
+    public enum Durabilidad {
+        /** Al estar en disco, compartiendo el fsync con las mutaciones concurrentes (group commit). */
+        LOTE,
+        /** Al estar en memoria; el hilo de escritura la baja a disco pocos milisegundos después. */
+        DIFERIDA
+    }
+
+    private static final byte INICIO_INSTANTANEA = 1;
+    private static final byte USUARIO = 2;
+    private static final byte DEPARTAMENTO = 3;
+    private static final byte TICKET = 4;
+    private static final byte PALABRA_TECNICA = 5;
+    private static final byte PALABRA_EMOCIONAL = 6;
+    private static final byte ESTADO_TICKET = 7;
+    private static final byte DESCRIPCION_TICKET = 8;
+    private static final byte CREDENCIAL_USUARIO = 9;
+    private static final byte USUARIO_TICKET = 10;
+
+    private final Data data; /** Datos en memoria a los que se aplican las mutaciones. */
+    private final Path directorio; /** Carpeta de persistencia o null si es solo en memoria. */
+    private final RegistroEscritura registro; /** Registro de escritura o null si es solo en memoria. */
+    private final ArchivoTickets archivo; /** Archivo de tickets cerrados o null si es solo en memoria. */
+    private final Durabilidad durabilidad; /** Cuándo vuelve una mutación. */
+
+    /**
+     * Las mutaciones toman el candado de lectura mientras registran y aplican;
+     * la rotación de segmento toma el de escritura para que ninguna quede a medias.
+     */
+    private final ReentrantReadWriteLock bloqueo = new ReentrantReadWriteLock();
+    private final AtomicLong mutaciones = new AtomicLong(); /** Mutaciones desde la última instantánea. */
+    private final AtomicBoolean instantaneaEnCurso = new AtomicBoolean(); /** Evita instantáneas simultáneas. */
+    private final ExecutorService fondo; /** Hilo que toma las instantáneas automáticas. */
+    private volatile IOException errorInstantanea; /** Error de la última instantánea, o null si fue correcta. */
+    private volatile long ultimoFallo; /** Momento (nanoTime) del último fallo de instantánea. */
+
+    private Persistencia(Data data, Path directorio, RegistroEscritura registro, ArchivoTickets archivo,
+                         Durabilidad durabilidad) {
+        this.data = data;
+        this.directorio = directorio;
+        this.registro = registro;
+        this.archivo = archivo;
+        this.durabilidad = durabilidad;
+        this.fondo = registro == null ? null : Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "instantaneas");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * Crea una instancia que solo aplica las mutaciones en memoria.
+     *
+     * @param data datos en memoria
+     * @return persistencia sin disco
+     */
+    public static Persistencia enMemoria(Data data) {
+        return new Persistencia(data, null, null, null, Durabilidad.DIFERIDA);
+    }
+
+    /**
+     * Abre la carpeta de persistencia con {@link Durabilidad#LOTE}.
+     *
+     * @param directorio carpeta de persistencia (se crea si no existe)
+     * @param data       datos en memoria, normalmente vacíos
+     * @return persistencia abierta
+     * @throws IOException si falla la lectura o la creación de archivos
+     */
+    public static Persistencia abrir(Path directorio, Data data) throws IOException {
+        return abrir(directorio, data, Durabilidad.LOTE);
+    }
+
+    /**
+     * Abre la carpeta de persistencia, recupera la instantánea y la cola del
+     * registro en {@code data}, y deja listo un segmento nuevo para escribir.
+     *
+     * @param directorio  carpeta de persistencia (se crea si no existe)
+     * @param data        datos en memoria, normalmente vacíos
+     * @param durabilidad cuándo se confirma cada mutación
+     * @return persistencia abierta
+     * @throws IOException si falla la lectura o la creación de archivos
+     */
+    public static Persistencia abrir(Path directorio, Data data, Durabilidad durabilidad) throws IOException {
+        Files.createDirectories(directorio);
+        // El archivo se abre primero para que la reproducción no vuelva a agregar tickets archivados.
+        ArchivoTickets archivo = ArchivoTickets.abrir(directorio.resolve("archivo"));
+        data.setArchivo(archivo);
+        Recuperacion r = new Recuperacion(data);
+
+        Path instantanea = directorio.resolve(INSTANTANEA);
+        if (Files.exists(instantanea)) {
+            RegistroEscritura.leer(instantanea, r::aplicar);
+        }
+        int ultimo = r.segmentoInicial - 1;
+        for (int segmento : segmentos(directorio)) {
+            if (segmento < r.segmentoInicial) continue;
+            RegistroEscritura.leer(RegistroEscritura.rutaSegmento(directorio, segmento), r::aplicar);
+            ultimo = segmento;
+        }
+        r.terminar();
+        Ticket.setContador(Math.max(Ticket.getContador(), Math.max(r.contador, r.idMaximo + 1)));
+
+        // Se empieza siempre un segmento nuevo, sin anexar a uno que pudo quedar truncado.
+        return new Persistencia(data, directorio,
+                new RegistroEscritura(directorio, Math.max(ultimo + 1, 1)), archivo, durabilidad);
+    }
+
+    /**
+     * Registra y agrega un usuario.
+     *
+     * @param u usuario nuevo
+     */
+    public void agregarUsuario(Usuario u) {
+        mutar(() -> registrar(codificarUsuario(u)), () -> data.agregarUsuario(u));
+    }
+
+    /**
+     * Registra y agrega un lote de usuarios en una sola mutación: el lote
+     * entra completo al registro y a memoria bajo un mismo paso del candado.
+     *
+     * @param lote usuarios nuevos
+     */
+    public void agregarUsuarios(List<Usuario> lote) {
+        mutar(() -> {
+            for (Usuario u : lote) registrar(codificarUsuario(u));
+        }, () -> data.agregarUsuarios(lote), lote.size());
+    }
+
+    /**
+     * Reemplaza el hash de la contraseña de un usuario (por ejemplo, al
+     * recalcularlo con un costo mayor) y registra el cambio.
+     *
+     * @param u         usuario a modificar
+     * @param hash      bytes del hash nuevo
+     * @param sal       bytes de la sal nueva
+     * @param algoritmo nombre del algoritmo
+     * @param costo     costo del algoritmo
+     */
+    public void cambiarCredencial(Usuario u, byte[] hash, byte[] sal, String algoritmo, int costo) {
+        synchronized (u) {
+            mutar(() -> u.actualizarCredencial(hash, sal, algoritmo, costo),
+                    () -> registrar(codificar(CREDENCIAL_USUARIO, u.getCorreo(), u.getContrasenaHash(),
+                            u.getSal(), u.getAlgoritmoHash(), Integer.toString(u.getCostoHash()))));
+        }
+    }
+
+    /**
+     * Registra y agrega un departamento.
+     *
+     * @param d departamento nuevo
+     */
+    public void agregarDepartamento(Departamento d) {
+        mutar(() -> registrar(codificar(DEPARTAMENTO, d.getNombre(), d.getDescripcion(), d.getContacto())),
+                () -> data.agregarDepartamento(d));
+    }
+
+    /**
+     * Registra y agrega un ticket.
+     *
+     * @param t ticket nuevo
+     */
+    public void agregarTicket(Ticket t) {
+        mutar(() -> registrar(codificarTicket(t)), () -> data.agregarTicket(t));
+    }
+
+    /**
+     * Registra y agrega un lote de tickets en una sola mutación.
+     *
+     * @param lote tickets nuevos
+     */
+    public void agregarTickets(List<Ticket> lote) {
+        mutar(() -> {
+            for (Ticket t : lote) registrar(codificarTicket(t));
+        }, () -> {
+            for (Ticket t : lote) data.agregarTicket(t);
+        }, lote.size());
+    }
+
+    /**
+     * Agrega una palabra al diccionario técnico y la registra si era nueva.
+     *
+     * @param e entrada del diccionario
+     * @return true si la palabra no existía
+     */
+    public boolean agregarPalabraTecnica(Diccionario e) {
+        return !agregarPalabras(PALABRA_TECNICA, List.of(e)).isEmpty();
+    }
+
+    /**
+     * Agrega un lote de palabras al diccionario técnico publicando una sola
+     * versión nueva, y registra las que eran nuevas.
+     *
+     * @param lote entradas del diccionario
+     * @return entradas agregadas, en orden
+     */
+    public List<Diccionario> agregarPalabrasTecnicas(Collection<Diccionario> lote) {
+        return agregarPalabras(PALABRA_TECNICA, lote);
+    }
+
+    /**
+     * Agrega una palabra al diccionario emocional y la registra si era nueva.
+     *
+     * @param e entrada del diccionario
+     * @return true si la palabra no existía
+     */
+    public boolean agregarPalabraEmocional(Diccionario e) {
+        return !agregarPalabras(PALABRA_EMOCIONAL, List.of(e)).isEmpty();
+    }
+
+    /**
+     * Agrega un lote de palabras al diccionario emocional publicando una sola
+     * versión nueva, y registra las que eran nuevas.
+     *
+     * @param lote entradas del diccionario
+     * @return entradas agregadas, en orden
+     */
+    public List<Diccionario> agregarPalabrasEmocionales(Collection<Diccionario> lote) {
+        return agregarPalabras(PALABRA_EMOCIONAL, lote);
+    }
+
+    /**
+     * Cambia el estado de un ticket y registra el cambio. Se sincroniza sobre
+     * el ticket para que el orden del registro coincida con el de memoria.
+     *
+     * @param t      ticket a modificar
+     * @param estado nuevo estado
+     * @throws IllegalStateException si el ticket ya fue archivado
+     */
+    public void cambiarEstado(Ticket t, String estado) {
+        synchronized (t) {
+            if (data.estaArchivado(t.getId())) {
+                throw new IllegalStateException("El ticket " + t.getId() + " está archivado y no se puede modificar");
+            }
+            EstadoTicket e = EstadoTicket.desdeTexto(estado);
+            if (e == null) throw new RuntimeException("Estado de ticket desconocido: " + estado);
+            mutar(() -> data.cambiarEstadoTicket(t, e),
+                    () -> registrar(codificarCampoTicket(ESTADO_TICKET, t.getId(), estado)));
+        }
+    }
+
+    /**
+     * Pasa un ticket a otro usuario y registra el cambio.
+     *
+     * @param t       ticket a modificar
+     * @param usuario nuevo usuario del ticket
+     * @throws IllegalStateException si el ticket ya fue archivado
+     */
+    public void reasignarTicket(Ticket t, Usuario usuario) {
+        synchronized (t) {
+            if (data.estaArchivado(t.getId())) {
+                throw new IllegalStateException("El ticket " + t.getId() + " está archivado y no se puede modificar");
+            }
+            mutar(() -> data.reasignarTicket(t, usuario),
+                    () -> registrar(codificarCampoTicket(USUARIO_TICKET, t.getId(), usuario.getCorreo())));
+        }
+    }
+
+    /**
+     * Cambia la descripción de un ticket y registra el cambio.
+     *
+     * @param t           ticket a modificar
+     * @param descripcion nueva descripción
+     * @param aplicar     asigna la descripción en memoria (ver {@link Ticket.Observador})
+     * @throws IllegalStateException si el ticket ya fue archivado
+     */
+    public void cambiarDescripcion(Ticket t, String descripcion, Runnable aplicar) {
+        synchronized (t) {
+            if (data.estaArchivado(t.getId())) {
+                throw new IllegalStateException("El ticket " + t.getId() + " está archivado y no se puede modificar");
+            }
+            mutar(aplicar,
+                    () -> registrar(codificarCampoTicket(DESCRIPCION_TICKET, t.getId(), descripcion)));
+        }
+    }
+
+    /**
+     * Mueve los tickets en estado "Resuelto" al archivo en disco y los quita
+     * de la memoria. El archivo se sincroniza antes de terminar.
+     *
+     * @return cantidad de tickets archivados
+     * @throws IOException si falla la escritura del archivo
+     */
+    public int archivarResueltos() throws IOException {
+        return archivarResueltos(t -> { });
+    }
+
+    /**
+     * Igual que {@link #archivarResueltos()}, avisando cada ticket archivado
+     * mientras se mantiene su candado.
+     *
+     * @param alArchivar recibe cada ticket quitado de la memoria
+     * @return cantidad de tickets archivados
+     * @throws IOException si falla la escritura del archivo
+     */
+    public synchronized int archivarResueltos(Consumer<Ticket> alArchivar) throws IOException {
+        if (archivo == null) return 0;
+        int archivados = 0;
+        for (Ticket t : data.getTickets()) {
+            synchronized (t) {
+                if (t.getEstadoTicket() != ESTADO_ARCHIVABLE) continue;
+                archivo.archivar(t);
+                data.eliminarTicket(t);
+                alArchivar.accept(t);
+                archivados++;
+            }
+        }
+        archivo.sincronizar();
+        return archivados;
+    }
+
+    /**
+     * Espera a que todas las mutaciones registradas hasta ahora estén en disco.
+     *
+     * @throws UncheckedIOException si falla la escritura o se interrumpe la espera
+     */
+    public void sincronizar() {
+        if (registro != null) registro.sincronizar();
+    }
+
+    /** @return cuándo se confirma cada mutación */
+    public Durabilidad getDurabilidad() {
+        return durabilidad;
+    }
+
+    /** @return error de la última instantánea automática, o null si fue correcta */
+    public IOException getErrorInstantanea() {
+        return errorInstantanea;
+    }
+
+    /**
+     * Toma una instantánea del estado completo y borra los segmentos que cubre.
+     * <p>
+     * Las colecciones de {@link Data} se copian bajo el candado de escritura,
+     * junto con la rotación: la instantánea refleja exactamente lo anterior al
+     * segmento nuevo, y un ticket no puede quedar en ella sin el usuario o el
+     * departamento que lo preceden en el registro. Las copias son de
+     * referencias; la codificación y la escritura ocurren ya sin el candado.
+     * </p>
+     *
+     * @throws IOException si falla la escritura de la instantánea
+     */
+    public synchronized void tomarInstantanea() throws IOException {
+        if (registro == null) return;
+        int segmentoNuevo;
+        long cubiertas;
+        Copia copia;
+        bloqueo.writeLock().lock();
+        try {
+            segmentoNuevo = registro.rotar();
+            cubiertas = mutaciones.getAndSet(0);
+            copia = new Copia(data);
+        } finally {
+            bloqueo.writeLock().unlock();
+        }
+        try {
+            escribirInstantanea(segmentoNuevo, copia);
+        } catch (IOException | RuntimeException e) {
+            // Los segmentos anteriores no se borraron: se siguen contando hasta la próxima instantánea correcta.
+            mutaciones.addAndGet(cubiertas);
+            throw e;
+        }
+    }
+
+    private void escribirInstantanea(int segmentoNuevo, Copia copia) throws IOException {
+        Path temporal = directorio.resolve(INSTANTANEA + ".tmp");
+        try (EscritorInstantanea out = new EscritorInstantanea(temporal)) {
+            out.escribir(codificarInicio(segmentoNuevo, copia.contador));
+            for (Usuario u : copia.usuarios) {
+                out.escribir(codificarUsuario(u));
+            }
+            for (Departamento d : copia.departamentos) {
+                out.escribir(codificar(DEPARTAMENTO, d.getNombre(), d.getDescripcion(), d.getContacto()));
+            }
+            for (Diccionario e : copia.palabrasTecnicas) {
+                out.escribir(codificar(PALABRA_TECNICA, e.getPalabra(), e.getCategoria()));
+            }
+            for (Diccionario e : copia.palabrasEmocionales) {
+                out.escribir(codificar(PALABRA_EMOCIONAL, e.getPalabra(), e.getCategoria()));
+            }
+            for (Ticket t : copia.tickets) {
+                out.escribir(codificarTicket(t));
+            }
+        }
+        Files.move(temporal, directorio.resolve(INSTANTANEA),
+                StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        // El renombre debe estar en disco antes de borrar los segmentos que la instantánea reemplaza.
+        sincronizarCarpeta(directorio);
+        for (int segmento : segmentos(directorio)) {
+            if (segmento < segmentoNuevo) Files.deleteIfExists(RegistroEscritura.rutaSegmento(directorio, segmento));
+        }
+    }
+
+    /**
+     * Baja a disco lo pendiente y libera los archivos.
+     *
+     * @throws IOException si falla el cierre
+     */
+    public void cerrar() throws IOException {
+        if (registro == null) return;
+        fondo.shutdown();
+        try {
+            fondo.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        registro.cerrar();
+        archivo.cerrar();
+    }
+
+    private List<Diccionario> agregarPalabras(byte tipo, Collection<Diccionario> lote) {
+        List<Diccionario> agregadas = new ArrayList<>();
+        mutar(() -> agregadas.addAll(tipo == PALABRA_TECNICA
+                        ? data.agregarPalabrasTecnicas(lote) : data.agregarPalabrasEmocionales(lote)),
+                () -> {
+                    for (Diccionario e : agregadas) registrar(codificar(tipo, e.getPalabra(), e.getCategoria()));
+                }, lote.size());
+        return agregadas;
+    }
+
+    /**
+     * Ejecuta dos pasos de una mutación bajo el candado de lectura y programa
+     * una instantánea automática si corresponde.
+     */
+    private void mutar(Runnable primero, Runnable segundo) {
+        mutar(primero, segundo, 1);
+    }
+
+    /**
+     * Igual que {@link #mutar(Runnable, Runnable)}, pero cuenta {@code cantidad}
+     * mutaciones para programar la instantánea. Con {@link Durabilidad#LOTE}
+     * vuelve cuando los registros de la mutación están en disco.
+     *
+     * @throws UncheckedIOException si falla el registro, o si las instantáneas
+     *                              fallan desde hace demasiadas mutaciones
+     */
+    private void mutar(Runnable primero, Runnable segundo, int cantidad) {
+        if (registro == null) {
+            primero.run();
+            segundo.run();
+            return;
+        }
+        IOException fallo = errorInstantanea;
+        if (fallo != null && mutaciones.get() >= MUTACIONES_MAXIMAS_SIN_INSTANTANEA) {
+            programarInstantanea();
+            throw new UncheckedIOException("No se aceptan cambios: las instantáneas fallan desde hace "
+                    + mutaciones.get() + " mutaciones", fallo);
+        }
+        long secuencia;
+        bloqueo.readLock().lock();
+        try {
+            primero.run();
+            segundo.run();
+            secuencia = registro.getAnexados();
+        } finally {
+            bloqueo.readLock().unlock();
+        }
+        if (mutaciones.addAndGet(cantidad) >= MUTACIONES_POR_INSTANTANEA) programarInstantanea();
+        if (durabilidad == Durabilidad.LOTE) registro.esperar(secuencia);
+    }
+
+    /**
+     * Programa una instantánea en el hilo de fondo, salvo que ya haya una en
+     * curso o la última haya fallado hace menos de {@link #ESPERA_REINTENTO_MS}.
+     * El error de una instantánea fallida queda en {@link #errorInstantanea}.
+     */
+    private void programarInstantanea() {
+        if (errorInstantanea != null
+                && System.nanoTime() - ultimoFallo < TimeUnit.MILLISECONDS.toNanos(ESPERA_REINTENTO_MS)) return;
+        if (!instantaneaEnCurso.compareAndSet(false, true)) return;
+        try {
+            fondo.execute(() -> {
+                try {
+                    tomarInstantanea();
+                    errorInstantanea = null;
+                } catch (IOException | RuntimeException ex) {
+                    ultimoFallo = System.nanoTime();
+                    errorInstantanea = ex instanceof IOException ? (IOException) ex
+                            : new IOException("Error al tomar la instantánea", ex);
+                } finally {
+                    instantaneaEnCurso.set(false);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // La persistencia se está cerrando.
+            instantaneaEnCurso.set(false);
+        }
+    }
+
+    /**
+     * Baja a disco las entradas de una carpeta (por ejemplo, un renombre). En
+     * sistemas que no permiten abrir carpetas como archivos no hace nada.
+     */
+    private static void sincronizarCarpeta(Path carpeta) throws IOException {
+        try (FileChannel ch = FileChannel.open(carpeta, StandardOpenOption.READ)) {
+            ch.force(true);
+        } catch (AccessDeniedException e) {
+            // Windows no permite abrir una carpeta; allí el renombre ya es durable.
+        }
+    }
+
+    private void registrar(byte[] contenido) {
+        if (registro != null) registro.anexar(contenido);
+    }
+
+    private static List<Integer> segmentos(Path directorio) throws IOException {
+        List<Integer> numeros = new ArrayList<>();
+        try (Stream<Path> archivos = Files.list(directorio)) {
+            archivos.map(p -> p.getFileName().toString())
+                    .filter(n -> n.matches("wal-\\d+\\.log"))
+                    .forEach(n -> numeros.add(Integer.parseInt(n.substring(4, n.length() - 4))));
+        }
+        numeros.sort(null);
+        return numeros;
+    }
+
+    //codificacion de registros
+    private static byte[] codificar(byte tipo, String... campos) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeByte(tipo);
+            for (String c : campos) escribirTexto(out, c);
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /** Los últimos campos (algoritmo, costo y especialidad) no existen en registros antiguos. */
+    private static byte[] codificarUsuario(Usuario u) {
+        return codificar(USUARIO, u.getNombre(), u.getCorreo(), u.getContrasenaHash(), u.getSal(),
+                u.getTelefono(), u.getRol(), u.getAlgoritmoHash(), Integer.toString(u.getCostoHash()),
+                u instanceof Funcionario ? ((Funcionario) u).getEspecialidad() : null);
+    }
+
+    private static byte[] codificarTicket(Ticket t) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeByte(TICKET);
+            out.writeInt(t.getId());
+            escribirTexto(out, t.getAsunto());
+            escribirTexto(out, t.getDescripcion());
+            escribirTexto(out, t.getEstado());
+            escribirTexto(out, t.getUsuario() == null ? null : t.getUsuario().getCorreo());
+            escribirTexto(out, t.getDepartamento() == null ? null : t.getDepartamento().getNombre());
+            out.writeLong(t.getFechaCreacion());
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static byte[] codificarCampoTicket(byte tipo, int id, String valor) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(32);
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeByte(tipo);
+            out.writeInt(id);
+            escribirTexto(out, valor);
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static byte[] codificarInicio(int segmento, int contador) {
+        return ByteBuffer.allocate(9).put(INICIO_INSTANTANEA).putInt(segmento).putInt(contador).array();
+    }
+
+    private static void escribirTexto(DataOutputStream out, String texto) throws IOException {
+        if (texto == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] b = texto.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(b.length);
+        out.write(b);
+    }
+
+    private static String leerTexto(ByteBuffer in) {
+        int largo = in.getInt();
+        if (largo < 0) return null;
+        String texto = new String(in.array(), in.arrayOffset() + in.position(), largo, StandardCharsets.UTF_8);
+        in.position(in.position() + largo);
+        return texto;
+    }
+
+    private static byte[] decodificar(String base64) {
+        return base64 == null ? null : Base64.getDecoder().decode(base64);
+    }
+
+    /**
+     * Aplica los registros leídos durante la recuperación, ignorando los que
+     * ya estén reflejados en los datos.
+     */
+    private static final class Recuperacion {
+        private final Data data;
+        private int segmentoInicial = 1;
+        private int contador = 1;
+        private int idMaximo = 0;
+        // Las palabras se publican juntas al final, en una sola versión por diccionario.
+        private final List<Diccionario> palabrasTecnicas = new ArrayList<>();
+        private final List<Diccionario> palabrasEmocionales = new ArrayList<>();
+
+        Recuperacion(Data data) {
+            this.data = data;
+        }
+
+        void terminar() {
+            data.agregarPalabrasTecnicas(palabrasTecnicas);
+            data.agregarPalabrasEmocionales(palabrasEmocionales);
+        }
+
+        void aplicar(ByteBuffer in) {
+            byte tipo = in.get();
+            switch (tipo) {
+                case INICIO_INSTANTANEA:
+                    segmentoInicial = in.getInt();
+                    contador = in.getInt();
+                    break;
+                case USUARIO: {
+                    String nombre = leerTexto(in);
+                    String correo = leerTexto(in);
+                    byte[] hash = decodificar(leerTexto(in));
+                    byte[] sal = decodificar(leerTexto(in));
+                    String telefono = leerTexto(in);
+                    String rol = leerTexto(in);
+                    String algoritmo = in.hasRemaining() ? leerTexto(in) : Hash.SHA256_SIMPLE;
+                    int costo = in.hasRemaining() ? Integer.parseInt(leerTexto(in)) : 1;
+                    String especialidad = in.hasRemaining() ? leerTexto(in) : null;
+                    Usuario u = especialidad == null
+                            ? new Usuario(nombre, correo, hash, sal, algoritmo, costo, telefono, rol)
+                            : new Funcionario(nombre, correo, hash, sal, algoritmo, costo, telefono, especialidad);
+                    Usuario existente = data.buscarUsuarioPorCorreo(u.getCorreo());
+                    // La sal es aleatoria: si coincide, es el mismo registro ya aplicado.
+                    if (existente == null || !Objects.equals(existente.getSal(), u.getSal())) {
+                        data.agregarUsuario(u);
+                    }
+                    break;
+                }
+                case DEPARTAMENTO: {
+                    Departamento d = new Departamento(leerTexto(in), leerTexto(in), leerTexto(in));
+                    if (data.buscarDepartamentoPorNombre(d.getNombre()) == null) {
+                        data.agregarDepartamento(d);
+                    }
+                    break;
+                }
+                case TICKET: {
+                    int id = in.getInt();
+                    String asunto = leerTexto(in);
+                    String descripcion = leerTexto(in);
+                    String estado = leerTexto(in);
+                    Usuario u = data.buscarUsuarioPorCorreo(leerTexto(in));
+                    Departamento d = data.buscarDepartamentoPorNombre(leerTexto(in));
+                    // Los registros anteriores a la fecha de creación terminan aquí.
+                    long fecha = in.remaining() >= 8 ? in.getLong() : 0;
+                    // Un texto de estado libre se conserva tal cual, igual que en Ticket.setEstado.
+                    if (!data.estaArchivado(id)) {
+                        Ticket existente = data.buscarTicketPorId(id);
+                        if (existente == null) {
+                            data.agregarTicket(new Ticket(id, asunto, descripcion, estado, u, d, fecha));
+                        } else {
+                            // Una instantánea de una versión anterior pudo guardarlo sin usuario o departamento.
+                            if (existente.getUsuario() == null && u != null) data.reasignarTicket(existente, u);
+                            if (existente.getDepartamento() == null && d != null) existente.setDepartamento(d);
+                        }
+                    }
+                    idMaximo = Math.max(idMaximo, id);
+                    break;
+                }
+                case PALABRA_TECNICA:
+                    palabrasTecnicas.add(new Diccionario(leerTexto(in), leerTexto(in)));
+                    break;
+                case PALABRA_EMOCIONAL:
+                    palabrasEmocionales.add(new Diccionario(leerTexto(in), leerTexto(in)));
+                    break;
+                case ESTADO_TICKET: {
+                    int id = in.getInt();
+                    EstadoTicket estado = EstadoTicket.desdeTexto(leerTexto(in));
+                    if (estado != null && !data.estaArchivado(id)) {
+                        Ticket t = data.buscarTicketPorId(id);
+                        if (t != null) data.cambiarEstadoTicket(t, estado);
+                    }
+                    break;
+                }
+                case DESCRIPCION_TICKET: {
+                    int id = in.getInt();
+                    String descripcion = leerTexto(in);
+                    if (!data.estaArchivado(id)) {
+                        // Durante la recuperación los tickets todavía no tienen observador.
+                        Ticket t = data.buscarTicketPorId(id);
+                        if (t != null) t.setDescripcion(descripcion);
+                    }
+                    break;
+                }
+                case USUARIO_TICKET: {
+                    int id = in.getInt();
+                    Usuario u = data.buscarUsuarioPorCorreo(leerTexto(in));
+                    if (u != null && !data.estaArchivado(id)) {
+                        Ticket t = data.buscarTicketPorId(id);
+                        if (t != null) data.reasignarTicket(t, u);
+                    }
+                    break;
+                }
+                case CREDENCIAL_USUARIO: {
+                    Usuario u = data.buscarUsuarioPorCorreo(leerTexto(in));
+                    byte[] hash = decodificar(leerTexto(in));
+                    byte[] sal = decodificar(leerTexto(in));
+                    String algoritmo = leerTexto(in);
+                    int costo = Integer.parseInt(leerTexto(in));
+                    if (u != null) u.actualizarCredencial(hash, sal, algoritmo, costo);
+                    break;
+                }
+                default:
+                    throw new IllegalStateException("Tipo de registro desconocido: " + tipo);
+            }
+        }
+    }
+
+    /** Colecciones de {@link Data} copiadas para escribir una instantánea. */
+    private static final class Copia {
+        private final int contador;
+        private final List<Usuario> usuarios;
+        private final List<Departamento> departamentos;
+        private final List<Diccionario> palabrasTecnicas;
+        private final List<Diccionario> palabrasEmocionales;
+        private final List<Ticket> tickets;
+
+        Copia(Data data) {
+            contador = Ticket.getContador();
+            usuarios = data.getUsuarios();
+            departamentos = data.getDepartamentos();
+            palabrasTecnicas = data.getDiccionarioTecnico();
+            palabrasEmocionales = data.getDiccionarioEmocional();
+            tickets = data.getTickets();
+        }
+    }
+
+    /**
+     * Escribe una instantánea con el mismo formato de marco que el registro,
+     * de modo que se lee con {@link RegistroEscritura#leer}.
+     */
+    private static final class EscritorInstantanea implements AutoCloseable {
+        private final FileChannel canal;
+        private final ByteBuffer buffer = ByteBuffer.allocate(1 << 20);
+        private final CRC32 crc = new CRC32();
+
+        EscritorInstantanea(Path archivo) throws IOException {
+            canal = FileChannel.open(archivo, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+        }
+
+        void escribir(byte[] contenido) throws IOException {
+            if (buffer.remaining() < 8 + contenido.length) vaciar();
+            crc.reset();
+            crc.update(contenido);
+            if (buffer.remaining() < 8 + contenido.length) {
+                ByteBuffer grande = ByteBuffer.allocate(8 + contenido.length);
+                grande.putInt(contenido.length).putInt((int) crc.getValue()).put(contenido).flip();
+                while (grande.hasRemaining()) canal.write(grande);
+                return;
+            }
+            buffer.putInt(contenido.length).putInt((int) crc.getValue()).put(contenido);
+        }
+
+        private void vaciar() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) canal.write(buffer);
+            buffer.clear();
+        }
+
+        @Override
+        public void close() throws IOException {
+            vaciar();
+            canal.force(true);
+            canal.close();
+        }
+    }
+}
@@ -0,0 +1,292 @@
+package ac.cr.cenfotec.pfinal.dl;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/**
+ * Registro de escritura anticipada (write-ahead log) de solo anexado.
+ * <p>
+ * Cada registro se guarda como {@code [largo][crc32][contenido]}. Las
+ * escrituras se agrupan en memoria y un hilo de fondo las baja a disco con
+ * un solo {@code write} + {@code force} por lote (group commit), de modo
+ * que miles de mutaciones por segundo cuestan pocos fsync.
+ * </p>
+ * <p>
+ * {@link #anexar(byte[])} devuelve el número de secuencia del registro;
+ * quien necesite confirmar que llegó al disco llama a
+ * {@link #esperar(long)} con ese número. Mientras el hilo de escritura hace
+ * un fsync, los registros que llegan se juntan en el lote siguiente, así
+ * que los llamadores concurrentes comparten el mismo fsync.
+ * </p>
+ * <p>
+ * El registro se divide en segmentos ({@code wal-NNNNNN.log}); al tomar una
+ * instantánea se pasa a un segmento nuevo y los anteriores pueden borrarse.
+ * </p>
+ */
+
+public class RegistroEscritura {
+    /** Milisegundos máximos que un registro espera antes de bajarse a disco. */
+    private static final long INTERVALO_MS = 5;
+    /** Tamaño del lote a partir del cual se despierta al hilo de escritura sin esperar. */
+    private static final int LOTE_MAXIMO = 256 * 1024;
+
+    private final Path directorio; /** Carpeta donde viven los segmentos. */
+    private FileChannel canal; /** Segmento abierto actualmente. */
+    private int segmento; /** Número del segmento abierto. */
+
+    private ByteBuffer pendiente = ByteBuffer.allocate(LOTE_MAXIMO); /** Registros aún no escritos. */
+    private long anexados; /** Cantidad de registros anexados. */
+    private long durables; /** Cantidad de registros ya sincronizados con el disco. */
+    private boolean abierto = true; /** Indica si se siguen aceptando registros. */
+    private boolean escribiendo; /** Indica si el hilo de escritura tiene un lote tomado que aún no termina. */
+    private IOException error; /** Último error de escritura, informado a los llamadores. */
+
+    private final Thread escritor; /** Hilo de fondo que hace el group commit. */
+
+    /**
+     * Abre (o crea) el segmento indicado y arranca el hilo de escritura.
+     *
+     * @param directorio carpeta de persistencia
+     * @param segmento   número del segmento donde se anexarán los registros
+     * @throws IOException si no se puede abrir el archivo
+     */
+    public RegistroEscritura(Path directorio, int segmento) throws IOException {
+        this.directorio = directorio;
+        this.segmento = segmento;
+        this.canal = abrirSegmento(segmento);
+        this.escritor = new Thread(this::escribirLotes, "registro-escritura");
+        this.escritor.setDaemon(true);
+        this.escritor.start();
+    }
+
+    /**
+     * Anexa un registro. No espera a que llegue al disco; para eso se usa
+     * {@link #esperar(long)} con el número devuelto.
+     *
+     * @param contenido bytes del registro
+     * @return número de secuencia del registro
+     */
+    public synchronized long anexar(byte[] contenido) {
+        if (!abierto) throw new IllegalStateException("El registro de escritura está cerrado");
+        if (error != null) throw new UncheckedIOException("Error al escribir el registro", error);
+        int requerido = 8 + contenido.length;
+        if (pendiente.remaining() < requerido) {
+            ByteBuffer mayor = ByteBuffer.allocate(Math.max(pendiente.capacity() * 2, pendiente.position() + requerido));
+            pendiente.flip();
+            mayor.put(pendiente);
+            pendiente = mayor;
+        }
+        CRC32 crc = new CRC32();
+        crc.update(contenido);
+        pendiente.putInt(contenido.length).putInt((int) crc.getValue()).put(contenido);
+        anexados++;
+        if (pendiente.position() >= LOTE_MAXIMO) notifyAll();
+        return anexados;
+    }
+
+    /**
+     * Espera hasta que el registro con el número de secuencia indicado (y
+     * todos los anteriores) esté en disco.
+     *
+     * @param secuencia número devuelto por {@link #anexar(byte[])}
+     * @throws UncheckedIOException si falla la escritura o se interrumpe la espera
+     */
+    public synchronized void esperar(long secuencia) {
+        if (durables >= secuencia) return;
+        notifyAll();
+        while (durables < secuencia && error == null) {
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new UncheckedIOException(new InterruptedIOException(
+                        "Interrumpido antes de que el registro llegara al disco"));
+            }
+        }
+        if (error != null) throw new UncheckedIOException("Error al escribir el registro", error);
+    }
+
+    /** @return número de secuencia del último registro anexado */
+    public synchronized long getAnexados() {
+        return anexados;
+    }
+
+    /**
+     * Espera hasta que todos los registros anexados antes de la llamada estén en disco.
+     *
+     * @throws UncheckedIOException si falla la escritura o se interrumpe la espera
+     */
+    public synchronized void sincronizar() {
+        esperar(anexados);
+    }
+
+    /**
+     * Baja a disco lo pendiente y continúa en un segmento nuevo. Antes de
+     * cerrar el segmento espera a que el hilo de escritura suelte su lote,
+     * porque pudo tomar otro mientras se esperaba el anterior.
+     *
+     * @return número del segmento nuevo
+     * @throws IOException si no se puede crear el segmento
+     * @throws UncheckedIOException si falla la escritura o se interrumpe la espera
+     */
+    public synchronized int rotar() throws IOException {
+        while ((escribiendo || durables < anexados) && error == null) {
+            notifyAll();
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new UncheckedIOException(new InterruptedIOException(
+                        "Interrumpido antes de que el registro llegara al disco"));
+            }
+        }
+        if (error != null) throw new UncheckedIOException("Error al escribir el registro", error);
+        canal.close();
+        segmento++;
+        canal = abrirSegmento(segmento);
+        return segmento;
+    }
+
+    /**
+     * Baja a disco lo pendiente, detiene el hilo de escritura y cierra el segmento.
+     *
+     * @throws IOException si falla el cierre del archivo
+     */
+    public void cerrar() throws IOException {
+        synchronized (this) {
+            if (!abierto) return;
+            sincronizar();
+            abierto = false;
+            notifyAll();
+        }
+        try {
+            escritor.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        canal.close();
+    }
+
+    /** @return número del segmento abierto */
+    public synchronized int getSegmento() {
+        return segmento;
+    }
+
+    /**
+     * Ruta del archivo de un segmento.
+     *
+     * @param directorio carpeta de persistencia
+     * @param segmento   número del segmento
+     * @return ruta del segmento
+     */
+    public static Path rutaSegmento(Path directorio, int segmento) {
+        return directorio.resolve(String.format("wal-%06d.log", segmento));
+    }
+
+    /**
+     * Lee los registros válidos de un archivo. La lectura se detiene en el
+     * primer registro incompleto o con CRC inválido (escritura interrumpida)
+     * y el archivo se trunca en ese punto.
+     *
+     * @param archivo  archivo a leer
+     * @param receptor recibe el contenido de cada registro
+     * @return cantidad de registros leídos
+     * @throws IOException si falla la lectura
+     */
+    public static long leer(Path archivo, Consumer<ByteBuffer> receptor) throws IOException {
+        long leidos = 0;
+        try (FileChannel ch = FileChannel.open(archivo, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer datos = ByteBuffer.allocate((int) ch.size());
+            while (datos.hasRemaining() && ch.read(datos) >= 0) {
+                // se lee el archivo completo
+            }
+            datos.flip();
+            CRC32 crc = new CRC32();
+            while (datos.remaining() >= 8) {
+                int inicio = datos.position();
+                int largo = datos.getInt();
+                int esperado = datos.getInt();
+                if (largo < 0 || largo > datos.remaining()) {
+                    datos.position(inicio);
+                    break;
+                }
+                ByteBuffer contenido = datos.slice(datos.position(), largo);
+                crc.reset();
+                crc.update(contenido.duplicate());
+                if ((int) crc.getValue() != esperado) {
+                    datos.position(inicio);
+                    break;
+                }
+                datos.position(datos.position() + largo);
+                receptor.accept(contenido);
+                leidos++;
+            }
+            if (datos.position() < ch.size()) {
+                ch.truncate(datos.position());
+            }
+        }
+        return leidos;
+    }
+
+    /**
+     * Ciclo del hilo de escritura: cada pocos milisegundos (o cuando el lote
+     * se llena) toma los registros pendientes y los escribe con un solo fsync.
+     */
+    private void escribirLotes() {
+        ByteBuffer lote = ByteBuffer.allocate(LOTE_MAXIMO);
+        while (true) {
+            long hasta;
+            FileChannel destino;
+            synchronized (this) {
+                while (abierto && pendiente.position() == 0) {
+                    try {
+                        wait(INTERVALO_MS);
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                if (pendiente.position() == 0) return;
+                // Se intercambian los buffers para que los escritores sigan anexando mientras se hace el fsync.
+                ByteBuffer lleno = pendiente;
+                pendiente = lote;
+                pendiente.clear();
+                lote = lleno;
+                hasta = anexados;
+                destino = canal;
+                escribiendo = true;
+            }
+            lote.flip();
+            try {
+                while (lote.hasRemaining()) destino.write(lote);
+                destino.force(false);
+            } catch (IOException e) {
+                synchronized (this) {
+                    error = e;
+                    escribiendo = false;
+                    notifyAll();
+                }
+                return;
+            }
+            lote.clear();
+            synchronized (this) {
+                durables = hasta;
+                escribiendo = false;
+                notifyAll();
+            }
+        }
+    }
+
+    private FileChannel abrirSegmento(int numero) throws IOException {
+        Files.createDirectories(directorio);
+        return FileChannel.open(rutaSegmento(directorio, numero),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+}
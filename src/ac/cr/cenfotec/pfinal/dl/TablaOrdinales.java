@@ -0,0 +1,122 @@
+package ac.cr.cenfotec.pfinal.dl;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/**
+ * Tabla persistente que asigna un número (ordinal) a cada texto distinto.
+ * <p>
+ * Se usa para guardar en el archivo de tickets solo un entero por usuario,
+ * departamento o estado, en lugar del texto completo. Los textos se anexan a
+ * un archivo, uno por línea, en el orden en que reciben su ordinal. Los
+ * saltos de línea y las barras invertidas de un texto se guardan escapados
+ * ({@code \n}, {@code \r}, {@code \\}), para que un texto ocupe siempre una
+ * sola línea y no corra los ordinales siguientes. No es segura para hilos.
+ * </p>
+ */
+
+final class TablaOrdinales {
+    private final FileChannel canal; /** Archivo con un texto por línea. */
+    private final ArrayList<String> textos = new ArrayList<>(); /** Ordinal → texto. */
+    private final HashMap<String, Integer> ordinales = new HashMap<>(); /** Texto → ordinal. */
+
+    /**
+     * Abre la tabla y carga los textos ya registrados.
+     *
+     * @param archivo ruta del archivo de la tabla
+     * @throws IOException si falla la lectura
+     */
+    TablaOrdinales(Path archivo) throws IOException {
+        if (Files.exists(archivo)) {
+            for (String linea : Files.readAllLines(archivo, StandardCharsets.UTF_8)) {
+                String texto = desescapar(linea);
+                ordinales.putIfAbsent(texto, textos.size());
+                textos.add(texto);
+            }
+        }
+        canal = FileChannel.open(archivo, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    /**
+     * Obtiene el ordinal de un texto, registrándolo si es nuevo.
+     *
+     * @param texto texto a codificar
+     * @return ordinal del texto
+     * @throws IOException si falla la escritura
+     */
+    int ordinal(String texto) throws IOException {
+        if (texto == null) return -1;
+        Integer o = ordinales.get(texto);
+        if (o != null) return o;
+        canal.write(ByteBuffer.wrap((escapar(texto) + "\n").getBytes(StandardCharsets.UTF_8)));
+        int nuevo = textos.size();
+        textos.add(texto);
+        ordinales.put(texto, nuevo);
+        return nuevo;
+    }
+
+    /**
+     * Obtiene el texto de un ordinal.
+     *
+     * @param ordinal ordinal a decodificar
+     * @return texto asociado o null si el ordinal es -1
+     */
+    String texto(int ordinal) {
+        return ordinal < 0 ? null : textos.get(ordinal);
+    }
+
+    /**
+     * Sincroniza el archivo con el disco.
+     *
+     * @throws IOException si falla la sincronización
+     */
+    void sincronizar() throws IOException {
+        canal.force(false);
+    }
+
+    /**
+     * Cierra el archivo.
+     *
+     * @throws IOException si falla el cierre
+     */
+    void cerrar() throws IOException {
+        canal.close();
+    }
+
+    private static String escapar(String texto) {
+        StringBuilder sb = new StringBuilder(texto.length());
+        for (int i = 0; i < texto.length(); i++) {
+            char c = texto.charAt(i);
+            switch (c) {
+                case '\\': sb.append("\\\\"); break;
+                case '\n': sb.append("\\n"); break;
+                case '\r': sb.append("\\r"); break;
+                default: sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+
+    private static String desescapar(String linea) {
+        if (linea.indexOf('\\') < 0) return linea;
+        StringBuilder sb = new StringBuilder(linea.length());
+        for (int i = 0; i < linea.length(); i++) {
+            char c = linea.charAt(i);
+            if (c == '\\' && i + 1 < linea.length()) {
+                char s = linea.charAt(++i);
+                sb.append(s == 'n' ? '\n' : s == 'r' ? '\r' : s);
+            } else {
+                sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,158 @@
+package ac.cr.cenfotec.pfinal.dl;
+
+import ac.cr.cenfotec.pfinal.bl.entities.ClaveTexto;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Índice de tickets activos por usuario.
+ * <p>
+ * Cada usuario tiene un arreglo de enteros con los IDs de sus tickets en
+ * orden ascendente. Como los IDs se asignan en orden de creación, recorrerlo
+ * de atrás hacia adelante da los tickets del más reciente al más antiguo.
+ * Crear un ticket agrega su ID al final en O(1) amortizado; reasignar o
+ * quitar un ticket busca su posición por búsqueda binaria. Un usuario con
+ * miles de tickets ocupa 4 bytes por ticket, sin objetos por entrada.
+ * </p>
+ * <p>
+ * Además se mantiene, por usuario, la cantidad de tickets abiertos (los que
+ * no están resueltos), de modo que contarlos es O(1).
+ * </p>
+ * <p>
+ * Cada usuario tiene su propio candado. No se guardan los tickets de
+ * usuario nulo.
+ * </p>
+ */
+
+final class TicketsPorUsuario {
+    private final ConcurrentHashMap<String, Lista> usuarios = new ConcurrentHashMap<>(); /** Correo en minúsculas → tickets del usuario. */
+
+    /**
+     * Agrega un ticket a la lista de un usuario.
+     *
+     * @param correo  correo del usuario
+     * @param id      ID del ticket
+     * @param abierto true si el ticket no está resuelto
+     */
+    void agregar(String correo, int id, boolean abierto) {
+        if (correo == null) return;
+        usuarios.computeIfAbsent(ClaveTexto.clave(correo), c -> new Lista()).agregar(id, abierto);
+    }
+
+    /**
+     * Quita un ticket de la lista de un usuario.
+     *
+     * @param correo  correo del usuario
+     * @param id      ID del ticket
+     * @param abierto true si el ticket no estaba resuelto
+     */
+    void quitar(String correo, int id, boolean abierto) {
+        Lista l = correo == null ? null : usuarios.get(ClaveTexto.clave(correo));
+        if (l != null) l.quitar(id, abierto);
+    }
+
+    /**
+     * Ajusta la cantidad de tickets abiertos de un usuario cuando uno de sus
+     * tickets se resuelve o se reabre.
+     *
+     * @param correo correo del usuario
+     * @param id     ID del ticket
+     * @param delta  +1 si se reabrió, -1 si se resolvió
+     */
+    void ajustarAbiertos(String correo, int id, int delta) {
+        Lista l = correo == null ? null : usuarios.get(ClaveTexto.clave(correo));
+        if (l != null) l.ajustarAbiertos(id, delta);
+    }
+
+    /**
+     * @param correo   correo del usuario
+     * @param antesDe  solo IDs menores a este; 0 o menos para empezar por el más reciente
+     * @param cantidad cantidad máxima de IDs
+     * @return IDs de tickets del usuario, del más reciente al más antiguo
+     */
+    int[] recientes(String correo, int antesDe, int cantidad) {
+        Lista l = correo == null ? null : usuarios.get(ClaveTexto.clave(correo));
+        return l == null ? new int[0] : l.recientes(antesDe, cantidad);
+    }
+
+    /**
+     * @param correo    correo del usuario
+     * @param despuesDe ID a partir del cual buscar, exclusivo
+     * @return menor ID de un ticket del usuario mayor a {@code despuesDe}, o -1 si no hay
+     */
+    int siguiente(String correo, int despuesDe) {
+        Lista l = correo == null ? null : usuarios.get(ClaveTexto.clave(correo));
+        return l == null ? -1 : l.siguiente(despuesDe);
+    }
+
+    /**
+     * @param correo correo del usuario
+     * @return cantidad de tickets activos del usuario
+     */
+    int contar(String correo) {
+        Lista l = correo == null ? null : usuarios.get(ClaveTexto.clave(correo));
+        return l == null ? 0 : l.contar();
+    }
+
+    /**
+     * @param correo correo del usuario
+     * @return cantidad de tickets abiertos del usuario
+     */
+    int contarAbiertos(String correo) {
+        Lista l = correo == null ? null : usuarios.get(ClaveTexto.clave(correo));
+        return l == null ? 0 : l.contarAbiertos();
+    }
+
+    /** IDs ordenados y conteo de abiertos de un usuario. */
+    private static final class Lista {
+        private int[] ids = new int[4];
+        private int tamano;
+        private int abiertos;
+
+        synchronized void agregar(int id, boolean abierto) {
+            int i = tamano == 0 || id > ids[tamano - 1] ? -tamano - 1 : Arrays.binarySearch(ids, 0, tamano, id);
+            if (i >= 0) return;
+            i = -i - 1;
+            if (tamano == ids.length) ids = Arrays.copyOf(ids, tamano * 2);
+            System.arraycopy(ids, i, ids, i + 1, tamano - i);
+            ids[i] = id;
+            tamano++;
+            if (abierto) abiertos++;
+        }
+
+        synchronized void quitar(int id, boolean abierto) {
+            int i = Arrays.binarySearch(ids, 0, tamano, id);
+            if (i < 0) return;
+            System.arraycopy(ids, i + 1, ids, i, tamano - i - 1);
+            tamano--;
+            if (abierto) abiertos--;
+        }
+
+        synchronized void ajustarAbiertos(int id, int delta) {
+            if (Arrays.binarySearch(ids, 0, tamano, id) >= 0) abiertos += delta;
+        }
+
+        synchronized int[] recientes(int antesDe, int cantidad) {
+            int fin = antesDe <= 0 ? tamano : Arrays.binarySearch(ids, 0, tamano, antesDe);
+            if (fin < 0) fin = -fin - 1;
+            int[] r = new int[Math.max(0, Math.min(cantidad, fin))];
+            for (int i = 0; i < r.length; i++) r[i] = ids[fin - 1 - i];
+            return r;
+        }
+
+        synchronized int siguiente(int despuesDe) {
+            int i = Arrays.binarySearch(ids, 0, tamano, despuesDe);
+            i = i >= 0 ? i + 1 : -i - 1;
+            return i < tamano ? ids[i] : -1;
+        }
+
+        synchronized int contar() {
+            return tamano;
+        }
+
+        synchronized int contarAbiertos() {
+            return abiertos;
+        }
+    }
+}
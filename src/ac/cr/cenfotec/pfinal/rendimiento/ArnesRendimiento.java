@@ -0,0 +1,256 @@
+package ac.cr.cenfotec.pfinal.rendimiento;
+
+import ac.cr.cenfotec.pfinal.bl.logic.Metricas;
+
+import java.io.PrintStream;
+import java.lang.ref.Reference;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Arnés de medición en Java puro, sin dependencias externas.
+ * <p>
+ * Cada caso se calienta en un solo hilo para que el JIT compile el camino
+ * medido, y después corre repartido entre los hilos pedidos, que arrancan a
+ * la vez. Se mide la latencia de cada operación en un
+ * {@link Metricas.Histograma}, el rendimiento total y, si la JVM lo permite,
+ * los bytes asignados por operación en los hilos que la ejecutan.
+ * </p>
+ * <p>
+ * Cada resultado se escribe como una línea JSON (JSON Lines) con campos
+ * fijos, para comparar dos versiones con herramientas de línea de comandos o
+ * una hoja de cálculo. Los resultados no sustituyen a JMH: no aíslan cada
+ * caso en una JVM propia ni eliminan el código muerto, así que conviene
+ * compararlos solo entre corridas en la misma máquina.
+ * </p>
+ */
+
+public class ArnesRendimiento {
+    /**
+     * Operación medida. Recibe un índice distinto en cada llamada (primero
+     * los de calentamiento y después los medidos), para elegir sus datos.
+     */
+    @FunctionalInterface
+    public interface Operacion {
+        /**
+         * @param i índice de la llamada
+         * @throws Exception si la operación falla; se cuenta como error
+         */
+        void ejecutar(int i) throws Exception;
+    }
+
+    private final PrintStream salida; /** Destino de las líneas JSON. */
+    private final Map<String, Object> entorno = new LinkedHashMap<>(); /** Campos comunes a todos los resultados. */
+    private final List<Resultado> resultados = new ArrayList<>(); /** Resultados escritos, en orden. */
+    private final ThreadMXBean hilosJvm = ManagementFactory.getThreadMXBean(); /** Para medir bytes asignados por hilo. */
+    private final boolean midiendoBytes = hilosJvm instanceof com.sun.management.ThreadMXBean
+            && ((com.sun.management.ThreadMXBean) hilosJvm).isThreadAllocatedMemorySupported(); /** Indica si la JVM informa los bytes asignados por hilo. */
+
+    /**
+     * @param salida destino de los resultados, una línea JSON por caso
+     */
+    public ArnesRendimiento(PrintStream salida) {
+        this.salida = salida;
+        entorno.put("jdk", System.getProperty("java.version"));
+        entorno.put("nucleos", Runtime.getRuntime().availableProcessors());
+        entorno.put("fecha", System.currentTimeMillis());
+    }
+
+    /**
+     * Mide una operación.
+     *
+     * @param caso          nombre del caso, por ejemplo {@code data.buscarUsuarioPorCorreo}
+     * @param tamano        cantidad de entidades cargadas antes de medir
+     * @param hilos         hilos que ejecutan las operaciones medidas
+     * @param calentamiento llamadas previas sin medir
+     * @param operaciones   llamadas medidas, repartidas entre los hilos
+     * @param operacion     operación a medir
+     * @return resultado, ya escrito en la salida
+     */
+    public Resultado medir(String caso, int tamano, int hilos, int calentamiento, int operaciones, Operacion operacion) {
+        LongAdder errores = new LongAdder();
+        AtomicReference<String> primerError = new AtomicReference<>();
+        for (int i = 0; i < calentamiento; i++) ejecutar(operacion, i, null, errores, primerError);
+
+        Metricas.Histograma latencias = new Metricas().histograma("latencia");
+        AtomicLong bytes = new AtomicLong();
+        CountDownLatch largada = new CountDownLatch(1);
+        Thread[] trabajadores = new Thread[hilos];
+        for (int h = 0; h < hilos; h++) {
+            int hilo = h;
+            trabajadores[h] = new Thread(() -> {
+                try {
+                    largada.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                long antes = bytesAsignados();
+                for (int i = calentamiento + hilo; i < calentamiento + operaciones; i += hilos) {
+                    ejecutar(operacion, i, latencias, errores, primerError);
+                }
+                bytes.addAndGet(bytesAsignados() - antes);
+            }, "rendimiento-" + h);
+            trabajadores[h].start();
+        }
+        long inicio = System.nanoTime();
+        largada.countDown();
+        for (Thread t : trabajadores) {
+            try {
+                t.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Medición interrumpida", e);
+            }
+        }
+        long nanos = System.nanoTime() - inicio;
+
+        Resultado r = new Resultado(caso)
+                .con("tamano", tamano)
+                .con("hilos", hilos)
+                .con("operaciones", operaciones)
+                .con("nsPorOp", operaciones == 0 ? 0 : latencias.getSuma() / operaciones)
+                .con("p50Ns", latencias.percentil(50))
+                .con("p99Ns", latencias.percentil(99))
+                .con("p999Ns", latencias.percentil(99.9))
+                .con("opsPorSegundo", nanos == 0 ? 0 : Math.round(operaciones * 1e9 / nanos))
+                .con("bytesPorOp", !midiendoBytes || operaciones == 0 ? -1 : bytes.get() / operaciones)
+                .con("errores", errores.sum());
+        if (primerError.get() != null) r.con("primerError", primerError.get());
+        return registrar(r);
+    }
+
+    /**
+     * Escribe un resultado armado por quien llama, por ejemplo una medición
+     * de memoria que no encaja en {@link #medir}.
+     *
+     * @param r resultado a escribir
+     * @return el mismo resultado
+     */
+    public Resultado registrar(Resultado r) {
+        r.campos.putAll(entorno);
+        resultados.add(r);
+        salida.println(r.aJson());
+        salida.flush();
+        return r;
+    }
+
+    /** @return resultados escritos hasta ahora */
+    public List<Resultado> getResultados() {
+        return resultados;
+    }
+
+    /**
+     * Mide la memoria que retienen las entidades que crea una acción: usada
+     * después de la acción menos usada antes, tras pedir recolección.
+     *
+     * @param accion crea las entidades y devuelve una referencia que las mantiene vivas
+     * @return bytes retenidos
+     */
+    public static long memoriaRetenida(Supplier<Object> accion) {
+        long antes = memoriaUsada();
+        Object vivo = accion.get();
+        long despues = memoriaUsada();
+        Reference.reachabilityFence(vivo);
+        return despues - antes;
+    }
+
+    private static long memoriaUsada() {
+        Runtime r = Runtime.getRuntime();
+        for (int i = 0; i < 4; i++) {
+            System.gc();
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        return r.totalMemory() - r.freeMemory();
+    }
+
+    private long bytesAsignados() {
+        return midiendoBytes ? ((com.sun.management.ThreadMXBean) hilosJvm).getCurrentThreadAllocatedBytes() : 0;
+    }
+
+    private static void ejecutar(Operacion operacion, int i, Metricas.Histograma latencias, LongAdder errores,
+                                 AtomicReference<String> primerError) {
+        long inicio = System.nanoTime();
+        try {
+            operacion.ejecutar(i);
+        } catch (Exception e) {
+            errores.increment();
+            primerError.compareAndSet(null, e.toString());
+        }
+        if (latencias != null) latencias.registrar(System.nanoTime() - inicio);
+    }
+
+    /**
+     * Resultado de un caso: campos con nombre, en el orden en que se agregaron.
+     */
+    public static final class Resultado {
+        private final Map<String, Object> campos = new LinkedHashMap<>(); /** Nombre → número o texto. */
+
+        /**
+         * @param caso nombre del caso
+         */
+        public Resultado(String caso) {
+            campos.put("caso", caso);
+        }
+
+        /**
+         * Agrega un campo.
+         *
+         * @param nombre nombre del campo
+         * @param valor  número o texto
+         * @return este resultado
+         */
+        public Resultado con(String nombre, Object valor) {
+            campos.put(nombre, valor);
+            return this;
+        }
+
+        /**
+         * @param nombre nombre del campo
+         * @return valor del campo, o null si no existe
+         */
+        public Object get(String nombre) {
+            return campos.get(nombre);
+        }
+
+        /** @return el resultado como un objeto JSON en una línea */
+        public String aJson() {
+            StringBuilder sb = new StringBuilder("{");
+            for (Map.Entry<String, Object> e : campos.entrySet()) {
+                if (sb.length() > 1) sb.append(',');
+                texto(sb, e.getKey());
+                sb.append(':');
+                Object v = e.getValue();
+                if (v instanceof Double || v instanceof Float) sb.append(String.format(Locale.ROOT, "%.3f", ((Number) v).doubleValue()));
+                else if (v instanceof Number || v instanceof Boolean) sb.append(v);
+                else texto(sb, String.valueOf(v));
+            }
+            return sb.append('}').toString();
+        }
+
+        private static void texto(StringBuilder sb, String s) {
+            sb.append('"');
+            for (int i = 0; i < s.length(); i++) {
+                char c = s.charAt(i);
+                if (c == '"' || c == '\\') sb.append('\\').append(c);
+                else if (c < 0x20) sb.append(String.format("\\u%04x", (int) c));
+                else sb.append(c);
+            }
+            sb.append('"');
+        }
+    }
+}
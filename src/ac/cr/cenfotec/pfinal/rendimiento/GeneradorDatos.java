@@ -0,0 +1,195 @@
+package ac.cr.cenfotec.pfinal.rendimiento;
+
+import ac.cr.cenfotec.pfinal.bl.entities.Departamento;
+import ac.cr.cenfotec.pfinal.bl.entities.Diccionario;
+import ac.cr.cenfotec.pfinal.bl.entities.Hash;
+import ac.cr.cenfotec.pfinal.bl.entities.Usuario;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generador de datos sintéticos para las pruebas de rendimiento.
+ * <p>
+ * Produce usuarios, departamentos, palabras de diccionario y textos de
+ * tickets en español, con tildes y eñes, parecidos a los que reporta un
+ * campus. Los datos dependen solo de la semilla, así que dos corridas con la
+ * misma semilla miden exactamente los mismos datos y sus resultados se
+ * pueden comparar.
+ * </p>
+ * <p>
+ * Los correos y nombres de departamento se derivan de un índice, de modo que
+ * una prueba puede buscar el elemento {@code i} sin guardar la lista.
+ * </p>
+ */
+
+public class GeneradorDatos {
+    /** Contraseña de todos los usuarios generados. */
+    public static final String CONTRASENA = "Cenfotec2024!";
+
+    private static final String[] DEPARTAMENTOS = {"Soporte Técnico", "Redes", "Registro", "Biblioteca",
+            "Laboratorios", "Finanzas", "Admisiones", "Infraestructura", "Seguridad", "Vida Estudiantil"};
+    private static final String[] NOMBRES = {"María", "José", "Ana", "Luis", "Sofía", "Andrés", "Valeria",
+            "Ángel", "Lucía", "Tomás", "Camila", "Sebastián"};
+    private static final String[] APELLIDOS = {"Rodríguez", "Jiménez", "Mora", "Vargas", "Solís", "Núñez",
+            "Araya", "Céspedes", "Quirós", "Muñoz", "Chaves", "Peña"};
+    private static final String[] ROLES = {"estudiante", "estudiante", "estudiante", "profesor", "funcionario", "Administrador"};
+    /** Categoría técnica seguida de sus palabras. */
+    private static final String[][] TECNICAS = {
+            {"Redes", "wifi", "red", "conexión", "internet", "vpn", "router", "señal"},
+            {"Hardware", "impresora", "pantalla", "teclado", "disco", "batería", "proyector", "mouse"},
+            {"Software", "contraseña", "correo", "aplicación", "actualización", "licencia", "sistema", "navegador"},
+            {"Accesos", "carné", "puerta", "torniquete", "parqueo", "tarjeta", "acceso"}};
+    /** Emoción seguida de sus palabras. */
+    private static final String[][] EMOCIONES = {
+            {"enojo", "inaceptable", "harto", "molesto", "pésimo", "indignado"},
+            {"urgencia", "urgente", "inmediato", "examen", "entrega", "mañana"},
+            {"tristeza", "lamentablemente", "preocupado", "triste", "desanimado"},
+            {"alegría", "gracias", "excelente", "feliz", "agradecido"}};
+    private static final String[] RELLENO = {"el", "la", "de", "en", "no", "que", "desde", "ayer", "hoy", "mi",
+            "del", "laboratorio", "aula", "edificio", "funciona", "sirve", "falla", "otra", "vez", "por", "favor",
+            "necesito", "ayuda", "con", "se", "cae", "cada", "rato", "segundo", "piso", "clase", "profesor"};
+
+    private final Random aleatorio; /** Fuente de todos los valores generados. */
+
+    /**
+     * @param semilla semilla del generador; la misma semilla produce los mismos datos
+     */
+    public GeneradorDatos(long semilla) {
+        this.aleatorio = new Random(semilla);
+    }
+
+    /**
+     * @param i índice del usuario
+     * @return correo del usuario {@code i}
+     */
+    public String correo(int i) {
+        return "usuario" + i + "@ucenfotec.ac.cr";
+    }
+
+    /**
+     * @param i índice del departamento
+     * @return nombre del departamento {@code i}; los primeros diez no llevan número
+     */
+    public String nombreDepartamento(int i) {
+        String base = DEPARTAMENTOS[i % DEPARTAMENTOS.length];
+        return i < DEPARTAMENTOS.length ? base : base + " " + (i / DEPARTAMENTOS.length);
+    }
+
+    /**
+     * Genera departamentos con los nombres de {@link #nombreDepartamento(int)}.
+     *
+     * @param cantidad cantidad de departamentos
+     * @return departamentos generados
+     */
+    public List<Departamento> departamentos(int cantidad) {
+        List<Departamento> lista = new ArrayList<>(cantidad);
+        for (int i = 0; i < cantidad; i++) {
+            lista.add(new Departamento(nombreDepartamento(i), "Departamento " + i, "ext " + (1000 + i)));
+        }
+        return lista;
+    }
+
+    /**
+     * Genera usuarios con los correos de {@link #correo(int)} y la contraseña
+     * {@link #CONTRASENA}. Todos comparten la misma sal y el mismo hash,
+     * calculados una sola vez con el algoritmo y el costo indicados, para que
+     * generar un millón de usuarios no cueste un millón de hashes.
+     *
+     * @param cantidad  cantidad de usuarios
+     * @param algoritmo algoritmo del hash (ver {@link Hash})
+     * @param costo     costo del hash
+     * @return usuarios generados
+     */
+    public List<Usuario> usuarios(int cantidad, String algoritmo, int costo) {
+        byte[] sal = Hash.generarSalBytes();
+        byte[] hash = Hash.calcular(algoritmo, costo, CONTRASENA, sal);
+        List<Usuario> lista = new ArrayList<>(cantidad);
+        for (int i = 0; i < cantidad; i++) {
+            String nombre = elegir(NOMBRES) + " " + elegir(APELLIDOS) + " " + elegir(APELLIDOS);
+            lista.add(new Usuario(nombre, correo(i), hash, sal, algoritmo, costo,
+                    "8" + (1_000_000 + aleatorio.nextInt(9_000_000)), elegir(ROLES)));
+        }
+        return lista;
+    }
+
+    /** @return palabras del diccionario técnico con su categoría */
+    public List<Diccionario> palabrasTecnicas() {
+        return palabras(TECNICAS);
+    }
+
+    /** @return palabras del diccionario emocional con su emoción */
+    public List<Diccionario> palabrasEmocionales() {
+        return palabras(EMOCIONES);
+    }
+
+    /**
+     * @param i índice de la palabra
+     * @return palabra técnica nueva {@code i}, con una de las categorías existentes
+     */
+    public Diccionario palabraTecnicaNueva(int i) {
+        return new Diccionario("término" + i, TECNICAS[i % TECNICAS.length][0]);
+    }
+
+    /** @return asunto corto de un ticket */
+    public String asunto() {
+        String[] categoria = elegir(TECNICAS);
+        return "Problema con " + categoria[1 + aleatorio.nextInt(categoria.length - 1)];
+    }
+
+    /**
+     * Genera la descripción de un ticket: de 8 a 40 palabras de relleno con
+     * algunas palabras técnicas de una misma categoría y, la mitad de las
+     * veces, palabras de una emoción, además de puntuación y mayúsculas.
+     *
+     * @return descripción generada
+     */
+    public String descripcion() {
+        String[] categoria = elegir(TECNICAS);
+        String[] emocion = aleatorio.nextBoolean() ? elegir(EMOCIONES) : null;
+        int palabras = 8 + aleatorio.nextInt(33);
+        StringBuilder sb = new StringBuilder(palabras * 8);
+        for (int i = 0; i < palabras; i++) {
+            int tipo = aleatorio.nextInt(10);
+            String palabra;
+            if (tipo < 2) palabra = categoria[1 + aleatorio.nextInt(categoria.length - 1)];
+            else if (tipo < 3 && emocion != null) palabra = emocion[1 + aleatorio.nextInt(emocion.length - 1)];
+            else palabra = elegir(RELLENO);
+            if (i == 0) palabra = Character.toUpperCase(palabra.charAt(0)) + palabra.substring(1);
+            sb.append(palabra);
+            sb.append(i == palabras - 1 ? "." : aleatorio.nextInt(8) == 0 ? ", " : " ");
+        }
+        return sb.toString();
+    }
+
+    /**
+     * @param cantidad cantidad de descripciones
+     * @return descripciones generadas con {@link #descripcion()}
+     */
+    public String[] descripciones(int cantidad) {
+        String[] textos = new String[cantidad];
+        for (int i = 0; i < cantidad; i++) textos[i] = descripcion();
+        return textos;
+    }
+
+    /**
+     * @param limite límite exclusivo
+     * @return entero entre 0 y {@code limite - 1}
+     */
+    public int entero(int limite) {
+        return aleatorio.nextInt(limite);
+    }
+
+    private List<Diccionario> palabras(String[][] grupos) {
+        List<Diccionario> lista = new ArrayList<>();
+        for (String[] g : grupos) {
+            for (int i = 1; i < g.length; i++) lista.add(new Diccionario(g[i], g[0]));
+        }
+        return lista;
+    }
+
+    private <T> T elegir(T[] opciones) {
+        return opciones[aleatorio.nextInt(opciones.length)];
+    }
+}
@@ -0,0 +1,353 @@
+package ac.cr.cenfotec.pfinal.rendimiento;
+
+import ac.cr.cenfotec.pfinal.bl.entities.ClaveTexto;
+import ac.cr.cenfotec.pfinal.bl.entities.Departamento;
+import ac.cr.cenfotec.pfinal.bl.entities.Diccionario;
+import ac.cr.cenfotec.pfinal.bl.entities.Hash;
+import ac.cr.cenfotec.pfinal.bl.entities.Ticket;
+import ac.cr.cenfotec.pfinal.bl.entities.Usuario;
+import ac.cr.cenfotec.pfinal.bl.logic.BagOfWords;
+import ac.cr.cenfotec.pfinal.bl.logic.Gestor;
+import ac.cr.cenfotec.pfinal.dl.Data;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Pruebas de rendimiento y de carga de los caminos calientes del sistema.
+ * <p>
+ * Se ejecuta como un programa normal:
+ * </p>
+ * <pre>
+ * java ac.cr.cenfotec.pfinal.rendimiento.PruebasRendimiento \
+ *     --tamanos=1000,10000,100000,1000000 --hilos=1,2,4,8 \
+ *     --casos=data.,gestor. --salida=resultados.jsonl
+ * </pre>
+ * <p>
+ * Todas las opciones son opcionales. {@code --casos} filtra por prefijo del
+ * nombre del caso. Cada caso escribe una línea JSON (ver
+ * {@link ArnesRendimiento}); dos archivos de resultados se comparan línea a
+ * línea por {@code caso}, {@code tamano} y {@code hilos}. Los casos son:
+ * </p>
+ * <ul>
+ *     <li>{@code data.*}: búsquedas de usuarios, departamentos y tickets por clave en {@link Data}, que deben costar lo mismo con cualquier tamaño.</li>
+ *     <li>{@code entidades.*}: búsquedas en {@link HashSet} y {@link HashMap} de entidades, que no deben asignar memoria.</li>
+ *     <li>{@code memoria.*}: bytes retenidos por usuario y por ticket.</li>
+ *     <li>{@code gestor.registrarTicket}: registro concurrente de tickets, con una línea de verificación que cuenta tickets perdidos e IDs repetidos.</li>
+ *     <li>{@code gestor.validarCredenciales}: inicio de sesión completo, con el hash de un solo paso para medir el camino y no el costo del hash.</li>
+ *     <li>{@code gestor.agregarPalabraTecnica}: registro de palabras en un diccionario del tamaño indicado.</li>
+ *     <li>{@code hash.*}: verificación con bytes contra la versión en Base64, y generación de sales concurrente contra un {@link SecureRandom} nuevo por sal.</li>
+ *     <li>{@code bagofwords.*}: tokenización de descripciones de tickets.</li>
+ *     <li>{@code claveTexto.*}: normalización de claves con {@link ClaveTexto}, que no debe asignar memoria si el texto ya está en minúsculas, y clave del departamento de un ticket, que se lee ya calculada.</li>
+ * </ul>
+ */
+
+public class PruebasRendimiento {
+    /** Semilla de los datos generados. */
+    public static final long SEMILLA = 20_240_101L;
+    /** Operaciones medidas de las búsquedas en memoria. */
+    private static final int OPERACIONES_BUSQUEDA = 500_000;
+    /** Operaciones medidas de los casos que pasan por el gestor. */
+    private static final int OPERACIONES_GESTOR = 20_000;
+    /** Departamentos del gestor en los casos que no dependen de ellos. */
+    private static final int DEPARTAMENTOS_GESTOR = 10;
+
+    private final ArnesRendimiento arnes; /** Arnés que mide y escribe los resultados. */
+    private final String[] casos; /** Prefijos de los casos a correr, o null para todos. */
+    private final int[] hilos; /** Cantidades de hilos de los casos concurrentes. */
+
+    /**
+     * @param arnes arnés que mide y escribe los resultados
+     * @param casos prefijos de los casos a correr, o null para todos
+     * @param hilos cantidades de hilos de los casos concurrentes
+     */
+    public PruebasRendimiento(ArnesRendimiento arnes, String[] casos, int[] hilos) {
+        this.arnes = arnes;
+        this.casos = casos;
+        this.hilos = hilos;
+    }
+
+    /**
+     * Punto de entrada.
+     *
+     * @param args opciones {@code --tamanos}, {@code --hilos}, {@code --casos} y {@code --salida}
+     * @throws IOException si no se puede escribir el archivo de salida
+     */
+    public static void main(String[] args) throws IOException {
+        Map<String, String> opciones = new HashMap<>();
+        for (String a : args) {
+            int igual = a.indexOf('=');
+            if (!a.startsWith("--") || igual < 0) throw new IllegalArgumentException("Opción inválida: " + a);
+            opciones.put(a.substring(2, igual), a.substring(igual + 1));
+        }
+        int[] tamanos = enteros(opciones.getOrDefault("tamanos", "1000,10000,100000"));
+        int[] hilos = enteros(opciones.getOrDefault("hilos", "1,2,4,8"));
+        String[] casos = opciones.containsKey("casos") ? opciones.get("casos").split(",") : null;
+        PrintStream salida = opciones.containsKey("salida")
+                ? new PrintStream(Files.newOutputStream(Path.of(opciones.get("salida"))), true, StandardCharsets.UTF_8)
+                : System.out;
+        try {
+            PruebasRendimiento pruebas = new PruebasRendimiento(new ArnesRendimiento(salida), casos, hilos);
+            pruebas.correrSinTamano();
+            for (int n : tamanos) pruebas.correr(n);
+        } finally {
+            if (salida != System.out) salida.close();
+        }
+    }
+
+    /**
+     * Corre los casos que no dependen de la cantidad de datos cargados.
+     */
+    public void correrSinTamano() {
+        GeneradorDatos g = new GeneradorDatos(SEMILLA);
+        String[] textos = g.descripciones(4096);
+        if (incluye("bagofwords.generarBow")) {
+            arnes.medir("bagofwords.generarBow", textos.length, 1, 50_000, 200_000,
+                    i -> new BagOfWords(textos[i & 4095]).getPalabras());
+        }
+        if (incluye("bagofwords.recorrerPalabras")) {
+            int[] sumidero = new int[1];
+            arnes.medir("bagofwords.recorrerPalabras", textos.length, 1, 50_000, 200_000,
+                    i -> BagOfWords.recorrerPalabras(textos[i & 4095], (b, n, h) -> sumidero[0] += h));
+        }
+        correrClaves(g);
+        byte[] sal = Hash.generarSalBytes();
+        byte[] hash = Hash.hashConSal(GeneradorDatos.CONTRASENA, sal);
+        String salBase64 = Base64.getEncoder().encodeToString(sal);
+        String hashBase64 = Base64.getEncoder().encodeToString(hash);
+        if (incluye("hash.verificar.bytes")) {
+            arnes.medir("hash.verificar.bytes", 1, 1, 50_000, 500_000, i -> {
+                if (!Hash.verificar(GeneradorDatos.CONTRASENA, sal, hash)) throw new IllegalStateException("hash distinto");
+            });
+        }
+        if (incluye("hash.verificar.base64")) {
+            // Camino anterior: decodificar la sal, obtener un MessageDigest y comparar Strings.
+            arnes.medir("hash.verificar.base64", 1, 1, 50_000, 500_000, i -> {
+                if (!Hash.HashConSal(GeneradorDatos.CONTRASENA, salBase64).equals(hashBase64)) {
+                    throw new IllegalStateException("hash distinto");
+                }
+            });
+        }
+        for (int h : hilos) {
+            if (incluye("hash.generarSalBytes")) {
+                arnes.medir("hash.generarSalBytes", 1, h, 10_000, 200_000, i -> Hash.generarSalBytes());
+            }
+            if (incluye("hash.generarSal.secureRandomNuevo")) {
+                arnes.medir("hash.generarSal.secureRandomNuevo", 1, h, 1_000, 20_000, i -> {
+                    byte[] s = new byte[Hash.LONGITUD_SAL];
+                    new SecureRandom().nextBytes(s);
+                });
+            }
+        }
+    }
+
+    private void correrClaves(GeneradorDatos g) {
+        String[] minusculas = new String[4096];
+        String[] mayusculas = new String[4096];
+        Ticket[] tickets = new Ticket[4096];
+        for (int i = 0; i < minusculas.length; i++) {
+            minusculas[i] = ClaveTexto.normalizar(g.nombreDepartamento(i));
+            mayusculas[i] = g.nombreDepartamento(i).toUpperCase(Locale.ROOT);
+            tickets[i] = new Ticket(i + 1, "", "", "Nuevo", null, new Departamento(mayusculas[i], "", ""), 0);
+        }
+        int[] sumidero = new int[1];
+        medirBusqueda("claveTexto.normalizar.minusculas", minusculas.length,
+                i -> sumidero[0] += ClaveTexto.normalizar(minusculas[i & 4095]).length());
+        medirBusqueda("claveTexto.normalizar.mayusculas", mayusculas.length,
+                i -> sumidero[0] += ClaveTexto.normalizar(mayusculas[i & 4095]).length());
+        medirBusqueda("claveTexto.ticket.claveDepartamento", tickets.length,
+                i -> sumidero[0] += tickets[i & 4095].getClaveDepartamento().length());
+    }
+
+    /**
+     * Corre los casos que cargan {@code n} entidades antes de medir.
+     *
+     * @param n cantidad de entidades
+     */
+    public void correr(int n) {
+        GeneradorDatos g = new GeneradorDatos(SEMILLA + n);
+        if (incluye("data.") || incluye("entidades.")) correrData(g, n);
+        if (incluye("memoria.")) correrMemoria(g, n);
+        if (incluye("gestor.registrarTicket") || incluye("gestor.validarCredenciales")) correrGestor(g, n);
+        if (incluye("gestor.agregarPalabraTecnica")) correrDiccionario(g, n);
+    }
+
+    private void correrData(GeneradorDatos g, int n) {
+        Data data = new Data();
+        List<Usuario> usuarios = g.usuarios(n, Hash.SHA256_SIMPLE, 1);
+        List<Departamento> departamentos = g.departamentos(n);
+        data.agregarUsuarios(usuarios);
+        for (Departamento d : departamentos) data.agregarDepartamento(d);
+        for (int i = 0; i < n; i++) {
+            data.agregarTicket(new Ticket(i + 1, g.asunto(), "", "Nuevo", usuarios.get(i), departamentos.get(i), 0));
+        }
+        // Las claves se preparan antes de medir; la mitad en mayúsculas para ejercitar la normalización.
+        String[] correos = new String[4096];
+        String[] nombres = new String[4096];
+        int[] ids = new int[4096];
+        for (int i = 0; i < correos.length; i++) {
+            int k = g.entero(n);
+            correos[i] = i % 2 == 0 ? g.correo(k) : g.correo(k).toUpperCase(Locale.ROOT);
+            nombres[i] = i % 2 == 0 ? g.nombreDepartamento(k) : g.nombreDepartamento(k).toUpperCase(Locale.ROOT);
+            ids[i] = k + 1;
+        }
+        medirBusqueda("data.buscarUsuarioPorCorreo", n, i -> {
+            if (data.buscarUsuarioPorCorreo(correos[i & 4095]) == null) throw new IllegalStateException("usuario no encontrado");
+        });
+        medirBusqueda("data.buscarDepartamentoPorNombre", n, i -> {
+            if (data.buscarDepartamentoPorNombre(nombres[i & 4095]) == null) throw new IllegalStateException("departamento no encontrado");
+        });
+        medirBusqueda("data.buscarTicketPorId", n, i -> {
+            if (data.buscarTicketPorId(ids[i & 4095]) == null) throw new IllegalStateException("ticket no encontrado");
+        });
+
+        // Copias distintas de las guardadas, como las que llegan de afuera, para que equals compare las claves.
+        HashSet<Usuario> conjunto = new HashSet<>(usuarios);
+        HashMap<Departamento, Integer> mapa = new HashMap<>();
+        for (int i = 0; i < n; i++) mapa.put(departamentos.get(i), i);
+        Usuario[] usuariosBuscados = new Usuario[4096];
+        Departamento[] departamentosBuscados = new Departamento[4096];
+        for (int i = 0; i < usuariosBuscados.length; i++) {
+            Usuario u = usuarios.get(g.entero(n));
+            usuariosBuscados[i] = new Usuario(u.getNombre(), u.getCorreo().toUpperCase(Locale.ROOT), "", "", u.getTelefono(), u.getRol());
+            departamentosBuscados[i] = new Departamento(nombres[i], "", "");
+        }
+        medirBusqueda("entidades.hashSet.usuario", n, i -> {
+            if (!conjunto.contains(usuariosBuscados[i & 4095])) throw new IllegalStateException("usuario no encontrado");
+        });
+        medirBusqueda("entidades.hashMap.departamento", n, i -> {
+            if (mapa.get(departamentosBuscados[i & 4095]) == null) throw new IllegalStateException("departamento no encontrado");
+        });
+    }
+
+    private void medirBusqueda(String caso, int n, ArnesRendimiento.Operacion operacion) {
+        if (incluye(caso)) arnes.medir(caso, n, 1, OPERACIONES_BUSQUEDA / 5, OPERACIONES_BUSQUEDA, operacion);
+    }
+
+    private void correrMemoria(GeneradorDatos g, int n) {
+        if (incluye("memoria.usuario")) {
+            long bytes = ArnesRendimiento.memoriaRetenida(() -> g.usuarios(n, Hash.SHA256_SIMPLE, 1));
+            arnes.registrar(new ArnesRendimiento.Resultado("memoria.usuario").con("tamano", n)
+                    .con("bytesPorEntidad", bytes / n));
+        }
+        if (incluye("memoria.ticket")) {
+            Usuario u = g.usuarios(1, Hash.SHA256_SIMPLE, 1).get(0);
+            Departamento d = g.departamentos(1).get(0);
+            String[] textos = g.descripciones(1024);
+            long bytes = ArnesRendimiento.memoriaRetenida(() -> {
+                // Las descripciones se comparten para medir solo el ticket y sus campos propios.
+                Ticket[] tickets = new Ticket[n];
+                for (int i = 0; i < n; i++) tickets[i] = new Ticket(i + 1, "Asunto", textos[i & 1023], "Nuevo", u, d, i);
+                return tickets;
+            });
+            arnes.registrar(new ArnesRendimiento.Resultado("memoria.ticket").con("tamano", n)
+                    .con("bytesPorEntidad", bytes / n));
+        }
+    }
+
+    private void correrGestor(GeneradorDatos g, int n) {
+        Gestor gestor = new Gestor();
+        try {
+            gestor.configurarHash(Hash.SHA256_SIMPLE, 1);
+            for (int i = 0; i < DEPARTAMENTOS_GESTOR; i++) {
+                gestor.registrarDepartamento(g.nombreDepartamento(i), "Departamento " + i, "ext " + i);
+            }
+            for (int i = 0; i < n; i++) gestor.registrarUsuario("Usuario " + i, g.correo(i), GeneradorDatos.CONTRASENA, "88888888", "estudiante");
+            String[] asuntos = new String[4096];
+            String[] textos = g.descripciones(4096);
+            String[] correos = new String[4096];
+            String[] departamentos = new String[4096];
+            for (int i = 0; i < asuntos.length; i++) {
+                asuntos[i] = g.asunto();
+                correos[i] = g.correo(g.entero(n));
+                departamentos[i] = g.nombreDepartamento(g.entero(DEPARTAMENTOS_GESTOR));
+            }
+            if (incluye("gestor.registrarTicket")) {
+                for (int h : hilos) {
+                    int calentamiento = OPERACIONES_GESTOR / 10;
+                    int[] registrados = new int[calentamiento + OPERACIONES_GESTOR];
+                    int antes = gestor.listarTickets().size();
+                    arnes.medir("gestor.registrarTicket", n, h, calentamiento, OPERACIONES_GESTOR,
+                            i -> registrados[i] = gestor.registrarTicket(asuntos[i & 4095], textos[i & 4095],
+                                    correos[i & 4095], departamentos[i & 4095]));
+                    int[] ordenados = registrados.clone();
+                    Arrays.sort(ordenados);
+                    int repetidos = 0;
+                    for (int i = 1; i < ordenados.length; i++) if (ordenados[i] == ordenados[i - 1]) repetidos++;
+                    arnes.registrar(new ArnesRendimiento.Resultado("gestor.registrarTicket.verificacion")
+                            .con("tamano", n).con("hilos", h)
+                            .con("ticketsEsperados", registrados.length)
+                            .con("ticketsPerdidos", registrados.length - (gestor.listarTickets().size() - antes))
+                            .con("idsRepetidos", repetidos));
+                }
+            }
+            if (incluye("gestor.validarCredenciales")) {
+                for (int h : hilos) {
+                    arnes.medir("gestor.validarCredenciales", n, h, 5_000, OPERACIONES_GESTOR, i -> {
+                        if (!gestor.validarCredenciales(correos[i & 4095], GeneradorDatos.CONTRASENA)) {
+                            throw new IllegalStateException("credenciales rechazadas");
+                        }
+                    });
+                }
+            }
+        } finally {
+            gestor.cerrar();
+        }
+    }
+
+    private void correrDiccionario(GeneradorDatos g, int n) {
+        Gestor gestor = new Gestor();
+        Path csv = null;
+        try {
+            csv = Files.createTempFile("palabras", ".csv");
+            try (Writer w = Files.newBufferedWriter(csv, StandardCharsets.UTF_8)) {
+                w.write("palabra,categoria\n");
+                for (Diccionario d : g.palabrasTecnicas()) w.write(d.getPalabra() + "," + d.getCategoria() + "\n");
+                for (int i = 0; i < n; i++) {
+                    Diccionario d = g.palabraTecnicaNueva(i);
+                    w.write(d.getPalabra() + "," + d.getCategoria() + "\n");
+                }
+            }
+            gestor.importarPalabrasTecnicas(csv);
+            List<Diccionario> nuevas = new ArrayList<>();
+            for (int i = 0; i < 220; i++) nuevas.add(g.palabraTecnicaNueva(n + i));
+            arnes.medir("gestor.agregarPalabraTecnica", n, 1, 20, 200, i -> gestor.agregarPalabraTecnica(nuevas.get(i)));
+        } catch (IOException e) {
+            throw new RuntimeException("Error al preparar el diccionario", e);
+        } finally {
+            gestor.cerrar();
+            if (csv != null) {
+                try {
+                    Files.deleteIfExists(csv);
+                } catch (IOException ignorada) {
+                    // Es un archivo temporal; si no se puede borrar, lo limpia el sistema.
+                }
+            }
+        }
+    }
+
+    private boolean incluye(String caso) {
+        if (casos == null) return true;
+        for (String prefijo : casos) {
+            if (caso.startsWith(prefijo) || prefijo.startsWith(caso)) return true;
+        }
+        return false;
+    }
+
+    private static int[] enteros(String lista) {
+        return Arrays.stream(lista.split(",")).map(String::trim).mapToInt(Integer::parseInt).toArray();
+    }
+}
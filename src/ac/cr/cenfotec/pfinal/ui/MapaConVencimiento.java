@@ -0,0 +1,101 @@
+package ac.cr.cenfotec.pfinal.ui;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mapa concurrente, acotado y con vencimiento, para las sesiones y las
+ * claves de idempotencia de {@link ServidorHttp}.
+ * <p>
+ * Cada entrada vence {@code vidaMs} después de agregarse. Si el mapa se
+ * llena, primero se descartan las entradas vencidas y, si sigue lleno, las
+ * claves nuevas se rechazan, de modo que un cliente no puede hacerlo crecer
+ * sin límite.
+ * </p>
+ *
+ * @param <V> tipo de los valores
+ */
+
+final class MapaConVencimiento<V> {
+    private final ConcurrentHashMap<String, Entrada<V>> entradas = new ConcurrentHashMap<>(); /** Clave → valor y vencimiento. */
+    private final long vidaNanos; /** Vida de una entrada. */
+    private final int capacidad; /** Tamaño máximo del mapa. */
+
+    /**
+     * @param vidaMs    vida de cada entrada en milisegundos
+     * @param capacidad cantidad máxima de entradas
+     */
+    MapaConVencimiento(long vidaMs, int capacidad) {
+        this.vidaNanos = TimeUnit.MILLISECONDS.toNanos(vidaMs);
+        this.capacidad = capacidad;
+    }
+
+    /**
+     * @param clave clave buscada
+     * @return valor vigente de la clave, o null si no existe o ya venció
+     */
+    V obtener(String clave) {
+        Entrada<V> e = entradas.get(clave);
+        if (e == null) return null;
+        if (e.vencida(System.nanoTime())) {
+            entradas.remove(clave, e);
+            return null;
+        }
+        return e.valor;
+    }
+
+    /**
+     * Agrega un valor si la clave no tiene uno vigente.
+     *
+     * @param clave clave del valor
+     * @param valor valor a agregar
+     * @return valor vigente de la clave después de la llamada (el anterior o
+     *         {@code valor}), o null si el mapa está lleno
+     */
+    V agregarSiAusente(String clave, V valor) {
+        long ahora = System.nanoTime();
+        if (entradas.size() >= capacidad && !entradas.containsKey(clave)) {
+            entradas.values().removeIf(e -> e.vencida(ahora));
+            if (entradas.size() >= capacidad) return null;
+        }
+        Entrada<V> nueva = new Entrada<>(valor, ahora + vidaNanos);
+        return entradas.compute(clave, (k, e) -> e == null || e.vencida(ahora) ? nueva : e).valor;
+    }
+
+    /**
+     * Quita la clave si todavía tiene el valor indicado.
+     *
+     * @param clave clave a quitar
+     * @param valor valor esperado
+     */
+    void quitar(String clave, V valor) {
+        entradas.computeIfPresent(clave, (k, e) -> e.valor == valor ? null : e);
+    }
+
+    /**
+     * @param clave clave a quitar
+     */
+    void quitar(String clave) {
+        entradas.remove(clave);
+    }
+
+    /** @return cantidad de entradas, incluidas las vencidas que aún no se descartaron */
+    int tamano() {
+        return entradas.size();
+    }
+
+    /** Valor y momento (nanoTime) en que vence. */
+    private static final class Entrada<V> {
+        private final V valor;
+        private final long expira;
+
+        Entrada(V valor, long expira) {
+            this.valor = valor;
+            this.expira = expira;
+        }
+
+        boolean vencida(long ahora) {
+            return ahora - expira >= 0;
+        }
+    }
+}
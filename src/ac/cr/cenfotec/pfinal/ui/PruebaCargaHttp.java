@@ -0,0 +1,340 @@
+package ac.cr.cenfotec.pfinal.ui;
+
+import ac.cr.cenfotec.pfinal.bl.entities.Hash;
+import ac.cr.cenfotec.pfinal.bl.logic.Gestor;
+import ac.cr.cenfotec.pfinal.bl.logic.Metricas;
+import ac.cr.cenfotec.pfinal.rendimiento.ArnesRendimiento;
+import ac.cr.cenfotec.pfinal.rendimiento.GeneradorDatos;
+import ac.cr.cenfotec.pfinal.rendimiento.PruebasRendimiento;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Prueba de carga de {@link ServidorHttp} con miles de conexiones abiertas a
+ * la vez.
+ * <p>
+ * Levanta en la misma JVM un {@link Gestor} en memoria y el servidor en un
+ * puerto libre, registra usuarios y departamentos sintéticos (ver
+ * {@link GeneradorDatos}) e inicia una sesión por usuario. Después, para
+ * cada cantidad de conexiones pedida, abre todas las conexiones HTTP/1.1
+ * persistentes, cada una en un hilo virtual, espera a que estén todas
+ * abiertas y las suelta a la vez. Cada conexión alterna
+ * {@code POST /tickets} y {@code GET /tickets} hasta completar sus
+ * solicitudes. Se ejecuta como un programa normal:
+ * </p>
+ * <pre>
+ * java ac.cr.cenfotec.pfinal.ui.PruebaCargaHttp \
+ *     --conexiones=100,1000,10000 --solicitudes=20 --salida=carga.jsonl
+ * </pre>
+ * <p>
+ * Cada cantidad de conexiones escribe una línea JSON con el mismo formato que
+ * {@link ArnesRendimiento}: solicitudes por segundo, percentiles de latencia,
+ * respuestas por código y conexiones que no se pudieron abrir o que se
+ * cortaron. Cliente y servidor comparten la máquina, así que cada conexión
+ * usa dos descriptores de archivo: para 10&nbsp;000 conexiones el límite
+ * ({@code ulimit -n}) debe superar 20&nbsp;000.
+ * </p>
+ */
+
+public class PruebaCargaHttp {
+    /** Usuarios registrados; las conexiones se reparten sus sesiones. */
+    private static final int USUARIOS = 1_000;
+    /** Departamentos registrados. */
+    private static final int DEPARTAMENTOS = 10;
+    /** Cuerpos distintos de {@code POST /tickets}, generados antes de medir. */
+    private static final int CUERPOS = 1_024;
+    /** Conexiones de la ronda de calentamiento, que no se informa. */
+    private static final int CONEXIONES_CALENTAMIENTO = 50;
+    /** Tiempo máximo para abrir una conexión o leer una respuesta, en milisegundos. */
+    private static final int TIEMPO_LIMITE_RED_MS = 30_000;
+
+    private final InetSocketAddress direccion; /** Dirección del servidor probado. */
+    private final String[] tokens; /** Token de sesión de cada usuario. */
+    private final String[] cuerpos; /** Cuerpos de {@code POST /tickets}, ya codificados. */
+
+    /**
+     * @param direccion dirección del servidor
+     * @param tokens    tokens de sesión, uno por usuario
+     * @param cuerpos   cuerpos de {@code POST /tickets} codificados como formulario
+     */
+    public PruebaCargaHttp(InetSocketAddress direccion, String[] tokens, String[] cuerpos) {
+        this.direccion = direccion;
+        this.tokens = tokens;
+        this.cuerpos = cuerpos;
+    }
+
+    /**
+     * Punto de entrada.
+     *
+     * @param args opciones {@code --conexiones}, {@code --solicitudes} y {@code --salida}
+     * @throws IOException si no se puede abrir el servidor o escribir el archivo de salida
+     */
+    public static void main(String[] args) throws IOException {
+        Map<String, String> opciones = new HashMap<>();
+        for (String a : args) {
+            int igual = a.indexOf('=');
+            if (!a.startsWith("--") || igual < 0) throw new IllegalArgumentException("Opción inválida: " + a);
+            opciones.put(a.substring(2, igual), a.substring(igual + 1));
+        }
+        int[] conexiones = Arrays.stream(opciones.getOrDefault("conexiones", "100,1000,10000").split(","))
+                .map(String::trim).mapToInt(Integer::parseInt).toArray();
+        int solicitudes = Integer.parseInt(opciones.getOrDefault("solicitudes", "20"));
+        PrintStream salida = opciones.containsKey("salida")
+                ? new PrintStream(Files.newOutputStream(Path.of(opciones.get("salida"))), true, StandardCharsets.UTF_8)
+                : System.out;
+
+        Gestor gestor = new Gestor();
+        // El hash de un paso mide el servidor y no el costo de las contraseñas.
+        gestor.configurarHash(Hash.SHA256_SIMPLE, 1);
+        GeneradorDatos g = new GeneradorDatos(PruebasRendimiento.SEMILLA);
+        for (int i = 0; i < DEPARTAMENTOS; i++) gestor.registrarDepartamento(g.nombreDepartamento(i), "", "");
+        for (int i = 0; i < USUARIOS; i++) {
+            gestor.registrarUsuario("Usuario " + i, g.correo(i), GeneradorDatos.CONTRASENA, "88888888", "estudiante");
+        }
+        String[] cuerpos = new String[CUERPOS];
+        for (int i = 0; i < cuerpos.length; i++) {
+            cuerpos[i] = "asunto=" + formulario(g.asunto()) + "&descripcion=" + formulario(g.descripcion())
+                    + "&departamento=" + formulario(g.nombreDepartamento(g.entero(DEPARTAMENTOS)));
+        }
+
+        ServidorHttp servidor = new ServidorHttp(gestor, new InetSocketAddress("127.0.0.1", 0));
+        servidor.iniciar();
+        try {
+            String[] tokens = new String[USUARIOS];
+            try (Conexion c = new Conexion(servidor.getDireccion())) {
+                for (int i = 0; i < USUARIOS; i++) tokens[i] = c.iniciarSesion(g.correo(i), GeneradorDatos.CONTRASENA);
+            }
+            PruebaCargaHttp prueba = new PruebaCargaHttp(servidor.getDireccion(), tokens, cuerpos);
+            prueba.correr(CONEXIONES_CALENTAMIENTO, solicitudes);
+            ArnesRendimiento arnes = new ArnesRendimiento(salida);
+            for (int n : conexiones) arnes.registrar(prueba.correr(n, solicitudes));
+        } finally {
+            servidor.detener(0);
+            gestor.cerrar();
+            if (salida != System.out) salida.close();
+        }
+    }
+
+    /**
+     * Abre {@code conexiones} conexiones, espera a que estén todas abiertas y
+     * envía por cada una {@code solicitudes} solicitudes seguidas.
+     *
+     * @param conexiones  conexiones simultáneas
+     * @param solicitudes solicitudes por conexión
+     * @return resultado de la ronda, todavía sin escribir
+     */
+    public ArnesRendimiento.Resultado correr(int conexiones, int solicitudes) {
+        Metricas.Histograma latencias = new Metricas().histograma("latencia");
+        Map<Integer, LongAdder> codigos = new ConcurrentHashMap<>();
+        LongAdder sinAbrir = new LongAdder();
+        LongAdder cortadas = new LongAdder();
+        CountDownLatch abiertas = new CountDownLatch(conexiones);
+        CountDownLatch largada = new CountDownLatch(1);
+        long inicio;
+        try (ExecutorService hilos = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int c = 0; c < conexiones; c++) {
+                int indice = c;
+                hilos.execute(() -> {
+                    Conexion conexion = null;
+                    try {
+                        conexion = new Conexion(direccion);
+                    } catch (IOException e) {
+                        sinAbrir.increment();
+                    } finally {
+                        abiertas.countDown();
+                    }
+                    if (conexion == null) return;
+                    try (Conexion abierta = conexion) {
+                        largada.await();
+                        String token = tokens[indice % tokens.length];
+                        for (int i = 0; i < solicitudes; i++) {
+                            long t = System.nanoTime();
+                            int codigo = (indice + i) % 2 == 0
+                                    ? abierta.enviar("POST", "/tickets", token, cuerpos[(indice * solicitudes + i) % cuerpos.length])
+                                    : abierta.enviar("GET", "/tickets?tamano=10", token, null);
+                            latencias.registrar(System.nanoTime() - t);
+                            codigos.computeIfAbsent(codigo, k -> new LongAdder()).increment();
+                        }
+                    } catch (IOException e) {
+                        cortadas.increment();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                });
+            }
+            try {
+                abiertas.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Prueba de carga interrumpida", e);
+            }
+            inicio = System.nanoTime();
+            largada.countDown();
+        }
+        long nanos = System.nanoTime() - inicio;
+        long respondidas = latencias.getCantidad();
+
+        ArnesRendimiento.Resultado r = new ArnesRendimiento.Resultado("http.mixto")
+                .con("conexiones", conexiones)
+                .con("solicitudesPorConexion", solicitudes)
+                .con("respondidas", respondidas)
+                .con("opsPorSegundo", nanos == 0 ? 0 : Math.round(respondidas * 1e9 / nanos))
+                .con("p50Ns", latencias.percentil(50))
+                .con("p99Ns", latencias.percentil(99))
+                .con("p999Ns", latencias.percentil(99.9))
+                .con("sinAbrir", sinAbrir.sum())
+                .con("cortadas", cortadas.sum());
+        codigos.entrySet().stream().sorted(Map.Entry.comparingByKey())
+                .forEach(e -> r.con("http" + e.getKey(), e.getValue().sum()));
+        return r;
+    }
+
+    private static String formulario(String texto) {
+        return URLEncoder.encode(texto, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Conexión HTTP/1.1 persistente, con lo mínimo para enviar formularios y
+     * leer respuestas con {@code Content-Length} o por trozos. Si el servidor
+     * cierra la conexión, la siguiente solicitud la vuelve a abrir.
+     */
+    private static final class Conexion implements Closeable {
+        private final InetSocketAddress direccion; /** Servidor al que se conecta. */
+        private final StringBuilder linea = new StringBuilder(); /** Línea de encabezado que se está leyendo. */
+        private Socket socket; /** Socket abierto, o null si el servidor lo cerró. */
+        private InputStream entrada; /** Respuestas del servidor. */
+        private OutputStream salida; /** Solicitudes al servidor. */
+        private String cuerpo; /** Cuerpo de la última respuesta, si se pidió guardarlo. */
+
+        Conexion(InetSocketAddress direccion) throws IOException {
+            this.direccion = direccion;
+            abrir();
+        }
+
+        private void abrir() throws IOException {
+            socket = new Socket();
+            socket.connect(direccion, TIEMPO_LIMITE_RED_MS);
+            socket.setSoTimeout(TIEMPO_LIMITE_RED_MS);
+            socket.setTcpNoDelay(true);
+            entrada = new BufferedInputStream(socket.getInputStream());
+            salida = socket.getOutputStream();
+        }
+
+        /** Inicia sesión y devuelve el token. */
+        String iniciarSesion(String correo, String contrasena) throws IOException {
+            int codigo = enviar("POST", "/sesiones", null,
+                    "correo=" + formulario(correo) + "&contrasena=" + formulario(contrasena), true);
+            int i = cuerpo.indexOf("\"token\":\"");
+            if (codigo != 200 || i < 0) throw new IOException("No se pudo iniciar sesión con " + correo + ": " + cuerpo);
+            return cuerpo.substring(i + 9, cuerpo.indexOf('"', i + 9));
+        }
+
+        /** Envía una solicitud y descarta el cuerpo de la respuesta. */
+        int enviar(String metodo, String ruta, String token, String formulario) throws IOException {
+            return enviar(metodo, ruta, token, formulario, false);
+        }
+
+        private int enviar(String metodo, String ruta, String token, String formulario, boolean guardar)
+                throws IOException {
+            if (socket == null) abrir();
+            StringBuilder sb = new StringBuilder(256).append(metodo).append(' ').append(ruta)
+                    .append(" HTTP/1.1\r\nHost: ").append(direccion.getHostString()).append("\r\n");
+            if (token != null) sb.append("Authorization: Bearer ").append(token).append("\r\n");
+            byte[] datos = formulario == null ? null : formulario.getBytes(StandardCharsets.UTF_8);
+            if (datos != null) {
+                sb.append("Content-Type: application/x-www-form-urlencoded\r\nContent-Length: ")
+                        .append(datos.length).append("\r\n");
+            }
+            salida.write(sb.append("\r\n").toString().getBytes(StandardCharsets.ISO_8859_1));
+            if (datos != null) salida.write(datos);
+            salida.flush();
+
+            String estado = leerLinea();
+            if (estado.length() < 12) throw new IOException("Respuesta inválida: " + estado);
+            int codigo = Integer.parseInt(estado.substring(9, 12));
+            long largo = -1;
+            boolean porTrozos = false;
+            boolean cerrar = false;
+            for (String l = leerLinea(); !l.isEmpty(); l = leerLinea()) {
+                int dosPuntos = l.indexOf(':');
+                if (dosPuntos < 0) continue;
+                String nombre = l.substring(0, dosPuntos).trim();
+                String valor = l.substring(dosPuntos + 1).trim();
+                if (nombre.equalsIgnoreCase("Content-Length")) largo = Long.parseLong(valor);
+                else if (nombre.equalsIgnoreCase("Transfer-Encoding")) porTrozos = valor.equalsIgnoreCase("chunked");
+                else if (nombre.equalsIgnoreCase("Connection")) cerrar = valor.equalsIgnoreCase("close");
+            }
+            byte[] leido;
+            if (porTrozos) {
+                leido = leerTrozos(guardar);
+            } else if (largo >= 0) {
+                leido = leer(largo, guardar);
+            } else {
+                leido = guardar ? entrada.readAllBytes() : null;
+                if (!guardar) entrada.transferTo(OutputStream.nullOutputStream());
+                cerrar = true;
+            }
+            cuerpo = leido == null ? null : new String(leido, StandardCharsets.UTF_8);
+            if (cerrar) close();
+            return codigo;
+        }
+
+        private byte[] leerTrozos(boolean guardar) throws IOException {
+            ByteArrayOutputStream todo = guardar ? new ByteArrayOutputStream() : null;
+            for (long largo = Long.parseLong(leerLinea().split(";")[0].trim(), 16); largo > 0;
+                 largo = Long.parseLong(leerLinea().split(";")[0].trim(), 16)) {
+                byte[] trozo = leer(largo, guardar);
+                if (todo != null) todo.write(trozo);
+                leerLinea();
+            }
+            while (!leerLinea().isEmpty()) {
+                // Encabezados finales; no se usan.
+            }
+            return todo == null ? null : todo.toByteArray();
+        }
+
+        private byte[] leer(long largo, boolean guardar) throws IOException {
+            if (guardar) return entrada.readNBytes((int) largo);
+            entrada.skipNBytes(largo);
+            return null;
+        }
+
+        private String leerLinea() throws IOException {
+            linea.setLength(0);
+            for (int b = entrada.read(); b != '\n'; b = entrada.read()) {
+                if (b < 0) throw new EOFException("El servidor cerró la conexión");
+                if (b != '\r') linea.append((char) b);
+            }
+            return linea.toString();
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (socket != null) {
+                socket.close();
+                socket = null;
+            }
+        }
+    }
+}
@@ -0,0 +1,679 @@
+package ac.cr.cenfotec.pfinal.ui;
+
+import ac.cr.cenfotec.pfinal.bl.entities.Clasificacion;
+import ac.cr.cenfotec.pfinal.bl.entities.ClaveTexto;
+import ac.cr.cenfotec.pfinal.bl.entities.EstadoTicket;
+import ac.cr.cenfotec.pfinal.bl.entities.Ticket;
+import ac.cr.cenfotec.pfinal.bl.logic.FiltroTickets;
+import ac.cr.cenfotec.pfinal.bl.logic.Gestor;
+import ac.cr.cenfotec.pfinal.bl.logic.Metricas;
+import ac.cr.cenfotec.pfinal.bl.logic.Pagina;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Servidor HTTP embebido que expone el {@link Gestor} a los navegadores.
+ * <p>
+ * Usa el {@link HttpServer} del JDK y atiende cada solicitud en un hilo
+ * virtual, de modo que miles de conexiones abiertas no ocupan miles de
+ * hilos del sistema operativo. Las rutas son:
+ * </p>
+ * <pre>
+ * POST   /sesiones               correo, contrasena; devuelve el token de la sesión
+ * DELETE /sesiones               cierra la sesión del token
+ * POST   /tickets                asunto, descripcion, departamento
+ * GET    /tickets                departamento, estado, usuario, cursor, tamano
+ * GET    /tickets/buscar         q, k
+ * GET    /diccionarios/tecnico   categoria
+ * POST   /diccionarios/tecnico   palabra, categoria (solo administradores)
+ * GET    /diccionarios/emocional categoria
+ * POST   /diccionarios/emocional palabra, categoria (solo administradores)
+ * GET    /metricas               formato de texto de Prometheus
+ * </pre>
+ * <p>
+ * Los parámetros van en la consulta (GET) o en un cuerpo
+ * {@code application/x-www-form-urlencoded} (POST); las respuestas son JSON.
+ * </p>
+ * <p>
+ * Sesiones: {@code POST /sesiones} devuelve un token aleatorio que vence a
+ * los {@link #DURACION_SESION_MS}. Todas las demás rutas, salvo
+ * {@code GET /metricas}, lo esperan en el encabezado
+ * {@code Authorization: Bearer <token>} y responden 401 sin él. Los tickets
+ * se registran a nombre del usuario de la sesión. Solo el rol
+ * {@link #ROL_ADMINISTRADOR} puede registrar palabras y consultar tickets de
+ * otros usuarios. A los demás, {@code GET /tickets} les responde 403 si
+ * piden los tickets de otro usuario, y {@code GET /tickets/buscar} les
+ * devuelve los {@code k} más relevantes entre los propios.
+ * </p>
+ * <p>
+ * Contrapresión: a lo sumo {@code maximoEnCurso} operaciones corren a la vez;
+ * las demás solicitudes se rechazan de inmediato con 503 y
+ * {@code Retry-After} en lugar de acumularse. El permiso se libera cuando la
+ * operación termina, no cuando se responde, así que una operación vencida
+ * sigue contando hasta que acaba.
+ * </p>
+ * <p>
+ * Tiempo límite: si una operación no termina en {@code tiempoLimiteMs} se
+ * responde 504. Además, si no están configurados, se fijan
+ * {@code sun.net.httpserver.maxReqTime} y {@code maxRspTime} para que un
+ * cliente lento no retenga su conexión indefinidamente.
+ * </p>
+ * <p>
+ * Conexiones: si no están configurados, también se fijan
+ * {@code sun.net.httpserver.nodelay}, para que Nagle y el ACK diferido no
+ * agreguen unos 40&nbsp;ms a cada respuesta, y
+ * {@code sun.net.httpserver.maxIdleConnections} en
+ * {@link #MAXIMO_CONEXIONES_INACTIVAS}, porque con el valor del JDK (200)
+ * el servidor cierra las conexiones persistentes que esperan entre una
+ * solicitud y otra en cuanto hay más de 200. {@link PruebaCargaHttp} mide
+ * el servidor con miles de conexiones abiertas.
+ * </p>
+ * <p>
+ * Un 504 no deshace la operación, que puede terminar después, así que
+ * reintentar un {@code POST /tickets} vencido puede duplicar el ticket. Para
+ * reintentar sin riesgo, el cliente envía el encabezado
+ * {@code Idempotency-Key}. Un reintento con la misma clave, del mismo usuario
+ * y dentro de {@link #VIDA_IDEMPOTENCIA_MS}, no registra otro ticket: espera
+ * y devuelve la respuesta de la primera solicitud.
+ * </p>
+ * <p>
+ * Errores: 400 si los parámetros o los datos no son válidos, y 500 si falla
+ * algo interno, por ejemplo la escritura en disco.
+ * </p>
+ */
+
+public class ServidorHttp {
+    /** Operaciones simultáneas por defecto. */
+    public static final int MAXIMO_EN_CURSO_POR_DEFECTO = 1024;
+    /** Tiempo límite por defecto de cada operación, en milisegundos. */
+    public static final long TIEMPO_LIMITE_POR_DEFECTO_MS = 2_000;
+    /** Tamaño máximo del cuerpo de una solicitud, en bytes. */
+    public static final int CUERPO_MAXIMO = 64 * 1024;
+    /** Conexiones pendientes de aceptar que admite el sistema operativo. */
+    public static final int COLA_CONEXIONES = 16 * 1024;
+    /** Conexiones persistentes que el servidor mantiene abiertas entre solicitudes. */
+    public static final int MAXIMO_CONEXIONES_INACTIVAS = 64 * 1024;
+    /** Tamaño de página por defecto de {@code GET /tickets}. */
+    public static final int TAMANO_PAGINA_POR_DEFECTO = 50;
+    /** Vida de una sesión desde que se inicia, en milisegundos. */
+    public static final long DURACION_SESION_MS = 30 * 60_000L;
+    /** Sesiones abiertas a la vez como máximo. */
+    public static final int MAXIMO_SESIONES = 100_000;
+    /** Tiempo durante el que se recuerda una clave de idempotencia, en milisegundos. */
+    public static final long VIDA_IDEMPOTENCIA_MS = 10 * 60_000L;
+    /** Claves de idempotencia recordadas a la vez como máximo. */
+    public static final int MAXIMO_CLAVES_IDEMPOTENCIA = 100_000;
+    /** Largo máximo del encabezado {@code Idempotency-Key}. */
+    public static final int LARGO_MAXIMO_IDEMPOTENCIA = 128;
+    /** Rol que puede registrar palabras y consultar los tickets de cualquier usuario. */
+    public static final String ROL_ADMINISTRADOR = "Administrador";
+
+    private final Gestor gestor; /** Lógica de negocio que atienden las rutas. */
+    private final HttpServer servidor; /** Servidor HTTP del JDK. */
+    private final ExecutorService hilos = Executors.newVirtualThreadPerTaskExecutor(); /** Un hilo virtual por solicitud y por operación. */
+    private final Semaphore enCurso; /** Permisos de operaciones simultáneas. */
+    private final int maximoEnCurso; /** Cantidad total de permisos. */
+    private final long tiempoLimiteMs; /** Tiempo límite de cada operación. */
+    private final MapaConVencimiento<Sesion> sesiones = new MapaConVencimiento<>(DURACION_SESION_MS, MAXIMO_SESIONES); /** Token → sesión. */
+    private final MapaConVencimiento<Future<Respuesta>> idempotentes =
+            new MapaConVencimiento<>(VIDA_IDEMPOTENCIA_MS, MAXIMO_CLAVES_IDEMPOTENCIA); /** Usuario y clave de idempotencia → operación. */
+    private final SecureRandom aleatorio = new SecureRandom(); /** Fuente de los tokens de sesión. */
+
+    private final Metricas.Histograma latencia; /** Duración de las solicitudes atendidas. */
+    private final Metricas.Contador atendidas; /** Solicitudes respondidas, con cualquier código. */
+    private final Metricas.Contador rechazadas; /** Solicitudes rechazadas por exceso de carga (503). */
+    private final Metricas.Contador vencidas; /** Solicitudes que superaron el tiempo límite (504). */
+    private final Metricas.Contador erroresInternos; /** Operaciones que fallaron por un error interno (500). */
+
+    /**
+     * Crea el servidor con los límites por defecto. No empieza a escuchar
+     * hasta {@link #iniciar()}.
+     *
+     * @param gestor    gestor a exponer
+     * @param direccion dirección y puerto donde escuchar (puerto 0 para uno libre)
+     * @throws IOException si no se puede abrir el puerto
+     */
+    public ServidorHttp(Gestor gestor, InetSocketAddress direccion) throws IOException {
+        this(gestor, direccion, MAXIMO_EN_CURSO_POR_DEFECTO, TIEMPO_LIMITE_POR_DEFECTO_MS);
+    }
+
+    /**
+     * @param gestor         gestor a exponer
+     * @param direccion      dirección y puerto donde escuchar (puerto 0 para uno libre)
+     * @param maximoEnCurso  operaciones simultáneas antes de responder 503
+     * @param tiempoLimiteMs tiempo máximo de cada operación antes de responder 504
+     * @throws IOException si no se puede abrir el puerto
+     */
+    public ServidorHttp(Gestor gestor, InetSocketAddress direccion, int maximoEnCurso, long tiempoLimiteMs)
+            throws IOException {
+        if (maximoEnCurso <= 0 || tiempoLimiteMs <= 0) {
+            throw new RuntimeException("Los límites del servidor deben ser positivos");
+        }
+        this.gestor = gestor;
+        this.maximoEnCurso = maximoEnCurso;
+        this.enCurso = new Semaphore(maximoEnCurso);
+        this.tiempoLimiteMs = tiempoLimiteMs;
+        String segundos = String.valueOf(Math.max(1, TimeUnit.MILLISECONDS.toSeconds(tiempoLimiteMs) * 2));
+        propiedadPorDefecto("sun.net.httpserver.maxReqTime", segundos);
+        propiedadPorDefecto("sun.net.httpserver.maxRspTime", segundos);
+        propiedadPorDefecto("sun.net.httpserver.nodelay", "true");
+        propiedadPorDefecto("sun.net.httpserver.maxIdleConnections", String.valueOf(MAXIMO_CONEXIONES_INACTIVAS));
+        this.servidor = HttpServer.create(direccion, COLA_CONEXIONES);
+        this.servidor.setExecutor(hilos);
+        this.servidor.createContext("/", this::atender);
+
+        Metricas m = gestor.getMetricas();
+        latencia = m.histograma("http_solicitud_segundos");
+        atendidas = m.contador("http_solicitudes_total");
+        rechazadas = m.contador("http_rechazadas_total");
+        vencidas = m.contador("http_vencidas_total");
+        erroresInternos = m.contador("http_errores_internos_total");
+        m.medidor("http_en_curso", () -> maximoEnCurso - enCurso.availablePermits());
+        m.medidor("http_sesiones", sesiones::tamano);
+    }
+
+    /**
+     * Fija una propiedad del servidor HTTP del JDK si no está configurada. El
+     * JDK las lee una sola vez, al crear el primer servidor.
+     */
+    private static void propiedadPorDefecto(String nombre, String valor) {
+        if (System.getProperty(nombre) == null) System.setProperty(nombre, valor);
+    }
+
+    /**
+     * Empieza a aceptar conexiones.
+     */
+    public void iniciar() {
+        servidor.start();
+    }
+
+    /**
+     * Deja de aceptar conexiones y espera hasta {@code segundos} a que
+     * terminen las solicitudes en curso.
+     *
+     * @param segundos espera máxima
+     */
+    public void detener(int segundos) {
+        servidor.stop(segundos);
+        hilos.shutdown();
+    }
+
+    /** @return dirección en la que escucha el servidor (con el puerto real si se pidió el 0) */
+    public InetSocketAddress getDireccion() {
+        return servidor.getAddress();
+    }
+
+    /** @return operaciones en curso */
+    public int getEnCurso() {
+        return maximoEnCurso - enCurso.availablePermits();
+    }
+
+    /**
+     * Atiende una solicitud en su hilo virtual: aplica la contrapresión, lee
+     * los parámetros y la sesión y ejecuta la operación con tiempo límite. Si
+     * la solicitud repite una clave de idempotencia, espera la operación
+     * original en lugar de ejecutar otra.
+     */
+    private void atender(HttpExchange x) throws IOException {
+        long inicio = System.nanoTime();
+        try (x) {
+            if (!enCurso.tryAcquire()) {
+                rechazadas.incrementar();
+                x.getResponseHeaders().set("Retry-After", "1");
+                responder(x, 503, error("Servidor ocupado, intente de nuevo"));
+                return;
+            }
+            Future<Respuesta> operacion;
+            String clave;
+            boolean entregado = false; // el permiso pasó a la operación, que lo devuelve al terminar
+            try {
+                Map<String, String> parametros = parametros(x);
+                String metodo = x.getRequestMethod();
+                String ruta = x.getRequestURI().getPath();
+                Sesion sesion = sesion(x);
+                Operacion tarea = new Operacion(() -> ejecutar(metodo, ruta, parametros, sesion));
+                clave = claveIdempotencia(x, metodo, ruta, sesion);
+                operacion = clave == null ? tarea : idempotentes.agregarSiAusente(clave, tarea);
+                if (operacion == null) throw new SolicitudInvalida(503, "Demasiadas solicitudes pendientes, intente de nuevo");
+                if (operacion == tarea) {
+                    entregado = true;
+                    try {
+                        hilos.execute(tarea);
+                    } catch (RuntimeException e) {
+                        if (clave != null) idempotentes.quitar(clave, tarea);
+                        tarea.cancel(false);
+                        throw e;
+                    }
+                }
+            } finally {
+                if (!entregado) enCurso.release();
+            }
+            responder(x, esperar(operacion, clave == null));
+        } catch (SolicitudInvalida e) {
+            responder(x, e.codigo, error(e.getMessage()));
+        } finally {
+            atendidas.incrementar();
+            latencia.registrar(System.nanoTime() - inicio);
+        }
+    }
+
+    /**
+     * Espera el resultado de una operación. Una operación con clave de
+     * idempotencia no se cancela al vencer, para que un reintento con la
+     * misma clave reciba su resultado.
+     */
+    private Respuesta esperar(Future<Respuesta> operacion, boolean cancelar) {
+        try {
+            return operacion.get(tiempoLimiteMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            if (cancelar) operacion.cancel(true);
+            vencidas.incrementar();
+            return new Respuesta(504, error("La operación superó el tiempo límite"));
+        } catch (CancellationException e) {
+            rechazadas.incrementar();
+            return new Respuesta(503, error("Servidor ocupado, intente de nuevo"));
+        } catch (InterruptedException e) {
+            if (cancelar) operacion.cancel(true);
+            Thread.currentThread().interrupt();
+            return new Respuesta(503, error("Solicitud interrumpida"));
+        } catch (ExecutionException e) {
+            Throwable causa = e.getCause();
+            if (causa instanceof SolicitudInvalida) {
+                return new Respuesta(((SolicitudInvalida) causa).codigo, error(causa.getMessage()));
+            }
+            if (causa instanceof RejectedExecutionException) {
+                rechazadas.incrementar();
+                return new Respuesta(503, error(causa.getMessage()));
+            }
+            if (esValidacion(causa)) {
+                return new Respuesta(400, error(causa.getMessage()));
+            }
+            erroresInternos.incrementar();
+            return new Respuesta(500, error("Error interno"));
+        }
+    }
+
+    /**
+     * Indica si una excepción del gestor es un error de validación (400) y no
+     * un fallo interno (500). El gestor valida con {@link RuntimeException}
+     * sin causa; los fallos de disco llegan como {@link UncheckedIOException}
+     * o envueltos junto con su causa.
+     */
+    private static boolean esValidacion(Throwable e) {
+        return e.getCause() == null && (e.getClass() == RuntimeException.class
+                || e instanceof IllegalArgumentException || e instanceof IllegalStateException);
+    }
+
+    /**
+     * Ejecuta la operación de una ruta.
+     */
+    private Respuesta ejecutar(String metodo, String ruta, Map<String, String> p, Sesion sesion) {
+        switch (ruta) {
+            case "/tickets":
+                if (metodo.equals("POST")) {
+                    int id = gestor.registrarTicket(obligatorio(p, "asunto"), obligatorio(p, "descripcion"),
+                            autenticada(sesion).correo, obligatorio(p, "departamento"));
+                    return new Respuesta(201, "{\"id\":" + id + "}");
+                }
+                soloGet(metodo);
+                return new Respuesta(200, pagina(listarTickets(p, autenticada(sesion))));
+            case "/tickets/buscar":
+                soloGet(metodo);
+                Sesion s = autenticada(sesion);
+                StringBuilder json = new StringBuilder("[");
+                for (Ticket t : gestor.buscarTicketsRelevantes(obligatorio(p, "q"), entero(p, "k", 10),
+                        s.administrador ? null : s::esDuena)) {
+                    if (json.length() > 1) json.append(',');
+                    ticket(json, t);
+                }
+                return new Respuesta(200, json.append(']').toString());
+            case "/sesiones":
+                if (metodo.equals("POST")) return iniciarSesion(p);
+                if (!metodo.equals("DELETE")) throw new SolicitudInvalida(405, "Método no permitido");
+                sesiones.quitar(autenticada(sesion).token);
+                return new Respuesta(200, "{\"cerrada\":true}");
+            case "/diccionarios/tecnico":
+                if (metodo.equals("POST")) {
+                    administrador(sesion);
+                    return new Respuesta(200, mensaje(gestor.registrarPalabraTecnica(
+                            obligatorio(p, "palabra"), obligatorio(p, "categoria"))));
+                }
+                soloGet(metodo);
+                autenticada(sesion);
+                return new Respuesta(200, textos(gestor.obtenerPalabrasTecnicas(obligatorio(p, "categoria"))));
+            case "/diccionarios/emocional":
+                if (metodo.equals("POST")) {
+                    administrador(sesion);
+                    return new Respuesta(200, mensaje(gestor.registrarPalabraEmocional(
+                            obligatorio(p, "palabra"), obligatorio(p, "categoria"))));
+                }
+                soloGet(metodo);
+                autenticada(sesion);
+                return new Respuesta(200, textos(gestor.obtenerPalabrasEmocionales(obligatorio(p, "categoria"))));
+            case "/metricas":
+                soloGet(metodo);
+                return new Respuesta(200, gestor.getMetricas().exportarPrometheus(), "text/plain; version=0.0.4");
+            default:
+                throw new SolicitudInvalida(404, "Ruta desconocida: " + ruta);
+        }
+    }
+
+    /**
+     * Valida las credenciales y, si son correctas, abre una sesión y devuelve
+     * su token.
+     */
+    private Respuesta iniciarSesion(Map<String, String> p) {
+        String correo = obligatorio(p, "correo");
+        if (!gestor.validarCredenciales(correo, obligatorio(p, "contrasena"))) {
+            return new Respuesta(401, "{\"valido\":false}");
+        }
+        String rol = gestor.obtenerRolUsuario(correo);
+        Sesion s = new Sesion(nuevoToken(), correo, ROL_ADMINISTRADOR.equalsIgnoreCase(rol));
+        if (sesiones.agregarSiAusente(s.token, s) != s) {
+            throw new SolicitudInvalida(503, "Demasiadas sesiones abiertas, intente de nuevo");
+        }
+        StringBuilder json = new StringBuilder("{\"valido\":true");
+        campo(json, "token", s.token);
+        campo(json, "rol", rol);
+        return new Respuesta(200, json.append(",\"venceEnMs\":").append(DURACION_SESION_MS).append('}').toString());
+    }
+
+    private String nuevoToken() {
+        byte[] bytes = new byte[32];
+        aleatorio.nextBytes(bytes);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+
+    /** Sesión vigente del encabezado {@code Authorization: Bearer}, o null. */
+    private Sesion sesion(HttpExchange x) {
+        String autorizacion = x.getRequestHeaders().getFirst("Authorization");
+        if (autorizacion == null || !autorizacion.regionMatches(true, 0, "Bearer ", 0, 7)) return null;
+        return sesiones.obtener(autorizacion.substring(7).trim());
+    }
+
+    private static Sesion autenticada(Sesion sesion) {
+        if (sesion == null) throw new SolicitudInvalida(401, "Debe iniciar sesión");
+        return sesion;
+    }
+
+    private static void administrador(Sesion sesion) {
+        if (!autenticada(sesion).administrador) throw new SolicitudInvalida(403, "Solo un administrador puede hacer esta operación");
+    }
+
+    /**
+     * Clave de idempotencia de un {@code POST /tickets}, propia del usuario de
+     * la sesión, o null si la solicitud no la trae.
+     */
+    private static String claveIdempotencia(HttpExchange x, String metodo, String ruta, Sesion sesion) {
+        String clave = x.getRequestHeaders().getFirst("Idempotency-Key");
+        if (clave == null || sesion == null || !metodo.equals("POST") || !ruta.equals("/tickets")) return null;
+        if (clave.isBlank() || clave.length() > LARGO_MAXIMO_IDEMPOTENCIA) {
+            throw new SolicitudInvalida(400, "Idempotency-Key debe tener entre 1 y " + LARGO_MAXIMO_IDEMPOTENCIA + " caracteres");
+        }
+        return sesion.claveCorreo + '\n' + clave;
+    }
+
+    /**
+     * Lista tickets con los filtros de la consulta. Si solo se pide un
+     * usuario, usa el índice por usuario (del más reciente al más antiguo).
+     * Salvo para un administrador, el usuario es siempre el de la sesión.
+     */
+    private Pagina<Ticket> listarTickets(Map<String, String> p, Sesion sesion) {
+        int cursor = entero(p, "cursor", 0);
+        int tamano = entero(p, "tamano", TAMANO_PAGINA_POR_DEFECTO);
+        String departamento = p.get("departamento");
+        String estado = p.get("estado");
+        String usuario = p.get("usuario");
+        if (!sesion.administrador) {
+            if (usuario != null && !ClaveTexto.clave(usuario).equals(sesion.claveCorreo)) {
+                throw new SolicitudInvalida(403, "Solo puede consultar sus propios tickets");
+            }
+            usuario = sesion.correo;
+        }
+        if (usuario != null && departamento == null && estado == null) {
+            return gestor.listarTicketsDeUsuario(usuario, cursor, tamano);
+        }
+        FiltroTickets filtro = new FiltroTickets();
+        if (departamento != null) filtro.departamento(departamento);
+        if (usuario != null) filtro.usuario(usuario);
+        if (estado != null) {
+            EstadoTicket e = EstadoTicket.desdeTexto(estado);
+            if (e == null) throw new SolicitudInvalida(400, "Estado de ticket desconocido: " + estado);
+            filtro.estados(e);
+        }
+        return gestor.listarTickets(filtro, cursor, tamano);
+    }
+
+    private static void soloGet(String metodo) {
+        if (!metodo.equals("GET")) throw new SolicitudInvalida(405, "Método no permitido");
+    }
+
+    /**
+     * Lee los parámetros de la consulta y, en POST, del cuerpo.
+     */
+    private static Map<String, String> parametros(HttpExchange x) throws IOException {
+        Map<String, String> p = new HashMap<>();
+        decodificar(x.getRequestURI().getRawQuery(), p);
+        if (x.getRequestMethod().equals("POST")) {
+            try (InputStream in = x.getRequestBody()) {
+                byte[] cuerpo = in.readNBytes(CUERPO_MAXIMO + 1);
+                if (cuerpo.length > CUERPO_MAXIMO) throw new SolicitudInvalida(413, "Cuerpo demasiado grande");
+                decodificar(new String(cuerpo, StandardCharsets.UTF_8), p);
+            }
+        }
+        return p;
+    }
+
+    private static void decodificar(String texto, Map<String, String> p) {
+        if (texto == null || texto.isEmpty()) return;
+        for (String par : texto.split("&")) {
+            int i = par.indexOf('=');
+            String clave = i < 0 ? par : par.substring(0, i);
+            String valor = i < 0 ? "" : par.substring(i + 1);
+            try {
+                p.put(URLDecoder.decode(clave, StandardCharsets.UTF_8), URLDecoder.decode(valor, StandardCharsets.UTF_8));
+            } catch (IllegalArgumentException e) {
+                throw new SolicitudInvalida(400, "Parámetro mal codificado: " + clave);
+            }
+        }
+    }
+
+    private static String obligatorio(Map<String, String> p, String nombre) {
+        String v = p.get(nombre);
+        if (v == null || v.isBlank()) throw new SolicitudInvalida(400, "Falta el parámetro " + nombre);
+        return v;
+    }
+
+    private static int entero(Map<String, String> p, String nombre, int porDefecto) {
+        String v = p.get(nombre);
+        if (v == null || v.isBlank()) return porDefecto;
+        try {
+            return Integer.parseInt(v.trim());
+        } catch (NumberFormatException e) {
+            throw new SolicitudInvalida(400, "El parámetro " + nombre + " debe ser un número entero");
+        }
+    }
+
+    private static void responder(HttpExchange x, Respuesta r) throws IOException {
+        x.getResponseHeaders().set("Content-Type", r.tipo);
+        responder(x, r.codigo, r.cuerpo);
+    }
+
+    private static void responder(HttpExchange x, int codigo, String cuerpo) throws IOException {
+        if (!x.getResponseHeaders().containsKey("Content-Type")) {
+            x.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        }
+        if (codigo == 401) x.getResponseHeaders().set("WWW-Authenticate", "Bearer");
+        byte[] bytes = cuerpo.getBytes(StandardCharsets.UTF_8);
+        try {
+            x.sendResponseHeaders(codigo, bytes.length);
+            try (OutputStream out = x.getResponseBody()) {
+                out.write(bytes);
+            }
+        } catch (IOException e) {
+            // El cliente cerró la conexión; no hay a quién responder.
+        }
+    }
+
+    private static String pagina(Pagina<Ticket> pagina) {
+        StringBuilder json = new StringBuilder("{\"tickets\":[");
+        boolean primero = true;
+        for (Ticket t : pagina.getElementos()) {
+            if (!primero) json.append(',');
+            ticket(json, t);
+            primero = false;
+        }
+        return json.append("],\"siguienteCursor\":").append(pagina.getSiguienteCursor()).append('}').toString();
+    }
+
+    private static void ticket(StringBuilder json, Ticket t) {
+        Clasificacion c = t.getClasificacion();
+        json.append("{\"id\":").append(t.getId());
+        campo(json, "asunto", t.getAsunto());
+        campo(json, "descripcion", t.getDescripcion());
+        campo(json, "estado", t.getEstado());
+        campo(json, "usuario", t.getUsuario() == null ? null : t.getUsuario().getCorreo());
+        campo(json, "departamento", t.getDepartamento() == null ? null : t.getDepartamento().getNombre());
+        campo(json, "categoria", c == null ? null : c.getCategoria());
+        campo(json, "emocion", c == null ? null : c.getEmocion());
+        json.append(",\"fechaCreacion\":").append(t.getFechaCreacion());
+        json.append(",\"posibleDuplicado\":").append(t.getPosibleDuplicado()).append('}');
+    }
+
+    private static String textos(List<String> textos) {
+        StringBuilder json = new StringBuilder("[");
+        for (String s : textos) {
+            if (json.length() > 1) json.append(',');
+            texto(json, s);
+        }
+        return json.append(']').toString();
+    }
+
+    private static String mensaje(String mensaje) {
+        StringBuilder json = new StringBuilder("{\"mensaje\":");
+        texto(json, mensaje);
+        return json.append('}').toString();
+    }
+
+    private static String error(String mensaje) {
+        StringBuilder json = new StringBuilder("{\"error\":");
+        texto(json, mensaje);
+        return json.append('}').toString();
+    }
+
+    private static void campo(StringBuilder json, String nombre, String valor) {
+        json.append(",\"").append(nombre).append("\":");
+        texto(json, valor);
+    }
+
+    /** Escribe un texto como cadena JSON, o {@code null}. */
+    private static void texto(StringBuilder json, String s) {
+        if (s == null) {
+            json.append("null");
+            return;
+        }
+        json.append('"');
+        for (int i = 0; i < s.length(); i++) {
+            char ch = s.charAt(i);
+            switch (ch) {
+                case '"': json.append("\\\""); break;
+                case '\\': json.append("\\\\"); break;
+                case '\n': json.append("\\n"); break;
+                case '\r': json.append("\\r"); break;
+                case '\t': json.append("\\t"); break;
+                default:
+                    if (ch < 0x20) json.append(String.format("\\u%04x", (int) ch));
+                    else json.append(ch);
+            }
+        }
+        json.append('"');
+    }
+
+    /** Código, cuerpo y tipo de contenido de una respuesta. */
+    private static final class Respuesta {
+        private final int codigo;
+        private final String cuerpo;
+        private final String tipo;
+
+        Respuesta(int codigo, String cuerpo) {
+            this(codigo, cuerpo, "application/json; charset=utf-8");
+        }
+
+        Respuesta(int codigo, String cuerpo, String tipo) {
+            this.codigo = codigo;
+            this.cuerpo = cuerpo;
+            this.tipo = tipo;
+        }
+    }
+
+    /**
+     * Operación que devuelve su permiso de {@link #enCurso} al terminar, sea
+     * normalmente, con error o cancelada, aunque la cancelación llegue antes
+     * de que empiece a correr.
+     */
+    private final class Operacion extends FutureTask<Respuesta> {
+        Operacion(Callable<Respuesta> llamada) {
+            super(llamada);
+        }
+
+        @Override
+        protected void done() {
+            enCurso.release();
+        }
+    }
+
+    /** Sesión abierta con {@code POST /sesiones}. */
+    private static final class Sesion {
+        private final String token;
+        private final String correo;
+        private final String claveCorreo;
+        private final boolean administrador;
+
+        Sesion(String token, String correo, boolean administrador) {
+            this.token = token;
+            this.correo = correo;
+            this.claveCorreo = ClaveTexto.clave(correo);
+            this.administrador = administrador;
+        }
+
+        boolean esDuena(Ticket t) {
+            return t.getUsuario() != null && claveCorreo.equals(t.getUsuario().getClaveCorreo());
+        }
+    }
+
+    /** Solicitud que no se puede atender, con el código HTTP a responder. */
+    private static final class SolicitudInvalida extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        private final int codigo;
+
+        SolicitudInvalida(int codigo, String mensaje) {
+            super(mensaje);
+            this.codigo = codigo;
+        }
+    }
+}